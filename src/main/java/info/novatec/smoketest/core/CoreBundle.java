@@ -27,17 +27,24 @@ package info.novatec.smoketest.core;
 import com.google.inject.AbstractModule;
 import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
+import com.google.inject.multibindings.Multibinder;
 import info.novatec.smoketest.core.application.Bundle;
 import info.novatec.smoketest.core.application.Environment;
 import info.novatec.smoketest.core.application.Setup;
 import info.novatec.smoketest.core.model.IMetricDefinition;
 import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.service.collector.ICollectorInterceptor;
 import info.novatec.smoketest.core.service.collector.IMetricDataCollector;
 import info.novatec.smoketest.core.service.collector.NoOpDataCollector;
+import info.novatec.smoketest.core.service.testing.IMetricTestExpander;
 import info.novatec.smoketest.core.service.testing.ITestExecutionService;
+import info.novatec.smoketest.core.service.testing.NativeTestExecutionService;
+import info.novatec.smoketest.core.service.testing.NoOpMetricTestExpander;
+import info.novatec.smoketest.core.service.testing.PlanExecutionService;
 import info.novatec.smoketest.core.service.testing.TestExecutionService;
 import info.novatec.smoketest.core.service.time.ITimeService;
 import info.novatec.smoketest.core.service.time.TimeService;
+import net.sourceforge.argparse4j.impl.Arguments;
 
 /**
  * This bundle provides services and command line arguments for all core services.
@@ -63,12 +70,35 @@ public class CoreBundle extends Bundle<SmokeTestConfiguration> {
                 .addArgument("-o", "--override")
                 .nargs("+")
                 .help("Values to be overwritten in configuration! E.g -d myProperty=Value");
+
+        setup.getParser()
+                .addArgument("--" + PlanExecutionService.PLAN_ARGUMENT)
+                .action(Arguments.storeTrue())
+                .help("Prints the execution plan with the estimated queries instead of executing the tests!");
     }
 
     @Override
     public void configure(Environment.Builder<SmokeTestConfiguration> builder) {
         //Install the core service
         builder.services(new CoreServices());
+        if (builder.getConfiguration().isNativeExecution()) {
+            //Replace the TestNG test execution by the native engine
+            builder.services(new AbstractModule() {
+                @Override
+                protected void configure() {
+                    bind(ITestExecutionService.class).to(NativeTestExecutionService.class).in(Singleton.class);
+                }
+            });
+        }
+        if (Boolean.TRUE.equals(builder.getNamespace().getBoolean(PlanExecutionService.PLAN_ARGUMENT))) {
+            //Replace the test execution by the dry run
+            builder.services(new AbstractModule() {
+                @Override
+                protected void configure() {
+                    bind(ITestExecutionService.class).to(PlanExecutionService.class).in(Singleton.class);
+                }
+            });
+        }
     }
 
     /**
@@ -79,6 +109,10 @@ public class CoreBundle extends Bundle<SmokeTestConfiguration> {
         public void configure() {
             bind(ITestExecutionService.class).to(TestExecutionService.class).in(Singleton.class);
             bind(ITimeService.class).to(TimeService.class).in(Singleton.class);
+            bind(IMetricTestExpander.class).to(NoOpMetricTestExpander.class).in(Singleton.class);
+
+            //Declare the interceptor set even if no bundle contributes an interceptor
+            Multibinder.newSetBinder(binder(), ICollectorInterceptor.class);
 
             //bind NoOp default collect service
             bind(new TypeLiteral<IMetricDataCollector<IMetricDefinition, IMetricTestResult>>() {
@@ -73,6 +73,53 @@ public class SmokeTestConfiguration extends Configuration {
      */
     private Locale locale = Locale.getDefault();
 
+    /**
+     * The count of metric tests which are executed concurrently.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Flag to execute the metric tests directly on an executor instead of running them as TestNG tests.
+     * TestNG is then only used to feed the results to the reporters.
+     */
+    private boolean nativeExecution = false;
+
+    /**
+     * The maximum duration of a run in seconds, e.g. the distance to the next cron slot. Once the remaining time
+     * can not cover a test, the test is not started anymore. 0 disables the deadline.
+     */
+    private int runDeadline = 0;
+
+    /**
+     * The count of threads validating collected results if {@link #nativeExecution} is enabled. The collection
+     * itself is done by {@link #parallelism} threads.
+     */
+    private int validationParallelism = 2;
+
+    /**
+     * The count of threads handing validated results to the reporters if {@link #nativeExecution} is enabled.
+     */
+    private int reportParallelism = 1;
+
+    /**
+     * The capacity of the queues between the collection, validation and reporting stage if {@link
+     * #nativeExecution} is enabled. A full queue blocks the previous stage.
+     */
+    private int pipelineCapacity = 64;
+
+    /**
+     * The count of results from which rules supporting it are evaluated on several threads. Smaller result sets
+     * are validated by the test thread alone. 0 disables the parallel validation.
+     */
+    private int parallelValidationThreshold = 100000;
+
+    /**
+     * The count of test outcomes buffered for each subscriber of {@link
+     * info.novatec.smoketest.core.service.testing.ITestExecutionService#getOutcomes()}. Once the buffer is full, the
+     * test execution waits until the subscriber requests more outcomes.
+     */
+    private int outcomeBufferSize = 256;
+
     /**
      * No-Args Constructor.
      */
@@ -190,4 +237,156 @@ public class SmokeTestConfiguration extends Configuration {
     public void setDateTimePattern(String dateTimePattern) {
         this.dateTimePattern = dateTimePattern;
     }
+
+    /**
+     * Gets {@link #parallelism}.
+     *
+     * @return {@link #parallelism}
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets {@link #parallelism}.
+     *
+     * @param parallelism
+     *         New value for {@link #parallelism}
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets {@link #nativeExecution}.
+     *
+     * @return {@link #nativeExecution}
+     */
+    public boolean isNativeExecution() {
+        return nativeExecution;
+    }
+
+    /**
+     * Sets {@link #nativeExecution}.
+     *
+     * @param nativeExecution
+     *         New value for {@link #nativeExecution}
+     */
+    public void setNativeExecution(boolean nativeExecution) {
+        this.nativeExecution = nativeExecution;
+    }
+
+    /**
+     * Gets {@link #runDeadline}.
+     *
+     * @return {@link #runDeadline}
+     */
+    public int getRunDeadline() {
+        return runDeadline;
+    }
+
+    /**
+     * Sets {@link #runDeadline}.
+     *
+     * @param runDeadline
+     *         New value for {@link #runDeadline}
+     */
+    public void setRunDeadline(int runDeadline) {
+        this.runDeadline = runDeadline;
+    }
+
+    /**
+     * Gets {@link #validationParallelism}.
+     *
+     * @return {@link #validationParallelism}
+     */
+    public int getValidationParallelism() {
+        return validationParallelism;
+    }
+
+    /**
+     * Sets {@link #validationParallelism}.
+     *
+     * @param validationParallelism
+     *         New value for {@link #validationParallelism}
+     */
+    public void setValidationParallelism(int validationParallelism) {
+        this.validationParallelism = validationParallelism;
+    }
+
+    /**
+     * Gets {@link #reportParallelism}.
+     *
+     * @return {@link #reportParallelism}
+     */
+    public int getReportParallelism() {
+        return reportParallelism;
+    }
+
+    /**
+     * Sets {@link #reportParallelism}.
+     *
+     * @param reportParallelism
+     *         New value for {@link #reportParallelism}
+     */
+    public void setReportParallelism(int reportParallelism) {
+        this.reportParallelism = reportParallelism;
+    }
+
+    /**
+     * Gets {@link #pipelineCapacity}.
+     *
+     * @return {@link #pipelineCapacity}
+     */
+    public int getPipelineCapacity() {
+        return pipelineCapacity;
+    }
+
+    /**
+     * Sets {@link #pipelineCapacity}.
+     *
+     * @param pipelineCapacity
+     *         New value for {@link #pipelineCapacity}
+     */
+    public void setPipelineCapacity(int pipelineCapacity) {
+        this.pipelineCapacity = pipelineCapacity;
+    }
+
+    /**
+     * Gets {@link #parallelValidationThreshold}.
+     *
+     * @return {@link #parallelValidationThreshold}
+     */
+    public int getParallelValidationThreshold() {
+        return parallelValidationThreshold;
+    }
+
+    /**
+     * Sets {@link #parallelValidationThreshold}.
+     *
+     * @param parallelValidationThreshold
+     *         New value for {@link #parallelValidationThreshold}
+     */
+    public void setParallelValidationThreshold(int parallelValidationThreshold) {
+        this.parallelValidationThreshold = parallelValidationThreshold;
+    }
+
+    /**
+     * Gets {@link #outcomeBufferSize}.
+     *
+     * @return {@link #outcomeBufferSize}
+     */
+    public int getOutcomeBufferSize() {
+        return outcomeBufferSize;
+    }
+
+    /**
+     * Sets {@link #outcomeBufferSize}.
+     *
+     * @param outcomeBufferSize
+     *         New value for {@link #outcomeBufferSize}
+     */
+    public void setOutcomeBufferSize(int outcomeBufferSize) {
+        this.outcomeBufferSize = outcomeBufferSize;
+    }
 }
@@ -30,6 +30,7 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.google.inject.Stage;
+import com.google.inject.TypeLiteral;
 import com.google.inject.util.Modules;
 import info.novatec.smoketest.core.application.configuration.Configuration;
 import info.novatec.smoketest.core.util.PostConstructListenerModule;
@@ -177,6 +178,8 @@ public class Environment<T extends Configuration> {
             protected void configure() {
                 install(new PostConstructListenerModule());
                 bind(Environment.class).toInstance(Environment.this);
+                bind(new TypeLiteral<Environment<?>>() {
+                }).toInstance(Environment.this);
                 bind(Namespace.class).toInstance(setup.getNamespace());
                 bind(Configuration.class).toInstance(setup.getConfiguration());
 
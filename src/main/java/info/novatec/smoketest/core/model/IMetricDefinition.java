@@ -24,6 +24,9 @@
 
 package info.novatec.smoketest.core.model;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Common interface for all kinds of metrics. Implementations of this interface needs to by provided for each technology
  * which should be supported.
@@ -49,4 +52,25 @@ public interface IMetricDefinition {
      */
     String getFullQualifiedName();
 
+    /**
+     * Gets the scopes of the metric ordered from the widest to the narrowest, e.g. the monitored environment followed
+     * by the monitored agent. A failed canary test blocks all tests sharing one of its scopes. By default all metrics
+     * share one scope.
+     *
+     * @return The scopes of the metric, never empty
+     * @see MetricTest#isCanary()
+     */
+    default List<String> getScopes() {
+        return Collections.singletonList("");
+    }
+
+    /**
+     * Gets the window of this metric. Metrics with different windows can be tested within one run.
+     *
+     * @return The {@link TimeWindow} or null to use the global {@link TimeRange} of the run
+     */
+    default TimeWindow getWindow() {
+        return null;
+    }
+
 }
@@ -43,4 +43,12 @@ public interface IMetricTestResult {
      * @return The string representation of the test result.
      */
     String getValue();
+
+    /**
+     * @return The start of the time slice of this result in milliseconds since the epoch or 0 if the result aggregates
+     * the whole window. Rules which check a trend order the results by this timestamp.
+     */
+    default long getTimestamp() {
+        return 0;
+    }
 }
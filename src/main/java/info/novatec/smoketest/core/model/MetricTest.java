@@ -57,6 +57,14 @@ public class MetricTest<IN extends IMetricDefinition, OUT extends IMetricTestRes
      */
     private List<IValidationRule<IN, OUT>> validations = Lists.newArrayList();
 
+    /**
+     * Flag to indicate that this test is a canary. Canaries are executed before all other tests and a failed canary
+     * blocks all tests sharing its scope.
+     *
+     * @see IMetricDefinition#getScopes()
+     */
+    private boolean canary;
+
     /**
      * Creates a new MetricTest.
      *
@@ -87,9 +95,25 @@ public class MetricTest<IN extends IMetricDefinition, OUT extends IMetricTestRes
     public MetricTest(final IN metric,
                       final TestLevel level,
                       final List<IValidationRule<IN, OUT>> validations) {
+        this(metric, level, validations, false);
+    }
+
+    /**
+     * Creates a new MetricTest.
+     *
+     * @param metric      The {@link IMetricDefinition}
+     * @param level       The {@link TestLevel}
+     * @param validations The {@link IValidationRule}s
+     * @param canary      Flag to indicate that this test is a canary
+     */
+    public MetricTest(final IN metric,
+                      final TestLevel level,
+                      final List<IValidationRule<IN, OUT>> validations,
+                      final boolean canary) {
         this.metric = metric;
         this.level = level;
         this.validations = validations;
+        this.canary = canary;
     }
 
     @Override
@@ -99,12 +123,13 @@ public class MetricTest<IN extends IMetricDefinition, OUT extends IMetricTestRes
         MetricTest<?, ?> that = (MetricTest<?, ?>) o;
         return Objects.equal(getMetric(), that.getMetric()) &&
                 getLevel() == that.getLevel() &&
+                isCanary() == that.isCanary() &&
                 Objects.equal(getValidations(), that.getValidations());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(getMetric(), getLevel(), getValidations());
+        return Objects.hashCode(getMetric(), getLevel(), getValidations(), isCanary());
     }
 
     /**
@@ -133,4 +158,13 @@ public class MetricTest<IN extends IMetricDefinition, OUT extends IMetricTestRes
     public List<IValidationRule<IN, OUT>> getValidations() {
         return validations;
     }
+
+    /**
+     * Gets {@link #canary}.
+     *
+     * @return {@link #canary}
+     */
+    public boolean isCanary() {
+        return canary;
+    }
 }
@@ -24,6 +24,9 @@
 
 package info.novatec.smoketest.core.model;
 
+import info.novatec.smoketest.core.model.storage.IResultCodec;
+import info.novatec.smoketest.core.model.storage.OffHeapResultList;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,6 +43,11 @@ import java.util.List;
  */
 public class MetricTestResultSet<IN extends IMetricDefinition, OUT extends IMetricTestResult> {
 
+    /**
+     * The count of results which are kept on the heap for reporters if off-heap results are released.
+     */
+    public static final int RELEASED_SAMPLE_SIZE = 100;
+
     /**
      * The {@link IMetricDefinition}.
      */
@@ -56,6 +64,16 @@ public class MetricTestResultSet<IN extends IMetricDefinition, OUT extends IMetr
      */
     private TimeRange timeRange;
 
+    /**
+     * The query which was executed to collect the results. The query is shared by all results of this set.
+     */
+    private String query;
+
+    /**
+     * Flag to indicate that not all available results were collected, e.g. because a collector limit was reached.
+     */
+    private boolean truncated;
+
     /**
      * Creates a new MetricTestResultSet.
      *
@@ -109,6 +127,43 @@ public class MetricTestResultSet<IN extends IMetricDefinition, OUT extends IMetr
         return this;
     }
 
+    /**
+     * Moves all results to an {@link OffHeapResultList}. All results added afterwards are stored off-heap as well.
+     * Nothing happens if the results are already stored off-heap.
+     *
+     * @param codec
+     *         The {@link IResultCodec} to store the results
+     * @return The MetricTestResultSet itself for chaining.
+     */
+    public MetricTestResultSet<IN, OUT> spill(final IResultCodec<OUT> codec) {
+        if (!isOffHeap()) {
+            OffHeapResultList<OUT> offHeap = new OffHeapResultList<>(codec);
+            offHeap.addAll(results);
+            results = offHeap;
+        }
+        return this;
+    }
+
+    /**
+     * Releases the native memory of off-heap results. The first {@link #RELEASED_SAMPLE_SIZE} results are copied to
+     * the heap, so reporters which access the result set after the test still have something to show. Result sets
+     * stored on the heap are not changed.
+     */
+    public void release() {
+        if (isOffHeap()) {
+            OffHeapResultList<OUT> offHeap = (OffHeapResultList<OUT>) results;
+            results = new ArrayList<>(offHeap.subList(0, Math.min(RELEASED_SAMPLE_SIZE, offHeap.size())));
+            offHeap.release();
+        }
+    }
+
+    /**
+     * @return true if the results are stored off-heap
+     */
+    public boolean isOffHeap() {
+        return results instanceof OffHeapResultList;
+    }
+
     /**
      * Checks if this result set has results.
      *
@@ -138,4 +193,40 @@ public class MetricTestResultSet<IN extends IMetricDefinition, OUT extends IMetr
     public List<OUT> getResults() {
         return results;
     }
+
+    /**
+     * @return The executed query, might be null
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Sets the query which was executed to collect the results.
+     *
+     * @param query
+     *         The executed query
+     * @return The MetricTestResultSet itself for chaining.
+     */
+    public MetricTestResultSet<IN, OUT> setQuery(final String query) {
+        this.query = query;
+        return this;
+    }
+
+    /**
+     * @return true if not all available results were collected
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Marks this result set as truncated.
+     *
+     * @param truncated
+     *         true if not all available results were collected
+     */
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
 }
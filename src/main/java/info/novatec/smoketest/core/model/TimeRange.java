@@ -25,6 +25,7 @@
 package info.novatec.smoketest.core.model;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
 
 import java.time.ZonedDateTime;
 
@@ -65,6 +66,20 @@ public class TimeRange {
         this.to = to;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimeRange that = (TimeRange) o;
+        return Objects.equal(from, that.from) &&
+                Objects.equal(to, that.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(from, to);
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
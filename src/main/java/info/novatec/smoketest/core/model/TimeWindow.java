@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.model;
+
+import com.google.common.base.Objects;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An optional window of a single metric which replaces the global {@link TimeRange} of the run. A window is either
+ * relative, i.e. an offset back from the end of the global TimeRange, or absolute, i.e. a fixed TimeRange.
+ *
+ * @author Claudio Waldvogel
+ * @see info.novatec.smoketest.core.service.time.ITimeService#getTimeRange(TimeWindow)
+ */
+public final class TimeWindow {
+
+    /**
+     * The offset back from the end of the global TimeRange. Null if the window is absolute.
+     */
+    private final Duration offset;
+
+    /**
+     * The fixed TimeRange. Null if the window is relative.
+     */
+    private final TimeRange range;
+
+    /**
+     * Creates a new TimeWindow.
+     *
+     * @param offset
+     *         The offset
+     * @param range
+     *         The fixed TimeRange
+     */
+    private TimeWindow(final Duration offset,
+                       final TimeRange range) {
+        this.offset = offset;
+        this.range = range;
+    }
+
+    /**
+     * Creates a relative TimeWindow.
+     *
+     * @param offset
+     *         The offset back from the end of the global TimeRange
+     * @return The TimeWindow
+     */
+    public static TimeWindow relative(final Duration offset) {
+        checkArgument(!checkNotNull(offset).isNegative() && !offset.isZero(), "The offset must be positive");
+        return new TimeWindow(offset, null);
+    }
+
+    /**
+     * Creates an absolute TimeWindow.
+     *
+     * @param from
+     *         The from date
+     * @param to
+     *         The to date
+     * @return The TimeWindow
+     */
+    public static TimeWindow absolute(final ZonedDateTime from,
+                                      final ZonedDateTime to) {
+        checkArgument(checkNotNull(from).isBefore(checkNotNull(to)), "The from date must be before the to date");
+        return new TimeWindow(null, new TimeRange(from, to));
+    }
+
+    /**
+     * Resolves this window against the global TimeRange.
+     *
+     * @param global
+     *         The global TimeRange of the run
+     * @return The effective TimeRange
+     */
+    public TimeRange resolve(final TimeRange global) {
+        if (range != null) {
+            return range;
+        }
+        return new TimeRange(global.getTo().minus(offset), global.getTo());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimeWindow that = (TimeWindow) o;
+        return Objects.equal(offset, that.offset) &&
+                Objects.equal(range, that.range);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(offset, range);
+    }
+
+    @Override
+    public String toString() {
+        return range != null ? range.getFrom() + " - " + range.getTo() : "last " + offset;
+    }
+
+    /**
+     * Gets {@link #offset}.
+     *
+     * @return {@link #offset}
+     */
+    public Duration getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets {@link #range}.
+     *
+     * @return {@link #range}
+     */
+    public TimeRange getRange() {
+        return range;
+    }
+}
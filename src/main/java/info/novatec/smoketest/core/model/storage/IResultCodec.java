@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.model.storage;
+
+import info.novatec.smoketest.core.model.IMetricTestResult;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec to store {@link IMetricTestResult}s outside of the Java heap.
+ *
+ * @param <OUT>
+ *         The type of IMetricTestResult
+ * @author Claudio Waldvogel
+ * @see OffHeapResultList
+ */
+public interface IResultCodec<OUT extends IMetricTestResult> {
+
+    /**
+     * Encodes a result.
+     *
+     * @param result
+     *         The result to be encoded
+     * @return The encoded result
+     */
+    byte[] encode(OUT result);
+
+    /**
+     * Decodes a result. The buffer contains exactly the bytes returned by {@link #encode(IMetricTestResult)}.
+     *
+     * @param buffer
+     *         The encoded result
+     * @return The decoded result
+     */
+    OUT decode(ByteBuffer buffer);
+}
@@ -0,0 +1,220 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.model.storage;
+
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Append-only list which stores its {@link IMetricTestResult}s in direct {@link ByteBuffer}s. Only the chunk
+ * references live on the heap, thus the heap usage and GC pauses stay flat regardless how many results are stored.
+ * Each access decodes a new instance by the {@link IResultCodec}, so validation rules can use the list like any other
+ * list. The list is not thread safe for concurrent adds.
+ * <p>
+ * The native memory is held until {@link #release()} is invoked. If the JVM does not allow to free direct buffers
+ * explicitly, it is reclaimed by the garbage collector once the buffers are unreachable.
+ *
+ * @param <OUT>
+ *         The type of IMetricTestResult
+ * @author Claudio Waldvogel
+ */
+public class OffHeapResultList<OUT extends IMetricTestResult> extends AbstractList<OUT> {
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapResultList.class);
+
+    /**
+     * Flag to indicate that freeing a direct buffer failed once. The failure is only logged once.
+     */
+    private static final AtomicBoolean FREE_FAILED = new AtomicBoolean();
+
+    /**
+     * The size of each data chunk. Records larger than a chunk get a chunk of their own.
+     */
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * The initial capacity of the index in entries.
+     */
+    private static final int INITIAL_INDEX_CAPACITY = 4096;
+
+    /**
+     * The {@link IResultCodec}.
+     */
+    private final IResultCodec<OUT> codec;
+
+    /**
+     * The data chunks. Each record is stored as length followed by the encoded bytes.
+     */
+    private List<ByteBuffer> chunks = new ArrayList<>();
+
+    /**
+     * The index of all records. Each entry holds the chunk number in the upper and the position in the lower 32 bits.
+     */
+    private ByteBuffer index;
+
+    /**
+     * The count of stored records.
+     */
+    private int size;
+
+    /**
+     * Flag to indicate that the native memory was released.
+     */
+    private boolean released;
+
+    /**
+     * Creates a new OffHeapResultList.
+     *
+     * @param codec
+     *         The {@link IResultCodec} to encode and decode results
+     */
+    public OffHeapResultList(final IResultCodec<OUT> codec) {
+        this.codec = checkNotNull(codec);
+        this.index = ByteBuffer.allocateDirect(INITIAL_INDEX_CAPACITY * Long.BYTES);
+    }
+
+    @Override
+    public boolean add(final OUT result) {
+        checkNotReleased();
+        byte[] data = codec.encode(result);
+        int required = Integer.BYTES + data.length;
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < required) {
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, required));
+            chunks.add(chunk);
+        }
+        long entry = ((long) (chunks.size() - 1) << 32) | chunk.position();
+        chunk.putInt(data.length).put(data);
+        if (index.remaining() < Long.BYTES) {
+            growIndex();
+        }
+        index.putLong(entry);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public OUT get(final int i) {
+        checkNotReleased();
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        long entry = index.getLong(i * Long.BYTES);
+        ByteBuffer chunk = chunks.get((int) (entry >>> 32));
+        int position = (int) entry;
+        int length = chunk.getInt(position);
+        //Work on a view to keep the chunk position untouched for further adds
+        ByteBuffer record = chunk.duplicate();
+        record.limit(position + Integer.BYTES + length).position(position + Integer.BYTES);
+        return codec.decode(record.slice());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Frees the native memory. The list is empty and must not be used afterwards.
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        chunks.forEach(OffHeapResultList::free);
+        free(index);
+        chunks = new ArrayList<>();
+        index = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return true if the native memory was released
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Doubles the capacity of the index.
+     */
+    private void growIndex() {
+        ByteBuffer old = index;
+        ByteBuffer grown = ByteBuffer.allocateDirect(old.capacity() * 2);
+        old.flip();
+        grown.put(old);
+        index = grown;
+        free(old);
+    }
+
+    /**
+     * Ensures that the list was not yet released.
+     */
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("Results are already released!");
+        }
+    }
+
+    /**
+     * Frees the native memory of a direct buffer immediately instead of waiting for the garbage collector. If the JVM
+     * does not allow this, the memory is freed when the buffer is collected.
+     *
+     * @param buffer
+     *         The direct buffer
+     */
+    private static void free(final ByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            //Fails e.g. if the JVM does not open the internal buffer classes
+            if (FREE_FAILED.compareAndSet(false, true)) {
+                LOGGER.warn("Unable to free direct buffers, leaving them to the garbage collector: {}", e.toString());
+            }
+            LOGGER.trace("Unable to free direct buffer", e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.model.validation;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+
+import java.util.Collections;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link IParallelValidationRule} which reduces all results into a mutable container and validates the container
+ * afterwards, like a {@link java.util.stream.Collector}. Since the reduction is associative, the results can be split
+ * into ranges which are reduced by several threads and combined in order. Several associative rules are evaluated
+ * by one {@link FusedRule} in one pass over the results.
+ * <p>
+ * A rule can stop the reduction as soon as its outcome is decided, e.g. after the first result violating an
+ * <i>all</i> rule.
+ *
+ * @param <IN>
+ *         The type of IMetricDefinition
+ * @param <OUT>
+ *         The type of IMetricTestResult
+ * @param <A>
+ *         The type of the container
+ * @author Claudio Waldvogel
+ * @see FusedRule
+ */
+public final class AssociativeRule<IN extends IMetricDefinition, OUT extends IMetricTestResult, A>
+        implements IParallelValidationRule<IN, OUT> {
+
+    /**
+     * Creates a new empty container.
+     */
+    private final Supplier<A> supplier;
+
+    /**
+     * Adds one result to a container.
+     */
+    private final BiConsumer<A, OUT> accumulator;
+
+    /**
+     * Merges the second container into the first one. The second container covers the results after the first one.
+     */
+    private final BiConsumer<A, A> combiner;
+
+    /**
+     * Tests if the outcome of a container is decided regardless of all further results.
+     */
+    private final Predicate<A> decided;
+
+    /**
+     * Validates the container of all results.
+     */
+    private final BiFunction<MetricTestResultSet<IN, OUT>, A, ValidationResult> finisher;
+
+    /**
+     * Creates a new AssociativeRule.
+     *
+     * @param supplier
+     *         Creates a new empty container
+     * @param accumulator
+     *         Adds one result to a container
+     * @param combiner
+     *         Merges the second container into the first one
+     * @param decided
+     *         Tests if the outcome of a container is decided
+     * @param finisher
+     *         Validates the container of all results
+     */
+    private AssociativeRule(final Supplier<A> supplier,
+                            final BiConsumer<A, OUT> accumulator,
+                            final BiConsumer<A, A> combiner,
+                            final Predicate<A> decided,
+                            final BiFunction<MetricTestResultSet<IN, OUT>, A, ValidationResult> finisher) {
+        this.supplier = checkNotNull(supplier);
+        this.accumulator = checkNotNull(accumulator);
+        this.combiner = checkNotNull(combiner);
+        this.decided = checkNotNull(decided);
+        this.finisher = checkNotNull(finisher);
+    }
+
+    /**
+     * Creates a new AssociativeRule.
+     *
+     * @param supplier
+     *         Creates a new empty container
+     * @param accumulator
+     *         Adds one result to a container
+     * @param combiner
+     *         Merges the second container into the first one. The second container covers the results after the
+     *         first one.
+     * @param decided
+     *         Tests if the outcome of a container is decided regardless of all further results
+     * @param finisher
+     *         Validates the container of all results
+     * @param <IN>
+     *         The type of IMetricDefinition
+     * @param <OUT>
+     *         The type of IMetricTestResult
+     * @param <A>
+     *         The type of the container
+     * @return The new rule
+     */
+    public static <IN extends IMetricDefinition, OUT extends IMetricTestResult, A> AssociativeRule<IN, OUT, A> of(
+            final Supplier<A> supplier,
+            final BiConsumer<A, OUT> accumulator,
+            final BiConsumer<A, A> combiner,
+            final Predicate<A> decided,
+            final BiFunction<MetricTestResultSet<IN, OUT>, A, ValidationResult> finisher) {
+        return new AssociativeRule<>(supplier, accumulator, combiner, decided, finisher);
+    }
+
+    @Override
+    public ValidationResult apply(final MetricTestResultSet<IN, OUT> result) {
+        return FusedRule.of(Collections.singletonList(this)).apply(result);
+    }
+
+    @Override
+    public ValidationResult applyParallel(final MetricTestResultSet<IN, OUT> result) {
+        return FusedRule.of(Collections.singletonList(this)).applyParallel(result);
+    }
+
+    /**
+     * @return A new empty container
+     */
+    A create() {
+        return supplier.get();
+    }
+
+    /**
+     * Adds one result to a container.
+     *
+     * @param container
+     *         The container
+     * @param result
+     *         The result
+     */
+    void accumulate(final A container,
+                    final OUT result) {
+        accumulator.accept(container, result);
+    }
+
+    /**
+     * Merges the second container into the first one.
+     *
+     * @param container
+     *         The container of the preceding results
+     * @param other
+     *         The container of the following results
+     */
+    void combine(final A container,
+                 final A other) {
+        combiner.accept(container, other);
+    }
+
+    /**
+     * @param container
+     *         The container
+     * @return true if the outcome is decided regardless of all further results
+     */
+    boolean isDecided(final A container) {
+        return decided.test(container);
+    }
+
+    /**
+     * Validates the container of all results.
+     *
+     * @param result
+     *         The validated result set
+     * @param container
+     *         The container
+     * @return The ValidationResult
+     */
+    ValidationResult finish(final MetricTestResultSet<IN, OUT> result,
+                            final A container) {
+        return finisher.apply(result, container);
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.model.validation;
+
+import info.novatec.smoketest.core.model.IMetricTestResult;
+
+/**
+ * Container which describes the distribution of numeric results in one streaming pass with bounded memory:
+ * <ul>
+ * <li>Mean and variance are computed with Welford's algorithm and merged with the formula of Chan et al.</li>
+ * <li>The slope of the least squares line through (timestamp, value) of all time-sliced results is computed from
+ * running co-moments in the same way, so a rising or falling trend is detected regardless of the order of the
+ * results.</li>
+ * <li>Quantiles are estimated from a log-linear histogram like HdrHistogram. Negative values are kept in mirrored
+ * buckets. The relative error is below {@link #PRECISION} for magnitudes between {@link #MIN_TRACKABLE} and
+ * {@link #MAX_TRACKABLE}. Magnitudes below this range are estimated as 0, larger ones are clamped to the outermost
+ * buckets. The histogram is only allocated if quantiles are requested.</li>
+ * </ul>
+ * Two distributions are combined like the results were added to one distribution, so the container can be used by
+ * an {@link AssociativeRule} and evaluated in parallel.
+ *
+ * @author Claudio Waldvogel
+ */
+final class Distribution {
+
+    /**
+     * The relative width of one histogram bucket.
+     */
+    static final double PRECISION = 0.01;
+
+    /**
+     * The smallest magnitude tracked by the histogram.
+     */
+    static final double MIN_TRACKABLE = 1e-6;
+
+    /**
+     * The largest magnitude tracked by the histogram.
+     */
+    static final double MAX_TRACKABLE = 1e15;
+
+    /**
+     * The reciprocal logarithm of the bucket base.
+     */
+    private static final double INVERSE_LOG_BASE = 1 / Math.log1p(PRECISION);
+
+    /**
+     * The count of buckets for each sign.
+     */
+    private static final int SIGNED_BUCKETS = (int) (Math.log(MAX_TRACKABLE / MIN_TRACKABLE) * INVERSE_LOG_BASE) + 1;
+
+    /**
+     * The bucket of all magnitudes below {@link #MIN_TRACKABLE}. The negative buckets are below, the positive buckets
+     * above it, so the buckets are in ascending order of their values.
+     */
+    private static final int ZERO = SIGNED_BUCKETS;
+
+    /**
+     * The count of buckets.
+     */
+    private static final int BUCKETS = 2 * SIGNED_BUCKETS + 1;
+
+    /**
+     * Flag to indicate if the histogram is maintained.
+     */
+    private final boolean quantiles;
+
+    /**
+     * The count of numbers.
+     */
+    private long count;
+
+    /**
+     * The running mean of all numbers.
+     */
+    private double mean;
+
+    /**
+     * The sum of squared deviations from the mean.
+     */
+    private double m2;
+
+    /**
+     * The count of numbers with timestamp.
+     */
+    private long timedCount;
+
+    /**
+     * The running mean of the timestamps in seconds.
+     */
+    private double meanTime;
+
+    /**
+     * The running mean of the numbers with timestamp.
+     */
+    private double meanTimedValue;
+
+    /**
+     * The sum of squared deviations of the timestamps.
+     */
+    private double m2Time;
+
+    /**
+     * The co-moment of timestamps and numbers.
+     */
+    private double coMoment;
+
+    /**
+     * The smallest number.
+     */
+    private double min = Double.POSITIVE_INFINITY;
+
+    /**
+     * The largest number.
+     */
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * The histogram, null until the first number is added or if quantiles are not requested.
+     */
+    private long[] histogram;
+
+    /**
+     * The first value which is not a number, null if all values are numbers.
+     */
+    private String invalid;
+
+    /**
+     * The first metric of a number without timestamp, null if all numbers have a timestamp.
+     */
+    private String untimed;
+
+    /**
+     * Creates a new Distribution.
+     *
+     * @param quantiles
+     *         true if quantiles are requested
+     */
+    Distribution(final boolean quantiles) {
+        this.quantiles = quantiles;
+    }
+
+    /**
+     * Adds one result.
+     *
+     * @param result
+     *         The result
+     */
+    void add(final IMetricTestResult result) {
+        double value = ValidationRules.parse(result);
+        if (Double.isNaN(value)) {
+            if (invalid == null) {
+                invalid = String.valueOf(result.getValue());
+            }
+            return;
+        }
+        if (result.getTimestamp() == 0) {
+            if (untimed == null) {
+                untimed = result.getFullQualifiedMetricName();
+            }
+            add(value);
+        } else {
+            add(value, result.getTimestamp() / 1000.0);
+        }
+    }
+
+    /**
+     * Adds one number of a time slice.
+     *
+     * @param value
+     *         The number
+     * @param time
+     *         The timestamp in seconds
+     */
+    void add(final double value,
+             final double time) {
+        add(value);
+        timedCount++;
+        double deltaTime = time - meanTime;
+        meanTime += deltaTime / timedCount;
+        meanTimedValue += (value - meanTimedValue) / timedCount;
+        m2Time += deltaTime * (time - meanTime);
+        coMoment += deltaTime * (value - meanTimedValue);
+    }
+
+    /**
+     * Adds one number.
+     *
+     * @param value
+     *         The number
+     */
+    void add(final double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (quantiles) {
+            if (histogram == null) {
+                histogram = new long[BUCKETS];
+            }
+            histogram[index(value)]++;
+        }
+    }
+
+    /**
+     * Merges the distribution of other results.
+     *
+     * @param other
+     *         The distribution of the other results
+     */
+    void combine(final Distribution other) {
+        if (invalid == null) {
+            invalid = other.invalid;
+        }
+        if (untimed == null) {
+            untimed = other.untimed;
+        }
+        combineTimed(other);
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            copy(other);
+            return;
+        }
+        double n = count;
+        double m = other.count;
+        double total = n + m;
+        double delta = other.mean - mean;
+
+        m2 += other.m2 + delta * delta * n * m / total;
+        mean += delta * m / total;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        if (other.histogram != null) {
+            if (histogram == null) {
+                histogram = other.histogram;
+            } else {
+                for (int i = 0; i < BUCKETS; i++) {
+                    histogram[i] += other.histogram[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the co-moments of the numbers with timestamp of other results.
+     *
+     * @param other
+     *         The distribution of the other results
+     */
+    private void combineTimed(final Distribution other) {
+        if (other.timedCount == 0) {
+            return;
+        }
+        double n = timedCount;
+        double m = other.timedCount;
+        double total = n + m;
+        double deltaTime = other.meanTime - meanTime;
+        double deltaValue = other.meanTimedValue - meanTimedValue;
+
+        m2Time += other.m2Time + deltaTime * deltaTime * n * m / total;
+        coMoment += other.coMoment + deltaTime * deltaValue * n * m / total;
+        meanTime += deltaTime * m / total;
+        meanTimedValue += deltaValue * m / total;
+        timedCount += other.timedCount;
+    }
+
+    /**
+     * Takes all values of another distribution.
+     *
+     * @param other
+     *         The other distribution
+     */
+    private void copy(final Distribution other) {
+        count = other.count;
+        mean = other.mean;
+        m2 = other.m2;
+        min = other.min;
+        max = other.max;
+        histogram = other.histogram;
+    }
+
+    /**
+     * @return The count of numbers
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The first value which is not a number, null if all values are numbers
+     */
+    String getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * @return The first metric of a number without timestamp, null if all numbers have a timestamp
+     */
+    String getUntimed() {
+        return untimed;
+    }
+
+    /**
+     * @return The mean of all numbers
+     */
+    double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return The sample standard deviation, 0 if there are less than two numbers
+     */
+    double getStandardDeviation() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0;
+    }
+
+    /**
+     * @return The slope of the least squares line through all numbers with timestamp per second, 0 if there are less
+     * than two distinct timestamps
+     */
+    double getSlope() {
+        return m2Time > 0 ? coMoment / m2Time : 0;
+    }
+
+    /**
+     * Estimates a quantile with the nearest rank method.
+     *
+     * @param quantile
+     *         The quantile between 0 and 1, e.g. 0.95
+     * @return The estimated quantile, NaN if there are no numbers. The smallest and the largest rank are exact.
+     * @throws IllegalStateException
+     *         if quantiles were not requested
+     */
+    double getQuantile(final double quantile) {
+        if (!quantiles) {
+            throw new IllegalStateException("Quantiles were not requested");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        if (rank == 1) {
+            return min;
+        }
+        if (rank >= count) {
+            return max;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, value(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param value
+     *         A number
+     * @return The bucket of the number
+     */
+    private static int index(final double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude < MIN_TRACKABLE) {
+            return ZERO;
+        }
+        int offset = 1 + Math.min((int) (Math.log(magnitude / MIN_TRACKABLE) * INVERSE_LOG_BASE), SIGNED_BUCKETS - 1);
+        return value > 0 ? ZERO + offset : ZERO - offset;
+    }
+
+    /**
+     * @param index
+     *         A bucket
+     * @return The geometric middle of the bucket
+     */
+    private static double value(final int index) {
+        if (index == ZERO) {
+            return 0;
+        }
+        double magnitude = MIN_TRACKABLE * Math.pow(1 + PRECISION, Math.abs(index - ZERO) - 0.5);
+        return index > ZERO ? magnitude : -magnitude;
+    }
+}
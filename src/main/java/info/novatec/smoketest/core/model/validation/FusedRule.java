@@ -0,0 +1,361 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.model.validation;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * {@link IParallelValidationRule} which evaluates several rules at once. All {@link AssociativeRule}s are fused into
+ * one pass over the results: each rule keeps its own container and drops out once its outcome is decided, the pass
+ * ends once all rules are decided. All other rules are applied one after another afterwards.
+ * <p>
+ * In contrast to applying the rules one by one, all rules are evaluated. The rule is only valid if all rules are
+ * valid, otherwise the messages of all invalid rules are reported.
+ *
+ * @param <IN>
+ *         The type of IMetricDefinition
+ * @param <OUT>
+ *         The type of IMetricTestResult
+ * @author Claudio Waldvogel
+ */
+public final class FusedRule<IN extends IMetricDefinition, OUT extends IMetricTestResult>
+        implements IParallelValidationRule<IN, OUT> {
+
+    /**
+     * Ranges up to this count of results are evaluated by one thread.
+     */
+    static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    /**
+     * The count of results after which an evaluating thread checks which rules other threads already decided.
+     */
+    private static final int DECISION_CHECK_INTERVAL = 1024;
+
+    /**
+     * Separates the messages of several invalid rules.
+     */
+    private static final String SEPARATOR = "; ";
+
+    /**
+     * The rules which are evaluated in one pass.
+     */
+    private final List<AssociativeRule<IN, OUT, Object>> fused = new ArrayList<>();
+
+    /**
+     * The rules which are applied on their own.
+     */
+    private final List<IValidationRule<IN, OUT>> others = new ArrayList<>();
+
+    /**
+     * Creates a new FusedRule.
+     *
+     * @param rules
+     *         The rules to be evaluated
+     */
+    @SuppressWarnings("unchecked")
+    private FusedRule(final Collection<? extends IValidationRule<IN, OUT>> rules) {
+        for (IValidationRule<IN, OUT> rule : rules) {
+            if (rule instanceof FusedRule) {
+                fused.addAll(((FusedRule<IN, OUT>) rule).fused);
+                others.addAll(((FusedRule<IN, OUT>) rule).others);
+            } else if (rule instanceof AssociativeRule) {
+                fused.add((AssociativeRule<IN, OUT, Object>) rule);
+            } else {
+                others.add(rule);
+            }
+        }
+    }
+
+    /**
+     * Fuses several rules into one.
+     *
+     * @param rules
+     *         The rules to be evaluated
+     * @param <IN>
+     *         The type of IMetricDefinition
+     * @param <OUT>
+     *         The type of IMetricTestResult
+     * @return The fused rule
+     */
+    public static <IN extends IMetricDefinition, OUT extends IMetricTestResult> FusedRule<IN, OUT> of(
+            final Collection<? extends IValidationRule<IN, OUT>> rules) {
+        return new FusedRule<>(rules);
+    }
+
+    @Override
+    public ValidationResult apply(final MetricTestResultSet<IN, OUT> result) {
+        Pass pass = new Pass(null);
+        if (!fused.isEmpty()) {
+            for (OUT out : result.getResults()) {
+                if (!pass.accumulate(out)) {
+                    break;
+                }
+            }
+        }
+        return finish(result, pass, false);
+    }
+
+    @Override
+    public ValidationResult applyParallel(final MetricTestResultSet<IN, OUT> result) {
+        List<OUT> results = result.getResults();
+        if (fused.isEmpty()) {
+            return finish(result, new Pass(null), true);
+        }
+        AtomicIntegerArray decided = new AtomicIntegerArray(fused.size());
+        Pass pass = ForkJoinPool.commonPool().invoke(new Reduction(results, 0, results.size(), decided));
+        return finish(result, pass, true);
+    }
+
+    /**
+     * Finishes all fused rules and applies all other rules.
+     *
+     * @param result
+     *         The validated result set
+     * @param pass
+     *         The pass over all results
+     * @param parallel
+     *         true to apply the other rules in parallel if supported
+     * @return A valid result if all rules are valid, else an invalid result with all messages
+     */
+    @SuppressWarnings("unchecked")
+    private ValidationResult finish(final MetricTestResultSet<IN, OUT> result,
+                                    final Pass pass,
+                                    final boolean parallel) {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < fused.size(); i++) {
+            collect(messages, fused.get(i).finish(result, pass.containers[i]));
+        }
+        for (IValidationRule<IN, OUT> rule : others) {
+            collect(messages, parallel && rule instanceof IParallelValidationRule
+                    ? ((IParallelValidationRule<IN, OUT>) rule).applyParallel(result)
+                    : rule.apply(result));
+        }
+        return messages.isEmpty() ? ValidationResult.valid() : ValidationResult.invalid(String.join(SEPARATOR,
+                messages));
+    }
+
+    /**
+     * Adds the message of an invalid result.
+     *
+     * @param messages
+     *         All messages
+     * @param validationResult
+     *         The result of one rule
+     */
+    private static void collect(final List<String> messages,
+                                final ValidationResult validationResult) {
+        if (!validationResult.isValid()) {
+            messages.add(validationResult.getMessage());
+        }
+    }
+
+    /**
+     * The containers of all fused rules for a range of results.
+     */
+    private final class Pass {
+
+        /**
+         * The container of each fused rule.
+         */
+        private final Object[] containers = new Object[fused.size()];
+
+        /**
+         * Flags of all rules which are skipped by this pass, because they are decided by this or another pass.
+         */
+        private final boolean[] skipped = new boolean[fused.size()];
+
+        /**
+         * The decisions shared by all passes of one evaluation, null for a serial evaluation.
+         */
+        private final AtomicIntegerArray decided;
+
+        /**
+         * The count of rules which are not skipped.
+         */
+        private int open;
+
+        /**
+         * Creates a new Pass.
+         *
+         * @param decided
+         *         The shared decisions or null
+         */
+        private Pass(final AtomicIntegerArray decided) {
+            this.decided = decided;
+            for (int i = 0; i < containers.length; i++) {
+                containers[i] = fused.get(i).create();
+            }
+            open = containers.length;
+        }
+
+        /**
+         * Adds one result to the container of each rule which is not skipped.
+         *
+         * @param result
+         *         The result
+         * @return true if at least one rule needs further results
+         */
+        private boolean accumulate(final OUT result) {
+            for (int i = 0; i < containers.length; i++) {
+                if (!skipped[i]) {
+                    AssociativeRule<IN, OUT, Object> rule = fused.get(i);
+                    rule.accumulate(containers[i], result);
+                    if (rule.isDecided(containers[i])) {
+                        skip(i);
+                        if (decided != null) {
+                            decided.set(i, 1);
+                        }
+                    }
+                }
+            }
+            return open > 0;
+        }
+
+        /**
+         * Skips all rules which are decided by other passes.
+         *
+         * @return true if at least one rule needs further results
+         */
+        private boolean synchronize() {
+            for (int i = 0; i < containers.length; i++) {
+                if (!skipped[i] && decided.get(i) == 1) {
+                    skip(i);
+                }
+            }
+            return open > 0;
+        }
+
+        /**
+         * Merges the pass over the following results. A container which is decided is kept as it is, since further
+         * results do not change its outcome.
+         *
+         * @param other
+         *         The pass over the following results
+         */
+        private void combine(final Pass other) {
+            for (int i = 0; i < containers.length; i++) {
+                AssociativeRule<IN, OUT, Object> rule = fused.get(i);
+                if (!rule.isDecided(containers[i])) {
+                    rule.combine(containers[i], other.containers[i]);
+                }
+            }
+        }
+
+        /**
+         * Skips a rule.
+         *
+         * @param i
+         *         The index of the rule
+         */
+        private void skip(final int i) {
+            skipped[i] = true;
+            open--;
+        }
+    }
+
+    /**
+     * Evaluates a range of results, either directly or by splitting it in halves.
+     */
+    private final class Reduction extends RecursiveTask<Pass> {
+
+        /**
+         * The serial version of the task.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * All results.
+         */
+        private final List<OUT> results;
+
+        /**
+         * The first index of the range, inclusive.
+         */
+        private final int from;
+
+        /**
+         * The last index of the range, exclusive.
+         */
+        private final int to;
+
+        /**
+         * The decisions shared by all passes.
+         */
+        private final AtomicIntegerArray decided;
+
+        /**
+         * Creates a new Reduction.
+         *
+         * @param results
+         *         All results
+         * @param from
+         *         The first index, inclusive
+         * @param to
+         *         The last index, exclusive
+         * @param decided
+         *         The shared decisions
+         */
+        private Reduction(final List<OUT> results,
+                          final int from,
+                          final int to,
+                          final AtomicIntegerArray decided) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.decided = decided;
+        }
+
+        @Override
+        protected Pass compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                Pass pass = new Pass(decided);
+                for (int i = from; i < to; i++) {
+                    if ((i - from) % DECISION_CHECK_INTERVAL == 0 && !pass.synchronize()) {
+                        break;
+                    }
+                    if (!pass.accumulate(results.get(i))) {
+                        break;
+                    }
+                }
+                return pass;
+            }
+            int middle = (from + to) >>> 1;
+            Reduction right = new Reduction(results, middle, to, decided);
+            right.fork();
+            Pass left = new Reduction(results, from, middle, decided).compute();
+            left.combine(right.join());
+            return left;
+        }
+    }
+}
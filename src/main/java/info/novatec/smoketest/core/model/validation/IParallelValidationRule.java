@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.model.validation;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+
+/**
+ * {@link IValidationRule} which can also be evaluated on several threads. Both evaluations must come to the same
+ * outcome, only the message may differ, e.g. by naming another violating result. The parallel evaluation is only used for result sets exceeding {@link
+ * info.novatec.smoketest.core.SmokeTestConfiguration#getParallelValidationThreshold()}, all smaller result sets are
+ * validated by {@link #apply(MetricTestResultSet)}.
+ *
+ * @param <IN>
+ *         The type of the metric, the has an upper bound to {@link IMetricDefinition}
+ * @param <OUT>
+ *         The type of output, has an upper bound to {@link IMetricTestResult}
+ * @author Claudio Waldvogel
+ * @see AssociativeRule
+ */
+public interface IParallelValidationRule<IN extends IMetricDefinition, OUT extends IMetricTestResult>
+        extends IValidationRule<IN, OUT> {
+
+    /**
+     * Applies the rule to the {@link MetricTestResultSet} using several threads.
+     *
+     * @param result
+     *         The MetricTestResultSet
+     * @return A new ValidationResult
+     */
+    ValidationResult applyParallel(final MetricTestResultSet<IN, OUT> result);
+}
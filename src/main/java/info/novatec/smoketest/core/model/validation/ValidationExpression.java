@@ -0,0 +1,745 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.model.validation;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A validation expression like <code>count &gt;= 3 &amp;&amp; min &gt; 0 &amp;&amp; value &lt; 2000</code>. The
+ * expression is parsed once and compiled to a tree of closures evaluating primitive doubles, so a rule defined in a
+ * configuration file is as fast as a hand-written {@link AssociativeRule}.
+ * <p>
+ * The following variables are known:
+ * <ul>
+ * <li><code>value</code>: the numeric value of each single result</li>
+ * <li><code>count</code>: the count of all results</li>
+ * <li><code>min</code>, <code>max</code>, <code>sum</code>, <code>avg</code>: the aggregates of all numeric
+ * results, NaN if there is none</li>
+ * </ul>
+ * Numbers can be combined with <code>+ - * /</code> and compared with <code>&lt; &lt;= &gt; &gt;= == !=</code>.
+ * Comparisons can be combined with <code>&amp;&amp; || !</code> and parentheses.
+ * <p>
+ * The top level <code>&amp;&amp;</code> splits the expression into conditions. A condition using <code>value</code>
+ * must hold for each result, all other conditions must hold for the aggregates of all results. A single condition must
+ * not use both. Values which are not numbers are NaN, so comparisons with them fail.
+ * <p>
+ * Conditions follow a three-valued logic: a comparison with NaN is neither true nor false but unknown. Negating an
+ * unknown comparison is still unknown, <code>&amp;&amp;</code> and <code>||</code> are only unknown if the known
+ * operands do not decide. A condition only holds if it is true, so neither <code>value != 0</code> nor <code>!(value
+ * &lt;= 0)</code> holds for a value which is not a number.
+ *
+ * @author Claudio Waldvogel
+ * @see ValidationRules#expression(String)
+ */
+public final class ValidationExpression {
+
+    /**
+     * The result of a condition which does not hold.
+     */
+    private static final int FALSE = -1;
+
+    /**
+     * The result of a condition which compares NaN, so it can not be decided.
+     */
+    private static final int UNKNOWN = 0;
+
+    /**
+     * The result of a condition which holds.
+     */
+    private static final int TRUE = 1;
+
+    /**
+     * The source of the expression.
+     */
+    private final String source;
+
+    /**
+     * The conditions which must hold for each result.
+     */
+    private final List<Part> valueConditions;
+
+    /**
+     * The conditions which must hold for the aggregates of all results.
+     */
+    private final List<Part> aggregateConditions;
+
+    /**
+     * Creates a new ValidationExpression.
+     *
+     * @param source
+     *         The source of the expression
+     * @param valueConditions
+     *         The conditions which must hold for each result
+     * @param aggregateConditions
+     *         The conditions which must hold for the aggregates of all results
+     */
+    private ValidationExpression(final String source,
+                                 final List<Part> valueConditions,
+                                 final List<Part> aggregateConditions) {
+        this.source = source;
+        this.valueConditions = valueConditions;
+        this.aggregateConditions = aggregateConditions;
+    }
+
+    /**
+     * Parses and compiles an expression.
+     *
+     * @param source
+     *         The expression
+     * @return The compiled expression
+     * @throws IllegalArgumentException
+     *         if the expression is not valid
+     */
+    public static ValidationExpression parse(final String source) {
+        checkNotNull(source, "Expression must not be null");
+        Parser parser = new Parser(source);
+        Part root = parser.parseOr();
+        parser.skipWhitespace();
+        if (parser.position < source.length()) {
+            throw parser.error("Unexpected input");
+        }
+        parser.expect(root, Kind.CONDITION);
+
+        List<Part> valueConditions = new ArrayList<>();
+        List<Part> aggregateConditions = new ArrayList<>();
+        for (Part part : root.conjuncts) {
+            if (part.usesValue && part.usesAggregate) {
+                throw new IllegalArgumentException("Condition '" + part.source
+                        + "' must not use 'value' together with aggregates in expression: " + source);
+            }
+            (part.usesValue ? valueConditions : aggregateConditions).add(part);
+        }
+        return new ValidationExpression(source, valueConditions, aggregateConditions);
+    }
+
+    /**
+     * Creates an {@link IValidationRule} evaluating this expression. The rule is associative, so it is fused with other
+     * rules and evaluated in parallel for large result sets.
+     *
+     * @return The rule
+     */
+    public IValidationRule<IMetricDefinition, IMetricTestResult> toRule() {
+        return AssociativeRule.of(Aggregate::new,
+                this::accumulate,
+                Aggregate::combine,
+                aggregate -> aggregate.violated != null,
+                (resultSet, aggregate) -> {
+                    if (aggregate.violated != null) {
+                        return ValidationResult.invalid(String.format("Violated '%s' by value %s",
+                                aggregate.violated.source, aggregate.violation));
+                    }
+                    for (Part condition : aggregateConditions) {
+                        if (condition.condition.test(Double.NaN, aggregate) != TRUE) {
+                            return ValidationResult.invalid(String.format("Violated '%s' with %s",
+                                    condition.source, aggregate));
+                        }
+                    }
+                    return ValidationResult.valid();
+                });
+    }
+
+    /**
+     * Adds one result to an aggregate and checks all value conditions.
+     *
+     * @param aggregate
+     *         The aggregate
+     * @param result
+     *         The result
+     */
+    private void accumulate(final Aggregate aggregate,
+                            final IMetricTestResult result) {
+        double value = ValidationRules.parse(result);
+        aggregate.add(value);
+        if (aggregate.violated == null) {
+            for (Part condition : valueConditions) {
+                if (condition.condition.test(value, aggregate) != TRUE) {
+                    aggregate.violated = condition;
+                    aggregate.violation = String.valueOf(result.getValue());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets {@link #source}.
+     *
+     * @return {@link #source}
+     */
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Evaluates a number.
+     */
+    @FunctionalInterface
+    private interface Operand {
+
+        /**
+         * @param value
+         *         The value of the current result, NaN if aggregates are evaluated
+         * @param aggregate
+         *         The aggregate of all results
+         * @return The number
+         */
+        double eval(double value, Aggregate aggregate);
+    }
+
+    /**
+     * Evaluates a condition in the three-valued logic of {@link #FALSE}, {@link #UNKNOWN} and {@link #TRUE}. The
+     * order of the values allows to compute <code>&amp;&amp;</code> as minimum, <code>||</code> as maximum and
+     * <code>!</code> as negation.
+     */
+    @FunctionalInterface
+    private interface Condition {
+
+        /**
+         * @param value
+         *         The value of the current result, NaN if aggregates are evaluated
+         * @param aggregate
+         *         The aggregate of all results
+         * @return {@link #TRUE} if the condition holds, {@link #FALSE} if not or {@link #UNKNOWN} if it compares NaN
+         */
+        int test(double value, Aggregate aggregate);
+    }
+
+    /**
+     * Compares two numbers which are not NaN.
+     */
+    @FunctionalInterface
+    private interface DoubleComparison {
+
+        /**
+         * @param x
+         *         The left number
+         * @param y
+         *         The right number
+         * @return true if the comparison holds
+         */
+        boolean compare(double x, double y);
+    }
+
+    /**
+     * The kind of a parsed part.
+     */
+    private enum Kind {
+        NUMBER, CONDITION
+    }
+
+    /**
+     * A compiled part of the expression.
+     */
+    private static final class Part {
+
+        /**
+         * The kind of this part.
+         */
+        private final Kind kind;
+
+        /**
+         * The compiled number if this part is a {@link Kind#NUMBER}.
+         */
+        private final Operand operand;
+
+        /**
+         * The compiled condition if this part is a {@link Kind#CONDITION}.
+         */
+        private final Condition condition;
+
+        /**
+         * The source of this part.
+         */
+        private final String source;
+
+        /**
+         * Flag to indicate if this part uses the value of single results.
+         */
+        private final boolean usesValue;
+
+        /**
+         * Flag to indicate if this part uses aggregates.
+         */
+        private final boolean usesAggregate;
+
+        /**
+         * The operands of a top level <code>&amp;&amp;</code> chain or this part itself.
+         */
+        private final List<Part> conjuncts;
+
+        /**
+         * Creates a new Part.
+         */
+        private Part(final Kind kind,
+                     final Operand operand,
+                     final Condition condition,
+                     final String source,
+                     final boolean usesValue,
+                     final boolean usesAggregate,
+                     final List<Part> conjuncts) {
+            this.kind = kind;
+            this.operand = operand;
+            this.condition = condition;
+            this.source = source;
+            this.usesValue = usesValue;
+            this.usesAggregate = usesAggregate;
+            this.conjuncts = conjuncts != null ? conjuncts : Collections.singletonList(this);
+        }
+    }
+
+    /**
+     * Recursive descent parser compiling the expression while it is parsed.
+     */
+    private static final class Parser {
+
+        /**
+         * The expression.
+         */
+        private final String source;
+
+        /**
+         * The current position.
+         */
+        private int position;
+
+        /**
+         * Creates a new Parser.
+         *
+         * @param source
+         *         The expression
+         */
+        private Parser(final String source) {
+            this.source = source;
+        }
+
+        /**
+         * <code>or := and ('||' and)*</code>
+         */
+        private Part parseOr() {
+            int start = skipWhitespace();
+            Part left = parseAnd();
+            while (accept("||")) {
+                Part right = parseAnd();
+                Condition a = expect(left, Kind.CONDITION).condition;
+                Condition b = expect(right, Kind.CONDITION).condition;
+                left = combine(start, Kind.CONDITION, null, (v, s) -> {
+                    int first = a.test(v, s);
+                    return first == TRUE ? TRUE : Math.max(first, b.test(v, s));
+                }, left, right,
+                        null);
+            }
+            return left;
+        }
+
+        /**
+         * <code>and := not ('&amp;&amp;' not)*</code>
+         */
+        private Part parseAnd() {
+            int start = skipWhitespace();
+            Part left = parseNot();
+            while (accept("&&")) {
+                Part right = parseNot();
+                Condition a = expect(left, Kind.CONDITION).condition;
+                Condition b = expect(right, Kind.CONDITION).condition;
+                List<Part> conjuncts = new ArrayList<>(left.conjuncts);
+                conjuncts.addAll(right.conjuncts);
+                left = combine(start, Kind.CONDITION, null, (v, s) -> {
+                    int first = a.test(v, s);
+                    return first == FALSE ? FALSE : Math.min(first, b.test(v, s));
+                }, left, right,
+                        conjuncts);
+            }
+            return left;
+        }
+
+        /**
+         * <code>not := '!' not | comparison</code>
+         */
+        private Part parseNot() {
+            int start = skipWhitespace();
+            if (source.startsWith("!", position) && !source.startsWith("!=", position)) {
+                position++;
+                Part operand = parseNot();
+                Condition a = expect(operand, Kind.CONDITION).condition;
+                return combine(start, Kind.CONDITION, null, (v, s) -> -a.test(v, s), operand, operand, null);
+            }
+            return parseComparison();
+        }
+
+        /**
+         * <code>comparison := sum (('&lt;=' | '&gt;=' | '==' | '!=' | '&lt;' | '&gt;') sum)?</code>
+         */
+        private Part parseComparison() {
+            int start = skipWhitespace();
+            Part left = parseSum();
+            String operator = acceptAny("<=", ">=", "==", "!=", "<", ">");
+            if (operator == null) {
+                return left;
+            }
+            Part right = parseSum();
+            Operand a = expect(left, Kind.NUMBER).operand;
+            Operand b = expect(right, Kind.NUMBER).operand;
+            DoubleComparison comparison;
+            switch (operator) {
+                case "<=":
+                    comparison = (x, y) -> x <= y;
+                    break;
+                case ">=":
+                    comparison = (x, y) -> x >= y;
+                    break;
+                case "==":
+                    comparison = (x, y) -> x == y;
+                    break;
+                case "!=":
+                    comparison = (x, y) -> x != y;
+                    break;
+                case "<":
+                    comparison = (x, y) -> x < y;
+                    break;
+                default:
+                    comparison = (x, y) -> x > y;
+                    break;
+            }
+            Condition condition = (v, s) -> {
+                double x = a.eval(v, s);
+                double y = b.eval(v, s);
+                if (Double.isNaN(x) || Double.isNaN(y)) {
+                    return UNKNOWN;
+                }
+                return comparison.compare(x, y) ? TRUE : FALSE;
+            };
+            return combine(start, Kind.CONDITION, null, condition, left, right, null);
+        }
+
+        /**
+         * <code>sum := product (('+' | '-') product)*</code>
+         */
+        private Part parseSum() {
+            int start = skipWhitespace();
+            Part left = parseProduct();
+            String operator;
+            while ((operator = acceptAny("+", "-")) != null) {
+                Part right = parseProduct();
+                Operand a = expect(left, Kind.NUMBER).operand;
+                Operand b = expect(right, Kind.NUMBER).operand;
+                Operand operand = "+".equals(operator)
+                        ? (v, s) -> a.eval(v, s) + b.eval(v, s)
+                        : (v, s) -> a.eval(v, s) - b.eval(v, s);
+                left = combine(start, Kind.NUMBER, operand, null, left, right, null);
+            }
+            return left;
+        }
+
+        /**
+         * <code>product := unary (('*' | '/') unary)*</code>
+         */
+        private Part parseProduct() {
+            int start = skipWhitespace();
+            Part left = parseUnary();
+            String operator;
+            while ((operator = acceptAny("*", "/")) != null) {
+                Part right = parseUnary();
+                Operand a = expect(left, Kind.NUMBER).operand;
+                Operand b = expect(right, Kind.NUMBER).operand;
+                Operand operand = "*".equals(operator)
+                        ? (v, s) -> a.eval(v, s) * b.eval(v, s)
+                        : (v, s) -> a.eval(v, s) / b.eval(v, s);
+                left = combine(start, Kind.NUMBER, operand, null, left, right, null);
+            }
+            return left;
+        }
+
+        /**
+         * <code>unary := '-' unary | primary</code>
+         */
+        private Part parseUnary() {
+            int start = skipWhitespace();
+            if (accept("-")) {
+                Part operand = parseUnary();
+                Operand a = expect(operand, Kind.NUMBER).operand;
+                return combine(start, Kind.NUMBER, (v, s) -> -a.eval(v, s), null, operand, operand, null);
+            }
+            return parsePrimary();
+        }
+
+        /**
+         * <code>primary := number | variable | '(' or ')'</code>
+         */
+        private Part parsePrimary() {
+            int start = skipWhitespace();
+            if (accept("(")) {
+                Part inner = parseOr();
+                if (!accept(")")) {
+                    throw error("Expected ')'");
+                }
+                return new Part(inner.kind, inner.operand, inner.condition, source.substring(start, position),
+                        inner.usesValue, inner.usesAggregate, null);
+            }
+            while (position < source.length() && isWordCharacter(source.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw error(position < source.length() ? "Unexpected character" : "Unexpected end");
+            }
+            String word = source.substring(start, position);
+            if (Character.isDigit(word.charAt(0)) || word.charAt(0) == '.') {
+                return constant(start, word);
+            }
+            switch (word) {
+                case "value":
+                    return new Part(Kind.NUMBER, (v, s) -> v, null, word, true, false, null);
+                case "count":
+                    return variable(word, (v, s) -> s.total);
+                case "min":
+                    return variable(word, (v, s) -> s.count > 0 ? s.min : Double.NaN);
+                case "max":
+                    return variable(word, (v, s) -> s.count > 0 ? s.max : Double.NaN);
+                case "sum":
+                    return variable(word, (v, s) -> s.count > 0 ? s.sum : Double.NaN);
+                case "avg":
+                    return variable(word, (v, s) -> s.count > 0 ? s.sum / s.count : Double.NaN);
+                default:
+                    position = start;
+                    throw error("Unknown variable '" + word + "'");
+            }
+        }
+
+        /**
+         * Compiles a number literal. Exponents like <code>1e-3</code> are supported.
+         *
+         * @param start
+         *         The start of the literal
+         * @param word
+         *         The literal without a signed exponent
+         * @return The constant
+         */
+        private Part constant(final int start,
+                              final String word) {
+            String literal = word;
+            if ((word.endsWith("e") || word.endsWith("E")) && acceptAny("+", "-") != null) {
+                while (position < source.length() && Character.isDigit(source.charAt(position))) {
+                    position++;
+                }
+                literal = source.substring(start, position);
+            }
+            double constant;
+            try {
+                constant = Double.parseDouble(literal);
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("Invalid number '" + literal + "'");
+            }
+            return new Part(Kind.NUMBER, (v, s) -> constant, null, literal, false, false, null);
+        }
+
+        /**
+         * Creates an aggregate variable.
+         */
+        private Part variable(final String name,
+                              final Operand operand) {
+            return new Part(Kind.NUMBER, operand, null, name, false, true, null);
+        }
+
+        /**
+         * Combines two parts to a new one.
+         */
+        private Part combine(final int start,
+                             final Kind kind,
+                             final Operand operand,
+                             final Condition condition,
+                             final Part left,
+                             final Part right,
+                             final List<Part> conjuncts) {
+            return new Part(kind, operand, condition, source.substring(start, position).trim(),
+                    left.usesValue || right.usesValue,
+                    left.usesAggregate || right.usesAggregate,
+                    conjuncts);
+        }
+
+        /**
+         * Ensures that a part has the expected kind.
+         *
+         * @return The part
+         */
+        private Part expect(final Part part,
+                            final Kind kind) {
+            if (part.kind != kind) {
+                throw new IllegalArgumentException(String.format("'%s' is not a %s in expression: %s",
+                        part.source, kind.name().toLowerCase(), source));
+            }
+            return part;
+        }
+
+        /**
+         * Consumes a token if it is the next one.
+         *
+         * @return true if the token was consumed
+         */
+        private boolean accept(final String token) {
+            skipWhitespace();
+            if (source.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Consumes the first of several tokens which is the next one.
+         *
+         * @return The consumed token or null
+         */
+        private String acceptAny(final String... tokens) {
+            for (String token : tokens) {
+                if (accept(token)) {
+                    return token;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Skips all whitespace.
+         *
+         * @return The new position
+         */
+        private int skipWhitespace() {
+            while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+                position++;
+            }
+            return position;
+        }
+
+        /**
+         * @return true if the character is part of a variable or number
+         */
+        private static boolean isWordCharacter(final char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+        }
+
+        /**
+         * Creates the exception for a syntax error at the current position.
+         */
+        private IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException(String.format("%s at position %s in expression: %s",
+                    message, position, source));
+        }
+    }
+
+    /**
+     * Container aggregating all results.
+     */
+    private static final class Aggregate {
+
+        /**
+         * The count of all results.
+         */
+        private long total;
+
+        /**
+         * The count of numeric results.
+         */
+        private long count;
+
+        /**
+         * The smallest number.
+         */
+        private double min = Double.POSITIVE_INFINITY;
+
+        /**
+         * The largest number.
+         */
+        private double max = Double.NEGATIVE_INFINITY;
+
+        /**
+         * The sum of all numbers.
+         */
+        private double sum;
+
+        /**
+         * The first value condition which was violated, null if none.
+         */
+        private Part violated;
+
+        /**
+         * The value violating {@link #violated}.
+         */
+        private String violation;
+
+        /**
+         * Adds one value.
+         *
+         * @param value
+         *         The value, NaN if the result is not a number
+         */
+        private void add(final double value) {
+            total++;
+            if (!Double.isNaN(value)) {
+                count++;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                sum += value;
+            }
+        }
+
+        /**
+         * Merges the aggregate of the following results.
+         *
+         * @param other
+         *         The aggregate of the following results
+         */
+        private void combine(final Aggregate other) {
+            total += other.total;
+            count += other.count;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            if (violated == null) {
+                violated = other.violated;
+                violation = other.violation;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return count > 0
+                    ? String.format("count=%s, min=%s, max=%s, sum=%s, avg=%s", total, min, max, sum, sum / count)
+                    : String.format("count=%s", total);
+        }
+    }
+}
@@ -28,8 +28,16 @@ import com.google.common.base.Strings;
 import info.novatec.smoketest.core.model.IMetricDefinition;
 import info.novatec.smoketest.core.model.IMetricTestResult;
 import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.util.NumberParser;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * Utility class to provide default {@link IValidationRule}s.
@@ -72,44 +80,402 @@ public final class ValidationRules {
      * @return A valid {@link ValidationResult} if all results are not empty/null, else invalid.
      */
     public static IValidationRule<IMetricDefinition, IMetricTestResult> notEmpty() {
-        return resultSet -> {
-            String template = "One result is empty!";
-            List<IMetricTestResult> results = resultSet.getResults();
-            if (!(results.size() == 0)) {
-                for (IMetricTestResult result : results) {
-                    if (Strings.isNullOrEmpty(result.getValue())) {
-                        return invalid(template, resultSet.getDefinition().
-                                getFullQualifiedName());
-                    }
-                }
-                return ValidationResult.valid();
-            }
-            return invalid(template, resultSet.getDefinition().getFullQualifiedName());
-        };
+        return AssociativeRule.of(Matches::new,
+                (matches, result) -> matches.add(result, !Strings.isNullOrEmpty(result.getValue())),
+                Matches::combine,
+                Matches::isViolated,
+                (resultSet, matches) -> matches.total > 0 && !matches.isViolated()
+                        ? ValidationResult.valid()
+                        : invalid("One result is empty!", resultSet.getDefinition().getFullQualifiedName()));
     }
 
     /**
      * @return A valid {@link ValidationResult} if all results are not zero, else invalid.
      */
     public static IValidationRule<IMetricDefinition, IMetricTestResult> notZero() {
-        return resultSet -> {
-            String template = "One result is zero!";
-            List<IMetricTestResult> results = resultSet.getResults();
-            if (!(results.size() == 0)) {
-                for (IMetricTestResult result : results) {
-                    try {
-                        if (Double.valueOf(result.getValue()) == 0) {
-                            return invalid(template, resultSet.getDefinition().getFullQualifiedName());
+        return AssociativeRule.of(Matches::new,
+                (matches, result) -> {
+                    double value = parse(result);
+                    matches.add(result, !Double.isNaN(value) && value != 0);
+                },
+                Matches::combine,
+                Matches::isViolated,
+                (resultSet, matches) -> matches.total > 0 && !matches.isViolated()
+                        ? ValidationResult.valid()
+                        : invalid("One result is zero!", resultSet.getDefinition().getFullQualifiedName()));
+    }
+
+    /**
+     * Checks if all results of a {@link MetricTestResultSet} match a predicate. An empty result set is valid.
+     *
+     * @param description
+     *         Describes the predicate in the message, e.g. "positive"
+     * @param predicate
+     *         The predicate
+     * @return A valid {@link ValidationResult} if all results match, else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> all(
+            final String description,
+            final Predicate<? super IMetricTestResult> predicate) {
+        return AssociativeRule.of(Matches::new,
+                (matches, result) -> matches.add(result, predicate.test(result)),
+                Matches::combine,
+                Matches::isViolated,
+                (resultSet, matches) -> !matches.isViolated()
+                        ? ValidationResult.valid()
+                        : invalid("Not all results are %s: %s", description, matches.violation));
+    }
+
+    /**
+     * Checks if at least one result of a {@link MetricTestResultSet} matches a predicate.
+     *
+     * @param description
+     *         Describes the predicate in the message, e.g. "positive"
+     * @param predicate
+     *         The predicate
+     * @return A valid {@link ValidationResult} if any result matches, else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> any(
+            final String description,
+            final Predicate<? super IMetricTestResult> predicate) {
+        return AssociativeRule.of(Matches::new,
+                (matches, result) -> matches.add(result, predicate.test(result)),
+                Matches::combine,
+                matches -> matches.matching > 0,
+                (resultSet, matches) -> matches.matching > 0
+                        ? ValidationResult.valid()
+                        : invalid("No result is %s!", description));
+    }
+
+    /**
+     * Checks how many results of a {@link MetricTestResultSet} match a predicate.
+     *
+     * @param description
+     *         Describes the predicate in the message, e.g. "positive"
+     * @param predicate
+     *         The predicate
+     * @param min
+     *         The minimum count of matching results, inclusive
+     * @param max
+     *         The maximum count of matching results, inclusive
+     * @return A valid {@link ValidationResult} if the count of matching results is within the bounds, else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> count(
+            final String description,
+            final Predicate<? super IMetricTestResult> predicate,
+            final long min,
+            final long max) {
+        return AssociativeRule.of(Matches::new,
+                (matches, result) -> matches.add(result, predicate.test(result)),
+                Matches::combine,
+                matches -> matches.matching > max,
+                (resultSet, matches) -> matches.matching >= min && matches.matching <= max
+                        ? ValidationResult.valid()
+                        : invalid("Expected %s to %s results to be %s. Actual: %s", String.valueOf(min),
+                        String.valueOf(max), description, String.valueOf(matches.matching)));
+    }
+
+    /**
+     * Checks the smallest numeric result of a {@link MetricTestResultSet}.
+     *
+     * @param lowerBound
+     *         The lower bound, inclusive
+     * @return A valid {@link ValidationResult} if all results are numbers and the smallest is not below the bound,
+     * else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> minAtLeast(final double lowerBound) {
+        return numbers((resultSet, numbers) -> numbers.min >= lowerBound
+                ? ValidationResult.valid()
+                : invalid("Minimum %s is below %s", String.valueOf(numbers.min), String.valueOf(lowerBound)));
+    }
+
+    /**
+     * Checks the largest numeric result of a {@link MetricTestResultSet}.
+     *
+     * @param upperBound
+     *         The upper bound, inclusive
+     * @return A valid {@link ValidationResult} if all results are numbers and the largest does not exceed the bound,
+     * else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> maxAtMost(final double upperBound) {
+        return numbers((resultSet, numbers) -> numbers.max <= upperBound
+                ? ValidationResult.valid()
+                : invalid("Maximum %s exceeds %s", String.valueOf(numbers.max), String.valueOf(upperBound)));
+    }
+
+    /**
+     * Checks the sum of all numeric results of a {@link MetricTestResultSet}.
+     *
+     * @param min
+     *         The minimum sum, inclusive
+     * @param max
+     *         The maximum sum, inclusive
+     * @return A valid {@link ValidationResult} if all results are numbers and their sum is within the bounds, else
+     * invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> sumBetween(final double min,
+                                                                                   final double max) {
+        return numbers((resultSet, numbers) -> numbers.sum >= min && numbers.sum <= max
+                ? ValidationResult.valid()
+                : invalid("Sum %s is not within %s and %s", String.valueOf(numbers.sum), String.valueOf(min),
+                String.valueOf(max)));
+    }
+
+    /**
+     * @param lowerBound
+     *         The lower bound, exclusive
+     * @return A valid {@link ValidationResult} if all results are numbers greater than the bound, else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> greaterThan(final double lowerBound) {
+        return threshold("greater than " + lowerBound, value -> value > lowerBound);
+    }
+
+    /**
+     * @param upperBound
+     *         The upper bound, exclusive
+     * @return A valid {@link ValidationResult} if all results are numbers less than the bound, else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> lessThan(final double upperBound) {
+        return threshold("less than " + upperBound, value -> value < upperBound);
+    }
+
+    /**
+     * @param min
+     *         The lower bound, inclusive
+     * @param max
+     *         The upper bound, inclusive
+     * @return A valid {@link ValidationResult} if all results are numbers within the bounds, else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> between(final double min,
+                                                                                final double max) {
+        return threshold("between " + min + " and " + max, value -> value >= min && value <= max);
+    }
+
+    /**
+     * Checks if all results deviate at most a percentage from a reference value, e.g. to compare a metric with its
+     * baseline.
+     *
+     * @param reference
+     *         The reference value
+     * @param percent
+     *         The allowed deviation in percent of the reference value, inclusive
+     * @return A valid {@link ValidationResult} if all results are numbers within the deviation, else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> withinPercentOf(final double reference,
+                                                                                        final double percent) {
+        double tolerance = Math.abs(reference * percent / 100);
+        return threshold("within " + percent + "% of " + reference,
+                value -> Math.abs(value - reference) <= tolerance);
+    }
+
+    /**
+     * Checks if the time-sliced results of each metric are monotonic in the order of their timestamps, e.g. to verify
+     * that a counter never decreases. Equal consecutive values are allowed. The results are ordered per metric, so
+     * several agents or resources are checked independently and the order of the rows does not matter. Ordering needs
+     * all values, the memory is linear in the count of results.
+     *
+     * @param increasing
+     *         true if the values must not decrease, false if they must not increase
+     * @return A valid {@link ValidationResult} if all results are numbers with a timestamp and each metric is in the
+     * expected order, else invalid.
+     * @see IMetricTestResult#getTimestamp()
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> monotonic(final boolean increasing) {
+        return AssociativeRule.of(TimeSeries::new,
+                TimeSeries::add,
+                TimeSeries::combine,
+                series -> series.invalid != null || series.untimed != null,
+                (resultSet, series) -> {
+                    if (series.invalid != null) {
+                        return invalid("Not a number: %s", series.invalid);
+                    }
+                    if (series.untimed != null) {
+                        return invalid("Not time-sliced: %s", series.untimed);
+                    }
+                    if (series.points.isEmpty()) {
+                        return invalid("No results!");
+                    }
+                    for (Map.Entry<String, TimeSeries.Points> metric : series.points.entrySet()) {
+                        String violation = metric.getValue().findViolation(increasing);
+                        if (violation != null) {
+                            return invalid("Results of %s are not monotonically %s at value %s", metric.getKey(),
+                                    increasing ? "increasing" : "decreasing", violation);
                         }
-                    } catch (NumberFormatException ex) {
-                        return invalid(template, resultSet.getDefinition()
-                                .getFullQualifiedName());
                     }
-                }
-                return ValidationResult.valid();
+                    return ValidationResult.valid();
+                });
+    }
+
+    /**
+     * Checks a percentile of all numeric results of a {@link MetricTestResultSet}, e.g. that the 95th percentile of
+     * the response times is below 2000 ms. The percentile is estimated with a relative error below 1%, values
+     * closer to 0 than 1e-6 are estimated as 0.
+     *
+     * @param percentile
+     *         The percentile between 0 and 100, e.g. 95
+     * @param upperBound
+     *         The upper bound, inclusive
+     * @return A valid {@link ValidationResult} if all results are numbers and the percentile does not exceed the
+     * bound, else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> percentileAtMost(final double percentile,
+                                                                                         final double upperBound) {
+        checkArgument(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100");
+        return distribution(true, (resultSet, distribution) -> {
+            double actual = distribution.getQuantile(percentile / 100);
+            return actual <= upperBound
+                    ? ValidationResult.valid()
+                    : invalid("Percentile %s of %s exceeds %s", String.valueOf(percentile), String.valueOf(actual),
+                    String.valueOf(upperBound));
+        });
+    }
+
+    /**
+     * Checks the sample standard deviation of all numeric results of a {@link MetricTestResultSet}.
+     *
+     * @param upperBound
+     *         The upper bound, inclusive
+     * @return A valid {@link ValidationResult} if all results are numbers and the standard deviation does not exceed
+     * the bound, else invalid.
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> standardDeviationAtMost(
+            final double upperBound) {
+        return distribution(false, (resultSet, distribution) -> distribution.getStandardDeviation() <= upperBound
+                ? ValidationResult.valid()
+                : invalid("Standard deviation %s exceeds %s", String.valueOf(distribution.getStandardDeviation()),
+                String.valueOf(upperBound)));
+    }
+
+    /**
+     * Checks the trend of the time-sliced numeric results of a {@link MetricTestResultSet}. The trend is the slope of
+     * the least squares line through the values by their timestamps, so <code>slopeAtMost(0)</code> checks that an
+     * error rate is not rising. The order of the results does not matter.
+     *
+     * @param maxSlope
+     *         The maximum change of the value per second, inclusive
+     * @return A valid {@link ValidationResult} if all results are numbers with a timestamp and the slope does not
+     * exceed the maximum, else invalid.
+     * @see IMetricTestResult#getTimestamp()
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> slopeAtMost(final double maxSlope) {
+        return distribution(false, (resultSet, distribution) -> {
+            if (distribution.getUntimed() != null) {
+                return invalid("Not time-sliced: %s", distribution.getUntimed());
             }
-            return invalid(template, resultSet.getDefinition().getFullQualifiedName());
-        };
+            return distribution.getSlope() <= maxSlope
+                    ? ValidationResult.valid()
+                    : invalid("Slope %s exceeds %s", String.valueOf(distribution.getSlope()),
+                    String.valueOf(maxSlope));
+        });
+    }
+
+    /**
+     * Creates a rule from a {@link ValidationExpression} like <code>count &gt;= 3 &amp;&amp; value &lt; 2000</code>.
+     * The expression is compiled once, so the rule should be created once and shared by all tests using it.
+     *
+     * @param expression
+     *         The expression
+     * @return A valid {@link ValidationResult} if all conditions of the expression hold, else invalid.
+     * @throws IllegalArgumentException
+     *         if the expression is not valid
+     */
+    public static IValidationRule<IMetricDefinition, IMetricTestResult> expression(final String expression) {
+        return ValidationExpression.parse(expression).toRule();
+    }
+
+    /**
+     * Creates a rule which aggregates all numeric results. Result sets which are empty or contain a value which is not
+     * a number are invalid without asking the finisher.
+     *
+     * @param finisher
+     *         Validates the aggregate of all results
+     * @return The rule
+     */
+    private static IValidationRule<IMetricDefinition, IMetricTestResult> numbers(
+            final BiFunction<MetricTestResultSet<IMetricDefinition, IMetricTestResult>, Numbers, ValidationResult>
+                    finisher) {
+        return AssociativeRule.of(Numbers::new,
+                Numbers::add,
+                Numbers::combine,
+                numbers -> numbers.invalid != null,
+                (resultSet, numbers) -> {
+                    if (numbers.invalid != null) {
+                        return invalid("Not a number: %s", numbers.invalid);
+                    }
+                    if (numbers.count == 0) {
+                        return invalid("No results!");
+                    }
+                    return finisher.apply(resultSet, numbers);
+                });
+    }
+
+    /**
+     * Creates a rule which checks each numeric result against a predicate. Result sets which are empty or contain a
+     * value which is not a number are invalid. The predicate works on primitive doubles, so no result is boxed.
+     *
+     * @param description
+     *         Describes the predicate in the message, e.g. "greater than 0"
+     * @param predicate
+     *         The predicate
+     * @return The rule
+     */
+    private static IValidationRule<IMetricDefinition, IMetricTestResult> threshold(final String description,
+                                                                                   final DoublePredicate predicate) {
+        return AssociativeRule.of(Matches::new,
+                (matches, result) -> {
+                    double value = parse(result);
+                    matches.add(result, !Double.isNaN(value) && predicate.test(value));
+                },
+                Matches::combine,
+                Matches::isViolated,
+                (resultSet, matches) -> {
+                    if (matches.total == 0) {
+                        return invalid("No results!");
+                    }
+                    return !matches.isViolated()
+                            ? ValidationResult.valid()
+                            : invalid("Value %s is not %s", matches.violation, description);
+                });
+    }
+
+    /**
+     * Creates a rule which describes the distribution of all numeric results with a {@link Distribution}. Result sets
+     * which are empty or contain a value which is not a number are invalid without asking the finisher.
+     *
+     * @param quantiles
+     *         true if the finisher needs quantiles
+     * @param finisher
+     *         Validates the distribution of all results
+     * @return The rule
+     */
+    private static IValidationRule<IMetricDefinition, IMetricTestResult> distribution(
+            final boolean quantiles,
+            final BiFunction<MetricTestResultSet<IMetricDefinition, IMetricTestResult>, Distribution, ValidationResult>
+                    finisher) {
+        return AssociativeRule.of(() -> new Distribution(quantiles),
+                Distribution::add,
+                Distribution::combine,
+                distribution -> distribution.getInvalid() != null,
+                (resultSet, distribution) -> {
+                    if (distribution.getInvalid() != null) {
+                        return invalid("Not a number: %s", distribution.getInvalid());
+                    }
+                    if (distribution.getCount() == 0) {
+                        return invalid("No results!");
+                    }
+                    return finisher.apply(resultSet, distribution);
+                });
+    }
+
+    /**
+     * Parses the value of a result.
+     *
+     * @param result
+     *         The result
+     * @return The numeric value or NaN if the value is not a number
+     */
+    static double parse(final IMetricTestResult result) {
+        return NumberParser.parseDouble(result.getValue());
     }
 
     /**
@@ -138,4 +504,274 @@ public final class ValidationRules {
     private static String msg(String template, String... args) {
         return String.format(template, args);
     }
+
+    /**
+     * Container counting the results matching a predicate.
+     */
+    private static final class Matches {
+
+        /**
+         * The count of all results.
+         */
+        private long total;
+
+        /**
+         * The count of matching results.
+         */
+        private long matching;
+
+        /**
+         * The value of the first result not matching, null if all match.
+         */
+        private String violation;
+
+        /**
+         * Adds one result.
+         *
+         * @param result
+         *         The result
+         * @param matches
+         *         true if the result matches
+         */
+        private void add(final IMetricTestResult result,
+                         final boolean matches) {
+            total++;
+            if (matches) {
+                matching++;
+            } else if (violation == null) {
+                violation = String.valueOf(result.getValue());
+            }
+        }
+
+        /**
+         * Merges the counts of the following results.
+         *
+         * @param other
+         *         The counts of the following results
+         */
+        private void combine(final Matches other) {
+            total += other.total;
+            matching += other.matching;
+            if (violation == null) {
+                violation = other.violation;
+            }
+        }
+
+        /**
+         * @return true if at least one result does not match
+         */
+        private boolean isViolated() {
+            return violation != null;
+        }
+    }
+
+    /**
+     * Container aggregating numeric results.
+     */
+    private static final class Numbers {
+
+        /**
+         * The count of numbers.
+         */
+        private long count;
+
+        /**
+         * The smallest number.
+         */
+        private double min = Double.POSITIVE_INFINITY;
+
+        /**
+         * The largest number.
+         */
+        private double max = Double.NEGATIVE_INFINITY;
+
+        /**
+         * The sum of all numbers.
+         */
+        private double sum;
+
+        /**
+         * The first value which is not a number, null if all values are numbers.
+         */
+        private String invalid;
+
+        /**
+         * Adds one result.
+         *
+         * @param result
+         *         The result
+         */
+        private void add(final IMetricTestResult result) {
+            double value = parse(result);
+            if (Double.isNaN(value)) {
+                if (invalid == null) {
+                    invalid = String.valueOf(result.getValue());
+                }
+                return;
+            }
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+
+        /**
+         * Merges the aggregate of the following results.
+         *
+         * @param other
+         *         The aggregate of the following results
+         */
+        private void combine(final Numbers other) {
+            count += other.count;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            if (invalid == null) {
+                invalid = other.invalid;
+            }
+        }
+    }
+
+    /**
+     * Container collecting the time-sliced numeric results of each metric.
+     */
+    private static final class TimeSeries {
+
+        /**
+         * The points of each metric by its full qualified name.
+         */
+        private final Map<String, Points> points = new HashMap<>();
+
+        /**
+         * The first value which is not a number, null if all values are numbers.
+         */
+        private String invalid;
+
+        /**
+         * The first metric without timestamp, null if all results are time-sliced.
+         */
+        private String untimed;
+
+        /**
+         * Adds one result.
+         *
+         * @param result
+         *         The result
+         */
+        private void add(final IMetricTestResult result) {
+            double value = parse(result);
+            if (Double.isNaN(value)) {
+                if (invalid == null) {
+                    invalid = String.valueOf(result.getValue());
+                }
+                return;
+            }
+            if (result.getTimestamp() == 0) {
+                if (untimed == null) {
+                    untimed = result.getFullQualifiedMetricName();
+                }
+                return;
+            }
+            points.computeIfAbsent(result.getFullQualifiedMetricName(), name -> new Points())
+                    .add(result.getTimestamp(), value);
+        }
+
+        /**
+         * Merges the points of other results.
+         *
+         * @param other
+         *         The points of the other results
+         */
+        private void combine(final TimeSeries other) {
+            if (invalid == null) {
+                invalid = other.invalid;
+            }
+            if (untimed == null) {
+                untimed = other.untimed;
+            }
+            other.points.forEach((name, otherPoints) -> {
+                Points own = points.get(name);
+                if (own == null) {
+                    points.put(name, otherPoints);
+                } else {
+                    own.addAll(otherPoints);
+                }
+            });
+        }
+
+        /**
+         * The timestamps and values of one metric in primitive arrays.
+         */
+        private static final class Points {
+
+            /**
+             * The timestamps in milliseconds.
+             */
+            private long[] timestamps = new long[16];
+
+            /**
+             * The values.
+             */
+            private double[] values = new double[16];
+
+            /**
+             * The count of points.
+             */
+            private int size;
+
+            /**
+             * Adds one point.
+             *
+             * @param timestamp
+             *         The timestamp in milliseconds
+             * @param value
+             *         The value
+             */
+            private void add(final long timestamp,
+                             final double value) {
+                if (size == timestamps.length) {
+                    timestamps = Arrays.copyOf(timestamps, size * 2);
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                timestamps[size] = timestamp;
+                values[size] = value;
+                size++;
+            }
+
+            /**
+             * Adds all points of another metric.
+             *
+             * @param other
+             *         The other points
+             */
+            private void addAll(final Points other) {
+                for (int i = 0; i < other.size; i++) {
+                    add(other.timestamps[i], other.values[i]);
+                }
+            }
+
+            /**
+             * Orders the points by their timestamps and checks their values.
+             *
+             * @param increasing
+             *         true if the values must not decrease, false if they must not increase
+             * @return The first value breaking the order, null if all values are in order
+             */
+            private String findViolation(final boolean increasing) {
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+                for (int i = 1; i < size; i++) {
+                    double previous = values[order[i - 1]];
+                    double value = values[order[i]];
+                    if (increasing ? value < previous : value > previous) {
+                        return String.valueOf(value);
+                    }
+                }
+                return null;
+            }
+        }
+    }
 }
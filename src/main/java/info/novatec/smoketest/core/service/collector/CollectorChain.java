@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.service.collector;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link IMetricDataCollector} which passes each collect through the ordered {@link ICollectorInterceptor}s before it
+ * is delegated to the actual collector. Without interceptors the collect is delegated directly.
+ *
+ * @param <IN>
+ *         The type of IMetricDefinition
+ * @param <OUT>
+ *         The type of IMetricTestResult
+ * @author Claudio Waldvogel
+ */
+public class CollectorChain<IN extends IMetricDefinition, OUT extends IMetricTestResult>
+        implements IMetricDataCollector<IN, OUT> {
+
+    /**
+     * The actual {@link IMetricDataCollector}.
+     */
+    private final IMetricDataCollector<IN, OUT> collector;
+
+    /**
+     * The ordered interceptors.
+     */
+    private final ICollectorInterceptor[] interceptors;
+
+    /**
+     * Creates a new CollectorChain.
+     *
+     * @param collector
+     *         The actual {@link IMetricDataCollector}
+     * @param interceptors
+     *         The {@link ICollectorInterceptor}s in any order
+     */
+    public CollectorChain(final IMetricDataCollector<IN, OUT> collector,
+                          final Collection<ICollectorInterceptor> interceptors) {
+        this.collector = checkNotNull(collector);
+        List<ICollectorInterceptor> ordered = new ArrayList<>(interceptors);
+        //The sort is stable, so interceptors with the same order keep their binding order
+        ordered.sort(Comparator.comparingInt(ICollectorInterceptor::getOrder));
+        this.interceptors = ordered.toArray(new ICollectorInterceptor[ordered.size()]);
+    }
+
+    @Override
+    public MetricTestResultSet<IN, OUT> collect(final IN definition) throws MetricDataCollectorException {
+        if (interceptors.length == 0) {
+            return collector.collect(definition);
+        }
+        return collect(0, definition);
+    }
+
+    @Override
+    public int estimateQueries(final IN definition) {
+        return collector.estimateQueries(definition);
+    }
+
+    /**
+     * Invokes the interceptor at the given position or the collector if all interceptors are passed.
+     *
+     * @param position
+     *         The position of the interceptor
+     * @param definition
+     *         The {@link IMetricDefinition} to be collected
+     * @return The result set
+     * @throws MetricDataCollectorException
+     *         if the collect fails
+     */
+    MetricTestResultSet<IN, OUT> collect(final int position,
+                                         final IN definition) throws MetricDataCollectorException {
+        if (position >= interceptors.length) {
+            return collector.collect(definition);
+        }
+        MetricTestResultSet<IN, OUT> resultSet = interceptors[position].intercept(
+                new CollectorInvocation<>(this, position + 1, definition));
+        return checkNotNull(resultSet, "Interceptors must not return null");
+    }
+}
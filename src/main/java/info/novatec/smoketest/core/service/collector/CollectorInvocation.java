@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.service.collector;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+
+/**
+ * One collect passing through the {@link ICollectorInterceptor}s of a {@link CollectorChain}. Each interceptor gets
+ * its own invocation which knows the rest of the chain.
+ *
+ * @param <IN>
+ *         The type of IMetricDefinition
+ * @param <OUT>
+ *         The type of IMetricTestResult
+ * @author Claudio Waldvogel
+ */
+public final class CollectorInvocation<IN extends IMetricDefinition, OUT extends IMetricTestResult> {
+
+    /**
+     * The {@link CollectorChain}.
+     */
+    private final CollectorChain<IN, OUT> chain;
+
+    /**
+     * The position of the next interceptor within the chain.
+     */
+    private final int next;
+
+    /**
+     * The {@link IMetricDefinition} to be collected.
+     */
+    private final IN definition;
+
+    /**
+     * The time in nanoseconds {@link #proceed()} took, -1 if not proceeded yet.
+     */
+    private long elapsedNanos = -1;
+
+    /**
+     * Creates a new CollectorInvocation.
+     *
+     * @param chain
+     *         The {@link CollectorChain}
+     * @param next
+     *         The position of the next interceptor
+     * @param definition
+     *         The {@link IMetricDefinition} to be collected
+     */
+    CollectorInvocation(final CollectorChain<IN, OUT> chain,
+                        final int next,
+                        final IN definition) {
+        this.chain = chain;
+        this.next = next;
+        this.definition = definition;
+    }
+
+    /**
+     * Continues the chain, i.e. invokes the next interceptor or finally the {@link IMetricDataCollector}.
+     *
+     * @return The result set of the rest of the chain
+     * @throws MetricDataCollectorException
+     *         if the collect fails
+     */
+    public MetricTestResultSet<IN, OUT> proceed() throws MetricDataCollectorException {
+        long start = System.nanoTime();
+        try {
+            return chain.collect(next, definition);
+        } finally {
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Continues the chain with another definition, e.g. to split a collect into several smaller ones. This method may
+     * be invoked concurrently and does not update {@link #getElapsedNanos()}.
+     *
+     * @param other
+     *         The {@link IMetricDefinition} to be collected instead
+     * @return The result set of the rest of the chain
+     * @throws MetricDataCollectorException
+     *         if the collect fails
+     */
+    public MetricTestResultSet<IN, OUT> proceed(final IN other) throws MetricDataCollectorException {
+        return chain.collect(next, other);
+    }
+
+    /**
+     * @return The {@link IMetricDefinition} to be collected
+     */
+    public IN getDefinition() {
+        return definition;
+    }
+
+    /**
+     * @return The time in nanoseconds the last {@link #proceed()} took, -1 if not proceeded yet
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.service.collector;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+
+/**
+ * Interceptor which wraps each {@link IMetricDataCollector#collect(IMetricDefinition)} invocation, e.g. to cache,
+ * time, retry or record collects. Interceptors are contributed by bundles through a Guice multibinder:
+ * <pre>
+ * {@code
+ *  Multibinder.newSetBinder(binder(), ICollectorInterceptor.class).addBinding().to(MyInterceptor.class);
+ * }
+ * </pre>
+ * All interceptors are ordered by {@link #getOrder()}, the interceptor with the lowest order is invoked first.
+ *
+ * @author Claudio Waldvogel
+ * @see CollectorChain
+ */
+public interface ICollectorInterceptor {
+
+    /**
+     * Intercepts a collect. Implementations invoke {@link CollectorInvocation#proceed()} to continue the chain or return
+     * a result set on their own to short-circuit it.
+     *
+     * @param invocation
+     *         The {@link CollectorInvocation}
+     * @param <IN>
+     *         The type of IMetricDefinition
+     * @param <OUT>
+     *         The type of IMetricTestResult
+     * @return The result set, must not be null
+     * @throws MetricDataCollectorException
+     *         if the collect fails
+     */
+    <IN extends IMetricDefinition, OUT extends IMetricTestResult> MetricTestResultSet<IN, OUT> intercept(
+            CollectorInvocation<IN, OUT> invocation) throws MetricDataCollectorException;
+
+    /**
+     * @return The order of this interceptor, lower orders are invoked first. Defaults to 0.
+     */
+    default int getOrder() {
+        return 0;
+    }
+}
@@ -59,5 +59,16 @@ public interface IMetricDataCollector<IN extends IMetricDefinition, OUT extends
      */
     MetricTestResultSet<IN, OUT> collect(final IN definition) throws MetricDataCollectorException;
 
+    /**
+     * Estimates how many queries {@link #collect(IMetricDefinition)} will issue for the provided IMetricDefinition
+     * without querying anything. The estimate is used to plan the test execution.
+     *
+     * @param definition
+     *         The {@link IMetricDefinition} to be queried
+     * @return The estimated count of queries, by default one query for each definition
+     */
+    default int estimateQueries(final IN definition) {
+        return 1;
+    }
 
 }
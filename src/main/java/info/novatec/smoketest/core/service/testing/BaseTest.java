@@ -28,9 +28,13 @@ import info.novatec.smoketest.core.SmokeTestConfiguration;
 import info.novatec.smoketest.core.application.configuration.Configuration;
 import info.novatec.smoketest.core.model.*;
 import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.validation.FusedRule;
+import info.novatec.smoketest.core.model.validation.IParallelValidationRule;
 import info.novatec.smoketest.core.model.validation.IValidationRule;
 import info.novatec.smoketest.core.model.validation.ValidationException;
 import info.novatec.smoketest.core.model.validation.ValidationResult;
+import info.novatec.smoketest.core.service.collector.CollectorChain;
+import info.novatec.smoketest.core.service.collector.ICollectorInterceptor;
 import info.novatec.smoketest.core.service.collector.IMetricDataCollector;
 import info.novatec.smoketest.core.service.collector.MetricDataCollectorException;
 import org.slf4j.Logger;
@@ -43,7 +47,11 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import javax.inject.Inject;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Generic abstract base class for all smoke test classes. It is not mandatory but test developers are encouraged to
@@ -66,19 +74,69 @@ public abstract class BaseTest<IN extends IMetricDefinition, OUT extends IMetric
      * Constant to access the {@link info.novatec.smoketest.core.model.MetricTestResultSet} within the attributes of a
      * the TestNG reporter.
      */
-    private static final String METRIC_TEST_RESULT_SET_REPORTER_ENTRY = "metricTestResultSet";
+    static final String METRIC_TEST_RESULT_SET_REPORTER_ENTRY = "metricTestResultSet";
 
     /**
      * Constant defines the name of the TestNG data provider.
      */
     private static final String DATA_PROVIDER_NAME = "smokeTestData";
 
+    /**
+     * Constant defines the name of the TestNG data provider for canary tests.
+     */
+    private static final String CANARY_DATA_PROVIDER_NAME = "smokeTestCanaries";
+
+    /**
+     * Constant defines the name of the TestNG group of all canary tests.
+     */
+    private static final String CANARY_GROUP = "canary";
+
     /**
      * The {@link IMetricDataCollector} which is used to collect for metrics.
      */
     @Inject
     private IMetricDataCollector<IN, OUT> collector;
 
+    /**
+     * The {@link CollectorChain} passing each collect of {@link #collector} through all interceptors.
+     */
+    private IMetricDataCollector<IN, OUT> chain;
+
+    /**
+     * The {@link IMetricTestExpander} which derives the executed tests from {@link #getMetricTests()}.
+     */
+    @Inject
+    private IMetricTestExpander expander;
+
+    /**
+     * The {@link CanaryGate} which blocks tests of failed canaries.
+     */
+    @Inject
+    private CanaryGate canaryGate;
+
+    /**
+     * The {@link ExecutionPlanner} which prunes and orders the tests before execution.
+     */
+    @Inject
+    private ExecutionPlanner planner;
+
+    /**
+     * The {@link RunBudget} which stops starting tests before the run deadline.
+     */
+    @Inject
+    private RunBudget runBudget;
+
+    /**
+     * The {@link TestOutcomePublisher} which streams the outcome of each test.
+     */
+    @Inject
+    private TestOutcomePublisher outcomes;
+
+    /**
+     * The {@link ExecutionPlan} of this test.
+     */
+    private ExecutionPlan<IN, OUT> plan;
+
     /**
      * The {@link Configuration} for this test. This is at least of type {@link SmokeTestConfiguration}
      */
@@ -96,6 +154,18 @@ public abstract class BaseTest<IN extends IMetricDefinition, OUT extends IMetric
     public BaseTest() {
     }
 
+    /**
+     * Wraps the injected collector with all {@link ICollectorInterceptor}s. Guice injects methods after fields, thus the
+     * collector is already available.
+     *
+     * @param interceptors
+     *         All bound {@link ICollectorInterceptor}s
+     */
+    @Inject
+    void injectInterceptors(final Set<ICollectorInterceptor> interceptors) {
+        this.chain = new CollectorChain<>(collector, interceptors);
+    }
+
     //-------------------------------------------------------------
     // Methods: Test execution
     //-------------------------------------------------------------
@@ -121,6 +191,8 @@ public abstract class BaseTest<IN extends IMetricDefinition, OUT extends IMetric
      * marked as skipped by throwing a SkipException.<br> If it is in scope the {@link IMetricDataCollector} is utilized
      * to collect the required information.<br> As last step the provided {@link IValidationRule}s are used to validate
      * the collect results. </p>
+     * <p> The method is executed after all canary tests {@link #testCanary(MetricTest)}. Tests sharing a scope with
+     * a failed canary are not executed but skipped with a {@link BlockedTestException}. </p>
      *
      * @param metricTest
      *         The {@link MetricTest} to be executed
@@ -132,45 +204,227 @@ public abstract class BaseTest<IN extends IMetricDefinition, OUT extends IMetric
      * @see IValidationRule
      * @see TestLevel
      */
-    @Test(dataProvider = DATA_PROVIDER_NAME)
+    @Test(dataProvider = DATA_PROVIDER_NAME, dependsOnGroups = CANARY_GROUP, alwaysRun = true)
     public final void testMetric(final MetricTest<IN, OUT> metricTest) {
-        if (isInScope(metricTest.getLevel())) {
-            MetricTestResultSet<IN, OUT> resultSet;
-            try {
-                //Start the data collection
-                resultSet = collector.collect(metricTest.getMetric());
-            } catch (MetricDataCollectorException ex) {
-                //Since we are running as TestNG Test this exceptions won't be logged.
-                //This is only visible in the test result html output. But if no HTML reporter us defined
-                //this exception is swallowed.
-                //Practically it is bad practice to log exceptions in catch block but in this special case
-                //it might be okay
-                //LOGGER.warn(Throwables.getStackTraceAsString(ex));
-                throw ex;
-            }
+        runAndPublish(metricTest);
+    }
+
+    /**
+     * Executes one canary {@link MetricTest} exactly like {@link #testMetric(MetricTest)}. All canaries of all test
+     * classes are executed before the first non canary test.
+     *
+     * @param metricTest
+     *         The canary {@link MetricTest} to be executed
+     * @throws ValidationException
+     *         if validation fails
+     * @throws SkipException
+     *         if the test is out of scope
+     * @see CanaryGate
+     */
+    @Test(dataProvider = CANARY_DATA_PROVIDER_NAME, groups = CANARY_GROUP)
+    public final void testCanary(final MetricTest<IN, OUT> metricTest) {
+        runAndPublish(metricTest);
+    }
+
+    /**
+     * Runs one {@link MetricTest} on behalf of TestNG and emits its {@link TestOutcome}.
+     *
+     * @param metricTest
+     *         The {@link MetricTest} to be executed
+     */
+    private void runAndPublish(final MetricTest<IN, OUT> metricTest) {
+        long start = System.currentTimeMillis();
+        AtomicReference<MetricTestResultSet<IN, OUT>> published = new AtomicReference<>();
+        Throwable failure = null;
+        try {
             //Provide the result set as attribute to the testNG reporter to make it available to reporters
-            Reporter.getCurrentTestResult().setAttribute(METRIC_TEST_RESULT_SET_REPORTER_ENTRY, resultSet);
-            //Next step is to validate the result set,
+            run(metricTest, resultSet -> {
+                published.set(resultSet);
+                Reporter.getCurrentTestResult().setAttribute(METRIC_TEST_RESULT_SET_REPORTER_ENTRY, resultSet);
+            });
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            outcomes.emit(new TestOutcome<>(metricTest, published.get(), failure, start,
+                    System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Runs one {@link MetricTest} independent of the test engine. Tests which are out of scope, blocked by a failed
+     * canary or not covered by the {@link RunBudget} are skipped, all others are collected and validated.
+     *
+     * @param metricTest
+     *         The {@link MetricTest} to be executed
+     * @param publisher
+     *         Receives the result set to make it available to reporters
+     * @throws ValidationException
+     *         if validation fails
+     * @throws SkipException
+     *         if the test is out of scope, a {@link BlockedTestException} if blocked by a canary or a {@link
+     *         BudgetExceededException} if the remaining time of the run can not cover the test
+     */
+    void run(final MetricTest<IN, OUT> metricTest,
+             final Consumer<MetricTestResultSet<IN, OUT>> publisher) {
+        int estimatedQueries = admit(metricTest, publisher);
+        MetricTestResultSet<IN, OUT> resultSet = collect(metricTest, estimatedQueries);
+        publisher.accept(resultSet);
+        validate(metricTest, resultSet);
+    }
+
+    /**
+     * Decides if a {@link MetricTest} is executed. This is the first step of {@link #run(MetricTest, Consumer)}.
+     *
+     * @param metricTest
+     *         The {@link MetricTest} to be executed
+     * @param publisher
+     *         Receives an empty result set if the test is skipped
+     * @return The estimated count of queries of the test
+     * @throws SkipException
+     *         if the test is out of scope, a {@link BlockedTestException} if blocked by a canary or a {@link
+     *         BudgetExceededException} if the remaining time of the run can not cover the test
+     */
+    int admit(final MetricTest<IN, OUT> metricTest,
+              final Consumer<MetricTestResultSet<IN, OUT>> publisher) {
+        if (!isInScope(metricTest.getLevel())) {
+            //Although out of scope, provide an empty result set to the reporter.
+            publisher.accept(new MetricTestResultSet<>(metricTest.getMetric()));
+            LOGGER.info("Skipped: \"{}\"", metricTest.getMetric()
+                    .getFullQualifiedName());
+            throw new SkipException("Test ist out of scope!");
+        }
+        String canary = canaryGate.blockedBy(metricTest);
+        if (canary != null) {
+            publisher.accept(new MetricTestResultSet<>(metricTest.getMetric()));
+            LOGGER.info("Blocked: \"{}\" Canary: \"{}\"", metricTest.getMetric().getFullQualifiedName(), canary);
+            throw new BlockedTestException(canary);
+        }
+        int estimatedQueries = chain.estimateQueries(metricTest.getMetric());
+        if (!runBudget.admits(estimatedQueries)) {
+            publisher.accept(new MetricTestResultSet<>(metricTest.getMetric()));
+            LOGGER.info("Not run (budget): \"{}\"", metricTest.getMetric().getFullQualifiedName());
+            throw new BudgetExceededException();
+        }
+        return estimatedQueries;
+    }
+
+    /**
+     * Collects the results of an admitted {@link MetricTest}. The duration is recorded in the {@link RunBudget}. This
+     * is the second step of {@link #run(MetricTest, Consumer)}.
+     *
+     * @param metricTest
+     *         The admitted {@link MetricTest}
+     * @param estimatedQueries
+     *         The estimated count of queries returned by {@link #admit(MetricTest, Consumer)}
+     * @return The collected result set
+     * @throws MetricDataCollectorException
+     *         if the collect fails
+     */
+    MetricTestResultSet<IN, OUT> collect(final MetricTest<IN, OUT> metricTest,
+                                         final int estimatedQueries) {
+        long start = System.nanoTime();
+        try {
+            //Start the data collection
+            return chain.collect(metricTest.getMetric());
+        } catch (RuntimeException ex) {
+            //Since we are running as TestNG Test this exceptions won't be logged.
+            //This is only visible in the test result html output. But if no HTML reporter us defined
+            //this exception is swallowed.
+            //Practically it is bad practice to log exceptions in catch block but in this special case
+            //it might be okay
+            //LOGGER.warn(Throwables.getStackTraceAsString(ex));
+            failCanary(metricTest, ex);
+            throw ex;
+        } finally {
+            runBudget.record(estimatedQueries, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Validates the collected results of a {@link MetricTest}. This is the last step of {@link #run(MetricTest,
+     * Consumer)}. The results are released after the {@link TestOutcome} is delivered.
+     *
+     * @param metricTest
+     *         The collected {@link MetricTest}
+     * @param resultSet
+     *         The result set returned by {@link #collect(MetricTest, int)}
+     * @throws ValidationException
+     *         with the messages of all invalid rules if validation fails or if the result set was truncated
+     */
+    void validate(final MetricTest<IN, OUT> metricTest,
+                  final MetricTestResultSet<IN, OUT> resultSet) {
+        try {
+            //Next step is to validate the result set, all rules are evaluated in one pass to report all failures
             if (metricTest.getValidations() != null && metricTest.getValidations().size() > 0) {
-                for (IValidationRule<IN, OUT> rule : metricTest.getValidations()) {
-                    ValidationResult validationResult = rule.apply(resultSet);
-                    if (!validationResult.isValid()) {
-                        LOGGER.warn("Failed: \"{}\" Reason: {}", metricTest.getMetric().
-                                getFullQualifiedName(), validationResult.getMessage());
-                        throw new ValidationException(validationResult.getMessage());
-                    }
+                ValidationResult validationResult = apply(FusedRule.of(metricTest.getValidations()), resultSet);
+                if (!validationResult.isValid()) {
+                    LOGGER.warn("Failed: \"{}\" Reason: {}", metricTest.getMetric().
+                            getFullQualifiedName(), validationResult.getMessage());
+                    throw new ValidationException(resultSet.isTruncated() ? truncated(resultSet) + " " +
+                            validationResult.getMessage() : validationResult.getMessage());
                 }
+            }
+            if (resultSet.isTruncated()) {
+                //Rules passing on a partial result set prove nothing
+                LOGGER.warn("Failed: \"{}\" Reason: {}", metricTest.getMetric().getFullQualifiedName(),
+                        truncated(resultSet));
+                throw new ValidationException(truncated(resultSet));
+            }
+            if (metricTest.getValidations() != null && metricTest.getValidations().size() > 0) {
                 LOGGER.info("Passed: \"{}\"", metricTest.getMetric().getFullQualifiedName());
             } else {
                 LOGGER.info("Passed (No validation!): \"{}\"", metricTest.getMetric().getFullQualifiedName());
             }
-        } else {
-            //Although out of scope, provide an empty result set to the reporter.
-            Reporter.getCurrentTestResult().setAttribute(METRIC_TEST_RESULT_SET_REPORTER_ENTRY,
-                    new MetricTestResultSet<>(metricTest.getMetric()));
-            LOGGER.info("Skipped: \"{}\"", metricTest.getMetric()
-                    .getFullQualifiedName());
-            throw new SkipException("Test ist out of scope!");
+        } catch (RuntimeException e) {
+            failCanary(metricTest, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the failure message of a truncated result set.
+     *
+     * @param resultSet
+     *         The truncated result set
+     * @return The failure message
+     */
+    private static String truncated(final MetricTestResultSet<?, ?> resultSet) {
+        return "Result set truncated after " + resultSet.getResults().size() +
+                " results, validation is incomplete.";
+    }
+
+    /**
+     * Applies a rule to a result set. Rules supporting it are evaluated on several threads if the result set exceeds
+     * {@link SmokeTestConfiguration#getParallelValidationThreshold()}.
+     *
+     * @param rule
+     *         The {@link IValidationRule}
+     * @param resultSet
+     *         The result set to be validated
+     * @return The {@link ValidationResult}
+     */
+    private ValidationResult apply(final IValidationRule<IN, OUT> rule,
+                                   final MetricTestResultSet<IN, OUT> resultSet) {
+        int threshold = configuration.getParallelValidationThreshold();
+        if (rule instanceof IParallelValidationRule && threshold > 0 && resultSet.getResults().size() >= threshold) {
+            return ((IParallelValidationRule<IN, OUT>) rule).applyParallel(resultSet);
+        }
+        return rule.apply(resultSet);
+    }
+
+    /**
+     * Reports the failure of a canary to the {@link CanaryGate}. Failures of other tests are ignored.
+     *
+     * @param metricTest
+     *         The failed {@link MetricTest}
+     * @param cause
+     *         The failure
+     */
+    private void failCanary(final MetricTest<IN, OUT> metricTest,
+                            final RuntimeException cause) {
+        if (metricTest.isCanary()) {
+            canaryGate.fail(metricTest, cause);
         }
     }
 
@@ -184,9 +438,58 @@ public abstract class BaseTest<IN extends IMetricDefinition, OUT extends IMetric
      *         The TestNG ITestContext
      * @return A two dimensional Object array.
      */
-    @DataProvider(name = DATA_PROVIDER_NAME)
+    @DataProvider(name = DATA_PROVIDER_NAME, parallel = true)
     protected Object[][] dataProvider(final ITestContext testContext) {
-        return toDataProvider(getMetricTests());
+        //TestNG invokes the inherited @BeforeTest method only on one instance if several test classes are executed
+        this.context = testContext;
+        return toDataProvider(getExpandedMetricTests(false));
+    }
+
+    /**
+     * Creates the dataProvider for the {@link #testCanary(MetricTest)} method.
+     *
+     * @param testContext
+     *         The TestNG ITestContext
+     * @return A two dimensional Object array.
+     * @see #dataProvider(ITestContext)
+     */
+    @DataProvider(name = CANARY_DATA_PROVIDER_NAME, parallel = true)
+    protected Object[][] canaryDataProvider(final ITestContext testContext) {
+        this.context = testContext;
+        return toDataProvider(getExpandedMetricTests(true));
+    }
+
+    /**
+     * @return All {@link MetricTest}s to be executed, i.e. {@link #getMetricTests()} expanded by the {@link
+     * IMetricTestExpander}
+     */
+    Set<MetricTest<IN, OUT>> getExpandedMetricTests() {
+        return expander.expand(getMetricTests());
+    }
+
+    /**
+     * @param canaries
+     *         true to get the canaries, false to get all other tests
+     * @return The canaries or all other tests of the {@link ExecutionPlan}
+     */
+    Set<MetricTest<IN, OUT>> getExpandedMetricTests(final boolean canaries) {
+        return getPlan().getTests().stream()
+                .filter(test -> test.isCanary() == canaries)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Gets the {@link ExecutionPlan} of this test. The plan is created once by the {@link ExecutionPlanner}.
+     *
+     * @return The ExecutionPlan of {@link #getExpandedMetricTests()}
+     */
+    synchronized ExecutionPlan<IN, OUT> getPlan() {
+        if (plan == null) {
+            plan = planner.plan(getExpandedMetricTests(), chain);
+            LOGGER.debug("Planned {} tests, {} estimated queries", plan.getTests().size(),
+                    plan.getEstimatedQueries());
+        }
+        return plan;
     }
 
     /**
@@ -237,7 +540,7 @@ public abstract class BaseTest<IN extends IMetricDefinition, OUT extends IMetric
      *         The {@link TestLevel}
      * @return true if level is contains in the level set in the configuration, false otherwise
      */
-    private boolean isInScope(TestLevel level) {
+    boolean isInScope(TestLevel level) {
         return configuration.getTestLevel().contains(level);
     }
 }
\ No newline at end of file
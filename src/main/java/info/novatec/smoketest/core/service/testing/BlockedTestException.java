@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.service.testing;
+
+import org.testng.SkipException;
+
+/**
+ * Exception to skip a test which is blocked by a failed canary test.
+ *
+ * @author Claudio Waldvogel
+ * @see CanaryGate
+ */
+public class BlockedTestException extends SkipException {
+
+    /**
+     * The serial version of the exception.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The full qualified name of the blocking canary.
+     */
+    private final String canary;
+
+    /**
+     * Creates a new BlockedTestException.
+     *
+     * @param canary
+     *         The full qualified name of the blocking canary
+     */
+    public BlockedTestException(final String canary) {
+        super("Blocked by canary: " + canary);
+        this.canary = canary;
+    }
+
+    /**
+     * Gets {@link #canary}.
+     *
+     * @return {@link #canary}
+     */
+    public String getCanary() {
+        return canary;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.service.testing;
+
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.service.collector.MetricDataCollectorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of failed canary tests. If a canary fails because the data could not be collected at all, e.g. the
+ * monitoring system is not reachable, the widest scope of the canary is blocked. If the canary fails the validation,
+ * e.g. an agent is down, only the narrowest scope is blocked. All non canary tests sharing a blocked scope are not
+ * executed but reported as blocked.
+ *
+ * @author Claudio Waldvogel
+ * @see MetricTest#isCanary()
+ * @see info.novatec.smoketest.core.model.IMetricDefinition#getScopes()
+ */
+@Singleton
+public class CanaryGate {
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CanaryGate.class);
+
+    /**
+     * The blocked scopes mapped to the full qualified name of the first failed canary.
+     */
+    private final Map<String, String> blockedScopes = new ConcurrentHashMap<>();
+
+    /**
+     * Records a failed canary test.
+     *
+     * @param canary
+     *         The failed canary
+     * @param cause
+     *         The failure of the canary
+     */
+    public void fail(final MetricTest<?, ?> canary,
+                     final Throwable cause) {
+        List<String> scopes = canary.getMetric().getScopes();
+        String scope = cause instanceof MetricDataCollectorException ? scopes.get(0) : scopes.get(scopes.size() - 1);
+        if (blockedScopes.putIfAbsent(scope, canary.getMetric().getFullQualifiedName()) == null) {
+            LOGGER.warn("Canary failed: \"{}\" Blocking all tests of scope \"{}\"",
+                    canary.getMetric().getFullQualifiedName(), scope);
+        }
+    }
+
+    /**
+     * Checks if a test is blocked by a failed canary. Canaries themselves are never blocked.
+     *
+     * @param test
+     *         The test to be checked
+     * @return The full qualified name of the blocking canary or null if the test is not blocked
+     */
+    public String blockedBy(final MetricTest<?, ?> test) {
+        if (test.isCanary() || blockedScopes.isEmpty()) {
+            return null;
+        }
+        for (String scope : test.getMetric().getScopes()) {
+            String canary = blockedScopes.get(scope);
+            if (canary != null) {
+                return canary;
+            }
+        }
+        return null;
+    }
+}
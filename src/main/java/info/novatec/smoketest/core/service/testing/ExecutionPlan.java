@@ -0,0 +1,213 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.service.testing;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.TestLevel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The result of the {@link ExecutionPlanner}. The plan contains all {@link MetricTest}s which are actually executed
+ * grouped by their scope together with the estimated count of queries.
+ *
+ * @param <IN>
+ *         The type of IMetricDefinition
+ * @param <OUT>
+ *         The type of IMetricTestResult
+ * @author Claudio Waldvogel
+ */
+public class ExecutionPlan<IN extends IMetricDefinition, OUT extends IMetricTestResult> {
+
+    /**
+     * The ordered groups of the plan.
+     */
+    private final List<Group<IN, OUT>> groups;
+
+    /**
+     * Count of tests which were removed because they are out of scope.
+     */
+    private final int outOfScope;
+
+    /**
+     * Count of tests which were merged into other tests of the same metric.
+     */
+    private final int duplicates;
+
+    /**
+     * Creates a new ExecutionPlan.
+     *
+     * @param groups
+     *         The ordered groups
+     * @param outOfScope
+     *         Count of tests which are out of scope
+     * @param duplicates
+     *         Count of merged tests
+     */
+    public ExecutionPlan(final List<Group<IN, OUT>> groups,
+                         final int outOfScope,
+                         final int duplicates) {
+        this.groups = Collections.unmodifiableList(groups);
+        this.outOfScope = outOfScope;
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * Gets all tests in execution order. The canaries of all groups are ordered before all other tests, followed by
+     * the tests ordered by their {@link TestLevel}. If the run deadline is reached, the least important tests are not
+     * executed.
+     *
+     * @return All tests of the plan
+     */
+    public List<MetricTest<IN, OUT>> getTests() {
+        List<MetricTest<IN, OUT>> tests = new ArrayList<>();
+        groups.forEach(group -> tests.addAll(group.getTests()));
+        //The sort is stable, thus the order of the groups is kept
+        tests.sort(Comparator.comparing((MetricTest<IN, OUT> test) -> !test.isCanary())
+                .thenComparing(MetricTest::getLevel));
+        return tests;
+    }
+
+    /**
+     * @return The estimated count of queries of all groups
+     */
+    public int getEstimatedQueries() {
+        return groups.stream().mapToInt(Group::getEstimatedQueries).sum();
+    }
+
+    /**
+     * Gets {@link #groups}.
+     *
+     * @return {@link #groups}
+     */
+    public List<Group<IN, OUT>> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Gets {@link #outOfScope}.
+     *
+     * @return {@link #outOfScope}
+     */
+    public int getOutOfScope() {
+        return outOfScope;
+    }
+
+    /**
+     * Gets {@link #duplicates}.
+     *
+     * @return {@link #duplicates}
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * All tests of a plan sharing the same scope.
+     *
+     * @param <IN>
+     *         The type of IMetricDefinition
+     * @param <OUT>
+     *         The type of IMetricTestResult
+     * @see IMetricDefinition#getScopes()
+     */
+    public static class Group<IN extends IMetricDefinition, OUT extends IMetricTestResult> {
+
+        /**
+         * The narrowest scope of all tests.
+         */
+        private final String scope;
+
+        /**
+         * The ordered tests.
+         */
+        private final List<MetricTest<IN, OUT>> tests;
+
+        /**
+         * The estimated queries of each test.
+         */
+        private final List<Integer> estimatedQueries;
+
+        /**
+         * Creates a new Group.
+         *
+         * @param scope
+         *         The scope
+         * @param tests
+         *         The ordered tests
+         * @param estimatedQueries
+         *         The estimated queries of each test
+         */
+        public Group(final String scope,
+                     final List<MetricTest<IN, OUT>> tests,
+                     final List<Integer> estimatedQueries) {
+            this.scope = scope;
+            this.tests = Collections.unmodifiableList(tests);
+            this.estimatedQueries = Collections.unmodifiableList(estimatedQueries);
+        }
+
+        /**
+         * @return The estimated count of queries of all tests
+         */
+        public int getEstimatedQueries() {
+            return estimatedQueries.stream().mapToInt(Integer::intValue).sum();
+        }
+
+        /**
+         * Gets the estimated count of queries of one test.
+         *
+         * @param index
+         *         The index of the test
+         * @return The estimated count of queries
+         */
+        public int getEstimatedQueries(final int index) {
+            return estimatedQueries.get(index);
+        }
+
+        /**
+         * Gets {@link #scope}.
+         *
+         * @return {@link #scope}
+         */
+        public String getScope() {
+            return scope;
+        }
+
+        /**
+         * Gets {@link #tests}.
+         *
+         * @return {@link #tests}
+         */
+        public List<MetricTest<IN, OUT>> getTests() {
+            return tests;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.service.testing;
+
+import com.google.common.collect.Lists;
+import info.novatec.smoketest.core.SmokeTestConfiguration;
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.validation.IValidationRule;
+import info.novatec.smoketest.core.service.collector.IMetricDataCollector;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Plans the execution of {@link MetricTest}s before any test is started. The planner
+ * <ol>
+ * <li>removes all tests which are not in scope of {@link SmokeTestConfiguration#getTestLevel()},</li>
+ * <li>merges all tests of the same metric into one test with all validations, so each metric is collected once,</li>
+ * <li>groups the tests by their narrowest scope, e.g. the agent,</li>
+ * <li>orders the groups and the tests of each group by name, so the plan is stable between runs.</li>
+ * </ol>
+ *
+ * @author Claudio Waldvogel
+ * @see ExecutionPlan
+ */
+@Singleton
+public class ExecutionPlanner {
+
+    /**
+     * The {@link SmokeTestConfiguration}.
+     */
+    private SmokeTestConfiguration configuration;
+
+    /**
+     * Creates a new ExecutionPlanner.
+     *
+     * @param configuration
+     *         The {@link SmokeTestConfiguration}
+     */
+    @Inject
+    public ExecutionPlanner(final SmokeTestConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Creates the {@link ExecutionPlan}.
+     *
+     * @param tests
+     *         The tests to be planned
+     * @param collector
+     *         The {@link IMetricDataCollector} to estimate the queries
+     * @param <IN>
+     *         The type of IMetricDefinition
+     * @param <OUT>
+     *         The type of IMetricTestResult
+     * @return The ExecutionPlan
+     */
+    public <IN extends IMetricDefinition, OUT extends IMetricTestResult> ExecutionPlan<IN, OUT> plan(
+            final Collection<MetricTest<IN, OUT>> tests,
+            final IMetricDataCollector<IN, OUT> collector) {
+        int outOfScope = 0;
+        int duplicates = 0;
+        Map<List<Object>, MetricTest<IN, OUT>> merged = new LinkedHashMap<>();
+        for (MetricTest<IN, OUT> test : tests) {
+            if (!configuration.getTestLevel().contains(test.getLevel())) {
+                outOfScope++;
+                continue;
+            }
+            List<Object> key = Arrays.asList(test.getMetric(), test.isCanary());
+            MetricTest<IN, OUT> existing = merged.get(key);
+            if (existing != null) {
+                duplicates++;
+                Set<IValidationRule<IN, OUT>> validations = new LinkedHashSet<>(existing.getValidations());
+                validations.addAll(test.getValidations());
+                test = new MetricTest<>(existing.getMetric(), existing.getLevel(), new ArrayList<>(validations),
+                        existing.isCanary());
+            }
+            merged.put(key, test);
+        }
+
+        Map<String, List<MetricTest<IN, OUT>>> scopes = new TreeMap<>();
+        for (MetricTest<IN, OUT> test : merged.values()) {
+            List<String> testScopes = test.getMetric().getScopes();
+            scopes.computeIfAbsent(testScopes.get(testScopes.size() - 1), scope -> Lists.newArrayList()).add(test);
+        }
+        List<ExecutionPlan.Group<IN, OUT>> groups = new ArrayList<>();
+        for (Map.Entry<String, List<MetricTest<IN, OUT>>> scope : scopes.entrySet()) {
+            List<MetricTest<IN, OUT>> scopeTests = scope.getValue();
+            scopeTests.sort(Comparator.comparing(test -> test.getMetric().getFullQualifiedName()));
+            List<Integer> estimatedQueries = new ArrayList<>();
+            for (MetricTest<IN, OUT> test : scopeTests) {
+                estimatedQueries.add(collector.estimateQueries(test.getMetric()));
+            }
+            groups.add(new ExecutionPlan.Group<>(scope.getKey(), scopeTests, estimatedQueries));
+        }
+        return new ExecutionPlan<>(groups, outOfScope, duplicates);
+    }
+}
@@ -24,6 +24,7 @@
 
 package info.novatec.smoketest.core.service.testing;
 
+import org.reactivestreams.Publisher;
 import org.testng.IReporter;
 
 import java.util.List;
@@ -82,4 +83,14 @@ public interface ITestExecutionService {
      *         The outputDirectory directory
      */
     void setReportDirectory(final String outputDirectory);
+
+    /**
+     * Gets the {@link Publisher} which emits the {@link TestOutcome} of each test as soon as it is finished and
+     * completes once the execution is finished. Subscribers control the rate by their demand. Subscribe before
+     * invoking {@link #execute()} to receive all outcomes.
+     *
+     * @return The Publisher of all test outcomes
+     * @see TestOutcomePublisher
+     */
+    Publisher<TestOutcome<?, ?>> getOutcomes();
 }
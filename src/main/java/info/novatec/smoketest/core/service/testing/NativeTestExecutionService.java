@@ -0,0 +1,400 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.service.testing;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Injector;
+import info.novatec.smoketest.core.SmokeTestConfiguration;
+import info.novatec.smoketest.core.application.Environment;
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IReporter;
+import org.testng.IResultMap;
+import org.testng.ISuite;
+import org.testng.ISuiteResult;
+import org.testng.ITestClass;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.SkipException;
+import org.testng.xml.XmlSuite;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ITestExecutionService} which executes the {@link MetricTest}s of all {@link BaseTest}s directly on an
+ * executor. TestNG invokes each metric test by reflection with listeners, data providers and result bookkeeping which
+ * is pure overhead for thousands of metric tests. This service only keeps one result per metric test and feeds the
+ * results into the TestNG object model afterwards, so all {@link IReporter}s work without any change.
+ * <p>
+ * The metric tests are executed by a {@link TestPipeline}, so collecting, validating and reporting overlap. The
+ * stages are sized by {@link SmokeTestConfiguration#getParallelism()}, {@link
+ * SmokeTestConfiguration#getValidationParallelism()} and {@link SmokeTestConfiguration#getReportParallelism()}.
+ * <p>
+ * The service is installed by the {@link info.novatec.smoketest.core.CoreBundle} if {@link
+ * SmokeTestConfiguration#isNativeExecution()} is enabled.
+ *
+ * @author Claudio Waldvogel
+ */
+public class NativeTestExecutionService implements ITestExecutionService {
+
+    /**
+     * The very last fallback output directory name.
+     */
+    private static final String DEFAULT_OUTPUT_DIRECTORY = "test-results";
+
+    /**
+     * The name of the test method which is reported for all metric tests.
+     */
+    private static final String TEST_METHOD_NAME = "testMetric";
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeTestExecutionService.class);
+
+    /**
+     * The Gucie Injector which is used to enable dependency injection to test classes.
+     */
+    private Injector injector;
+
+    /**
+     * The running {@link Environment}.
+     */
+    private Environment<?> environment;
+
+    /**
+     * The effective {@link SmokeTestConfiguration}.
+     */
+    private SmokeTestConfiguration configuration;
+
+    /**
+     * The list of all applied {@link IReporter}s.
+     */
+    private List<IReporter> reporters;
+
+    /**
+     * The output directory name.
+     */
+    private String outputDirectory = DEFAULT_OUTPUT_DIRECTORY;
+
+    /**
+     * The {@link TestOutcomePublisher}.
+     */
+    private TestOutcomePublisher outcomes;
+
+    /**
+     * The stages of the current or last execution.
+     */
+    private volatile List<TestPipeline.Stage> stages = Collections.emptyList();
+
+    /**
+     * Creates a new NativeTestExecutionService.
+     *
+     * @param injector
+     *         The Gucie {@link Injector}
+     * @param environment
+     *         The {@link Environment}
+     * @param configuration
+     *         The {@link SmokeTestConfiguration}
+     * @param outcomes
+     *         The {@link TestOutcomePublisher}
+     */
+    @Inject
+    public NativeTestExecutionService(final Injector injector,
+                                      final Environment<?> environment,
+                                      final SmokeTestConfiguration configuration,
+                                      final TestOutcomePublisher outcomes) {
+        this.injector = injector;
+        this.environment = environment;
+        this.configuration = configuration;
+        this.outcomes = outcomes;
+        this.reporters = Lists.newArrayList();
+    }
+
+    //-------------------------------------------------------------
+    // Interface Implementation: ITestExecutionService
+    //-------------------------------------------------------------
+
+    @Override
+    public void execute() {
+        execute(environment.getTests());
+    }
+
+    @Override
+    public void execute(Class<?>... tests) {
+        execute(Arrays.asList(tests));
+    }
+
+    @Override
+    public void execute(List<Class<?>> tests) {
+        initializeOutputDirectory();
+        Map<String, Object> suiteValues = Maps.newHashMap();
+        Map<String, Object> contextValues = Maps.newHashMap();
+        ISuite suite = ReportAdapters.adapt(ISuite.class, suiteValues);
+        ITestContext context = ReportAdapters.adapt(ITestContext.class, contextValues);
+        IResultMap passed = new ReportAdapters.ResultMap();
+        IResultMap failed = new ReportAdapters.ResultMap();
+        IResultMap skipped = new ReportAdapters.ResultMap();
+        List<ITestNGMethod> methods = Lists.newArrayList();
+
+        contextValues.put("getName", environment.getName());
+        contextValues.put("getStartDate", new Date());
+        contextValues.put("getPassedTests", passed);
+        contextValues.put("getFailedTests", failed);
+        contextValues.put("getSkippedTests", skipped);
+        contextValues.put("getOutputDirectory", outputDirectory);
+        contextValues.put("getSuite", suite);
+        contextValues.put("getHost", null);
+        //Metric tests have no configuration methods
+        contextValues.put("getPassedConfigurations", new ReportAdapters.ResultMap());
+        contextValues.put("getFailedConfigurations", new ReportAdapters.ResultMap());
+        contextValues.put("getSkippedConfigurations", new ReportAdapters.ResultMap());
+        contextValues.put("getFailedButWithinSuccessPercentageTests", new ReportAdapters.ResultMap());
+
+        Map<BaseTest<?, ?>, ITestNGMethod> instances = Maps.newLinkedHashMap();
+        for (Class<?> test : tests) {
+            if (!BaseTest.class.isAssignableFrom(test)) {
+                LOGGER.warn("Ignored: \"{}\" Only subclasses of BaseTest can be executed natively", test.getName());
+                continue;
+            }
+            BaseTest<?, ?> instance = (BaseTest<?, ?>) injector.getInstance(test);
+            ITestNGMethod method = createMethod(test, instance);
+            methods.add(method);
+            instances.put(instance, method);
+        }
+
+        TestPipeline pipeline = new TestPipeline(configuration.getParallelism(),
+                configuration.getValidationParallelism(), configuration.getReportParallelism(),
+                configuration.getPipelineCapacity());
+        stages = pipeline.getStages();
+        try {
+            //All canaries have to be finished before the first other test is started
+            for (boolean canaries : new boolean[]{true, false}) {
+                instances.forEach((instance, method) ->
+                        submit(pipeline, instance, method, canaries, context, passed, failed, skipped));
+                pipeline.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while executing tests", e);
+        } finally {
+            pipeline.shutdown();
+            outcomes.complete();
+        }
+        contextValues.put("getEndDate", new Date());
+        contextValues.put("getAllTestMethods", methods.toArray(new ITestNGMethod[methods.size()]));
+
+        XmlSuite xmlSuite = new XmlSuite();
+        xmlSuite.setName(environment.getName());
+        ISuiteResult suiteResult = ReportAdapters.adapt(ISuiteResult.class,
+                ImmutableMap.of("getTestContext", context));
+        suiteValues.put("getName", environment.getName());
+        suiteValues.put("getResults", ImmutableMap.of(environment.getName(), suiteResult));
+        suiteValues.put("getOutputDirectory", outputDirectory);
+        suiteValues.put("getAllMethods", methods);
+        suiteValues.put("getInvokedMethods", methods);
+        suiteValues.put("getXmlSuite", xmlSuite);
+        suiteValues.put("getHost", null);
+        suiteValues.put("getMethodsByGroups", Collections.emptyMap());
+
+        for (IReporter reporter : reporters) {
+            reporter.generateReport(Collections.singletonList(xmlSuite), Collections.singletonList(suite),
+                    outputDirectory);
+        }
+    }
+
+    @Override
+    public void addReporter(Class<? extends IReporter> clazz) {
+        addReporter(environment.getInjector().getInstance(clazz), false);
+    }
+
+    @Override
+    public void addReporter(IReporter reporter) {
+        addReporter(reporter, true);
+    }
+
+    @Override
+    public void setReportDirectory(String outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    @Override
+    public Publisher<TestOutcome<?, ?>> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * Gets the stages of the current or last execution, e.g. to watch the queue depth and throughput of each stage.
+     *
+     * @return The collect, validate and report stage or an empty list if nothing was executed yet
+     */
+    public List<TestPipeline.Stage> getStages() {
+        return stages;
+    }
+
+    //-------------------------------------------------------------
+    // Methods: Internals
+    //-------------------------------------------------------------
+
+    /**
+     * Submits either the canaries or all other metric tests of a test class to the pipeline.
+     *
+     * @param pipeline
+     *         The {@link TestPipeline} running the metric tests
+     * @param test
+     *         The test instance
+     * @param method
+     *         The reported test method
+     * @param canaries
+     *         true to submit the canaries, false to submit all other tests
+     * @param context
+     *         The reported test context
+     * @param passed
+     *         Result map of passed tests
+     * @param failed
+     *         Result map of failed tests
+     * @param skipped
+     *         Result map of skipped tests
+     * @param <IN>
+     *         The type of the metric definition
+     * @param <OUT>
+     *         The type of the metric results
+     */
+    @SuppressWarnings("unchecked")
+    private <IN extends IMetricDefinition, OUT extends IMetricTestResult> void submit(
+            final TestPipeline pipeline,
+            final BaseTest<IN, OUT> test,
+            final ITestNGMethod method,
+            final boolean canaries,
+            final ITestContext context,
+            final IResultMap passed,
+            final IResultMap failed,
+            final IResultMap skipped) {
+        for (MetricTest<IN, OUT> metricTest : test.getExpandedMetricTests(canaries)) {
+            ITestResult result = new ReportAdapters.Result(method, context, System.currentTimeMillis());
+            result.setParameters(new Object[]{metricTest});
+            pipeline.submit(test, metricTest,
+                    resultSet -> result.setAttribute(BaseTest.METRIC_TEST_RESULT_SET_REPORTER_ENTRY, resultSet),
+                    (executed, failure) -> {
+                        IResultMap target;
+                        if (failure == null) {
+                            result.setStatus(ITestResult.SUCCESS);
+                            target = passed;
+                        } else if (failure instanceof SkipException) {
+                            result.setThrowable(failure);
+                            result.setStatus(ITestResult.SKIP);
+                            target = skipped;
+                        } else {
+                            result.setThrowable(failure);
+                            result.setStatus(ITestResult.FAILURE);
+                            target = failed;
+                        }
+                        result.setEndMillis(System.currentTimeMillis());
+                        synchronized (target) {
+                            target.addResult(result, method);
+                        }
+                        outcomes.emit(new TestOutcome<>(executed, (MetricTestResultSet<IN, OUT>) result
+                                .getAttribute(BaseTest.METRIC_TEST_RESULT_SET_REPORTER_ENTRY), failure,
+                                result.getStartMillis(), result.getEndMillis()));
+                    });
+        }
+    }
+
+    /**
+     * Creates the reported test method of a test class.
+     *
+     * @param test
+     *         The test class
+     * @param instance
+     *         The test instance
+     * @return The {@link ITestNGMethod}
+     */
+    private ITestNGMethod createMethod(final Class<?> test,
+                                       final Object instance) {
+        Map<String, Object> classValues = Maps.newHashMap();
+        classValues.put("getName", test.getName());
+        classValues.put("getRealClass", test);
+        classValues.put("getTestName", environment.getName());
+        classValues.put("getInstances", new Object[]{instance});
+        classValues.put("getInstanceCount", 1);
+        ITestClass testClass = ReportAdapters.adapt(ITestClass.class, classValues);
+
+        Map<String, Object> methodValues = Maps.newHashMap();
+        methodValues.put("getMethodName", TEST_METHOD_NAME);
+        methodValues.put("getRealClass", test);
+        methodValues.put("getTestClass", testClass);
+        methodValues.put("getInstance", instance);
+        methodValues.put("getInstances", new Object[]{instance});
+        methodValues.put("getInvocationCount", 1);
+        methodValues.put("isTest", true);
+        methodValues.put("getSignature", test.getName() + "." + TEST_METHOD_NAME);
+        return ReportAdapters.adapt(ITestNGMethod.class, methodValues);
+    }
+
+    /**
+     * Actually adds the reporter. If the the reporter was not instantiated with the Injector, the dependency injection
+     * are injected
+     *
+     * @param reporter
+     *         The reporter to be added
+     * @param performInjection
+     *         Flag to indicate if dependencies should be injected
+     */
+    private void addReporter(final IReporter reporter,
+                             boolean performInjection) {
+        if (performInjection) {
+            this.environment.getInjector().injectMembers(reporter);
+        }
+        this.reporters.add(reporter);
+    }
+
+    /**
+     * Set the output directory.
+     */
+    private void initializeOutputDirectory() {
+        if (Strings.isNullOrEmpty(outputDirectory)) {
+            if (!Strings.isNullOrEmpty(configuration.getReportDirectory())) {
+                outputDirectory = configuration.getReportDirectory();
+            } else {
+                outputDirectory = DEFAULT_OUTPUT_DIRECTORY;
+            }
+        }
+    }
+}
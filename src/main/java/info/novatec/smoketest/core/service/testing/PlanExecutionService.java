@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.service.testing;
+
+import com.google.inject.Injector;
+import info.novatec.smoketest.core.application.Environment;
+import info.novatec.smoketest.core.model.MetricTest;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IReporter;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link ITestExecutionService} which is installed by the {@link info.novatec.smoketest.core.CoreBundle} if the smoke
+ * test is started with <code>--plan</code>. Instead of executing the tests, the {@link ExecutionPlan} of each test class
+ * is printed with the estimated count of queries. No query is executed.
+ *
+ * @author Claudio Waldvogel
+ * @see ExecutionPlanner
+ */
+public class PlanExecutionService implements ITestExecutionService {
+
+    /**
+     * The name of the command line argument enabling the dry run.
+     */
+    public static final String PLAN_ARGUMENT = "plan";
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlanExecutionService.class);
+
+    /**
+     * The Gucie Injector which is used to instantiate the test classes.
+     */
+    private Injector injector;
+
+    /**
+     * The running {@link Environment}.
+     */
+    private Environment<?> environment;
+
+    /**
+     * The {@link TestOutcomePublisher}, completed without any outcome.
+     */
+    private TestOutcomePublisher outcomes;
+
+    /**
+     * Creates a new PlanExecutionService.
+     *
+     * @param injector
+     *         The Gucie {@link Injector}
+     * @param environment
+     *         The {@link Environment}
+     * @param outcomes
+     *         The {@link TestOutcomePublisher}
+     */
+    @Inject
+    public PlanExecutionService(final Injector injector,
+                                final Environment<?> environment,
+                                final TestOutcomePublisher outcomes) {
+        this.injector = injector;
+        this.environment = environment;
+        this.outcomes = outcomes;
+    }
+
+    //-------------------------------------------------------------
+    // Interface Implementation: ITestExecutionService
+    //-------------------------------------------------------------
+
+    @Override
+    public void execute() {
+        execute(environment.getTests());
+    }
+
+    @Override
+    public void execute(Class<?>... tests) {
+        execute(Arrays.asList(tests));
+    }
+
+    @Override
+    public void execute(List<Class<?>> tests) {
+        int totalTests = 0;
+        int totalQueries = 0;
+        for (Class<?> test : tests) {
+            if (!BaseTest.class.isAssignableFrom(test)) {
+                LOGGER.warn("Ignored: \"{}\" Only subclasses of BaseTest can be planned", test.getName());
+                continue;
+            }
+            ExecutionPlan<?, ?> plan = ((BaseTest<?, ?>) injector.getInstance(test)).getPlan();
+            LOGGER.info("Plan of {}: {} tests, {} estimated queries ({} out of scope, {} duplicates removed)",
+                    test.getName(), plan.getTests().size(), plan.getEstimatedQueries(), plan.getOutOfScope(),
+                    plan.getDuplicates());
+            for (ExecutionPlan.Group<?, ?> group : plan.getGroups()) {
+                LOGGER.info("  Scope \"{}\": {} tests, {} estimated queries", group.getScope(),
+                        group.getTests().size(), group.getEstimatedQueries());
+                for (int i = 0; i < group.getTests().size(); i++) {
+                    MetricTest<?, ?> metricTest = group.getTests().get(i);
+                    LOGGER.info("    {}{} [{} queries]", metricTest.isCanary() ? "(canary) " : "",
+                            metricTest.getMetric().getFullQualifiedName(), group.getEstimatedQueries(i));
+                }
+            }
+            totalTests += plan.getTests().size();
+            totalQueries += plan.getEstimatedQueries();
+        }
+        LOGGER.info("Dry run: {} tests would issue {} estimated queries", totalTests, totalQueries);
+        outcomes.complete();
+    }
+
+    @Override
+    public void addReporter(IReporter reporter) {
+        //NOP, no tests are executed
+    }
+
+    @Override
+    public void addReporter(Class<? extends IReporter> clazz) {
+        //NOP, no tests are executed
+    }
+
+    @Override
+    public void setReportDirectory(String outputDirectory) {
+        //NOP, no tests are executed
+    }
+
+    @Override
+    public Publisher<TestOutcome<?, ?>> getOutcomes() {
+        return outcomes;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.service.testing;
+
+import org.testng.IClass;
+import org.testng.IResultMap;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates lightweight implementations of the TestNG reporting interfaces like {@link org.testng.ISuite} or {@link
+ * org.testng.ITestContext}. The {@link NativeTestExecutionService} does not run TestNG, but the {@link
+ * org.testng.IReporter}s expect the TestNG object model. Only the methods which are relevant for reporting are backed
+ * by values, all others throw an {@link UnsupportedOperationException} so a reporter relying on them fails loudly
+ * instead of reporting empty values.
+ *
+ * @author Claudio Waldvogel
+ */
+final class ReportAdapters {
+
+    /**
+     * Utility class.
+     */
+    private ReportAdapters() {
+    }
+
+    /**
+     * Creates an implementation of a TestNG interface.
+     *
+     * @param type
+     *         The interface to be implemented
+     * @param values
+     *         The return values by method name
+     * @param <T>
+     *         The type of the interface
+     * @return The implementation
+     * @throws UnsupportedOperationException
+     *         on invocation of a method which is not contained in the values
+     */
+    static <T> T adapt(final Class<T> type,
+                       final Map<String, Object> values) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                return type.getSimpleName() + "(" + values.get("getName") + ")";
+                        }
+                    }
+                    if (values.containsKey(method.getName())) {
+                        return values.get(method.getName());
+                    }
+                    throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName()
+                            + " is not supported by the native execution");
+                }));
+    }
+
+    /**
+     * {@link ITestResult} of one metric test executed by the {@link NativeTestExecutionService}.
+     */
+    static final class Result implements ITestResult {
+
+        /**
+         * The serial version of the result.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The reported test method.
+         */
+        private final ITestNGMethod method;
+
+        /**
+         * The reported test context.
+         */
+        private final transient ITestContext context;
+
+        /**
+         * The attributes, e.g. the result set of the metric test.
+         */
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+        /**
+         * The time in milliseconds the test was started.
+         */
+        private final long startMillis;
+
+        /**
+         * The time in milliseconds the test was finished.
+         */
+        private long endMillis;
+
+        /**
+         * The status, one of the constants of {@link ITestResult}.
+         */
+        private int status = STARTED;
+
+        /**
+         * The parameters of the test method.
+         */
+        private Object[] parameters = new Object[0];
+
+        /**
+         * The failure, null if the test passed.
+         */
+        private Throwable throwable;
+
+        /**
+         * Creates a new Result.
+         *
+         * @param method
+         *         The reported test method
+         * @param context
+         *         The reported test context
+         * @param startMillis
+         *         The start time in milliseconds
+         */
+        Result(final ITestNGMethod method,
+               final ITestContext context,
+               final long startMillis) {
+            this.method = method;
+            this.context = context;
+            this.startMillis = startMillis;
+        }
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+
+        @Override
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public ITestNGMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getParameters() {
+            return parameters;
+        }
+
+        @Override
+        public void setParameters(Object[] parameters) {
+            this.parameters = parameters;
+        }
+
+        @Override
+        public IClass getTestClass() {
+            return method.getTestClass();
+        }
+
+        @Override
+        public Throwable getThrowable() {
+            return throwable;
+        }
+
+        @Override
+        public void setThrowable(Throwable throwable) {
+            this.throwable = throwable;
+        }
+
+        @Override
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        @Override
+        public long getEndMillis() {
+            return endMillis;
+        }
+
+        @Override
+        public void setEndMillis(long endMillis) {
+            this.endMillis = endMillis;
+        }
+
+        @Override
+        public String getName() {
+            return method.getMethodName();
+        }
+
+        @Override
+        public boolean isSuccess() {
+            return status == SUCCESS;
+        }
+
+        @Override
+        public String getHost() {
+            return null;
+        }
+
+        @Override
+        public Object getInstance() {
+            return method.getInstance();
+        }
+
+        @Override
+        public String getTestName() {
+            return null;
+        }
+
+        @Override
+        public String getInstanceName() {
+            return null;
+        }
+
+        @Override
+        public ITestContext getTestContext() {
+            return context;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (value == null) {
+                attributes.remove(name);
+            } else {
+                attributes.put(name, value);
+            }
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return attributes.keySet();
+        }
+
+        @Override
+        public Object removeAttribute(String name) {
+            return attributes.remove(name);
+        }
+
+        @Override
+        public int compareTo(ITestResult other) {
+            return Long.compare(startMillis, other.getStartMillis());
+        }
+    }
+
+    /**
+     * {@link IResultMap} of the results of one status. Results are kept in the order they were added.
+     */
+    static final class ResultMap implements IResultMap {
+
+        /**
+         * The serial version of the result map.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The test method of each result.
+         */
+        private final Map<ITestResult, ITestNGMethod> results = new LinkedHashMap<>();
+
+        @Override
+        public synchronized void addResult(ITestResult result, ITestNGMethod method) {
+            results.put(result, method);
+        }
+
+        @Override
+        public synchronized Set<ITestResult> getResults(ITestNGMethod method) {
+            Set<ITestResult> matching = new LinkedHashSet<>();
+            results.forEach((result, resultMethod) -> {
+                if (resultMethod.equals(method)) {
+                    matching.add(result);
+                }
+            });
+            return matching;
+        }
+
+        @Override
+        public synchronized Set<ITestResult> getAllResults() {
+            return new LinkedHashSet<>(results.keySet());
+        }
+
+        @Override
+        public synchronized void removeResult(ITestNGMethod method) {
+            results.values().removeIf(method::equals);
+        }
+
+        @Override
+        public synchronized void removeResult(ITestResult result) {
+            results.remove(result);
+        }
+
+        @Override
+        public synchronized Collection<ITestNGMethod> getAllMethods() {
+            return new ArrayList<>(new LinkedHashSet<>(results.values()));
+        }
+
+        @Override
+        public synchronized int size() {
+            return results.size();
+        }
+    }
+}
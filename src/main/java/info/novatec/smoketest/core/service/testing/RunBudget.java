@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.service.testing;
+
+import info.novatec.smoketest.core.SmokeTestConfiguration;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces {@link SmokeTestConfiguration#getRunDeadline()}. The budget learns the average duration of a query from all
+ * executed tests and admits a test only if the remaining time can cover its estimated queries. Collectors should cap
+ * their query timeouts by {@link #capTimeout(int)}, so a run never exceeds the deadline.
+ *
+ * @author Claudio Waldvogel
+ */
+@Singleton
+public class RunBudget {
+
+    /**
+     * The weight of the latest observation of the average query duration.
+     */
+    private static final double SMOOTHING = 0.3;
+
+    /**
+     * The deadline in terms of {@link System#nanoTime()} or 0 if the run is not limited.
+     */
+    private final long deadline;
+
+    /**
+     * The smoothed average duration of one query in nanoseconds.
+     */
+    private double averageQueryNanos;
+
+    /**
+     * Creates a new RunBudget. The run starts when the budget is created.
+     *
+     * @param configuration
+     *         The {@link SmokeTestConfiguration}
+     */
+    @Inject
+    public RunBudget(final SmokeTestConfiguration configuration) {
+        this.deadline = configuration.getRunDeadline() > 0
+                ? System.nanoTime() + TimeUnit.SECONDS.toNanos(configuration.getRunDeadline()) : 0;
+    }
+
+    /**
+     * @return true if the run has a deadline
+     */
+    public boolean isLimited() {
+        return deadline != 0;
+    }
+
+    /**
+     * @return The remaining nanoseconds until the deadline, {@link Long#MAX_VALUE} if the run is not limited
+     */
+    public long getRemainingNanos() {
+        return isLimited() ? deadline - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Checks if the remaining time can cover a test.
+     *
+     * @param estimatedQueries
+     *         The estimated queries of the test
+     * @return true if the test may be started
+     */
+    public synchronized boolean admits(final int estimatedQueries) {
+        if (!isLimited()) {
+            return true;
+        }
+        long remaining = getRemainingNanos();
+        return remaining > 0 && remaining >= estimatedQueries * averageQueryNanos;
+    }
+
+    /**
+     * Records the duration of an executed test.
+     *
+     * @param estimatedQueries
+     *         The estimated queries of the test
+     * @param nanos
+     *         The duration of the test
+     */
+    public synchronized void record(final int estimatedQueries,
+                                    final long nanos) {
+        if (estimatedQueries > 0) {
+            double perQuery = (double) nanos / estimatedQueries;
+            averageQueryNanos = averageQueryNanos == 0
+                    ? perQuery : SMOOTHING * perQuery + (1 - SMOOTHING) * averageQueryNanos;
+        }
+    }
+
+    /**
+     * Caps a query timeout by the remaining time.
+     *
+     * @param seconds
+     *         The configured timeout in seconds, 0 means no timeout
+     * @return The timeout in seconds which does not exceed the deadline, at least one second
+     */
+    public int capTimeout(final int seconds) {
+        if (!isLimited()) {
+            return seconds;
+        }
+        int remaining = (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(getRemainingNanos()));
+        return seconds > 0 ? Math.min(seconds, remaining) : remaining;
+    }
+}
@@ -30,6 +30,7 @@ import com.google.inject.Injector;
 import info.novatec.smoketest.core.SmokeTestConfiguration;
 import info.novatec.smoketest.core.application.Environment;
 import org.testng.IObjectFactory2;
+import org.reactivestreams.Publisher;
 import org.testng.IReporter;
 import org.testng.TestNG;
 
@@ -79,6 +80,11 @@ public class TestExecutionService implements ITestExecutionService {
      */
     private String outputDirectory = DEFAULT_OUTPUT_DIRECTORY;
 
+    /**
+     * The {@link TestOutcomePublisher}.
+     */
+    private TestOutcomePublisher outcomes;
+
 
     /**
      * Creates a new  TestExecutionService.
@@ -89,14 +95,18 @@ public class TestExecutionService implements ITestExecutionService {
      *         The {@link Environment}
      * @param configuration
      *         The {@link SmokeTestConfiguration}
+     * @param outcomes
+     *         The {@link TestOutcomePublisher}
      */
     @Inject
     public TestExecutionService(final Injector injector,
                                 final Environment environment,
-                                final SmokeTestConfiguration configuration) {
+                                final SmokeTestConfiguration configuration,
+                                final TestOutcomePublisher outcomes) {
         this.injector = injector;
         this.environment = environment;
         this.configuration = configuration;
+        this.outcomes = outcomes;
         this.reporters = Lists.newArrayList();
     }
 
@@ -119,7 +129,11 @@ public class TestExecutionService implements ITestExecutionService {
         initializeOutputDirectory();
         initializeTestNG();
         testNG.setTestClasses(tests.toArray(new Class[tests.size()]));
-        testNG.run();
+        try {
+            testNG.run();
+        } finally {
+            outcomes.complete();
+        }
     }
 
     @Override
@@ -137,6 +151,11 @@ public class TestExecutionService implements ITestExecutionService {
         this.outputDirectory = outputDirectory;
     }
 
+    @Override
+    public Publisher<TestOutcome<?, ?>> getOutcomes() {
+        return outcomes;
+    }
+
     //-------------------------------------------------------------
     // Methods: Internals
     //-------------------------------------------------------------
@@ -180,6 +199,8 @@ public class TestExecutionService implements ITestExecutionService {
             testNG.setDefaultSuiteName(environment.getName());
             testNG.setDefaultTestName("Unnamed (@Test missing)");
             testNG.setOutputDirectory(outputDirectory);
+            //All metric tests of a test class are served by a parallel data provider
+            testNG.setDataProviderThreadCount(Math.max(1, configuration.getParallelism()));
             //Add all reports as listener to the testNG engine
             reporters.forEach(reporter -> testNG.addListener(reporter));
             //We enable dependency injection to test classes by defining an IObjectFactory2
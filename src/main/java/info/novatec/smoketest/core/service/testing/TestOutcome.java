@@ -0,0 +1,216 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.service.testing;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import org.testng.SkipException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The outcome of one executed {@link MetricTest} as emitted by {@link ITestExecutionService#getOutcomes()}.
+ *
+ * @param <IN>
+ *         The type of IMetricDefinition
+ * @param <OUT>
+ *         The type of IMetricTestResult
+ * @author Claudio Waldvogel
+ */
+public class TestOutcome<IN extends IMetricDefinition, OUT extends IMetricTestResult> {
+
+    /**
+     * The status of a {@link TestOutcome}.
+     */
+    public enum Status {
+        /**
+         * All validations passed.
+         */
+        PASSED,
+        /**
+         * The collect or a validation failed.
+         */
+        FAILED,
+        /**
+         * The test was not executed, e.g. because it is out of scope or blocked by a canary.
+         */
+        SKIPPED
+    }
+
+    /**
+     * The executed {@link MetricTest}.
+     */
+    private final MetricTest<IN, OUT> metricTest;
+
+    /**
+     * The collected results, null if the collect failed.
+     */
+    private final MetricTestResultSet<IN, OUT> resultSet;
+
+    /**
+     * The failure, null if the test passed.
+     */
+    private final Throwable failure;
+
+    /**
+     * The time in milliseconds the test was started.
+     */
+    private final long startMillis;
+
+    /**
+     * The time in milliseconds the test was finished.
+     */
+    private final long endMillis;
+
+    /**
+     * The count of subscribers which did not yet receive this outcome. The result set is released once all
+     * subscribers received it.
+     */
+    private final AtomicInteger undelivered = new AtomicInteger();
+
+    /**
+     * Creates a new TestOutcome.
+     *
+     * @param metricTest
+     *         The executed {@link MetricTest}
+     * @param resultSet
+     *         The collected results, might be null
+     * @param failure
+     *         The failure, null if the test passed
+     * @param startMillis
+     *         The start time in milliseconds
+     * @param endMillis
+     *         The end time in milliseconds
+     */
+    public TestOutcome(final MetricTest<IN, OUT> metricTest,
+                       final MetricTestResultSet<IN, OUT> resultSet,
+                       final Throwable failure,
+                       final long startMillis,
+                       final long endMillis) {
+        this.metricTest = metricTest;
+        this.resultSet = resultSet;
+        this.failure = failure;
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+    }
+
+    /**
+     * @return The {@link Status} derived from the failure
+     */
+    public Status getStatus() {
+        if (failure == null) {
+            return Status.PASSED;
+        }
+        return failure instanceof SkipException ? Status.SKIPPED : Status.FAILED;
+    }
+
+    /**
+     * @return The duration of the test in milliseconds
+     */
+    public long getDurationMillis() {
+        return endMillis - startMillis;
+    }
+
+    /**
+     * @return The executed {@link MetricTest}
+     */
+    public MetricTest<IN, OUT> getMetricTest() {
+        return metricTest;
+    }
+
+    /**
+     * @return The collected results, null if the collect failed
+     */
+    public MetricTestResultSet<IN, OUT> getResultSet() {
+        return resultSet;
+    }
+
+    /**
+     * @return true if the result set was truncated and the rules only saw part of the data
+     */
+    public boolean isTruncated() {
+        return resultSet != null && resultSet.isTruncated();
+    }
+
+    /**
+     * @return The failure, null if the test passed
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return The time in milliseconds the test was started
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return The time in milliseconds the test was finished
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    @Override
+    public String toString() {
+        return getStatus() + ": " + metricTest.getMetric().getFullQualifiedName() + " (" + getDurationMillis() + "ms)";
+    }
+
+    /**
+     * Announces the count of subscribers this outcome is delivered to. The result set is released immediately if
+     * there are none.
+     *
+     * @param subscribers
+     *         The count of subscribers
+     */
+    void deliverTo(final int subscribers) {
+        if (subscribers == 0 || undelivered.addAndGet(subscribers) == 0) {
+            release();
+        }
+    }
+
+    /**
+     * Signals that one subscriber received this outcome or will never receive it. The result set is released after
+     * the last subscriber.
+     */
+    void delivered() {
+        if (undelivered.decrementAndGet() == 0) {
+            release();
+        }
+    }
+
+    /**
+     * Releases the off-heap results, only a sample is kept for the reporters at the end of the run.
+     */
+    private void release() {
+        if (resultSet != null) {
+            resultSet.release();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.service.testing;
+
+import info.novatec.smoketest.core.SmokeTestConfiguration;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link Publisher} of the {@link TestOutcome}s of a run. Each outcome is emitted as soon as the test is finished,
+ * so subscribers can stream the outcomes into their own sinks instead of waiting for the reporters at the end of the
+ * run.
+ * <p>
+ * Each subscriber gets its own buffer of {@link SmokeTestConfiguration#getOutcomeBufferSize()} outcomes. Outcomes
+ * are delivered according to the requested demand. If a subscriber does not request more outcomes and its buffer is
+ * full, the finishing test waits, i.e. slow subscribers slow down the run instead of the run buffering all outcomes.
+ * Subscribers only receive the outcomes of tests finished after they subscribed.
+ *
+ * @author Claudio Waldvogel
+ * @see ITestExecutionService#getOutcomes()
+ */
+@Singleton
+public class TestOutcomePublisher implements Publisher<TestOutcome<?, ?>> {
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestOutcomePublisher.class);
+
+    /**
+     * The interval in milliseconds in which a waiting test checks if its subscriber has cancelled.
+     */
+    private static final long CANCEL_CHECK_INTERVAL = 100;
+
+    /**
+     * The {@link SmokeTestConfiguration}.
+     */
+    private SmokeTestConfiguration configuration;
+
+    /**
+     * All active subscriptions.
+     */
+    private final List<OutcomeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Flag to indicate that the run is finished.
+     */
+    private volatile boolean completed;
+
+    /**
+     * Creates a new TestOutcomePublisher.
+     *
+     * @param configuration
+     *         The {@link SmokeTestConfiguration}
+     */
+    @Inject
+    public TestOutcomePublisher(final SmokeTestConfiguration configuration) {
+        this.configuration = checkNotNull(configuration);
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super TestOutcome<?, ?>> subscriber) {
+        checkNotNull(subscriber);
+        OutcomeSubscription subscription = new OutcomeSubscription(subscriber,
+                Math.max(1, configuration.getOutcomeBufferSize()));
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if (completed) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Emits the outcome of a finished test to all subscribers. Waits while the buffer of a subscriber is full. The
+     * result set of the outcome is released once all subscribers received it.
+     *
+     * @param outcome
+     *         The {@link TestOutcome}
+     */
+    public void emit(final TestOutcome<?, ?> outcome) {
+        List<OutcomeSubscription> targets = new ArrayList<>(subscriptions);
+        outcome.deliverTo(targets.size());
+        for (OutcomeSubscription subscription : targets) {
+            subscription.offer(outcome);
+        }
+    }
+
+    /**
+     * Signals all subscribers that the run is finished. Buffered outcomes are still delivered.
+     */
+    public void complete() {
+        completed = true;
+        subscriptions.forEach(OutcomeSubscription::complete);
+    }
+
+    /**
+     * The subscription of one {@link Subscriber}. Outcomes are buffered and delivered by the thread which emits an
+     * outcome or requests more outcomes, but never by two threads at the same time.
+     */
+    private final class OutcomeSubscription implements Subscription {
+
+        /**
+         * The {@link Subscriber}.
+         */
+        private final Subscriber<? super TestOutcome<?, ?>> subscriber;
+
+        /**
+         * The buffered outcomes.
+         */
+        private final BlockingQueue<TestOutcome<?, ?>> buffer;
+
+        /**
+         * The requested but not yet delivered count of outcomes.
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * The count of pending drain requests. Only the thread raising it from 0 delivers.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * Flag to indicate that no more outcomes are emitted.
+         */
+        private volatile boolean done;
+
+        /**
+         * Flag to indicate that the subscriber does not want any more signals.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * Creates a new OutcomeSubscription.
+         *
+         * @param subscriber
+         *         The {@link Subscriber}
+         * @param capacity
+         *         The capacity of the buffer
+         */
+        private OutcomeSubscription(final Subscriber<? super TestOutcome<?, ?>> subscriber,
+                                    final int capacity) {
+            this.subscriber = subscriber;
+            this.buffer = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Demand must be positive: " + n));
+                return;
+            }
+            //Saturate at Long.MAX_VALUE which means unbounded demand
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            TestOutcome<?, ?> outcome;
+            while ((outcome = buffer.poll()) != null) {
+                outcome.delivered();
+            }
+        }
+
+        /**
+         * Buffers an outcome and delivers it if requested. Waits while the buffer is full.
+         *
+         * @param outcome
+         *         The {@link TestOutcome}
+         */
+        private void offer(final TestOutcome<?, ?> outcome) {
+            try {
+                while (!buffer.offer(outcome, CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        outcome.delivered();
+                        return;
+                    }
+                    LOGGER.trace("Waiting for subscriber demand: {}", subscriber);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcome.delivered();
+                return;
+            }
+            if (cancelled) {
+                //Cancelled while offering, nobody drains the buffer anymore
+                cancel();
+                return;
+            }
+            drain();
+        }
+
+        /**
+         * Signals that no more outcomes are emitted.
+         */
+        private void complete() {
+            done = true;
+            drain();
+        }
+
+        /**
+         * Delivers buffered outcomes as long as there is demand and completes the subscription once everything is
+         * delivered.
+         */
+        private void drain() {
+            if (pending.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!cancelled && demand.get() > 0) {
+                    TestOutcome<?, ?> outcome = buffer.poll();
+                    if (outcome == null) {
+                        break;
+                    }
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    try {
+                        subscriber.onNext(outcome);
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Cancelling failed subscriber: " + subscriber, e);
+                        cancel();
+                    } finally {
+                        outcome.delivered();
+                    }
+                }
+                if (!cancelled && done && buffer.isEmpty()) {
+                    cancelled = true;
+                    subscriptions.remove(this);
+                    subscriber.onComplete();
+                }
+            } while (pending.decrementAndGet() != 0);
+        }
+    }
+}
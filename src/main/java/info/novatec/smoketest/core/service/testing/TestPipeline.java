@@ -0,0 +1,336 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.core.service.testing;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Staged execution of {@link MetricTest}s. Each test passes three stages which run on their own threads and are
+ * connected by bounded queues:
+ * <ol>
+ * <li><b>collect</b>: admits the test and collects its results, i.e. waits for the network</li>
+ * <li><b>validate</b>: applies all validation rules, i.e. burns CPU</li>
+ * <li><b>report</b>: hands the outcome to the reporters</li>
+ * </ol>
+ * Thus collecting, validating and reporting of different tests overlap instead of adding up. A full queue blocks the
+ * previous stage, so slow validations throttle the collection instead of piling up result sets.
+ *
+ * @author Claudio Waldvogel
+ * @see NativeTestExecutionService
+ */
+public class TestPipeline {
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestPipeline.class);
+
+    /**
+     * The collect stage.
+     */
+    private final Stage collect;
+
+    /**
+     * The validate stage.
+     */
+    private final Stage validate;
+
+    /**
+     * The report stage.
+     */
+    private final Stage report;
+
+    /**
+     * The count of submitted tests which are not yet reported.
+     */
+    private long pending;
+
+    /**
+     * Creates a new TestPipeline.
+     *
+     * @param collectThreads
+     *         The count of threads collecting results
+     * @param validateThreads
+     *         The count of threads validating results
+     * @param reportThreads
+     *         The count of threads reporting outcomes
+     * @param capacity
+     *         The capacity of the queue in front of each stage
+     */
+    TestPipeline(final int collectThreads,
+                 final int validateThreads,
+                 final int reportThreads,
+                 final int capacity) {
+        this.collect = new Stage("collect", collectThreads, capacity);
+        this.validate = new Stage("validate", validateThreads, capacity);
+        this.report = new Stage("report", reportThreads, capacity);
+    }
+
+    /**
+     * Submits a test to the pipeline. Blocks while the queue of the collect stage is full.
+     *
+     * @param test
+     *         The {@link BaseTest} of the metric test
+     * @param metricTest
+     *         The {@link MetricTest} to be executed
+     * @param publisher
+     *         Receives the result set to make it available to reporters
+     * @param reporter
+     *         Receives the outcome of the test, i.e. null if passed or the failure, on a thread of the report stage
+     * @param <IN>
+     *         The type of IMetricDefinition
+     * @param <OUT>
+     *         The type of IMetricTestResult
+     */
+    <IN extends IMetricDefinition, OUT extends IMetricTestResult> void submit(
+            final BaseTest<IN, OUT> test,
+            final MetricTest<IN, OUT> metricTest,
+            final Consumer<MetricTestResultSet<IN, OUT>> publisher,
+            final BiConsumer<MetricTest<IN, OUT>, Throwable> reporter) {
+        synchronized (this) {
+            pending++;
+        }
+        collect.execute(() -> {
+            MetricTestResultSet<IN, OUT> resultSet;
+            try {
+                resultSet = test.collect(metricTest, test.admit(metricTest, publisher));
+                publisher.accept(resultSet);
+            } catch (Throwable t) {
+                report(metricTest, t, reporter);
+                return;
+            }
+            validate.execute(() -> {
+                Throwable failure = null;
+                try {
+                    test.validate(metricTest, resultSet);
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                report(metricTest, failure, reporter);
+            });
+        });
+    }
+
+    /**
+     * Waits until all submitted tests are reported.
+     *
+     * @throws InterruptedException
+     *         if interrupted while waiting
+     */
+    void await() throws InterruptedException {
+        synchronized (this) {
+            while (pending > 0) {
+                wait();
+            }
+        }
+        getStages().forEach(stage -> LOGGER.info("{}", stage));
+    }
+
+    /**
+     * Stops all threads. Tests which are not yet reported are discarded.
+     */
+    void shutdown() {
+        getStages().forEach(stage -> stage.executor.shutdownNow());
+    }
+
+    /**
+     * @return The collect, validate and report stage
+     */
+    List<Stage> getStages() {
+        return Collections.unmodifiableList(Arrays.asList(collect, validate, report));
+    }
+
+    /**
+     * Hands the outcome of a test to the report stage.
+     *
+     * @param metricTest
+     *         The executed {@link MetricTest}
+     * @param failure
+     *         The failure or null if passed
+     * @param reporter
+     *         Receives the outcome
+     * @param <IN>
+     *         The type of IMetricDefinition
+     * @param <OUT>
+     *         The type of IMetricTestResult
+     */
+    private <IN extends IMetricDefinition, OUT extends IMetricTestResult> void report(
+            final MetricTest<IN, OUT> metricTest,
+            final Throwable failure,
+            final BiConsumer<MetricTest<IN, OUT>, Throwable> reporter) {
+        report.execute(() -> {
+            try {
+                reporter.accept(metricTest, failure);
+            } finally {
+                synchronized (this) {
+                    if (--pending == 0) {
+                        notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * One stage of the pipeline with its own threads and a bounded queue.
+     */
+    public static final class Stage {
+
+        /**
+         * The name of the stage.
+         */
+        private final String name;
+
+        /**
+         * The executor of the stage.
+         */
+        private final ThreadPoolExecutor executor;
+
+        /**
+         * The time in nanoseconds the stage was started.
+         */
+        private final long started = System.nanoTime();
+
+        /**
+         * The time in nanoseconds all threads of the stage were busy in total.
+         */
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        /**
+         * Creates a new Stage.
+         *
+         * @param name
+         *         The name of the stage
+         * @param threads
+         *         The count of threads
+         * @param capacity
+         *         The capacity of the queue
+         */
+        private Stage(final String name,
+                      final int threads,
+                      final int capacity) {
+            this.name = name;
+            this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0L,
+                    TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, capacity)),
+                    new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build(),
+                    (task, executor) -> {
+                        //Block the previous stage instead of rejecting the task
+                        try {
+                            if (!executor.isShutdown()) {
+                                executor.getQueue().put(task);
+                                return;
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new RejectedExecutionException("Stage stopped: " + name);
+                    });
+        }
+
+        /**
+         * Executes a task on this stage. Blocks while the queue is full.
+         *
+         * @param task
+         *         The task
+         */
+        private void execute(final Runnable task) {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    busyNanos.addAndGet(System.nanoTime() - start);
+                }
+            });
+        }
+
+        /**
+         * @return The name of the stage
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The count of threads of the stage
+         */
+        public int getThreads() {
+            return executor.getMaximumPoolSize();
+        }
+
+        /**
+         * @return The count of tasks waiting in the queue of the stage
+         */
+        public int getQueueDepth() {
+            return executor.getQueue().size();
+        }
+
+        /**
+         * @return The count of tasks completed by the stage
+         */
+        public long getCompleted() {
+            return executor.getCompletedTaskCount();
+        }
+
+        /**
+         * @return The completed tasks per second since the stage was started
+         */
+        public double getThroughput() {
+            long elapsed = System.nanoTime() - started;
+            return elapsed > 0 ? getCompleted() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed : 0;
+        }
+
+        /**
+         * @return The share of the time all threads of the stage were busy, between 0 and 1
+         */
+        public double getUtilization() {
+            long elapsed = System.nanoTime() - started;
+            return elapsed > 0 ? Math.min(1, busyNanos.get() / ((double) elapsed * getThreads())) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Stage %s: %d threads, %d completed, %d queued, %.1f/s, %.0f%% busy", name,
+                    getThreads(), getCompleted(), getQueueDepth(), getThroughput(), getUtilization() * 100);
+        }
+    }
+}
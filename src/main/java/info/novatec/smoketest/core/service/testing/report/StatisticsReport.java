@@ -65,6 +65,16 @@ public class StatisticsReport {
      */
     private int passedTests;
 
+    /**
+     * Count of skipped tests which were blocked by a failed canary.
+     */
+    private int blockedTests;
+
+    /**
+     * Count of skipped tests which were not run because the run deadline was reached.
+     */
+    private int notRunTests;
+
     /**
      * No-Args constructor.
      */
@@ -219,4 +229,42 @@ public class StatisticsReport {
     public void setPassedTests(int passedTests) {
         this.passedTests = passedTests;
     }
+
+    /**
+     * Gets {@link #blockedTests}.
+     *
+     * @return {@link #blockedTests}
+     */
+    public int getBlockedTests() {
+        return blockedTests;
+    }
+
+    /**
+     * Sets {@link #blockedTests}.
+     *
+     * @param blockedTests
+     *         New value for {@link #blockedTests}
+     */
+    public void setBlockedTests(int blockedTests) {
+        this.blockedTests = blockedTests;
+    }
+
+    /**
+     * Gets {@link #notRunTests}.
+     *
+     * @return {@link #notRunTests}
+     */
+    public int getNotRunTests() {
+        return notRunTests;
+    }
+
+    /**
+     * Sets {@link #notRunTests}.
+     *
+     * @param notRunTests
+     *         New value for {@link #notRunTests}
+     */
+    public void setNotRunTests(int notRunTests) {
+        this.notRunTests = notRunTests;
+    }
 }
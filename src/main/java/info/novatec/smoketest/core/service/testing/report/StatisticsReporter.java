@@ -26,6 +26,8 @@ package info.novatec.smoketest.core.service.testing.report;
 
 import info.novatec.smoketest.core.SmokeTestConfiguration;
 import info.novatec.smoketest.core.model.TestLevel;
+import info.novatec.smoketest.core.service.testing.BlockedTestException;
+import info.novatec.smoketest.core.service.testing.BudgetExceededException;
 import info.novatec.smoketest.core.service.time.ITimeService;
 import org.testng.IReporter;
 import org.testng.ISuite;
@@ -93,6 +95,16 @@ public class StatisticsReporter<T extends SmokeTestConfiguration> implements IRe
      */
     private int passedTests;
 
+    /**
+     * Count of skipped tests which were blocked by a failed canary.
+     */
+    private int blockedTests;
+
+    /**
+     * Count of skipped tests which were not run because the run deadline was reached.
+     */
+    private int notRunTests;
+
     @Override
     public final void generateReport(List<XmlSuite> xmlSuites,
                                      List<ISuite> suites,
@@ -107,6 +119,12 @@ public class StatisticsReporter<T extends SmokeTestConfiguration> implements IRe
                 failedTests += testContext.getFailedTests().size();
                 skippedTests += testContext.getSkippedTests().size();
                 passedTests += testContext.getPassedTests().size();
+                blockedTests += (int) testContext.getSkippedTests().getAllResults().stream()
+                        .filter(result -> result.getThrowable() instanceof BlockedTestException)
+                        .count();
+                notRunTests += (int) testContext.getSkippedTests().getAllResults().stream()
+                        .filter(result -> result.getThrowable() instanceof BudgetExceededException)
+                        .count();
             }
         }
         report(createReport());
@@ -129,13 +147,16 @@ public class StatisticsReporter<T extends SmokeTestConfiguration> implements IRe
      * @return The StatisticsReport
      */
     protected StatisticsReport createReport() {
-        return new StatisticsReport(TestLevel.LEVEL_0,
+        StatisticsReport report = new StatisticsReport(TestLevel.LEVEL_0,
                 timeService.getTimeRange(),
                 getExecutedTests(),
                 getFailedTests(),
                 getSkippedTests(),
                 getPassedTests()
         );
+        report.setBlockedTests(getBlockedTests());
+        report.setNotRunTests(getNotRunTests());
+        return report;
     }
 
     /**
@@ -226,4 +247,22 @@ public class StatisticsReporter<T extends SmokeTestConfiguration> implements IRe
     public int getPassedTests() {
         return passedTests;
     }
+
+    /**
+     * Gets {@link #blockedTests}.
+     *
+     * @return {@link #blockedTests}
+     */
+    public int getBlockedTests() {
+        return blockedTests;
+    }
+
+    /**
+     * Gets {@link #notRunTests}.
+     *
+     * @return {@link #notRunTests}
+     */
+    public int getNotRunTests() {
+        return notRunTests;
+    }
 }
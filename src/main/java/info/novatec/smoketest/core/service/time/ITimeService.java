@@ -26,6 +26,7 @@ package info.novatec.smoketest.core.service.time;
 
 
 import info.novatec.smoketest.core.model.TimeRange;
+import info.novatec.smoketest.core.model.TimeWindow;
 
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
@@ -57,6 +58,17 @@ public interface ITimeService {
      */
     TimeRange getTimeRange();
 
+    /**
+     * Resolves the window of a single metric.
+     *
+     * @param window
+     *         The {@link TimeWindow}, might be null
+     * @return The TimeRange of the window or the global {@link #getTimeRange()} if no window is defined
+     */
+    default TimeRange getTimeRange(final TimeWindow window) {
+        return window != null ? window.resolve(getTimeRange()) : getTimeRange();
+    }
+
     /**
      * Utility method to format a date with a provided data format.
      *
@@ -32,8 +32,10 @@ import javax.inject.Inject;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Default implementation of {@link ITimeService}. This implementation ensures an always proper initialized {@link
@@ -43,6 +45,11 @@ import java.util.Map;
  */
 public class TimeService implements ITimeService {
 
+    /**
+     * The maximum count of formatted dates kept by {@link #formattedCache}.
+     */
+    private static final int MAX_FORMATTED_DATES = 4096;
+
     /**
      * The {@link TimeRange}.
      */
@@ -55,10 +62,17 @@ public class TimeService implements ITimeService {
 
     /**
      * Mpa that caches {@link DateTimeFormatter}s to avoid recreation for each call to {@link #format(String,
-     * LocalDateTime)} or {@link #format(String, ZonedDateTime)}.
+     * LocalDateTime)} or {@link #format(String, ZonedDateTime)}. Tests are executed concurrently, thus the map must be
+     * thread-safe.
      */
     private Map<String, DateTimeFormatter> formatCache;
 
+    /**
+     * Map that caches the formatted strings of dates by date format and date. A run only formats the boundaries of a
+     * few distinct windows, so each boundary is formatted once and the same string is shared by all queries.
+     */
+    private Map<List<Object>, String> formattedCache;
+
     /**
      * Create a new TimeService instance.
      *
@@ -66,7 +80,8 @@ public class TimeService implements ITimeService {
      */
     @Inject
     public TimeService(final SmokeTestConfiguration configuration) {
-        this.formatCache = new HashMap<>();
+        this.formatCache = new ConcurrentHashMap<>();
+        this.formattedCache = new ConcurrentHashMap<>();
         this.configuration = configuration;
         this.timeRange = initTimeRange(configuration.getTimeRange());
     }
@@ -94,7 +109,17 @@ public class TimeService implements ITimeService {
     @Override
     public String format(final String dateFormat,
                          final ZonedDateTime date) {
-        return getFormat(dateFormat).format(date);
+        List<Object> key = Arrays.asList(dateFormat, date);
+        String formatted = formattedCache.get(key);
+        if (formatted == null) {
+            formatted = getFormat(dateFormat).format(date);
+            //Arbitrary dates must not fill the cache
+            if (formattedCache.size() < MAX_FORMATTED_DATES) {
+                String existing = formattedCache.putIfAbsent(key, formatted);
+                formatted = existing != null ? existing : formatted;
+            }
+        }
+        return formatted;
     }
 
     @Override
@@ -113,10 +138,8 @@ public class TimeService implements ITimeService {
      * @return A DateTimeFormatter instance.
      */
     private DateTimeFormatter getFormat(String dateFormat) {
-        if (!formatCache.containsKey(dateFormat)) {
-            formatCache.put(dateFormat, DateTimeFormatter.ofPattern(dateFormat, configuration.getLocale()));
-        }
-        return formatCache.get(dateFormat);
+        return formatCache.computeIfAbsent(dateFormat,
+                pattern -> DateTimeFormatter.ofPattern(pattern, configuration.getLocale()));
     }
 
     /**
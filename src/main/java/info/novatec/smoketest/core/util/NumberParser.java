@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.core.util;
+
+/**
+ * Parser for decimal numbers like <code>-12.5e3</code> which neither allocates nor throws. Metric values are parsed
+ * for each single result during the validation, so a failed parse must be as cheap as a successful one.
+ * <p>
+ * Numbers with at most 15 significant digits and a decimal exponent within +/-22 are converted exactly with one
+ * multiplication or division. All other numbers are delegated to {@link Double#parseDouble(String)} after their syntax
+ * was checked. Hexadecimal numbers, <code>NaN</code> and <code>Infinity</code> are not supported.
+ *
+ * @author Claudio Waldvogel
+ */
+public final class NumberParser {
+
+    /**
+     * The maximum count of significant digits which are converted exactly.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /**
+     * All powers of ten which are exactly representable as double.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Upper bound for the parsed exponent to prevent an overflow.
+     */
+    private static final int MAX_EXPONENT = 100_000;
+
+    /**
+     * Must not be instantiated.
+     */
+    private NumberParser() {
+    }
+
+    /**
+     * Parses a decimal number. Leading and trailing whitespace is ignored.
+     *
+     * @param value
+     *         The value, may be null
+     * @return The number or NaN if the value is null or not a decimal number
+     */
+    public static double parseDouble(final CharSequence value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        int start = 0;
+        int end = value.length();
+        while (start < end && Character.isWhitespace(value.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa != 0 || c != '0') {
+                    significantDigits++;
+                    if (significantDigits <= MAX_EXACT_DIGITS) {
+                        mantissa = mantissa * 10 + (c - '0');
+                    }
+                }
+                if (fraction) {
+                    exponent--;
+                }
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                negativeExponent = value.charAt(i) == '-';
+                i++;
+            }
+            if (i == end) {
+                return Double.NaN;
+            }
+            int explicit = 0;
+            for (; i < end; i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    return Double.NaN;
+                }
+                explicit = Math.min(explicit * 10 + (c - '0'), MAX_EXPONENT);
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+
+        double result;
+        if (mantissa == 0) {
+            result = 0;
+        } else if (significantDigits <= MAX_EXACT_DIGITS && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            result = exponent >= 0
+                    ? mantissa * POWERS_OF_TEN[exponent]
+                    : mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return Double.parseDouble(value.subSequence(start, end).toString());
+        }
+        return negative ? -result : result;
+    }
+}
@@ -25,12 +25,21 @@
 package info.novatec.smoketest.introscope;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
+import com.google.inject.multibindings.Multibinder;
 import info.novatec.smoketest.core.application.Bundle;
 import info.novatec.smoketest.core.application.Environment;
+import info.novatec.smoketest.core.application.Setup;
 import info.novatec.smoketest.core.model.IMetricDefinition;
 import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.service.collector.ICollectorInterceptor;
 import info.novatec.smoketest.core.service.collector.IMetricDataCollector;
+import info.novatec.smoketest.core.service.testing.IMetricTestExpander;
+import info.novatec.smoketest.core.service.testing.ITestExecutionService;
+import info.novatec.smoketest.introscope.cache.IntroscopeHistoryInterceptor;
+import info.novatec.smoketest.introscope.discovery.IntroscopeDiscoveryExecutionService;
+import info.novatec.smoketest.introscope.split.IntroscopeSplittingInterceptor;
 
 /**
  * Bundle implementation to provide Introscope specific implementations.
@@ -39,6 +48,21 @@ import info.novatec.smoketest.core.service.collector.IMetricDataCollector;
  */
 public class IntroscopeBundle extends Bundle<IntroscopeConfiguration> {
 
+    /**
+     * Adds the command line option to start the metric discovery instead of the tests.
+     *
+     * @param setup
+     *         The {@link Setup.Builder}
+     */
+    @Override
+    public void setup(Setup.Builder<IntroscopeConfiguration> setup) {
+        setup.getParser()
+                .addArgument("--" + IntroscopeDiscoveryExecutionService.DISCOVER_ARGUMENT)
+                .nargs("+")
+                .metavar("AGENT")
+                .help("Discovers all metrics of the agent expressions and writes a metric catalog!");
+    }
+
     @Override
     public void configure(Environment.Builder<IntroscopeConfiguration> builder) {
         builder.services(new AbstractModule() {
@@ -53,7 +77,24 @@ public class IntroscopeBundle extends Bundle<IntroscopeConfiguration> {
 
                 bind(new TypeLiteral<IMetricDataCollector<IntroscopeMetric, IntroscopeMetricTestResult>>() {
                 }).to(IntroscopeDataCollector.class);
+
+                bind(IMetricTestExpander.class).to(IntroscopeEndpointExpander.class).in(Singleton.class);
+
+                Multibinder<ICollectorInterceptor> interceptors =
+                        Multibinder.newSetBinder(binder(), ICollectorInterceptor.class);
+                interceptors.addBinding().to(IntroscopeSplittingInterceptor.class);
+                interceptors.addBinding().to(IntroscopeHistoryInterceptor.class);
             }
         });
+        if (builder.getNamespace().getList(IntroscopeDiscoveryExecutionService.DISCOVER_ARGUMENT) != null) {
+            //Replace the test execution by the discovery
+            builder.services(new AbstractModule() {
+                @Override
+                protected void configure() {
+                    bind(ITestExecutionService.class).to(IntroscopeDiscoveryExecutionService.class)
+                            .in(Singleton.class);
+                }
+            });
+        }
     }
 }
@@ -28,6 +28,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import info.novatec.smoketest.core.SmokeTestConfiguration;
 import info.novatec.smoketest.core.util.Configurations;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * The Introscope specific configuration. The configuration contains configuration values to enable a JDBC connection to
  * an Introscope Enterprise Manager. The jdbc URL is as follows jdbc:introscope:net//{username}{:password}@{host}:{em
@@ -73,6 +77,161 @@ public class IntroscopeConfiguration extends SmokeTestConfiguration {
     @JsonProperty(value = "JDBCDateFormat")
     private String JDBCDateFormat = "EEE MMM dd HH:mm:ss zzz yyyy";
 
+    /**
+     * The maximum count of parallel queries while discovering the metric namespace.
+     */
+    private int discoveryParallelism = 8;
+
+    /**
+     * The maximum depth of the resource tree to be discovered, 0 means unlimited. Only a discovery which was neither
+     * limited by the depth nor by {@link #discoveryExcludes} lets the namespace cache skip queries.
+     */
+    private int discoveryMaxDepth = 6;
+
+    /**
+     * Regular expressions of resource paths which are excluded from the discovery, e.g. <code>Servlets\\|.*</code>.
+     */
+    private List<String> discoveryExcludes = new ArrayList<>();
+
+    /**
+     * The file the discovered metric catalog is written to.
+     */
+    private String discoveryCatalog = "metric-catalog.yml";
+
+    /**
+     * The file of the persistent agent and metric namespace cache. The cache is disabled if no file is provided.
+     */
+    private String namespaceCacheFile = "";
+
+    /**
+     * The time in minutes a discovered agent expression is considered to be complete in the namespace cache.
+     */
+    private int namespaceCacheTtl = 720;
+
+    /**
+     * Flag to indicate if stale agent expressions of the namespace cache are rediscovered on startup.
+     */
+    private boolean namespaceCacheRefresh = false;
+
+    /**
+     * The count of rows the JDBC driver fetches from the Enterprise Manager at once.
+     */
+    @JsonProperty(value = "JDBCFetchSize")
+    private int JDBCFetchSize = 500;
+
+    /**
+     * The maximum count of rows read for one query. The query is truncated if more rows are available
+     * and the test fails, its rules would only see part of the data. A value of 0 disables the limit.
+     */
+    private int maxRowsPerQuery = 0;
+
+    /**
+     * The maximum estimated size in bytes of all rows read for one query. The query is truncated and the test fails if
+     * the limit is reached. A value of 0 disables the limit.
+     */
+    private long maxBytesPerQuery = 0;
+
+    /**
+     * The count of rows after which the results of a query are moved off the Java heap. A value of 0 keeps all results
+     * on the heap.
+     */
+    private int offHeapThreshold = 50000;
+
+    /**
+     * The Enterprise Managers to be tested in one run. Each test is executed once for each endpoint. If no endpoints
+     * are defined, the JDBC values of this configuration define the only Enterprise Manager.
+     */
+    private List<IntroscopeEndpoint> endpoints = new ArrayList<>();
+
+    /**
+     * The maximum count of open connections to each Enterprise Manager.
+     */
+    private int connectionsPerEndpoint = 2;
+
+    /**
+     * Further hosts of the same Enterprise Manager cluster, given as <code>host</code> or <code>host:port</code>. Each
+     * query is sent to the fastest healthy host.
+     */
+    @JsonProperty(value = "JDBCFailoverHosts")
+    private List<String> JDBCFailoverHosts = new ArrayList<>();
+
+    /**
+     * The time in seconds a query may take before the host is considered unhealthy. A value of 0 disables the timeout.
+     */
+    @JsonProperty(value = "JDBCQueryTimeout")
+    private int JDBCQueryTimeout = 120;
+
+    /**
+     * The weight of the latest query when smoothing the latency of a host, between 0 (exclusive) and 1.
+     */
+    private double latencySmoothing = 0.3;
+
+    /**
+     * The time in seconds an unhealthy host is avoided.
+     */
+    private int failoverCooldown = 60;
+
+    /**
+     * The count of rows after which a query is split into one query per agent in later runs. A value of 0 disables
+     * the row threshold.
+     */
+    private int splitRowThreshold = 5000;
+
+    /**
+     * The time in milliseconds after which a query is split into one query per agent in later runs. A value of 0
+     * disables the latency threshold.
+     */
+    private int splitLatencyThreshold = 30000;
+
+    /**
+     * The maximum count of concurrent queries of one split query.
+     */
+    private int splitParallelism = 4;
+
+    /**
+     * The file to remember the queries which needed splitting. The queries are only remembered for the current run
+     * if no file is provided.
+     */
+    private String splitRegistryFile = "";
+
+    /**
+     * The windows in minutes which are tried one after another for presence probes, starting at the end of the time
+     * range. The full time range is only queried if no window returns a row.
+     */
+    private List<Integer> probeWindows = new ArrayList<>(Arrays.asList(5, 30));
+
+    /**
+     * The SmartStor tiers of the Enterprise Manager ordered from the finest to the coarsest resolution. The defaults
+     * are the default tiers of the Enterprise Manager.
+     */
+    private List<IntroscopeSmartStorTier> smartStorTiers = new ArrayList<>(Arrays.asList(
+            new IntroscopeSmartStorTier(15, 7),
+            new IntroscopeSmartStorTier(60, 23),
+            new IntroscopeSmartStorTier(900, 335)));
+
+    /**
+     * The share of a window which may be cut off to align the window to a SmartStor reporting period. The coarsest
+     * resolution which does not exceed the tolerance is chosen. 0 disables the alignment.
+     */
+    private double alignmentTolerance = 0.1;
+
+    /**
+     * The file of the persistent cache for results of historical windows. The index is stored next to it with the
+     * suffix <code>.idx</code>. Empty disables the cache.
+     */
+    private String historyCacheFile = "";
+
+    /**
+     * The maximum size of all cached results in bytes. The least recently used results are evicted first.
+     */
+    private long historyCacheMaxBytes = 256L * 1024 * 1024;
+
+    /**
+     * The delay in minutes after which the Enterprise Manager does not change the data of a window anymore. Only
+     * windows which ended before this delay are cached.
+     */
+    private int historyCacheDelay = 15;
+
     @Override
     public String toString() {
         return Configurations.toString(this, "JDBCPassword");
@@ -195,4 +354,517 @@ public class IntroscopeConfiguration extends SmokeTestConfiguration {
     public void setJDBCDateFormat(String JDBCDateFormat) {
         this.JDBCDateFormat = JDBCDateFormat;
     }
+
+    /**
+     * Gets {@link #discoveryParallelism}.
+     *
+     * @return {@link #discoveryParallelism}
+     */
+    public int getDiscoveryParallelism() {
+        return discoveryParallelism;
+    }
+
+    /**
+     * Sets {@link #discoveryParallelism}.
+     *
+     * @param discoveryParallelism
+     *         New value for {@link #discoveryParallelism}
+     */
+    public void setDiscoveryParallelism(int discoveryParallelism) {
+        this.discoveryParallelism = discoveryParallelism;
+    }
+
+    /**
+     * Gets {@link #discoveryMaxDepth}.
+     *
+     * @return {@link #discoveryMaxDepth}
+     */
+    public int getDiscoveryMaxDepth() {
+        return discoveryMaxDepth;
+    }
+
+    /**
+     * Sets {@link #discoveryMaxDepth}.
+     *
+     * @param discoveryMaxDepth
+     *         New value for {@link #discoveryMaxDepth}
+     */
+    public void setDiscoveryMaxDepth(int discoveryMaxDepth) {
+        this.discoveryMaxDepth = discoveryMaxDepth;
+    }
+
+    /**
+     * Gets {@link #discoveryExcludes}.
+     *
+     * @return {@link #discoveryExcludes}
+     */
+    public List<String> getDiscoveryExcludes() {
+        return discoveryExcludes;
+    }
+
+    /**
+     * Sets {@link #discoveryExcludes}.
+     *
+     * @param discoveryExcludes
+     *         New value for {@link #discoveryExcludes}
+     */
+    public void setDiscoveryExcludes(List<String> discoveryExcludes) {
+        this.discoveryExcludes = discoveryExcludes;
+    }
+
+    /**
+     * Gets {@link #discoveryCatalog}.
+     *
+     * @return {@link #discoveryCatalog}
+     */
+    public String getDiscoveryCatalog() {
+        return discoveryCatalog;
+    }
+
+    /**
+     * Sets {@link #discoveryCatalog}.
+     *
+     * @param discoveryCatalog
+     *         New value for {@link #discoveryCatalog}
+     */
+    public void setDiscoveryCatalog(String discoveryCatalog) {
+        this.discoveryCatalog = discoveryCatalog;
+    }
+
+    /**
+     * Gets {@link #namespaceCacheFile}.
+     *
+     * @return {@link #namespaceCacheFile}
+     */
+    public String getNamespaceCacheFile() {
+        return namespaceCacheFile;
+    }
+
+    /**
+     * Sets {@link #namespaceCacheFile}.
+     *
+     * @param namespaceCacheFile
+     *         New value for {@link #namespaceCacheFile}
+     */
+    public void setNamespaceCacheFile(String namespaceCacheFile) {
+        this.namespaceCacheFile = namespaceCacheFile;
+    }
+
+    /**
+     * Gets {@link #namespaceCacheTtl}.
+     *
+     * @return {@link #namespaceCacheTtl}
+     */
+    public int getNamespaceCacheTtl() {
+        return namespaceCacheTtl;
+    }
+
+    /**
+     * Sets {@link #namespaceCacheTtl}.
+     *
+     * @param namespaceCacheTtl
+     *         New value for {@link #namespaceCacheTtl}
+     */
+    public void setNamespaceCacheTtl(int namespaceCacheTtl) {
+        this.namespaceCacheTtl = namespaceCacheTtl;
+    }
+
+    /**
+     * Gets {@link #namespaceCacheRefresh}.
+     *
+     * @return {@link #namespaceCacheRefresh}
+     */
+    public boolean isNamespaceCacheRefresh() {
+        return namespaceCacheRefresh;
+    }
+
+    /**
+     * Sets {@link #namespaceCacheRefresh}.
+     *
+     * @param namespaceCacheRefresh
+     *         New value for {@link #namespaceCacheRefresh}
+     */
+    public void setNamespaceCacheRefresh(boolean namespaceCacheRefresh) {
+        this.namespaceCacheRefresh = namespaceCacheRefresh;
+    }
+
+    /**
+     * Gets {@link #JDBCFetchSize}.
+     *
+     * @return {@link #JDBCFetchSize}
+     */
+    public int getJDBCFetchSize() {
+        return JDBCFetchSize;
+    }
+
+    /**
+     * Sets {@link #JDBCFetchSize}.
+     *
+     * @param JDBCFetchSize
+     *         New value for {@link #JDBCFetchSize}
+     */
+    public void setJDBCFetchSize(int JDBCFetchSize) {
+        this.JDBCFetchSize = JDBCFetchSize;
+    }
+
+    /**
+     * Gets {@link #maxRowsPerQuery}.
+     *
+     * @return {@link #maxRowsPerQuery}
+     */
+    public int getMaxRowsPerQuery() {
+        return maxRowsPerQuery;
+    }
+
+    /**
+     * Sets {@link #maxRowsPerQuery}.
+     *
+     * @param maxRowsPerQuery
+     *         New value for {@link #maxRowsPerQuery}
+     */
+    public void setMaxRowsPerQuery(int maxRowsPerQuery) {
+        this.maxRowsPerQuery = maxRowsPerQuery;
+    }
+
+    /**
+     * Gets {@link #maxBytesPerQuery}.
+     *
+     * @return {@link #maxBytesPerQuery}
+     */
+    public long getMaxBytesPerQuery() {
+        return maxBytesPerQuery;
+    }
+
+    /**
+     * Sets {@link #maxBytesPerQuery}.
+     *
+     * @param maxBytesPerQuery
+     *         New value for {@link #maxBytesPerQuery}
+     */
+    public void setMaxBytesPerQuery(long maxBytesPerQuery) {
+        this.maxBytesPerQuery = maxBytesPerQuery;
+    }
+
+    /**
+     * Gets {@link #offHeapThreshold}.
+     *
+     * @return {@link #offHeapThreshold}
+     */
+    public int getOffHeapThreshold() {
+        return offHeapThreshold;
+    }
+
+    /**
+     * Sets {@link #offHeapThreshold}.
+     *
+     * @param offHeapThreshold
+     *         New value for {@link #offHeapThreshold}
+     */
+    public void setOffHeapThreshold(int offHeapThreshold) {
+        this.offHeapThreshold = offHeapThreshold;
+    }
+
+    /**
+     * Gets {@link #endpoints}.
+     *
+     * @return {@link #endpoints}
+     */
+    public List<IntroscopeEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Sets {@link #endpoints}.
+     *
+     * @param endpoints
+     *         New value for {@link #endpoints}
+     */
+    public void setEndpoints(List<IntroscopeEndpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * Gets {@link #connectionsPerEndpoint}.
+     *
+     * @return {@link #connectionsPerEndpoint}
+     */
+    public int getConnectionsPerEndpoint() {
+        return connectionsPerEndpoint;
+    }
+
+    /**
+     * Sets {@link #connectionsPerEndpoint}.
+     *
+     * @param connectionsPerEndpoint
+     *         New value for {@link #connectionsPerEndpoint}
+     */
+    public void setConnectionsPerEndpoint(int connectionsPerEndpoint) {
+        this.connectionsPerEndpoint = connectionsPerEndpoint;
+    }
+
+    /**
+     * Gets {@link #JDBCFailoverHosts}.
+     *
+     * @return {@link #JDBCFailoverHosts}
+     */
+    public List<String> getJDBCFailoverHosts() {
+        return JDBCFailoverHosts;
+    }
+
+    /**
+     * Sets {@link #JDBCFailoverHosts}.
+     *
+     * @param JDBCFailoverHosts
+     *         New value for {@link #JDBCFailoverHosts}
+     */
+    public void setJDBCFailoverHosts(List<String> JDBCFailoverHosts) {
+        this.JDBCFailoverHosts = JDBCFailoverHosts;
+    }
+
+    /**
+     * Gets {@link #JDBCQueryTimeout}.
+     *
+     * @return {@link #JDBCQueryTimeout}
+     */
+    public int getJDBCQueryTimeout() {
+        return JDBCQueryTimeout;
+    }
+
+    /**
+     * Sets {@link #JDBCQueryTimeout}.
+     *
+     * @param JDBCQueryTimeout
+     *         New value for {@link #JDBCQueryTimeout}
+     */
+    public void setJDBCQueryTimeout(int JDBCQueryTimeout) {
+        this.JDBCQueryTimeout = JDBCQueryTimeout;
+    }
+
+    /**
+     * Gets {@link #latencySmoothing}.
+     *
+     * @return {@link #latencySmoothing}
+     */
+    public double getLatencySmoothing() {
+        return latencySmoothing;
+    }
+
+    /**
+     * Sets {@link #latencySmoothing}.
+     *
+     * @param latencySmoothing
+     *         New value for {@link #latencySmoothing}
+     */
+    public void setLatencySmoothing(double latencySmoothing) {
+        this.latencySmoothing = latencySmoothing;
+    }
+
+    /**
+     * Gets {@link #failoverCooldown}.
+     *
+     * @return {@link #failoverCooldown}
+     */
+    public int getFailoverCooldown() {
+        return failoverCooldown;
+    }
+
+    /**
+     * Sets {@link #failoverCooldown}.
+     *
+     * @param failoverCooldown
+     *         New value for {@link #failoverCooldown}
+     */
+    public void setFailoverCooldown(int failoverCooldown) {
+        this.failoverCooldown = failoverCooldown;
+    }
+
+    /**
+     * Gets {@link #splitRowThreshold}.
+     *
+     * @return {@link #splitRowThreshold}
+     */
+    public int getSplitRowThreshold() {
+        return splitRowThreshold;
+    }
+
+    /**
+     * Sets {@link #splitRowThreshold}.
+     *
+     * @param splitRowThreshold
+     *         New value for {@link #splitRowThreshold}
+     */
+    public void setSplitRowThreshold(int splitRowThreshold) {
+        this.splitRowThreshold = splitRowThreshold;
+    }
+
+    /**
+     * Gets {@link #splitLatencyThreshold}.
+     *
+     * @return {@link #splitLatencyThreshold}
+     */
+    public int getSplitLatencyThreshold() {
+        return splitLatencyThreshold;
+    }
+
+    /**
+     * Sets {@link #splitLatencyThreshold}.
+     *
+     * @param splitLatencyThreshold
+     *         New value for {@link #splitLatencyThreshold}
+     */
+    public void setSplitLatencyThreshold(int splitLatencyThreshold) {
+        this.splitLatencyThreshold = splitLatencyThreshold;
+    }
+
+    /**
+     * Gets {@link #splitParallelism}.
+     *
+     * @return {@link #splitParallelism}
+     */
+    public int getSplitParallelism() {
+        return splitParallelism;
+    }
+
+    /**
+     * Sets {@link #splitParallelism}.
+     *
+     * @param splitParallelism
+     *         New value for {@link #splitParallelism}
+     */
+    public void setSplitParallelism(int splitParallelism) {
+        this.splitParallelism = splitParallelism;
+    }
+
+    /**
+     * Gets {@link #splitRegistryFile}.
+     *
+     * @return {@link #splitRegistryFile}
+     */
+    public String getSplitRegistryFile() {
+        return splitRegistryFile;
+    }
+
+    /**
+     * Sets {@link #splitRegistryFile}.
+     *
+     * @param splitRegistryFile
+     *         New value for {@link #splitRegistryFile}
+     */
+    public void setSplitRegistryFile(String splitRegistryFile) {
+        this.splitRegistryFile = splitRegistryFile;
+    }
+
+    /**
+     * Gets {@link #probeWindows}.
+     *
+     * @return {@link #probeWindows}
+     */
+    public List<Integer> getProbeWindows() {
+        return probeWindows;
+    }
+
+    /**
+     * Sets {@link #probeWindows}.
+     *
+     * @param probeWindows
+     *         New value for {@link #probeWindows}
+     */
+    public void setProbeWindows(List<Integer> probeWindows) {
+        this.probeWindows = probeWindows;
+    }
+
+    /**
+     * Gets {@link #smartStorTiers}.
+     *
+     * @return {@link #smartStorTiers}
+     */
+    public List<IntroscopeSmartStorTier> getSmartStorTiers() {
+        return smartStorTiers;
+    }
+
+    /**
+     * Sets {@link #smartStorTiers}.
+     *
+     * @param smartStorTiers
+     *         New value for {@link #smartStorTiers}
+     */
+    public void setSmartStorTiers(List<IntroscopeSmartStorTier> smartStorTiers) {
+        this.smartStorTiers = smartStorTiers;
+    }
+
+    /**
+     * Gets {@link #alignmentTolerance}.
+     *
+     * @return {@link #alignmentTolerance}
+     */
+    public double getAlignmentTolerance() {
+        return alignmentTolerance;
+    }
+
+    /**
+     * Sets {@link #alignmentTolerance}.
+     *
+     * @param alignmentTolerance
+     *         New value for {@link #alignmentTolerance}
+     */
+    public void setAlignmentTolerance(double alignmentTolerance) {
+        this.alignmentTolerance = alignmentTolerance;
+    }
+
+    /**
+     * Gets {@link #historyCacheFile}.
+     *
+     * @return {@link #historyCacheFile}
+     */
+    public String getHistoryCacheFile() {
+        return historyCacheFile;
+    }
+
+    /**
+     * Sets {@link #historyCacheFile}.
+     *
+     * @param historyCacheFile
+     *         New value for {@link #historyCacheFile}
+     */
+    public void setHistoryCacheFile(String historyCacheFile) {
+        this.historyCacheFile = historyCacheFile;
+    }
+
+    /**
+     * Gets {@link #historyCacheMaxBytes}.
+     *
+     * @return {@link #historyCacheMaxBytes}
+     */
+    public long getHistoryCacheMaxBytes() {
+        return historyCacheMaxBytes;
+    }
+
+    /**
+     * Sets {@link #historyCacheMaxBytes}.
+     *
+     * @param historyCacheMaxBytes
+     *         New value for {@link #historyCacheMaxBytes}
+     */
+    public void setHistoryCacheMaxBytes(long historyCacheMaxBytes) {
+        this.historyCacheMaxBytes = historyCacheMaxBytes;
+    }
+
+    /**
+     * Gets {@link #historyCacheDelay}.
+     *
+     * @return {@link #historyCacheDelay}
+     */
+    public int getHistoryCacheDelay() {
+        return historyCacheDelay;
+    }
+
+    /**
+     * Sets {@link #historyCacheDelay}.
+     *
+     * @param historyCacheDelay
+     *         New value for {@link #historyCacheDelay}
+     */
+    public void setHistoryCacheDelay(int historyCacheDelay) {
+        this.historyCacheDelay = historyCacheDelay;
+    }
 }
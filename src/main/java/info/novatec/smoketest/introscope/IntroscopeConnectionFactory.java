@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope;
+
+import info.novatec.smoketest.core.service.collector.MetricDataCollectorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.CONNECTION_TEMPLATE;
+import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.PASSWORD_MARKER;
+
+/**
+ * Factory to open JDBC connections to the Introscope Enterprise Manager defined in the {@link
+ * IntroscopeConfiguration}. The factory is shared by all components which need to talk to the Enterprise Manager, so
+ * the driver loading and the URL handling is defined only once.
+ *
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeConnectionFactory {
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntroscopeConnectionFactory.class);
+
+    /**
+     * The {@link IntroscopeConfiguration}.
+     */
+    private IntroscopeConfiguration configuration;
+
+    /**
+     * Flag to indicate if the JDBC driver is already loaded.
+     */
+    private volatile boolean driverLoaded;
+
+    /**
+     * Creates a new IntroscopeConnectionFactory.
+     *
+     * @param configuration
+     *         The {@link IntroscopeConfiguration}
+     */
+    @Inject
+    public IntroscopeConnectionFactory(final IntroscopeConfiguration configuration) {
+        this.configuration = checkNotNull(configuration);
+    }
+
+    /**
+     * Gets all Enterprise Managers to be tested. All values missing in an endpoint are taken from the configuration.
+     *
+     * @return The configured endpoints or the default endpoint if none are configured
+     */
+    public List<IntroscopeEndpoint> getEndpoints() {
+        if (configuration.getEndpoints() == null || configuration.getEndpoints().isEmpty()) {
+            return Collections.singletonList(IntroscopeEndpoint.of(configuration));
+        }
+        return configuration.getEndpoints().stream()
+                .map(endpoint -> endpoint.resolve(configuration))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Opens a new connection to the Enterprise Manager defined by the JDBC values of the configuration. The caller is
+     * responsible to close the connection.
+     *
+     * @return A new JDBC {@link Connection}
+     * @throws MetricDataCollectorException
+     *         if the driver could not be loaded or the connection could not be established
+     */
+    public Connection open() throws MetricDataCollectorException {
+        return open(IntroscopeEndpoint.of(configuration));
+    }
+
+    /**
+     * Opens a new connection to an Enterprise Manager. The caller is responsible to close the connection.
+     *
+     * @param endpoint
+     *         The complete {@link IntroscopeEndpoint}
+     * @return A new JDBC {@link Connection}
+     * @throws MetricDataCollectorException
+     *         if the driver could not be loaded or the connection could not be established
+     */
+    public Connection open(final IntroscopeEndpoint endpoint) throws MetricDataCollectorException {
+        loadDriver();
+        String urlNoPassword = String.format(CONNECTION_TEMPLATE,
+                endpoint.getJDBCUser(),
+                PASSWORD_MARKER,
+                endpoint.getJDBCHost(),
+                endpoint.getJDBCPort());
+
+        String connectionURL = urlNoPassword
+                .replace(PASSWORD_MARKER, endpoint.getJDBCPassword());
+        try {
+            LOGGER.info("Connecting to: {}...", urlNoPassword);
+            return DriverManager.getConnection(connectionURL);
+        } catch (SQLException e) {
+            throw new MetricDataCollectorException("Connection failed!", e);
+        }
+    }
+
+    /**
+     * Ensures that the introscope jdbc driver is loaded.
+     */
+    private void loadDriver() {
+        if (!driverLoaded) {
+            try {
+                LOGGER.info("Loading JDBC Driver: {}", configuration.getJDBCDriver());
+                Class.forName(configuration.getJDBCDriver());
+                driverLoaded = true;
+            } catch (ClassNotFoundException e) {
+                throw new MetricDataCollectorException("Failed to load JDBC Driver: "
+                        + configuration.getJDBCDriver(), e);
+            }
+        }
+    }
+}
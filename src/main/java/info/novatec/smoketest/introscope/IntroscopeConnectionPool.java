@@ -0,0 +1,225 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope;
+
+import info.novatec.smoketest.core.service.collector.MetricDataCollectorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Small pool of JDBC statements to one {@link IntroscopeEndpoint}. Each statement owns its connection. Connections are
+ * opened lazily up to the maximum size of the pool, afterwards callers wait for a statement to be released or
+ * invalidated.
+ *
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeConnectionPool {
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntroscopeConnectionPool.class);
+
+    /**
+     * The {@link IntroscopeEndpoint} of this pool.
+     */
+    private final IntroscopeEndpoint endpoint;
+
+    /**
+     * The {@link IntroscopeConnectionFactory} to open new connections.
+     */
+    private final IntroscopeConnectionFactory connectionFactory;
+
+    /**
+     * The fetch size of all statements.
+     */
+    private final int fetchSize;
+
+    /**
+     * The query timeout in seconds of all statements.
+     */
+    private final int queryTimeout;
+
+    /**
+     * All idle statements.
+     */
+    private final BlockingQueue<Statement> idle = new LinkedBlockingQueue<>();
+
+    /**
+     * The permits to borrow a statement. A permit is returned on release and on invalidation, so a waiting caller is
+     * woken in both cases and opens a new connection if no idle statement is left.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Creates a new IntroscopeConnectionPool.
+     *
+     * @param endpoint
+     *         The {@link IntroscopeEndpoint}
+     * @param connectionFactory
+     *         The {@link IntroscopeConnectionFactory}
+     * @param size
+     *         The maximum count of open connections
+     * @param fetchSize
+     *         The fetch size of all statements
+     * @param queryTimeout
+     *         The query timeout in seconds of all statements
+     */
+    public IntroscopeConnectionPool(final IntroscopeEndpoint endpoint,
+                                    final IntroscopeConnectionFactory connectionFactory,
+                                    final int size,
+                                    final int fetchSize,
+                                    final int queryTimeout) {
+        checkArgument(size > 0, "The pool size must be positive");
+        this.endpoint = checkNotNull(endpoint);
+        this.connectionFactory = checkNotNull(connectionFactory);
+        this.fetchSize = fetchSize;
+        this.queryTimeout = queryTimeout;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Borrows a statement. The statement must be returned by {@link #release(Statement)} or {@link
+     * #invalidate(Statement)}.
+     *
+     * @return An idle statement
+     * @throws MetricDataCollectorException
+     *         if no connection could be established
+     */
+    public Statement borrow() throws MetricDataCollectorException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MetricDataCollectorException("Interrupted while waiting for a connection to " + endpoint, e);
+        }
+        Statement statement = idle.poll();
+        if (statement != null) {
+            return statement;
+        }
+        //Each permit without idle statement stands for a connection which is not yet or not anymore open
+        try {
+            return create();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a statement to the pool.
+     *
+     * @param statement
+     *         The borrowed statement
+     */
+    public void release(final Statement statement) {
+        idle.offer(statement);
+        permits.release();
+    }
+
+    /**
+     * Closes a statement which is not usable anymore, e.g. after the connection broke.
+     *
+     * @param statement
+     *         The borrowed statement
+     */
+    public void invalidate(final Statement statement) {
+        close(statement);
+        permits.release();
+    }
+
+    /**
+     * Closes all idle connections.
+     */
+    public void close() {
+        Statement statement;
+        while ((statement = idle.poll()) != null) {
+            close(statement);
+        }
+    }
+
+    /**
+     * @return The {@link IntroscopeEndpoint} of this pool
+     */
+    public IntroscopeEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Opens a new connection and creates its statement.
+     *
+     * @return The new statement
+     */
+    private Statement create() {
+        Connection connection = connectionFactory.open(endpoint);
+        try {
+            Statement statement = connection.createStatement();
+            try {
+                statement.setFetchSize(fetchSize);
+            } catch (SQLException e) {
+                LOGGER.warn("Driver does not support fetch size, using its default", e);
+            }
+            try {
+                statement.setQueryTimeout(queryTimeout);
+            } catch (SQLException e) {
+                LOGGER.warn("Driver does not support query timeouts", e);
+            }
+            return statement;
+        } catch (SQLException e) {
+            try {
+                connection.close();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new MetricDataCollectorException("Connection failed: " + endpoint, e);
+        }
+    }
+
+    /**
+     * Closes a statement and its connection quietly.
+     *
+     * @param statement
+     *         The statement to be closed
+     */
+    private static void close(final Statement statement) {
+        try {
+            Connection connection = statement.getConnection();
+            statement.close();
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.debug("Failed to close connection", e);
+        }
+    }
+}
@@ -25,25 +25,39 @@
 package info.novatec.smoketest.introscope;
 
 import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.model.TimeRange;
 import info.novatec.smoketest.core.service.collector.IMetricDataCollector;
 import info.novatec.smoketest.core.service.collector.MetricDataCollectorException;
+import info.novatec.smoketest.core.service.testing.PlanExecutionService;
+import info.novatec.smoketest.core.service.testing.RunBudget;
 import info.novatec.smoketest.core.service.time.ITimeService;
+import info.novatec.smoketest.introscope.cache.IntroscopeNamespaceCache;
+import net.sourceforge.argparse4j.inf.Namespace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.CONNECTION_TEMPLATE;
-import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.PASSWORD_MARKER;
 import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.JDBC_TEMPLATE;
+import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.JDBC_TIME_SLICED_TEMPLATE;
+import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.RS_ENTRY_ACTUAL_START_TIMESTAMP;
 import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.RS_ENTRY_AGENT_NAME;
 import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.RS_ENTRY_METRIC_NAME;
 import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.RS_ENTRY_RESOURCE;
@@ -63,6 +77,11 @@ public class IntroscopeDataCollector implements IMetricDataCollector<IntroscopeM
      */
     private static Logger log = LoggerFactory.getLogger(IntroscopeDataCollector.class);
 
+    /**
+     * The maximum count of agents an agent expression is rewritten to. Larger lists would only blow up the query.
+     */
+    private static final int MAX_REWRITTEN_AGENTS = 64;
+
     /**
      * The {@link ITimeService}.
      */
@@ -74,20 +93,55 @@ public class IntroscopeDataCollector implements IMetricDataCollector<IntroscopeM
     private IntroscopeConfiguration configuration;
 
     /**
-     * The JDBC/SQL connection class.
+     * The {@link IntroscopeConnectionFactory} to open the JDBC connection.
+     */
+    private IntroscopeConnectionFactory connectionFactory;
+
+    /**
+     * The {@link IntroscopeNamespaceCache} to avoid needless queries.
+     */
+    private IntroscopeNamespaceCache namespaceCache;
+
+    /**
+     * The {@link IntroscopeNamePool} sharing names between all results.
+     */
+    private IntroscopeNamePool namePool;
+
+    /**
+     * The {@link IntroscopeMetricTestResultCodec} to move large results off the heap.
      */
-    private Connection connection;
+    private IntroscopeMetricTestResultCodec codec;
 
     /**
-     * The Statement object to execute all queries.
+     * The {@link RunBudget} which caps the query timeout by the run deadline.
      */
-    private Statement statement;
+    private RunBudget runBudget;
+
+    /**
+     * The {@link IntroscopeWindowAligner} which aligns all windows to SmartStor reporting periods.
+     */
+    private IntroscopeWindowAligner aligner;
+
+    /**
+     * The {@link IntroscopeEndpointGroup}s of all endpoints by name.
+     */
+    private Map<String, IntroscopeEndpointGroup> groups;
+
+    /**
+     * The name of the first endpoint which serves metrics without environment.
+     */
+    private String defaultEnvironment;
 
     /**
      * Flag to indicate if service is already initialized.
      */
     private boolean initialized;
 
+    /**
+     * Flag to indicate that the tests are only planned, thus no connection is established.
+     */
+    private boolean dryRun;
+
     //-------------------------------------------------------------
     // Constructors
     //-------------------------------------------------------------
@@ -99,12 +153,37 @@ public class IntroscopeDataCollector implements IMetricDataCollector<IntroscopeM
      *         The {@link IntroscopeConfiguration}
      * @param service
      *         The {@link ITimeService}
+     * @param connectionFactory
+     *         The {@link IntroscopeConnectionFactory}
+     * @param namespaceCache
+     *         The {@link IntroscopeNamespaceCache}
+     * @param namePool
+     *         The {@link IntroscopeNamePool}
+     * @param namespace
+     *         The command line arguments
+     * @param runBudget
+     *         The {@link RunBudget}
+     * @param aligner
+     *         The {@link IntroscopeWindowAligner}
      */
     @Inject
     public IntroscopeDataCollector(final IntroscopeConfiguration configuration,
-                                   final ITimeService service) {
+                                   final ITimeService service,
+                                   final IntroscopeConnectionFactory connectionFactory,
+                                   final IntroscopeNamespaceCache namespaceCache,
+                                   final IntroscopeNamePool namePool,
+                                   final Namespace namespace,
+                                   final RunBudget runBudget,
+                                   final IntroscopeWindowAligner aligner) {
         this.configuration = checkNotNull(configuration);
         this.timeService = checkNotNull(service);
+        this.connectionFactory = checkNotNull(connectionFactory);
+        this.namespaceCache = checkNotNull(namespaceCache);
+        this.namePool = checkNotNull(namePool);
+        this.codec = new IntroscopeMetricTestResultCodec(namePool);
+        this.runBudget = checkNotNull(runBudget);
+        this.aligner = checkNotNull(aligner);
+        this.dryRun = Boolean.TRUE.equals(namespace.getBoolean(PlanExecutionService.PLAN_ARGUMENT));
     }
 
     //-------------------------------------------------------------
@@ -115,27 +194,28 @@ public class IntroscopeDataCollector implements IMetricDataCollector<IntroscopeM
     @Override
     public void initialize() {
         log.info("Start initializing the IntroscopeDataCollector...");
-        try {
-            log.info("Loading JDBC Driver: {}", configuration.getJDBCDriver());
-            //Ensure that the introscope jdbc driver is loaded
-            Class.forName(configuration.getJDBCDriver());
-
-            String urlNoPassword = String.format(CONNECTION_TEMPLATE,
-                    configuration.getJDBCUser(),
-                    PASSWORD_MARKER,
-                    configuration.getJDBCHost(),
-                    configuration.getJDBCPort());
-
-            String connectionURL = urlNoPassword
-                    .replace(PASSWORD_MARKER, configuration.getJDBCPassword());
-
-            log.info("Connecting to: {}...", urlNoPassword);
-            connection = DriverManager.getConnection(connectionURL);
-            statement = connection.createStatement();
-        } catch (ClassNotFoundException e) {
-            throw new MetricDataCollectorException("Failed to load JDBC Driver: " + configuration.getJDBCDriver(), e);
-        } catch (SQLException e) {
-            throw new MetricDataCollectorException("Connection failed!", e);
+        Map<String, IntroscopeEndpointGroup> endpointGroups = new LinkedHashMap<>();
+        for (IntroscopeEndpoint endpoint : connectionFactory.getEndpoints()) {
+            List<IntroscopeConnectionPool> pools = new ArrayList<>();
+            for (IntroscopeEndpoint host : endpoint.hosts()) {
+                pools.add(new IntroscopeConnectionPool(host, connectionFactory,
+                        configuration.getConnectionsPerEndpoint(), configuration.getJDBCFetchSize(),
+                        configuration.getJDBCQueryTimeout()));
+            }
+            endpointGroups.put(endpoint.getName(), new IntroscopeEndpointGroup(pools,
+                    configuration.getLatencySmoothing(), configuration.getFailoverCooldown()));
+        }
+        groups = endpointGroups;
+        defaultEnvironment = endpointGroups.keySet().iterator().next();
+        if (dryRun) {
+            log.info("Dry run, no connection is established!");
+            return;
+        }
+        for (IntroscopeEndpointGroup group : endpointGroups.values()) {
+            //One unreachable Enterprise Manager must not prevent testing the others
+            if (!connect(group) && endpointGroups.size() == 1) {
+                throw new MetricDataCollectorException("Connection failed!");
+            }
         }
         initialized = true;
         log.info("IntroscopeDataCollector initialized!");
@@ -148,45 +228,323 @@ public class IntroscopeDataCollector implements IMetricDataCollector<IntroscopeM
             //Fail if service is not yet initialized
             throw new RuntimeException("Not initialized!");
         }
-        String queryString = buildQueryString(definition);
+        String environment = definition.getEnvironment() != null ? definition.getEnvironment() : defaultEnvironment;
+        IntroscopeEndpointGroup group = groups.get(environment);
+        if (group == null) {
+            throw new MetricDataCollectorException("Unknown endpoint: " + environment);
+        }
+        String metricPath = IntroscopeUtils.generateMetricPath(definition.getResourceExpression(),
+                definition.getMetricExpression());
+        String agentExpression = definition.getAgentExpression();
+        TimeRange range = aligner.align(timeService.getTimeRange(definition.getWindow()));
+        List<String> agents = resolveAgents(agentExpression, metricPath, range);
+        if (agents != null) {
+            if (agents.isEmpty()) {
+                log.debug("Skipped query, no cached metric matches: {}", definition.getFullQualifiedName());
+                return new MetricTestResultSet<>(definition);
+            }
+            if (agents.size() <= MAX_REWRITTEN_AGENTS) {
+                //Let the EM only evaluate the agents which are known to have matching metrics
+                agentExpression = IntroscopeUtils.anyOf(agents);
+            }
+        }
+        ZonedDateTime to = range.getTo();
+        if (definition.isProbe()) {
+            //Confirm the presence with the cheapest query, only widen the window if nothing was found
+            for (Integer minutes : configuration.getProbeWindows()) {
+                ZonedDateTime from = to.minusMinutes(minutes);
+                if (!from.isAfter(range.getFrom())) {
+                    break;
+                }
+                MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet =
+                        execute(definition, group, buildQueryString(definition, agentExpression, metricPath, from, to));
+                if (resultSet.hasResults()) {
+                    log.debug("Probe confirmed within {} minutes: {}", minutes, definition.getFullQualifiedName());
+                    return resultSet;
+                }
+            }
+        }
+        return execute(definition, group,
+                buildQueryString(definition, agentExpression, metricPath, range.getFrom(), to));
+    }
+
+    @Override
+    public int estimateQueries(IntroscopeMetric definition) {
+        String metricPath = IntroscopeUtils.generateMetricPath(definition.getResourceExpression(),
+                definition.getMetricExpression());
+        TimeRange range = aligner.align(timeService.getTimeRange(definition.getWindow()));
+        List<String> agents = resolveAgents(definition.getAgentExpression(), metricPath, range);
+        if (agents != null && agents.isEmpty()) {
+            return 0;
+        }
+        int queries = 1;
+        if (definition.isProbe()) {
+            //Worst case, no probe window confirms the presence
+            for (Integer minutes : configuration.getProbeWindows()) {
+                if (!range.getTo().minusMinutes(minutes).isAfter(range.getFrom())) {
+                    break;
+                }
+                queries++;
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Resolves the agents having matching metrics by the {@link IntroscopeNamespaceCache}.
+     *
+     * @param agentExpression
+     *         The agent expression
+     * @param metricPath
+     *         The metric path
+     * @param range
+     *         The aligned window of the query
+     * @return The matching agents or null if the cache can not answer
+     * @see IntroscopeNamespaceCache#resolve(String, String, TimeRange)
+     */
+    private List<String> resolveAgents(final String agentExpression,
+                                       final String metricPath,
+                                       final TimeRange range) {
+        //The namespace cache only knows the agents of a single Enterprise Manager
+        return groups.size() == 1 ? namespaceCache.resolve(agentExpression, metricPath, range) : null;
+    }
+
+    /**
+     * Executes a query on the fastest healthy host of a group and fails over to the other hosts.
+     *
+     * @param definition
+     *         The {@link IntroscopeMetric}
+     * @param group
+     *         The {@link IntroscopeEndpointGroup}
+     * @param queryString
+     *         The query to be executed
+     * @return The {@link MetricTestResultSet}
+     * @throws MetricDataCollectorException
+     *         if the query failed on all hosts
+     */
+    private MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> execute(
+            final IntroscopeMetric definition,
+            final IntroscopeEndpointGroup group,
+            final String queryString) throws MetricDataCollectorException {
         log.debug(queryString);
+        Set<IntroscopeEndpointGroup.Host> failed = new HashSet<>();
+        Exception lastFailure = null;
+        boolean timedOut = false;
+        IntroscopeEndpointGroup.Host host;
+        //Try the fastest healthy host first and fail over to the others
+        while ((host = group.select(failed)) != null) {
+            Statement statement;
+            try {
+                statement = host.getPool().borrow();
+            } catch (MetricDataCollectorException e) {
+                log.warn("Failing over, connection failed: {}", host.getPool().getEndpoint());
+                host.failure();
+                failed.add(host);
+                lastFailure = e;
+                continue;
+            }
+            int timeout = runBudget.capTimeout(configuration.getJDBCQueryTimeout());
+            boolean broken = false;
+            long start = System.nanoTime();
+            try {
+                MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet =
+                        collect(definition, queryString, statement, timeout);
+                host.success(System.nanoTime() - start);
+                return resultSet;
+            } catch (SQLException e) {
+                if (!isHostFailure(e)) {
+                    //The host is healthy, another host would fail the same way
+                    throw new MetricDataCollectorException("Failed to execute collect: " + queryString, e);
+                }
+                //The connection is broken or still busy with the query, do not hand it out again
+                broken = true;
+                host.failure();
+                if (e instanceof SQLTimeoutException) {
+                    if (timedOut || timeout != configuration.getJDBCQueryTimeout()) {
+                        //Retry only once and never beyond the run deadline
+                        throw new MetricDataCollectorException("Query timed out after " + timeout + "s: "
+                                + queryString, e);
+                    }
+                    timedOut = true;
+                }
+                log.warn("Failing over, query failed on {}: {}", host.getPool().getEndpoint(), e.getMessage());
+                failed.add(host);
+                lastFailure = e;
+            } finally {
+                if (broken) {
+                    host.getPool().invalidate(statement);
+                } else {
+                    host.getPool().release(statement);
+                }
+            }
+        }
+        throw new MetricDataCollectorException("Failed to execute collect: " + queryString, lastFailure);
+    }
+
+    /**
+     * Checks if a query failed because of its host. Only such failures are worth a fail over, e.g. syntax errors are
+     * not. A timed out query is worth one fail over, the host might be overloaded or stuck.
+     *
+     * @param e
+     *         The SQLException
+     * @return true if the exception is a connection exception, its SQLState has the class 08 or the query timed out
+     */
+    static boolean isHostFailure(final SQLException e) {
+        return e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLTimeoutException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("08"));
+    }
+
+    /**
+     * Opens the first connection of a group to fail fast if no host is reachable.
+     *
+     * @param group
+     *         The {@link IntroscopeEndpointGroup}
+     * @return true if at least one host is reachable
+     */
+    private boolean connect(final IntroscopeEndpointGroup group) {
+        for (IntroscopeEndpointGroup.Host host : group.getHosts()) {
+            try {
+                host.getPool().release(host.getPool().borrow());
+                return true;
+            } catch (MetricDataCollectorException e) {
+                log.error("Enterprise Manager not reachable: " + host.getPool().getEndpoint(), e);
+                host.failure();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Executes a query and reads the results within the row and byte budget.
+     *
+     * @param definition
+     *         The {@link IntroscopeMetric}
+     * @param queryString
+     *         The query to be executed
+     * @param statement
+     *         The borrowed statement
+     * @param timeout
+     *         The query timeout in seconds, capped by the {@link RunBudget}
+     * @return The {@link MetricTestResultSet}
+     * @throws SQLException
+     *         if the query failed
+     */
+    private MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> collect(
+            final IntroscopeMetric definition,
+            final String queryString,
+            final Statement statement,
+            final int timeout) throws SQLException {
+        try {
+            //Request one row more than allowed to detect truncation without reading everything
+            int maxRows = configuration.getMaxRowsPerQuery();
+            statement.setMaxRows(maxRows > 0 ? maxRows + 1 : 0);
+        } catch (SQLException e) {
+            //The row budget is still enforced while reading
+            log.debug("Driver does not support max rows", e);
+        }
+        if (runBudget.isLimited()) {
+            //A query must not run beyond the run deadline
+            statement.setQueryTimeout(timeout);
+        }
 
         try (ResultSet resultSet = statement.executeQuery(queryString)) {
             MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> metricTestResultSet =
-                    new MetricTestResultSet<>(definition);
-            //In this loop each row of the result set is transformed into a MetricTestResultSet
-            while (resultSet.next()) {
-                dumpResult(resultSet);
-                metricTestResultSet.addResult(
-                        new IntroscopeMetricTestResult(
-                                queryString,
-                                resultSet.getString(RS_ENTRY_AGENT_NAME),
-                                resultSet.getString(RS_ENTRY_RESOURCE),
-                                resultSet.getString(RS_ENTRY_METRIC_NAME),
-                                resultSet.getString(RS_ENTRY_VALUE)
-                        )
-                );
+                    new MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult>(definition)
+                            .setQuery(queryString);
+            try {
+                int rows = 0;
+                long bytes = 0;
+                //In this loop each row of the result set is transformed into a MetricTestResultSet
+                while (resultSet.next()) {
+                    if (isBudgetExceeded(rows, bytes)) {
+                        log.warn("Truncated after {} rows ({} bytes): {}", rows, bytes, queryString);
+                        metricTestResultSet.setTruncated(true);
+                        break;
+                    }
+                    if (log.isDebugEnabled()) {
+                        dumpResult(resultSet);
+                    }
+                    IntroscopeMetricTestResult result = new IntroscopeMetricTestResult(
+                            namePool.intern(resultSet.getString(RS_ENTRY_AGENT_NAME)),
+                            namePool.intern(resultSet.getString(RS_ENTRY_RESOURCE)),
+                            namePool.intern(resultSet.getString(RS_ENTRY_METRIC_NAME)),
+                            resultSet.getString(RS_ENTRY_VALUE)
+                    );
+                    if (definition.isTimeSliced()) {
+                        Timestamp start = resultSet.getTimestamp(RS_ENTRY_ACTUAL_START_TIMESTAMP);
+                        result.setTimestamp(start != null ? start.getTime() : 0);
+                    }
+                    if (groups.size() == 1) {
+                        namespaceCache.record(result.getAgentName(), result.getResource(), result.getMetric());
+                    }
+                    metricTestResultSet.addResult(result);
+                    rows++;
+                    if (rows == configuration.getOffHeapThreshold()) {
+                        log.debug("Moving results off-heap: {}", queryString);
+                        metricTestResultSet.spill(codec);
+                    }
+                    bytes += result.estimateSize();
+                }
+            } catch (SQLException | RuntimeException e) {
+                //Do not leak the native memory of a partially read result
+                metricTestResultSet.release();
+                throw e;
             }
             return metricTestResultSet;
-        } catch (SQLException e) {
-            throw new MetricDataCollectorException("Failed to execute collect: " + queryString, e);
         }
     }
 
     /**
-     * Builds the sql collect string depending on the given {@link IntroscopeMetric}.
+     * Checks if the row or byte budget of a query is used up.
+     *
+     * @param rows
+     *         The count of rows read so far
+     * @param bytes
+     *         The estimated size of all rows read so far
+     * @return true if no further row must be read
+     */
+    private boolean isBudgetExceeded(final int rows,
+                                     final long bytes) {
+        return (configuration.getMaxRowsPerQuery() > 0 && rows >= configuration.getMaxRowsPerQuery())
+                || (configuration.getMaxBytesPerQuery() > 0 && bytes >= configuration.getMaxBytesPerQuery());
+    }
+
+    /**
+     * Builds the sql collect string. Time sliced metrics are collected with one row per slice, all other metrics with
+     * one aggregate of the whole window.
      *
      * @param definition
      *         The {@link IntroscopeMetric}
+     * @param agentExpression
+     *         The agent expression
+     * @param metricPath
+     *         The metric path expression
+     * @param from
+     *         The start of the window
+     * @param to
+     *         The end of the window
      * @return The collect string
      */
-    private String buildQueryString(final IntroscopeMetric definition) {
+    private String buildQueryString(final IntroscopeMetric definition,
+                                    final String agentExpression,
+                                    final String metricPath,
+                                    final ZonedDateTime from,
+                                    final ZonedDateTime to) {
+        if (definition.isTimeSliced()) {
+            return String.format(JDBC_TIME_SLICED_TEMPLATE,
+                    agentExpression,
+                    metricPath,
+                    timeService.format(configuration.getJDBCDateFormat(), from),
+                    timeService.format(configuration.getJDBCDateFormat(), to),
+                    definition.getFrequency());
+        }
         return String.format(JDBC_TEMPLATE,
-                definition.getAgentExpression(),
-                IntroscopeUtils.generateMetricPath(definition.getResourceExpression(),
-                        definition.getMetricExpression()),
-                timeService.format(configuration.getJDBCDateFormat(), timeService.getFrom()),
-                timeService.format(configuration.getJDBCDateFormat(), timeService.getTo()));
+                agentExpression,
+                metricPath,
+                timeService.format(configuration.getJDBCDateFormat(), from),
+                timeService.format(configuration.getJDBCDateFormat(), to));
     }
 
     /**
@@ -222,6 +580,12 @@ public class IntroscopeDataCollector implements IMetricDataCollector<IntroscopeM
         public static final String JDBC_TEMPLATE = "select * from metric_data where agent='%s' and metric='%s' and "
                 + "timestamp between '%s' and '%s' aggregateall";
 
+        /**
+         * Defines the template for Introscope JDBC queries returning one row per time slice of the given seconds.
+         */
+        public static final String JDBC_TIME_SLICED_TEMPLATE = "select * from metric_data where agent='%s' and "
+                + "metric='%s' and timestamp between '%s' and '%s' frequency %d";
+
         /**
          * Defines a placeholder for passwords.
          */
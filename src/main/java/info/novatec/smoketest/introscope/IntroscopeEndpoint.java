@@ -0,0 +1,287 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Strings;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One Introscope Enterprise Manager which is tested by the smoke test. All values which are not set are taken from the
+ * {@link IntroscopeConfiguration}, thus endpoints sharing the same credentials only need a name and a host.
+ *
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeEndpoint {
+
+    /**
+     * The name of the implicit endpoint which is used if no endpoints are configured.
+     */
+    public static final String DEFAULT = "default";
+
+    /**
+     * The name of the endpoint, e.g. the environment. Must be unique.
+     */
+    private String name;
+
+    /**
+     * The JDBC user name.
+     */
+    @JsonProperty(value = "JDBCUser")
+    private String JDBCUser;
+
+    /**
+     * The JDBC password.
+     */
+    @JsonProperty(value = "JDBCPassword")
+    private String JDBCPassword;
+
+    /**
+     * The JDBC host.
+     */
+    @JsonProperty(value = "JDBCHost")
+    private String JDBCHost;
+
+    /**
+     * The JDBC port.
+     */
+    @JsonProperty(value = "JDBCPort")
+    private String JDBCPort;
+
+    /**
+     * Further hosts of the same Enterprise Manager cluster, given as <code>host</code> or <code>host:port</code>.
+     */
+    @JsonProperty(value = "JDBCFailoverHosts")
+    private List<String> JDBCFailoverHosts = new ArrayList<>();
+
+    /**
+     * No-Args Constructor.
+     */
+    public IntroscopeEndpoint() {
+    }
+
+    /**
+     * Creates a new IntroscopeEndpoint.
+     *
+     * @param name
+     *         The name of the endpoint
+     * @param JDBCHost
+     *         The JDBC host
+     */
+    public IntroscopeEndpoint(final String name,
+                              final String JDBCHost) {
+        this.name = name;
+        this.JDBCHost = JDBCHost;
+    }
+
+    /**
+     * Creates the implicit endpoint defined by the JDBC values of a configuration.
+     *
+     * @param configuration
+     *         The {@link IntroscopeConfiguration}
+     * @return The default endpoint
+     */
+    public static IntroscopeEndpoint of(final IntroscopeConfiguration configuration) {
+        return new IntroscopeEndpoint(DEFAULT, null).resolve(configuration);
+    }
+
+    /**
+     * Creates a copy of this endpoint where all missing values are taken from the configuration.
+     *
+     * @param configuration
+     *         The {@link IntroscopeConfiguration}
+     * @return The complete endpoint
+     */
+    public IntroscopeEndpoint resolve(final IntroscopeConfiguration configuration) {
+        IntroscopeEndpoint endpoint = new IntroscopeEndpoint(name, valueOf(JDBCHost, configuration.getJDBCHost()));
+        endpoint.setJDBCPort(valueOf(JDBCPort, configuration.getJDBCPort()));
+        endpoint.setJDBCUser(valueOf(JDBCUser, configuration.getJDBCUser()));
+        endpoint.setJDBCPassword(valueOf(JDBCPassword, configuration.getJDBCPassword()));
+        endpoint.setJDBCFailoverHosts(JDBCFailoverHosts == null || JDBCFailoverHosts.isEmpty()
+                ? configuration.getJDBCFailoverHosts() : JDBCFailoverHosts);
+        return endpoint;
+    }
+
+    /**
+     * Gets all hosts of this endpoint. The first host is the primary host followed by all failover hosts. All hosts
+     * share the name and the credentials of this endpoint.
+     *
+     * @return The hosts of this endpoint
+     */
+    public List<IntroscopeEndpoint> hosts() {
+        List<IntroscopeEndpoint> hosts = new ArrayList<>();
+        hosts.add(this);
+        if (JDBCFailoverHosts != null) {
+            for (String failoverHost : JDBCFailoverHosts) {
+                int separator = failoverHost.lastIndexOf(':');
+                IntroscopeEndpoint host = new IntroscopeEndpoint(name,
+                        separator < 0 ? failoverHost : failoverHost.substring(0, separator));
+                host.setJDBCPort(separator < 0 ? JDBCPort : failoverHost.substring(separator + 1));
+                host.setJDBCUser(JDBCUser);
+                host.setJDBCPassword(JDBCPassword);
+                hosts.add(host);
+            }
+        }
+        return hosts;
+    }
+
+    /**
+     * @param value
+     *         The endpoint value
+     * @param fallback
+     *         The configuration value
+     * @return The value if not null or empty, otherwise the fallback
+     */
+    private static String valueOf(final String value,
+                                  final String fallback) {
+        return Strings.isNullOrEmpty(value) ? fallback : value;
+    }
+
+    @Override
+    public String toString() {
+        //Never expose the password
+        return name + "(" + JDBCUser + "@" + JDBCHost + ":" + JDBCPort + ")";
+    }
+
+    //-------------------------------------------------------------
+    // Get/Set
+    //-------------------------------------------------------------
+
+    /**
+     * Gets {@link #name}.
+     *
+     * @return {@link #name}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets {@link #name}.
+     *
+     * @param name
+     *         New value for {@link #name}
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets {@link #JDBCUser}.
+     *
+     * @return {@link #JDBCUser}
+     */
+    public String getJDBCUser() {
+        return JDBCUser;
+    }
+
+    /**
+     * Sets {@link #JDBCUser}.
+     *
+     * @param JDBCUser
+     *         New value for {@link #JDBCUser}
+     */
+    public void setJDBCUser(String JDBCUser) {
+        this.JDBCUser = JDBCUser;
+    }
+
+    /**
+     * Gets {@link #JDBCPassword}.
+     *
+     * @return {@link #JDBCPassword}
+     */
+    public String getJDBCPassword() {
+        return JDBCPassword;
+    }
+
+    /**
+     * Sets {@link #JDBCPassword}.
+     *
+     * @param JDBCPassword
+     *         New value for {@link #JDBCPassword}
+     */
+    public void setJDBCPassword(String JDBCPassword) {
+        this.JDBCPassword = JDBCPassword;
+    }
+
+    /**
+     * Gets {@link #JDBCHost}.
+     *
+     * @return {@link #JDBCHost}
+     */
+    public String getJDBCHost() {
+        return JDBCHost;
+    }
+
+    /**
+     * Sets {@link #JDBCHost}.
+     *
+     * @param JDBCHost
+     *         New value for {@link #JDBCHost}
+     */
+    public void setJDBCHost(String JDBCHost) {
+        this.JDBCHost = JDBCHost;
+    }
+
+    /**
+     * Gets {@link #JDBCPort}.
+     *
+     * @return {@link #JDBCPort}
+     */
+    public String getJDBCPort() {
+        return JDBCPort;
+    }
+
+    /**
+     * Sets {@link #JDBCPort}.
+     *
+     * @param JDBCPort
+     *         New value for {@link #JDBCPort}
+     */
+    public void setJDBCPort(String JDBCPort) {
+        this.JDBCPort = JDBCPort;
+    }
+
+    /**
+     * Gets {@link #JDBCFailoverHosts}.
+     *
+     * @return {@link #JDBCFailoverHosts}
+     */
+    public List<String> getJDBCFailoverHosts() {
+        return JDBCFailoverHosts;
+    }
+
+    /**
+     * Sets {@link #JDBCFailoverHosts}.
+     *
+     * @param JDBCFailoverHosts
+     *         New value for {@link #JDBCFailoverHosts}
+     */
+    public void setJDBCFailoverHosts(List<String> JDBCFailoverHosts) {
+        this.JDBCFailoverHosts = JDBCFailoverHosts;
+    }
+}
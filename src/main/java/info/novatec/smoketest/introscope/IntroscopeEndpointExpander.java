@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope;
+
+import com.google.common.collect.Sets;
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.service.testing.IMetricTestExpander;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link IMetricTestExpander} which executes each {@link IntroscopeMetric} once for each configured {@link
+ * IntroscopeEndpoint}. If only one endpoint is configured, the tests are not changed.
+ *
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeEndpointExpander implements IMetricTestExpander {
+
+    /**
+     * The {@link IntroscopeConnectionFactory} knowing all endpoints.
+     */
+    private IntroscopeConnectionFactory connectionFactory;
+
+    /**
+     * Creates a new IntroscopeEndpointExpander.
+     *
+     * @param connectionFactory
+     *         The {@link IntroscopeConnectionFactory}
+     */
+    @Inject
+    public IntroscopeEndpointExpander(final IntroscopeConnectionFactory connectionFactory) {
+        this.connectionFactory = checkNotNull(connectionFactory);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <IN extends IMetricDefinition, OUT extends IMetricTestResult> Set<MetricTest<IN, OUT>> expand(
+            Set<MetricTest<IN, OUT>> tests) {
+        List<IntroscopeEndpoint> endpoints = connectionFactory.getEndpoints();
+        if (endpoints.size() <= 1) {
+            return tests;
+        }
+        Set<MetricTest<IN, OUT>> expanded = Sets.newLinkedHashSet();
+        //Keep all tests of one endpoint together to ease reading the report
+        for (IntroscopeEndpoint endpoint : endpoints) {
+            for (MetricTest<IN, OUT> test : tests) {
+                if (test.getMetric() instanceof IntroscopeMetric
+                        && ((IntroscopeMetric) test.getMetric()).getEnvironment() == null) {
+                    IN metric = (IN) ((IntroscopeMetric) test.getMetric()).withEnvironment(endpoint.getName());
+                    expanded.add(new MetricTest<>(metric, test.getLevel(), test.getValidations(), test.isCanary()));
+                } else {
+                    expanded.add(test);
+                }
+            }
+        }
+        return expanded;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * All hosts of one {@link IntroscopeEndpoint}, e.g. the MOM and the collectors of an Enterprise Manager cluster. The
+ * group tracks the latency of each host as exponentially weighted moving average and selects the fastest healthy host
+ * for each query. A host which failed is avoided for the configured cooldown.
+ *
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeEndpointGroup {
+
+    /**
+     * The {@link Host}s of this group in configuration order.
+     */
+    private final List<Host> hosts;
+
+    /**
+     * The weight of the latest latency, between 0 (exclusive) and 1.
+     */
+    private final double smoothing;
+
+    /**
+     * The time in nanoseconds an unhealthy host is avoided.
+     */
+    private final long cooldownNanos;
+
+    /**
+     * Creates a new IntroscopeEndpointGroup.
+     *
+     * @param pools
+     *         The {@link IntroscopeConnectionPool}s of all hosts, the primary host first
+     * @param smoothing
+     *         The weight of the latest latency, between 0 (exclusive) and 1
+     * @param cooldownSeconds
+     *         The time in seconds an unhealthy host is avoided
+     */
+    public IntroscopeEndpointGroup(final List<IntroscopeConnectionPool> pools,
+                                   final double smoothing,
+                                   final int cooldownSeconds) {
+        checkArgument(!pools.isEmpty(), "At least one host is required");
+        checkArgument(smoothing > 0 && smoothing <= 1, "The smoothing must be in (0, 1]");
+        List<Host> members = new ArrayList<>();
+        pools.forEach(pool -> members.add(new Host(pool)));
+        this.hosts = Collections.unmodifiableList(members);
+        this.smoothing = smoothing;
+        this.cooldownNanos = TimeUnit.SECONDS.toNanos(cooldownSeconds);
+    }
+
+    /**
+     * Selects the host for the next query. Healthy hosts are preferred by their latency, hosts without measured
+     * latency are tried first. If all hosts are unhealthy, the host which failed first is retried.
+     *
+     * @param excluded
+     *         Hosts which must not be selected, e.g. because they already failed for the current query
+     * @return The selected host or null if all hosts are excluded
+     */
+    public Host select(final Set<Host> excluded) {
+        long now = System.nanoTime();
+        Host fastest = null;
+        Host oldestFailure = null;
+        for (Host host : hosts) {
+            if (excluded.contains(host)) {
+                continue;
+            }
+            if (host.isHealthy(now)) {
+                if (fastest == null || host.latency < fastest.latency) {
+                    fastest = host;
+                }
+            } else if (oldestFailure == null || host.unhealthyUntil < oldestFailure.unhealthyUntil) {
+                oldestFailure = host;
+            }
+        }
+        return fastest != null ? fastest : oldestFailure;
+    }
+
+    /**
+     * @return All {@link Host}s of this group, the primary host first
+     */
+    public List<Host> getHosts() {
+        return hosts;
+    }
+
+    /**
+     * One host of the group.
+     */
+    public class Host {
+
+        /**
+         * The {@link IntroscopeConnectionPool} of the host.
+         */
+        private final IntroscopeConnectionPool pool;
+
+        /**
+         * The smoothed latency in nanoseconds, 0 if not measured yet.
+         */
+        private volatile double latency;
+
+        /**
+         * The {@link System#nanoTime()} until the host is avoided.
+         */
+        private volatile long unhealthyUntil;
+
+        /**
+         * Flag to indicate that the host failed and did not succeed since.
+         */
+        private volatile boolean failed;
+
+        /**
+         * Creates a new Host.
+         *
+         * @param pool
+         *         The {@link IntroscopeConnectionPool} of the host
+         */
+        private Host(final IntroscopeConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * Records a successful query.
+         *
+         * @param nanos
+         *         The latency of the query in nanoseconds
+         */
+        public void success(final long nanos) {
+            //Concurrent updates might lose a sample which is fine for a moving average
+            double current = latency;
+            latency = current == 0 ? nanos : smoothing * nanos + (1 - smoothing) * current;
+            failed = false;
+        }
+
+        /**
+         * Records a failed query. The host is avoided for the cooldown.
+         */
+        public void failure() {
+            unhealthyUntil = System.nanoTime() + cooldownNanos;
+            failed = true;
+        }
+
+        /**
+         * @param now
+         *         The current {@link System#nanoTime()}
+         * @return true if the host did not fail or the cooldown is over
+         */
+        private boolean isHealthy(final long now) {
+            return !failed || now - unhealthyUntil >= 0;
+        }
+
+        /**
+         * @return The smoothed latency in nanoseconds, 0 if not measured yet
+         */
+        public double getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return The {@link IntroscopeConnectionPool} of the host
+         */
+        public IntroscopeConnectionPool getPool() {
+            return pool;
+        }
+    }
+}
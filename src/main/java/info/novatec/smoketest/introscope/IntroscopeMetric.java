@@ -25,9 +25,15 @@
 package info.novatec.smoketest.introscope;
 
 
+import com.google.common.base.Objects;
 import com.google.common.base.Strings;
 import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.TimeWindow;
 
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -38,6 +44,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class IntroscopeMetric implements IMetricDefinition {
 
+    /**
+     * The Enterprise Manager stores metrics in slices of 15 seconds, so only multiples can be collected.
+     */
+    public static final int FREQUENCY_STEP = 15;
+
     /**
      * Regular expression describing the introscope agent name.
      */
@@ -53,6 +64,28 @@ public class IntroscopeMetric implements IMetricDefinition {
      */
     private final String metricExpression;
 
+    /**
+     * The name of the {@link IntroscopeEndpoint} to collect this metric from. Null means the default endpoint.
+     */
+    private final String environment;
+
+    /**
+     * Flag to indicate that this metric is only probed for presence. Probes are collected with progressively widening
+     * windows, starting with the most recent minutes.
+     */
+    private final boolean probe;
+
+    /**
+     * The window of this metric. Null means the global {@link info.novatec.smoketest.core.model.TimeRange} of the run.
+     */
+    private final TimeWindow window;
+
+    /**
+     * The length of the time slices in seconds. Each slice is collected as one row per metric, so trends within the
+     * window can be checked. 0 means one aggregate of the whole window.
+     */
+    private final int frequency;
+
     /**
      * The full qualified name of this metric. This name combines {@link #agentExpression}, {@link #resourceExpression},
      * and {@link #metricExpression}.
@@ -72,13 +105,147 @@ public class IntroscopeMetric implements IMetricDefinition {
     public IntroscopeMetric(final String agentExpression,
                             final String resourceExpression,
                             final String metricExpression) {
+        this(agentExpression, resourceExpression, metricExpression, null);
+    }
+
+    /**
+     * Creates a new IntroscopeMetric.
+     *
+     * @param agentExpression
+     *         The agent expression. Must not be null or empty.
+     * @param resourceExpression
+     *         The resource expression. Null or empty is a valid value.
+     * @param metricExpression
+     *         The metric expression. Must not be null or empty.
+     * @param environment
+     *         The name of the {@link IntroscopeEndpoint}. Null means the default endpoint.
+     */
+    public IntroscopeMetric(final String agentExpression,
+                            final String resourceExpression,
+                            final String metricExpression,
+                            final String environment) {
+        this(agentExpression, resourceExpression, metricExpression, environment, false);
+    }
+
+    /**
+     * Creates a new IntroscopeMetric.
+     *
+     * @param agentExpression
+     *         The agent expression. Must not be null or empty.
+     * @param resourceExpression
+     *         The resource expression. Null or empty is a valid value.
+     * @param metricExpression
+     *         The metric expression. Must not be null or empty.
+     * @param environment
+     *         The name of the {@link IntroscopeEndpoint}. Null means the default endpoint.
+     * @param probe
+     *         true if the metric is only probed for presence
+     */
+    public IntroscopeMetric(final String agentExpression,
+                            final String resourceExpression,
+                            final String metricExpression,
+                            final String environment,
+                            final boolean probe) {
+        this(agentExpression, resourceExpression, metricExpression, environment, probe, null);
+    }
+
+    /**
+     * Creates a new IntroscopeMetric.
+     *
+     * @param agentExpression
+     *         The agent expression. Must not be null or empty.
+     * @param resourceExpression
+     *         The resource expression. Null or empty is a valid value.
+     * @param metricExpression
+     *         The metric expression. Must not be null or empty.
+     * @param environment
+     *         The name of the {@link IntroscopeEndpoint}. Null means the default endpoint.
+     * @param probe
+     *         true if the metric is only probed for presence
+     * @param window
+     *         The {@link TimeWindow}. Null means the global TimeRange of the run.
+     */
+    public IntroscopeMetric(final String agentExpression,
+                            final String resourceExpression,
+                            final String metricExpression,
+                            final String environment,
+                            final boolean probe,
+                            final TimeWindow window) {
+        this(agentExpression, resourceExpression, metricExpression, environment, probe, window, 0);
+    }
+
+    /**
+     * Creates a new IntroscopeMetric.
+     *
+     * @param agentExpression
+     *         The agent expression. Must not be null or empty.
+     * @param resourceExpression
+     *         The resource expression. Null or empty is a valid value.
+     * @param metricExpression
+     *         The metric expression. Must not be null or empty.
+     * @param environment
+     *         The name of the {@link IntroscopeEndpoint}. Null means the default endpoint.
+     * @param probe
+     *         true if the metric is only probed for presence
+     * @param window
+     *         The {@link TimeWindow}. Null means the global TimeRange of the run.
+     * @param frequency
+     *         The length of the time slices in seconds, a multiple of 15. 0 means one aggregate of the whole window.
+     */
+    public IntroscopeMetric(final String agentExpression,
+                            final String resourceExpression,
+                            final String metricExpression,
+                            final String environment,
+                            final boolean probe,
+                            final TimeWindow window,
+                            final int frequency) {
+        checkArgument(frequency >= 0 && frequency % FREQUENCY_STEP == 0,
+                "The frequency must be a multiple of %s seconds", FREQUENCY_STEP);
         this.agentExpression = checkNotNull(Strings.emptyToNull(agentExpression),
                 "The agent expression must not be null or empty");
         this.metricExpression = checkNotNull(Strings.emptyToNull(metricExpression),
                 "The metric expression must not be null or empty");
         this.resourceExpression = resourceExpression;
-        this.fullQualifiedName = IntroscopeUtils.generateFullQualifiedName(agentExpression, resourceExpression,
+        this.environment = environment;
+        this.probe = probe;
+        this.window = window;
+        this.frequency = frequency;
+        String name = IntroscopeUtils.generateFullQualifiedName(agentExpression, resourceExpression,
                 metricExpression);
+        //Tag the name to distinguish the same metric of several Enterprise Managers in the report
+        name = environment != null ? "[" + environment + "] " + name : name;
+        //Also tag the window, the same metric might be tested with several windows
+        name = window != null ? name + " (" + window + ")" : name;
+        //Time slices are different rows than the aggregate of the same window
+        this.fullQualifiedName = frequency > 0 ? name + " every " + frequency + "s" : name;
+    }
+
+    /**
+     * Creates a copy of this metric which is collected from the given endpoint.
+     *
+     * @param environment
+     *         The name of the {@link IntroscopeEndpoint}
+     * @return The copy
+     */
+    public IntroscopeMetric withEnvironment(final String environment) {
+        return new IntroscopeMetric(agentExpression, resourceExpression, metricExpression, environment, probe,
+                window, frequency);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IntroscopeMetric that = (IntroscopeMetric) o;
+        return probe == that.probe &&
+                Objects.equal(fullQualifiedName, that.fullQualifiedName) &&
+                Objects.equal(environment, that.environment) &&
+                Objects.equal(window, that.window);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(fullQualifiedName, environment, window, probe);
     }
 
     //-------------------------------------------------------------
@@ -95,6 +262,18 @@ public class IntroscopeMetric implements IMetricDefinition {
         return fullQualifiedName;
     }
 
+    /**
+     * The scopes of an Introscope metric are the Enterprise Manager and the agent expression within this Enterprise
+     * Manager.
+     *
+     * @return The environment scope followed by the agent scope
+     */
+    @Override
+    public List<String> getScopes() {
+        String endpoint = Strings.isNullOrEmpty(environment) ? IntroscopeEndpoint.DEFAULT : environment;
+        return Arrays.asList(endpoint, endpoint + IntroscopeUtils.ESCAPED_PATH_DELIMITER + agentExpression);
+    }
+
     //-------------------------------------------------------------
     // Accessors
     //-------------------------------------------------------------
@@ -125,4 +304,43 @@ public class IntroscopeMetric implements IMetricDefinition {
     public String getMetricExpression() {
         return metricExpression;
     }
+
+    /**
+     * Gets {@link #environment}.
+     *
+     * @return {@link #environment}
+     */
+    public String getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Gets {@link #probe}.
+     *
+     * @return {@link #probe}
+     */
+    public boolean isProbe() {
+        return probe;
+    }
+
+    @Override
+    public TimeWindow getWindow() {
+        return window;
+    }
+
+    /**
+     * Gets {@link #frequency}.
+     *
+     * @return {@link #frequency}
+     */
+    public int getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * @return true if this metric is collected in time slices
+     */
+    public boolean isTimeSliced() {
+        return frequency > 0;
+    }
 }
@@ -28,6 +28,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Sets;
 import info.novatec.smoketest.core.model.MetricTest;
 import info.novatec.smoketest.core.model.TestLevel;
+import info.novatec.smoketest.core.model.TimeWindow;
 import info.novatec.smoketest.core.model.validation.IValidationRule;
 
 import java.util.ArrayList;
@@ -213,6 +214,26 @@ public class IntroscopeMetricTestBuilder {
          */
         private TestLevel level = TestLevel.LEVEL_0;
 
+        /**
+         * Flag to indicate that the metrics are only probed for presence.
+         */
+        private boolean probe;
+
+        /**
+         * Flag to indicate that the tests are canaries.
+         */
+        private boolean canary;
+
+        /**
+         * The window of the metrics, null means the global TimeRange of the run.
+         */
+        private TimeWindow window;
+
+        /**
+         * The length of the time slices in seconds, 0 means one aggregate of the whole window.
+         */
+        private int frequency;
+
         /**
          * List of all {@link IValidationRule}s to validate this MetricTest.
          */
@@ -258,6 +279,24 @@ public class IntroscopeMetricTestBuilder {
             return this;
         }
 
+        /**
+         * Attaches several metrics to all resource expressions. The metrics of one resource expression form a composite
+         * test: they are collected by one joint query and validated together, e.g. with {@link
+         * IntroscopeValidationRules#ratioAtMost(String, String, double)}. Each result of the joint query keeps its own
+         * agent, resource and metric name, so the rules can align the values of the metrics.
+         *
+         * @param metricNames
+         *         The plain metric names, they are escaped
+         * @return The Builder itself
+         * @see IntroscopeUtils#anyOf(java.util.Collection)
+         */
+        public Builder metrics(String... metricNames) {
+            checkArgument(metricNames.length > 0, "At least one metric is required");
+            return metric(metricNames.length == 1
+                    ? IntroscopeUtils.escape(metricNames[0])
+                    : IntroscopeUtils.anyOf(Arrays.asList(metricNames)));
+        }
+
         /**
          * Define the level of this MetricTest.
          *
@@ -271,6 +310,60 @@ public class IntroscopeMetricTestBuilder {
             return this;
         }
 
+        /**
+         * Marks the metrics as presence probes. Probes are collected with progressively widening windows and are
+         * intended for validations like {@link info.novatec.smoketest.core.model.validation.ValidationRules#notEmpty()}.
+         *
+         * @return The Builder itself
+         * @see IntroscopeConfiguration#getProbeWindows()
+         */
+        public Builder probe() {
+            this.probe = true;
+            return this;
+        }
+
+        /**
+         * Defines an own window for the metrics instead of the global TimeRange of the run, e.g. <code>
+         * window(TimeWindow.relative(Duration.ofMinutes(15)))</code>.
+         *
+         * @param window
+         *         The {@link TimeWindow}
+         * @return The Builder itself
+         */
+        public Builder window(TimeWindow window) {
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Collects the metrics in time slices instead of one aggregate of the whole window. Each slice is one result
+         * with its timestamp, as required by trend validations like {@link
+         * info.novatec.smoketest.core.model.validation.ValidationRules#monotonic(boolean)} or {@link
+         * info.novatec.smoketest.core.model.validation.ValidationRules#slopeAtMost(double)}.
+         *
+         * @param frequency
+         *         The length of the time slices in seconds, a multiple of 15
+         * @return The Builder itself
+         */
+        public Builder timeSliced(int frequency) {
+            checkArgument(frequency > 0, "The frequency must be positive");
+            this.frequency = frequency;
+            return this;
+        }
+
+        /**
+         * Marks the tests as canaries, e.g. a basic "agent alive" metric. Canaries are executed first and if they fail,
+         * all other tests of the same agent expression are blocked. If the Enterprise Manager is not reachable at all,
+         * all tests of the Enterprise Manager are blocked.
+         *
+         * @return The Builder itself
+         * @see MetricTest#isCanary()
+         */
+        public Builder canary() {
+            this.canary = true;
+            return this;
+        }
+
         /**
          * Defines the unlimited list of {@link IValidationRule}s to which are used to validate the results. This method
          * finished the building process and returns the IntroscopeTestBuilder
@@ -323,8 +416,9 @@ public class IntroscopeMetricTestBuilder {
                 if (!Strings.isNullOrEmpty(root)) {
                     resourceExpression = root + resourceExpression;
                 }
-                IntroscopeMetric definition = new IntroscopeMetric(agent, resourceExpression, metricExpression);
-                definitions.add(new MetricTest<>(definition, level, Arrays.asList(validations)));
+                IntroscopeMetric definition = new IntroscopeMetric(agent, resourceExpression, metricExpression, null,
+                        probe, window, frequency);
+                definitions.add(new MetricTest<>(definition, level, Arrays.asList(validations), canary));
             }
             return definitions;
         }
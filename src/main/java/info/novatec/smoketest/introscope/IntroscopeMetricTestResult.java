@@ -26,19 +26,17 @@ package info.novatec.smoketest.introscope;
 
 import com.google.common.base.Objects;
 import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
 
 /**
- * Introscope implementation of {@link IMetricTestResult}.
+ * Introscope implementation of {@link IMetricTestResult}. A result represents one row returned by the Enterprise
+ * Manager. The executed query is kept only once by the owning {@link MetricTestResultSet} and the names are shared
+ * through the {@link IntroscopeNamePool}.
  *
  * @author Claudio Waldvogel (claudio.waldvogel@novatec-gmbh.de)
  */
 public class IntroscopeMetricTestResult implements IMetricTestResult {
 
-    /**
-     * The initial executed collect.
-     */
-    private String query;
-
     /**
      * The name of the agent which returned the result.
      */
@@ -60,26 +58,24 @@ public class IntroscopeMetricTestResult implements IMetricTestResult {
     private String value;
 
     /**
-     * No-Args Constructor.
+     * The start of the time slice in milliseconds, 0 if the value aggregates the whole window.
      */
-    public IntroscopeMetricTestResult() {
-    }
+    private long timestamp;
 
     /**
-     * Create a new IntroscopeMetricTestResult.
-     *
-     * @param query
-     *         The collect which produced this result
+     * The cached hash code, 0 if not yet calculated.
      */
-    public IntroscopeMetricTestResult(String query) {
-        this.query = query;
+    private transient int hash;
+
+    /**
+     * No-Args Constructor.
+     */
+    public IntroscopeMetricTestResult() {
     }
 
     /**
      * Creates a new IntroscopeMetricTestResult.
      *
-     * @param query
-     *         The related collect string
      * @param agentName
      *         The name of the agent
      * @param resource
@@ -89,18 +85,39 @@ public class IntroscopeMetricTestResult implements IMetricTestResult {
      * @param value
      *         The value of the metric
      */
-    public IntroscopeMetricTestResult(String query,
-                                      String agentName,
+    public IntroscopeMetricTestResult(String agentName,
                                       String resource,
                                       String metricName,
                                       String value) {
-        this.query = query;
         this.agentName = agentName;
         this.resource = resource;
         this.metricName = metricName;
         this.value = value;
     }
 
+    /**
+     * Creates a new IntroscopeMetricTestResult of one time slice.
+     *
+     * @param agentName
+     *         The name of the agent
+     * @param resource
+     *         The resource path
+     * @param metricName
+     *         The metric name
+     * @param value
+     *         The value of the metric
+     * @param timestamp
+     *         The start of the time slice in milliseconds
+     */
+    public IntroscopeMetricTestResult(String agentName,
+                                      String resource,
+                                      String metricName,
+                                      String value,
+                                      long timestamp) {
+        this(agentName, resource, metricName, value);
+        this.timestamp = timestamp;
+    }
+
     @Override
     public String getFullQualifiedMetricName() {
         return IntroscopeUtils.generateFullQualifiedName(agentName, resource, metricName);
@@ -111,41 +128,30 @@ public class IntroscopeMetricTestResult implements IMetricTestResult {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         IntroscopeMetricTestResult that = (IntroscopeMetricTestResult) o;
-        return Objects.equal(getQuery(), that.getQuery()) &&
+        //Pooled names are mostly identical, thus Objects.equal usually returns on the reference check
+        return hashCode() == that.hashCode() &&
                 Objects.equal(getAgentName(), that.getAgentName()) &&
                 Objects.equal(getResource(), that.getResource()) &&
                 Objects.equal(getMetric(), that.getMetric()) &&
-                Objects.equal(getValue(), that.getValue());
+                Objects.equal(getValue(), that.getValue()) &&
+                getTimestamp() == that.getTimestamp();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(getQuery(), getAgentName(), getResource(), getMetric(), getValue());
+        int result = hash;
+        if (result == 0) {
+            //String caches its hash, so only the combination is calculated once per row
+            result = Objects.hashCode(getAgentName(), getResource(), getMetric(), getValue(), getTimestamp());
+            hash = result;
+        }
+        return result;
     }
 
     //-------------------------------------------------------------
     // Get/ Set
     //-------------------------------------------------------------
 
-    /**
-     * Gets {@link #query}.
-     *
-     * @return {@link #query}
-     */
-    public String getQuery() {
-        return query;
-    }
-
-    /**
-     * Sets {@link #query}.
-     *
-     * @param query
-     *         New value for {@link #query}
-     */
-    public void setQuery(String query) {
-        this.query = query;
-    }
-
     /**
      * Gets {@link #agentName}.
      *
@@ -163,6 +169,7 @@ public class IntroscopeMetricTestResult implements IMetricTestResult {
      */
     public void setAgentName(String agentName) {
         this.agentName = agentName;
+        this.hash = 0;
     }
 
     /**
@@ -182,6 +189,7 @@ public class IntroscopeMetricTestResult implements IMetricTestResult {
      */
     public void setResource(String resource) {
         this.resource = resource;
+        this.hash = 0;
     }
 
     /**
@@ -201,6 +209,37 @@ public class IntroscopeMetricTestResult implements IMetricTestResult {
      */
     public void setMetricName(String metricName) {
         this.metricName = metricName;
+        this.hash = 0;
+    }
+
+    /**
+     * Gets {@link #timestamp}.
+     *
+     * @return {@link #timestamp}
+     */
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Sets {@link #timestamp}.
+     *
+     * @param timestamp
+     *         New value for {@link #timestamp}
+     */
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+        this.hash = 0;
+    }
+
+    /**
+     * Estimates the heap size of this result by its character data. Each character is counted with two bytes.
+     *
+     * @return The estimated size in bytes
+     */
+    public long estimateSize() {
+        return 2L * (length(agentName) + length(resource) + length(metricName) + length(value));
     }
 
     /**
@@ -221,5 +260,15 @@ public class IntroscopeMetricTestResult implements IMetricTestResult {
      */
     public void setValue(String value) {
         this.value = value;
+        this.hash = 0;
+    }
+
+    /**
+     * @param value
+     *         A string, might be null
+     * @return The length of the string or 0 if null
+     */
+    private static int length(final String value) {
+        return value != null ? value.length() : 0;
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope;
+
+import info.novatec.smoketest.core.model.storage.IResultCodec;
+
+import javax.inject.Inject;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link IResultCodec} for {@link IntroscopeMetricTestResult}s. Each name and the value is stored as length prefixed
+ * UTF-8 string, a length of -1 marks null. The timestamp follows as long. Decoded names are taken from the {@link
+ * IntroscopeNamePool}.
+ *
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeMetricTestResultCodec implements IResultCodec<IntroscopeMetricTestResult> {
+
+    /**
+     * The {@link IntroscopeNamePool}.
+     */
+    private IntroscopeNamePool namePool;
+
+    /**
+     * Creates a new IntroscopeMetricTestResultCodec.
+     *
+     * @param namePool
+     *         The {@link IntroscopeNamePool}
+     */
+    @Inject
+    public IntroscopeMetricTestResultCodec(final IntroscopeNamePool namePool) {
+        this.namePool = checkNotNull(namePool);
+    }
+
+    @Override
+    public byte[] encode(final IntroscopeMetricTestResult result) {
+        byte[] agentName = bytes(result.getAgentName());
+        byte[] resource = bytes(result.getResource());
+        byte[] metric = bytes(result.getMetric());
+        byte[] value = bytes(result.getValue());
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Integer.BYTES + length(agentName) + length(resource)
+                + length(metric) + length(value) + Long.BYTES);
+        put(buffer, agentName);
+        put(buffer, resource);
+        put(buffer, metric);
+        put(buffer, value);
+        buffer.putLong(result.getTimestamp());
+        return buffer.array();
+    }
+
+    @Override
+    public IntroscopeMetricTestResult decode(final ByteBuffer buffer) {
+        return new IntroscopeMetricTestResult(
+                namePool.intern(get(buffer)),
+                namePool.intern(get(buffer)),
+                namePool.intern(get(buffer)),
+                get(buffer),
+                buffer.getLong());
+    }
+
+    /**
+     * @param value
+     *         A string, might be null
+     * @return The UTF-8 bytes or null
+     */
+    private static byte[] bytes(final String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * @param bytes
+     *         Bytes, might be null
+     * @return The length or 0 for null
+     */
+    private static int length(final byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    /**
+     * Writes length and bytes to a buffer.
+     *
+     * @param buffer
+     *         The target buffer
+     * @param bytes
+     *         The bytes, might be null
+     */
+    private static void put(final ByteBuffer buffer,
+                            final byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #put(ByteBuffer, byte[])}.
+     *
+     * @param buffer
+     *         The source buffer
+     * @return The string, might be null
+     */
+    private static String get(final ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
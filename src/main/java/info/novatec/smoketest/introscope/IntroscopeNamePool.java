@@ -0,0 +1,57 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import javax.inject.Singleton;
+
+/**
+ * Run-scoped pool of agent, resource and metric names. The same names are returned by the Enterprise Manager for
+ * thousands of rows, thus all {@link IntroscopeMetricTestResult}s of one smoke test run share a single instance of
+ * each name. Since the pool is bound to the injector, all names are released together with it.
+ *
+ * @author Claudio Waldvogel
+ */
+@Singleton
+public class IntroscopeNamePool {
+
+    /**
+     * The interner holding the canonical instances.
+     */
+    private final Interner<String> interner = Interners.newStrongInterner();
+
+    /**
+     * Gets the canonical instance of a name.
+     *
+     * @param name
+     *         The name, might be null
+     * @return The pooled name or null if the name was null
+     */
+    public String intern(final String name) {
+        return name != null ? interner.intern(name) : null;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.introscope;
+
+/**
+ * One aggregation tier of the SmartStor, the metric store of the Introscope Enterprise Manager. The EM keeps the data
+ * of each tier for {@link #age} days with a resolution of {@link #frequency} seconds before it is aggregated into the
+ * next tier. The tiers must match the <code>introscope.enterprisemanager.smartstor.tier*</code> properties of the EM.
+ *
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeSmartStorTier {
+
+    /**
+     * The resolution of the tier in seconds.
+     */
+    private int frequency;
+
+    /**
+     * The count of days the data is kept in this tier.
+     */
+    private int age;
+
+    /**
+     * No-Args Constructor.
+     */
+    public IntroscopeSmartStorTier() {
+    }
+
+    /**
+     * Creates a new IntroscopeSmartStorTier.
+     *
+     * @param frequency
+     *         The resolution in seconds
+     * @param age
+     *         The count of days
+     */
+    public IntroscopeSmartStorTier(final int frequency,
+                                   final int age) {
+        this.frequency = frequency;
+        this.age = age;
+    }
+
+    /**
+     * Gets {@link #frequency}.
+     *
+     * @return {@link #frequency}
+     */
+    public int getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Sets {@link #frequency}.
+     *
+     * @param frequency
+     *         New value for {@link #frequency}
+     */
+    public void setFrequency(int frequency) {
+        this.frequency = frequency;
+    }
+
+    /**
+     * Gets {@link #age}.
+     *
+     * @return {@link #age}
+     */
+    public int getAge() {
+        return age;
+    }
+
+    /**
+     * Sets {@link #age}.
+     *
+     * @param age
+     *         New value for {@link #age}
+     */
+    public void setAge(int age) {
+        this.age = age;
+    }
+}
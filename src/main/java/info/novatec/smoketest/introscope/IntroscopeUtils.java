@@ -27,6 +27,9 @@ package info.novatec.smoketest.introscope;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 
+import java.util.Collection;
+import java.util.stream.Collectors;
+
 /**
  * @author Claudio Waldvogel
  */
@@ -43,6 +46,11 @@ public final class IntroscopeUtils {
      */
     public static final String ESCAPED_PATH_DELIMITER = "\\|";
 
+    /**
+     * All characters which must be escaped to be matched literally.
+     */
+    private static final String REGEX_META_CHARACTERS = "\\|()[]{}.*+?^$";
+
     /**
      * Combines resource expression and metric expression to a full qualified metric path, for example
      * <code>/path/subPath:Metric</code>.
@@ -97,4 +105,69 @@ public final class IntroscopeUtils {
         return agentExpression + ESCAPED_PATH_DELIMITER + metricPath;
     }
 
+    /**
+     * Escapes all characters of a plain agent, resource or metric name which have a special meaning in Introscope
+     * regular expressions, e.g. <code>Host|Process|Agent</code> becomes <code>Host\|Process\|Agent</code>.
+     *
+     * @param name
+     *         The plain name
+     * @return The escaped name which only matches itself
+     */
+    public static String escape(final String name) {
+        if (Strings.isNullOrEmpty(name)) {
+            return name;
+        }
+        StringBuilder builder = new StringBuilder(name.length() + 8);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (REGEX_META_CHARACTERS.indexOf(c) >= 0) {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Reverts {@link #escape(String)}, e.g. <code>Host\|Process\|Agent</code> becomes
+     * <code>Host|Process|Agent</code>.
+     *
+     * @param expression
+     *         The expression
+     * @return The plain name matched by the expression or null if the expression contains an unescaped regular
+     * expression character and thus might match several names
+     */
+    public static String unescape(final String expression) {
+        if (Strings.isNullOrEmpty(expression)) {
+            return expression;
+        }
+        StringBuilder builder = new StringBuilder(expression.length());
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '\\') {
+                if (++i == expression.length() || REGEX_META_CHARACTERS.indexOf(expression.charAt(i)) < 0) {
+                    return null;
+                }
+                c = expression.charAt(i);
+            } else if (REGEX_META_CHARACTERS.indexOf(c) >= 0) {
+                return null;
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Creates an expression which matches exactly the given plain names, e.g. <code>(Agent1|Host\|Agent2)</code>.
+     *
+     * @param names
+     *         The plain names
+     * @return The expression matching all names
+     */
+    public static String anyOf(final Collection<String> names) {
+        return names.stream()
+                .map(IntroscopeUtils::escape)
+                .collect(Collectors.joining("|", "(", ")"));
+    }
+
 }
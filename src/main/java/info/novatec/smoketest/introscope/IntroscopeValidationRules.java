@@ -0,0 +1,228 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.introscope;
+
+import info.novatec.smoketest.core.model.validation.AssociativeRule;
+import info.novatec.smoketest.core.model.validation.IValidationRule;
+import info.novatec.smoketest.core.model.validation.ValidationResult;
+import info.novatec.smoketest.core.util.NumberParser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Utility class to provide {@link IValidationRule}s which need the agent and resource of Introscope results.
+ * <p>
+ * Ratio rules validate two metrics against each other, e.g. the error rate of an application. Both metrics are
+ * collected by one joint query of a composite test, see {@link IntroscopeMetricTestBuilder.Builder#metrics(String...)}:
+ * <pre>
+ * {@code
+ *  new IntroscopeMetricTestBuilder()
+ *          .entry("Frontends|Apps").resource(".*")
+ *          .metrics("Errors Per Interval", "Responses Per Interval")
+ *          .validation(IntroscopeValidationRules.ratioAtMost("Errors Per Interval", "Responses Per Interval", 0.01))
+ *          .build(".*");
+ * }
+ * </pre>
+ *
+ * @author Claudio Waldvogel
+ */
+public final class IntroscopeValidationRules {
+
+    /**
+     * Must not be instantiated.
+     */
+    private IntroscopeValidationRules() {
+    }
+
+    /**
+     * Checks the ratio of two metrics for each agent and resource, e.g. that less than 1% of the responses are errors.
+     * All values of a metric in the same agent and resource are summed up before the ratio is computed, so the ratio
+     * covers the whole time range. A missing metric counts as 0 and agents and resources without any value of both
+     * metrics are ignored.
+     *
+     * @param numerator
+     *         The plain name of the numerator metric, e.g. "Errors Per Interval"
+     * @param denominator
+     *         The plain name of the denominator metric, e.g. "Responses Per Interval"
+     * @param maxRatio
+     *         The maximum ratio, inclusive
+     * @return A valid {@link ValidationResult} if all values are numbers and no ratio exceeds the maximum, else
+     * invalid.
+     */
+    public static IValidationRule<IntroscopeMetric, IntroscopeMetricTestResult> ratioAtMost(final String numerator,
+                                                                                         final String denominator,
+                                                                                         final double maxRatio) {
+        return ratio(numerator, denominator, true, maxRatio);
+    }
+
+    /**
+     * Checks the ratio of two metrics for each agent and resource, e.g. that at least 90% of the cache requests are
+     * hits. The ratio is computed like in {@link #ratioAtMost(String, String, double)}.
+     *
+     * @param numerator
+     *         The plain name of the numerator metric
+     * @param denominator
+     *         The plain name of the denominator metric
+     * @param minRatio
+     *         The minimum ratio, inclusive
+     * @return A valid {@link ValidationResult} if all values are numbers and no ratio is below the minimum, else
+     * invalid.
+     */
+    public static IValidationRule<IntroscopeMetric, IntroscopeMetricTestResult> ratioAtLeast(final String numerator,
+                                                                                          final String denominator,
+                                                                                          final double minRatio) {
+        return ratio(numerator, denominator, false, minRatio);
+    }
+
+    /**
+     * Creates a ratio rule. The rule is associative, so it is fused with other rules and evaluated in parallel for
+     * large result sets.
+     *
+     * @param numerator
+     *         The plain name of the numerator metric
+     * @param denominator
+     *         The plain name of the denominator metric
+     * @param upper
+     *         true if the bound is an upper bound
+     * @param bound
+     *         The bound, inclusive
+     * @return The rule
+     */
+    private static IValidationRule<IntroscopeMetric, IntroscopeMetricTestResult> ratio(final String numerator,
+                                                                                    final String denominator,
+                                                                                    final boolean upper,
+                                                                                    final double bound) {
+        checkNotNull(numerator, "The numerator must not be null");
+        checkNotNull(denominator, "The denominator must not be null");
+        return AssociativeRule.<IntroscopeMetric, IntroscopeMetricTestResult, Ratios>of(Ratios::new,
+                (ratios, result) -> ratios.add(result, numerator, denominator),
+                Ratios::combine,
+                ratios -> ratios.invalid != null,
+                (resultSet, ratios) -> {
+                    if (ratios.invalid != null) {
+                        return ValidationResult.invalid("Not a number: " + ratios.invalid);
+                    }
+                    if (ratios.groups.isEmpty()) {
+                        return ValidationResult.invalid("No results!");
+                    }
+                    //Report the worst ratio to get a deterministic message
+                    String worstGroup = null;
+                    double worst = upper ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+                    for (Map.Entry<String, Map<String, double[]>> agent : ratios.groups.entrySet()) {
+                        for (Map.Entry<String, double[]> resource : agent.getValue().entrySet()) {
+                            double[] sums = resource.getValue();
+                            double ratio = sums[0] / sums[1];
+                            if (Double.isNaN(ratio)) {
+                                continue;
+                            }
+                            if (upper ? ratio > worst : ratio < worst) {
+                                worst = ratio;
+                                worstGroup = agent.getKey() + "|" + resource.getKey();
+                            }
+                        }
+                    }
+                    if (worstGroup == null || (upper ? worst <= bound : worst >= bound)) {
+                        return ValidationResult.valid();
+                    }
+                    return ValidationResult.invalid(String.format("Ratio %s/%s of %s is %s %s %s", numerator,
+                            denominator, worstGroup, worst, upper ? "above" : "below", bound));
+                });
+    }
+
+    /**
+     * Container summing up the numerator and denominator of each agent and resource.
+     */
+    private static final class Ratios {
+
+        /**
+         * The sums of numerator and denominator per resource per agent.
+         */
+        private final Map<String, Map<String, double[]>> groups = new HashMap<>();
+
+        /**
+         * The first value which is not a number, null if all values are numbers.
+         */
+        private String invalid;
+
+        /**
+         * Adds one result. Results of other metrics are ignored.
+         *
+         * @param result
+         *         The result
+         * @param numerator
+         *         The name of the numerator metric
+         * @param denominator
+         *         The name of the denominator metric
+         */
+        private void add(final IntroscopeMetricTestResult result,
+                         final String numerator,
+                         final String denominator) {
+            int index = numerator.equals(result.getMetric()) ? 0 : denominator.equals(result.getMetric()) ? 1 : -1;
+            if (index < 0) {
+                return;
+            }
+            double value = NumberParser.parseDouble(result.getValue());
+            if (Double.isNaN(value)) {
+                if (invalid == null) {
+                    invalid = String.valueOf(result.getValue());
+                }
+                return;
+            }
+            sums(result.getAgentName(), result.getResource())[index] += value;
+        }
+
+        /**
+         * Merges the sums of the following results.
+         *
+         * @param other
+         *         The sums of the following results
+         */
+        private void combine(final Ratios other) {
+            if (invalid == null) {
+                invalid = other.invalid;
+            }
+            for (Map.Entry<String, Map<String, double[]>> agent : other.groups.entrySet()) {
+                for (Map.Entry<String, double[]> resource : agent.getValue().entrySet()) {
+                    double[] sums = sums(agent.getKey(), resource.getKey());
+                    sums[0] += resource.getValue()[0];
+                    sums[1] += resource.getValue()[1];
+                }
+            }
+        }
+
+        /**
+         * @return The sums of an agent and resource, created if missing
+         */
+        private double[] sums(final String agent,
+                              final String resource) {
+            return groups.computeIfAbsent(agent, key -> new HashMap<>())
+                    .computeIfAbsent(resource, key -> new double[2]);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.introscope;
+
+import info.novatec.smoketest.core.model.TimeRange;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Aligns windows to the reporting periods of the SmartStor tiers. Unaligned windows force the Enterprise Manager to
+ * read partial periods and the same window is never requested twice. An aligned window starts and ends at a period
+ * boundary of the coarsest tier which does not cut off more than {@link IntroscopeConfiguration#getAlignmentTolerance()}
+ * of the window. Since data older than the age of a tier is only available in the next tier, the window is aligned to
+ * at least the resolution of the tier holding its start.
+ *
+ * @author Claudio Waldvogel
+ * @see IntroscopeSmartStorTier
+ */
+@Singleton
+public class IntroscopeWindowAligner {
+
+    /**
+     * The {@link IntroscopeConfiguration}.
+     */
+    private IntroscopeConfiguration configuration;
+
+    /**
+     * Creates a new IntroscopeWindowAligner.
+     *
+     * @param configuration
+     *         The {@link IntroscopeConfiguration}
+     */
+    @Inject
+    public IntroscopeWindowAligner(final IntroscopeConfiguration configuration) {
+        this.configuration = checkNotNull(configuration);
+    }
+
+    /**
+     * Aligns a window relative to the current time.
+     *
+     * @param range
+     *         The window
+     * @return The aligned window or the window itself if it can not be aligned
+     */
+    public TimeRange align(final TimeRange range) {
+        return align(range, ZonedDateTime.now(range.getTo().getZone()));
+    }
+
+    /**
+     * Aligns a window.
+     *
+     * @param range
+     *         The window
+     * @param now
+     *         The current time to determine the tier holding the window
+     * @return The aligned window or the window itself if it can not be aligned
+     */
+    TimeRange align(final TimeRange range,
+                    final ZonedDateTime now) {
+        List<IntroscopeSmartStorTier> tiers = configuration.getSmartStorTiers();
+        if (configuration.getAlignmentTolerance() <= 0 || tiers == null || tiers.isEmpty()) {
+            return range;
+        }
+        long tolerance = (long) (Duration.between(range.getFrom(), range.getTo()).getSeconds()
+                * configuration.getAlignmentTolerance());
+        long age = Duration.between(range.getFrom(), now).getSeconds();
+
+        long period = 0;
+        long tierEnd = 0;
+        boolean holdsStart = false;
+        for (IntroscopeSmartStorTier tier : tiers) {
+            //The coarsest tier within the tolerance
+            if (tier.getFrequency() <= tolerance) {
+                period = tier.getFrequency();
+            }
+            //Finer resolutions than the one of the tier holding the start do not exist
+            if (!holdsStart) {
+                tierEnd += TimeUnit.DAYS.toSeconds(tier.getAge());
+                holdsStart = age <= tierEnd;
+                period = Math.max(period, tier.getFrequency());
+            }
+        }
+        if (period <= 0) {
+            return range;
+        }
+        long from = Math.floorDiv(range.getFrom().toEpochSecond(), period) * period;
+        long to = Math.floorDiv(range.getTo().toEpochSecond(), period) * period;
+        if (from >= to) {
+            return range;
+        }
+        return new TimeRange(ZonedDateTime.ofInstant(Instant.ofEpochSecond(from), range.getFrom().getZone()),
+                ZonedDateTime.ofInstant(Instant.ofEpochSecond(to), range.getTo().getZone()));
+    }
+}
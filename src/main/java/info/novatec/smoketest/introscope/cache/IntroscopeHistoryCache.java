@@ -0,0 +1,548 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope.cache;
+
+import com.google.common.base.Strings;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.model.TimeRange;
+import info.novatec.smoketest.introscope.IntroscopeConfiguration;
+import info.novatec.smoketest.introscope.IntroscopeMetric;
+import info.novatec.smoketest.introscope.IntroscopeMetricTestResult;
+import info.novatec.smoketest.introscope.IntroscopeMetricTestResultCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p> Persistent cache of the results of windows which lie entirely in the past. The Enterprise Manager does not change
+ * data older than {@link IntroscopeConfiguration#getHistoryCacheDelay()}, so such results can be reused by all later
+ * runs, e.g. by checks which compare against the same day of the last week. </p>
+ * <p> The results are appended to a segment file ({@link IntroscopeConfiguration#getHistoryCacheFile()}), the index of
+ * all records is kept in memory and stored next to it on shutdown. The size of all live records is bounded by {@link
+ * IntroscopeConfiguration#getHistoryCacheMaxBytes()}, the least recently used records are evicted first. Evicted
+ * records stay in the segment until it grows beyond twice the bound and is compacted. </p>
+ * <p> Since each record repeats its key, an outdated index, e.g. after a crash, only causes cache misses. </p>
+ *
+ * @author Claudio Waldvogel
+ * @see IntroscopeHistoryInterceptor
+ */
+@Singleton
+public class IntroscopeHistoryCache {
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntroscopeHistoryCache.class);
+
+    /**
+     * Marker at the beginning of the segment and the index file.
+     */
+    private static final int MAGIC = 0x534D4843;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The size of the segment header.
+     */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * The suffix of the index file.
+     */
+    private static final String INDEX_SUFFIX = ".idx";
+
+    /**
+     * The {@link IntroscopeConfiguration}.
+     */
+    private IntroscopeConfiguration configuration;
+
+    /**
+     * The {@link IntroscopeMetricTestResultCodec} to store the results.
+     */
+    private IntroscopeMetricTestResultCodec codec;
+
+    /**
+     * The position and length of all live records by key, ordered from the least to the most recently used.
+     */
+    private final LinkedHashMap<String, Record> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The size of all live records in bytes.
+     */
+    private long liveBytes;
+
+    /**
+     * The channel of the segment file.
+     */
+    private FileChannel segment;
+
+    /**
+     * Flag to indicate that the index has changed since it was stored.
+     */
+    private boolean dirty;
+
+    /**
+     * Creates a new IntroscopeHistoryCache.
+     *
+     * @param configuration
+     *         The {@link IntroscopeConfiguration}
+     * @param codec
+     *         The {@link IntroscopeMetricTestResultCodec}
+     */
+    @Inject
+    public IntroscopeHistoryCache(final IntroscopeConfiguration configuration,
+                                  final IntroscopeMetricTestResultCodec codec) {
+        this.configuration = checkNotNull(configuration);
+        this.codec = checkNotNull(codec);
+    }
+
+    /**
+     * Opens the segment, loads the index and ensures that the index is stored when the JVM shuts down. The cache is
+     * disabled if the segment can not be opened.
+     */
+    @PostConstruct
+    public synchronized void initialize() {
+        if (!isEnabled() || segment != null) {
+            return;
+        }
+        File file = new File(configuration.getHistoryCacheFile());
+        try {
+            open(file);
+        } catch (IOException e) {
+            LOGGER.warn("History cache disabled, failed to open: " + file, e);
+            return;
+        }
+        File indexFile = new File(file.getAbsolutePath() + INDEX_SUFFIX);
+        if (indexFile.exists()) {
+            try {
+                load(indexFile);
+                LOGGER.info("Loaded {} historical results ({} bytes) from {}", index.size(), liveBytes, file);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Ignoring invalid history cache index: " + indexFile, e);
+                index.clear();
+                liveBytes = 0;
+            }
+        }
+        evict(0);
+        compactIfRequired();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::saveQuietly, "history-cache"));
+    }
+
+    /**
+     * @return true if a cache file is configured
+     */
+    public boolean isEnabled() {
+        return !Strings.isNullOrEmpty(configuration.getHistoryCacheFile());
+    }
+
+    /**
+     * Checks if the data of a window can not change anymore.
+     *
+     * @param range
+     *         The window
+     * @return true if the window ended before {@link IntroscopeConfiguration#getHistoryCacheDelay()}
+     */
+    public boolean isImmutable(final TimeRange range) {
+        ZonedDateTime settled = ZonedDateTime.now(range.getTo().getZone())
+                .minusMinutes(configuration.getHistoryCacheDelay());
+        return !range.getTo().isAfter(settled);
+    }
+
+    /**
+     * Gets the cached results of a window.
+     *
+     * @param key
+     *         The key of the window
+     * @param definition
+     *         The {@link IntroscopeMetric} of the result set
+     * @param range
+     *         The {@link TimeRange} of the result set
+     * @return A new result set or null if the window is not cached
+     */
+    public synchronized MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> get(
+            final String key,
+            final IntroscopeMetric definition,
+            final TimeRange range) {
+        Record record = segment != null ? index.get(key) : null;
+        if (record == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(record.length);
+            segment.read(buffer, record.position);
+            buffer.flip();
+            if (!key.equals(readString(buffer))) {
+                throw new IOException("Index does not match segment");
+            }
+            MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet =
+                    new MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult>(definition, range)
+                            .setQuery(readString(buffer));
+            int count = buffer.getInt();
+            if (configuration.getOffHeapThreshold() > 0 && count >= configuration.getOffHeapThreshold()) {
+                resultSet.spill(codec);
+            }
+            for (int i = 0; i < count; i++) {
+                ByteBuffer result = buffer.slice();
+                result.limit(buffer.getInt(buffer.position()) + Integer.BYTES).position(Integer.BYTES);
+                resultSet.addResult(codec.decode(result.slice()));
+                buffer.position(buffer.position() + result.limit());
+            }
+            return resultSet;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Dropping unreadable historical result: {}", key, e);
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Appends the results of a window to the segment. Results larger than the cache are not stored.
+     *
+     * @param key
+     *         The key of the window
+     * @param resultSet
+     *         The complete result set of the window
+     */
+    public synchronized void put(final String key,
+                                 final MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet) {
+        if (segment == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                writeString(out, key);
+                writeString(out, resultSet.getQuery());
+                out.writeInt(resultSet.getResults().size());
+                for (IntroscopeMetricTestResult result : resultSet.getResults()) {
+                    byte[] data = codec.encode(result);
+                    out.writeInt(data.length);
+                    out.write(data);
+                }
+            }
+            if (bytes.size() > configuration.getHistoryCacheMaxBytes()) {
+                LOGGER.debug("Not caching {} bytes of: {}", bytes.size(), key);
+                return;
+            }
+            remove(key);
+            evict(bytes.size());
+            long position = segment.size();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                segment.write(buffer, position + buffer.position());
+            }
+            index.put(key, new Record(position, bytes.size()));
+            liveBytes += bytes.size();
+            dirty = true;
+            compactIfRequired();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to cache historical result: {}", key, e);
+        }
+    }
+
+    /**
+     * @return The count of cached windows
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Stores the index next to the segment.
+     *
+     * @throws IOException
+     *         if the index could not be written
+     */
+    public synchronized void save() throws IOException {
+        if (segment == null || !dirty) {
+            return;
+        }
+        segment.force(false);
+        File file = new File(configuration.getHistoryCacheFile() + INDEX_SUFFIX);
+        File temp = new File(file.getAbsolutePath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(index.size());
+            //Iteration order is the LRU order, thus it survives a restart
+            for (Map.Entry<String, Record> entry : index.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeLong(entry.getValue().position);
+                out.writeInt(entry.getValue().length);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        dirty = false;
+    }
+
+    /**
+     * Stores the index and closes the segment. The cache is disabled afterwards.
+     *
+     * @throws IOException
+     *         if the index could not be written
+     */
+    public synchronized void close() throws IOException {
+        if (segment != null) {
+            try {
+                save();
+            } finally {
+                segment.close();
+                segment = null;
+            }
+        }
+    }
+
+    //-------------------------------------------------------------
+    // Methods: Internals
+    //-------------------------------------------------------------
+
+    /**
+     * Opens the segment file and writes the header if the file is new or invalid.
+     *
+     * @param file
+     *         The segment file
+     * @throws IOException
+     *         if the file could not be opened
+     */
+    private void open(final File file) throws IOException {
+        segment = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        segment.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            if (segment.size() > 0) {
+                LOGGER.warn("Discarding history cache of unsupported format: {}", file);
+            }
+            segment.truncate(0);
+            header.clear();
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            segment.write(header, 0);
+        }
+    }
+
+    /**
+     * Loads the index by mapping it into memory. Records beyond the end of the segment are ignored.
+     *
+     * @param file
+     *         The index file
+     * @throws IOException
+     *         if the file could not be read
+     */
+    private void load(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported index file format");
+            }
+            long size = segment.size();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(buffer);
+                Record record = new Record(buffer.getLong(), buffer.getInt());
+                if (record.position >= HEADER_SIZE && record.position + record.length <= size) {
+                    index.put(key, record);
+                    liveBytes += record.length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used records until the given count of bytes fits into the cache.
+     *
+     * @param required
+     *         The count of bytes to be added
+     */
+    private void evict(final long required) {
+        Iterator<Record> records = index.values().iterator();
+        while (records.hasNext() && liveBytes + required > configuration.getHistoryCacheMaxBytes()) {
+            liveBytes -= records.next().length;
+            records.remove();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Removes a record from the index. The record stays in the segment until it is compacted.
+     *
+     * @param key
+     *         The key of the record
+     */
+    private void remove(final String key) {
+        Record record = index.remove(key);
+        if (record != null) {
+            liveBytes -= record.length;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Rewrites the segment with the live records only if the segment grew beyond twice the size bound.
+     */
+    private void compactIfRequired() {
+        try {
+            if (segment.size() - HEADER_SIZE <= 2 * configuration.getHistoryCacheMaxBytes()) {
+                return;
+            }
+            File file = new File(configuration.getHistoryCacheFile());
+            File temp = new File(file.getAbsolutePath() + ".tmp");
+            LOGGER.info("Compacting history cache from {} to {} bytes", segment.size(), liveBytes + HEADER_SIZE);
+            LinkedHashMap<String, Record> compacted = new LinkedHashMap<>();
+            try (FileChannel target = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                target.write(header);
+                for (Map.Entry<String, Record> entry : index.entrySet()) {
+                    Record record = entry.getValue();
+                    long position = target.position();
+                    long copied = 0;
+                    while (copied < record.length) {
+                        copied += segment.transferTo(record.position + copied, record.length - copied, target);
+                    }
+                    compacted.put(entry.getKey(), new Record(position, record.length));
+                }
+            }
+            segment.close();
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            //Keep the LRU order of the records
+            index.clear();
+            index.putAll(compacted);
+            open(file);
+            dirty = true;
+            save();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to compact history cache, cache is disabled", e);
+            index.clear();
+            liveBytes = 0;
+            segment = null;
+        }
+    }
+
+    /**
+     * Stores the index without failing. Used by the shutdown hook.
+     */
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to store history cache index", e);
+        }
+    }
+
+    /**
+     * Writes a length prefixed UTF-8 string, a length of -1 marks null.
+     *
+     * @param out
+     *         The output stream
+     * @param value
+     *         The string, might be null
+     * @throws IOException
+     *         if writing fails
+     */
+    private static void writeString(final DataOutputStream out,
+                                    final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param buffer
+     *         The buffer
+     * @return The string, might be null
+     */
+    private static String readString(final ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The location of one record within the segment.
+     */
+    private static final class Record {
+
+        /**
+         * The position of the record within the segment.
+         */
+        private final long position;
+
+        /**
+         * The length of the record in bytes.
+         */
+        private final int length;
+
+        /**
+         * Creates a new Record.
+         *
+         * @param position
+         *         The position within the segment
+         * @param length
+         *         The length in bytes
+         */
+        private Record(final long position,
+                       final int length) {
+            this.position = position;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope.cache;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.model.TimeRange;
+import info.novatec.smoketest.core.service.collector.CollectorInvocation;
+import info.novatec.smoketest.core.service.collector.ICollectorInterceptor;
+import info.novatec.smoketest.core.service.collector.MetricDataCollectorException;
+import info.novatec.smoketest.core.service.time.ITimeService;
+import info.novatec.smoketest.introscope.IntroscopeConnectionFactory;
+import info.novatec.smoketest.introscope.IntroscopeEndpoint;
+import info.novatec.smoketest.introscope.IntroscopeMetric;
+import info.novatec.smoketest.introscope.IntroscopeMetricTestResult;
+import info.novatec.smoketest.introscope.IntroscopeWindowAligner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link ICollectorInterceptor} which answers collects of historical windows from the {@link IntroscopeHistoryCache}.
+ * A window is cached by its Enterprise Manager, its full qualified metric name, and its aligned bounds. Only complete
+ * results which were returned by the Enterprise Manager are cached, truncated results and results of skipped queries
+ * are always collected again.
+ *
+ * @author Claudio Waldvogel
+ */
+@Singleton
+public class IntroscopeHistoryInterceptor implements ICollectorInterceptor {
+
+    /**
+     * The order of this interceptor. Cached windows should neither be split nor queried.
+     */
+    public static final int ORDER = 500;
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntroscopeHistoryInterceptor.class);
+
+    /**
+     * The {@link IntroscopeHistoryCache}.
+     */
+    private IntroscopeHistoryCache cache;
+
+    /**
+     * The {@link ITimeService} to resolve the windows.
+     */
+    private ITimeService timeService;
+
+    /**
+     * The {@link IntroscopeWindowAligner} to align the windows the same way as the collector.
+     */
+    private IntroscopeWindowAligner aligner;
+
+    /**
+     * The {@link IntroscopeConnectionFactory} knowing the endpoints.
+     */
+    private IntroscopeConnectionFactory connectionFactory;
+
+    /**
+     * Creates a new IntroscopeHistoryInterceptor.
+     *
+     * @param cache
+     *         The {@link IntroscopeHistoryCache}
+     * @param timeService
+     *         The {@link ITimeService}
+     * @param aligner
+     *         The {@link IntroscopeWindowAligner}
+     * @param connectionFactory
+     *         The {@link IntroscopeConnectionFactory}
+     */
+    @Inject
+    public IntroscopeHistoryInterceptor(final IntroscopeHistoryCache cache,
+                                        final ITimeService timeService,
+                                        final IntroscopeWindowAligner aligner,
+                                        final IntroscopeConnectionFactory connectionFactory) {
+        this.cache = checkNotNull(cache);
+        this.timeService = checkNotNull(timeService);
+        this.aligner = checkNotNull(aligner);
+        this.connectionFactory = checkNotNull(connectionFactory);
+    }
+
+    //-------------------------------------------------------------
+    // Interface Implementation: ICollectorInterceptor
+    //-------------------------------------------------------------
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <IN extends IMetricDefinition, OUT extends IMetricTestResult> MetricTestResultSet<IN, OUT> intercept(
+            CollectorInvocation<IN, OUT> invocation) throws MetricDataCollectorException {
+        if (!cache.isEnabled() || !(invocation.getDefinition() instanceof IntroscopeMetric)) {
+            return invocation.proceed();
+        }
+        IntroscopeMetric metric = (IntroscopeMetric) invocation.getDefinition();
+        TimeRange range = aligner.align(timeService.getTimeRange(metric.getWindow()));
+        IntroscopeEndpoint endpoint = endpointOf(metric);
+        if (endpoint == null || !cache.isImmutable(range)) {
+            return invocation.proceed();
+        }
+        String key = endpoint + "|" + metric.getFullQualifiedName() + "|" + metric.isProbe() + "|"
+                + range.getFrom().toInstant() + "|" + range.getTo().toInstant();
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> cached = cache.get(key, metric, range);
+        if (cached != null) {
+            LOGGER.debug("Historical window taken from cache: {}", key);
+            return (MetricTestResultSet<IN, OUT>) cached;
+        }
+        MetricTestResultSet<IN, OUT> resultSet = invocation.proceed();
+        if (!resultSet.isTruncated() && (resultSet.getQuery() != null || resultSet.hasResults())) {
+            cache.put(key, (MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult>) resultSet);
+        }
+        return resultSet;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    //-------------------------------------------------------------
+    // Methods: Internals
+    //-------------------------------------------------------------
+
+    /**
+     * Gets the endpoint a metric is collected from. Metrics without environment are collected from the first
+     * endpoint.
+     *
+     * @param metric
+     *         The {@link IntroscopeMetric}
+     * @return The endpoint or null if the environment is unknown
+     */
+    private IntroscopeEndpoint endpointOf(final IntroscopeMetric metric) {
+        for (IntroscopeEndpoint endpoint : connectionFactory.getEndpoints()) {
+            if (metric.getEnvironment() == null || metric.getEnvironment().equals(endpoint.getName())) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope.cache;
+
+import com.google.common.base.Strings;
+import info.novatec.smoketest.core.model.TimeRange;
+import info.novatec.smoketest.introscope.IntroscopeConfiguration;
+import info.novatec.smoketest.introscope.IntroscopeUtils;
+import info.novatec.smoketest.introscope.discovery.IntroscopeDiscoveryCoverage;
+import info.novatec.smoketest.introscope.discovery.IntroscopeMetricCatalog;
+import info.novatec.smoketest.introscope.discovery.IntroscopeMetricDiscovery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p> Persistent cache of the agents and the metric paths known by the Enterprise Manager. The cache is stored in
+ * {@link IntroscopeConfiguration#getNamespaceCacheFile()} and memory-mapped on load. </p>
+ * <p> The cache is filled by the metric discovery and by the rows of every executed query. An agent expression is
+ * <i>covered</i> if it was discovered within {@link IntroscopeConfiguration#getNamespaceCacheTtl()}. The discovery
+ * misses metrics by design, so a metric missing in the cache is unknown, not absent. The cache is only authoritative
+ * for a query of a plain metric path if the {@link IntroscopeDiscoveryCoverage} of a covering expression proves the
+ * absence: the discovery was neither limited by depth nor by excludes, discovered the same window and expanded the
+ * parent node of the resource. Only then queries which can not match any cached metric are skipped and broad agent
+ * expressions are rewritten to the explicit list of matching agents. Stale expressions are rediscovered on startup if
+ * {@link IntroscopeConfiguration#isNamespaceCacheRefresh()} is set. All other queries are passed to the Enterprise
+ * Manager unchanged. </p>
+ *
+ * @author Claudio Waldvogel
+ */
+@Singleton
+public class IntroscopeNamespaceCache {
+
+    /**
+     * The agent expression which covers all agents.
+     */
+    public static final String ALL_AGENTS = ".*";
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntroscopeNamespaceCache.class);
+
+    /**
+     * Marker at the beginning of each cache file.
+     */
+    private static final int MAGIC = 0x534D4E43;
+
+    /**
+     * The version of the cache file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The {@link IntroscopeConfiguration}.
+     */
+    private IntroscopeConfiguration configuration;
+
+    /**
+     * Provider for the {@link IntroscopeMetricDiscovery} to refresh stale agent expressions.
+     */
+    private Provider<IntroscopeMetricDiscovery> discovery;
+
+    /**
+     * All known agents and their metric paths.
+     */
+    private final Map<String, Set<String>> agents = new ConcurrentHashMap<>();
+
+    /**
+     * All discovered agent expressions and their {@link IntroscopeDiscoveryCoverage}.
+     */
+    private final Map<String, IntroscopeDiscoveryCoverage> coverage = new ConcurrentHashMap<>();
+
+    /**
+     * Flag to indicate that the cache has changed since it was loaded.
+     */
+    private volatile boolean dirty;
+
+    /**
+     * Creates a new IntroscopeNamespaceCache.
+     *
+     * @param configuration
+     *         The {@link IntroscopeConfiguration}
+     * @param discovery
+     *         Provider of the {@link IntroscopeMetricDiscovery}
+     */
+    @Inject
+    public IntroscopeNamespaceCache(final IntroscopeConfiguration configuration,
+                                    final Provider<IntroscopeMetricDiscovery> discovery) {
+        this.configuration = checkNotNull(configuration);
+        this.discovery = checkNotNull(discovery);
+    }
+
+    /**
+     * Loads the cache file, refreshes stale agent expressions if requested, and ensures that the cache is stored when
+     * the JVM shuts down.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (!isEnabled()) {
+            return;
+        }
+        File file = new File(configuration.getNamespaceCacheFile());
+        if (file.exists()) {
+            try {
+                load(file);
+                LOGGER.info("Loaded {} agents and {} agent expressions from {}", agents.size(), coverage.size(),
+                        file);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Ignoring invalid namespace cache: " + file, e);
+                agents.clear();
+                coverage.clear();
+            }
+        }
+        if (configuration.isNamespaceCacheRefresh()) {
+            List<String> stale = coverage.keySet().stream()
+                    .filter(expression -> !isFresh(expression))
+                    .collect(Collectors.toList());
+            if (!stale.isEmpty()) {
+                LOGGER.info("Refreshing stale agent expressions: {}", stale);
+                update(stale, discovery.get().discover(stale));
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::saveQuietly, "namespace-cache"));
+    }
+
+    /**
+     * @return true if a cache file is configured
+     */
+    public boolean isEnabled() {
+        return !Strings.isNullOrEmpty(configuration.getNamespaceCacheFile());
+    }
+
+    /**
+     * Resolves the agents which might return results for a query.
+     *
+     * @param agentExpression
+     *         The agent expression of the query
+     * @param metricPath
+     *         The metric path expression of the query
+     * @param window
+     *         The aligned window of the query, the cache only answers if a discovery covered a window containing it
+     * @return null if the cache can not answer the question, otherwise the list of all agents having the metric. An
+     * empty list means that the query can not match anything.
+     */
+    public List<String> resolve(final String agentExpression,
+                                final String metricPath,
+                                final TimeRange window) {
+        if (!isEnabled()) {
+            return null;
+        }
+        //Only a plain path names one metric whose absence can be proven
+        String path = IntroscopeUtils.unescape(metricPath);
+        int separator = path != null ? path.indexOf(':') : -1;
+        if (separator < 0 || !proves(agentExpression, window, path.substring(0, separator))) {
+            return null;
+        }
+        Pattern agentPattern;
+        try {
+            agentPattern = Pattern.compile(agentExpression);
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+        List<String> matching = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> agent : agents.entrySet()) {
+            if (agent.getValue().contains(path) && agentPattern.matcher(agent.getKey()).matches()) {
+                matching.add(agent.getKey());
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Gets all known agents matching an agent expression, regardless if the expression is covered or not.
+     *
+     * @param agentExpression
+     *         The agent expression
+     * @return All known matching agents
+     */
+    public List<String> agents(final String agentExpression) {
+        try {
+            Pattern agentPattern = Pattern.compile(agentExpression);
+            return agents.keySet().stream()
+                    .filter(agent -> agentPattern.matcher(agent).matches())
+                    .collect(Collectors.toList());
+        } catch (PatternSyntaxException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Records a metric which was returned by the Enterprise Manager.
+     *
+     * @param agent
+     *         The agent name
+     * @param resource
+     *         The resource path
+     * @param metric
+     *         The metric name
+     */
+    public void record(final String agent,
+                       final String resource,
+                       final String metric) {
+        if (isEnabled() && agent != null && metric != null) {
+            if (agents.computeIfAbsent(agent, key -> ConcurrentHashMap.newKeySet())
+                    .add(IntroscopeUtils.generateMetricPath(resource, metric))) {
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Replaces the cached namespace of all agents of the discovered agent expressions and marks the expressions as
+     * covered. Agents matching the expressions which were not discovered again have disappeared and are removed.
+     *
+     * @param agentExpressions
+     *         The discovered agent expressions
+     * @param catalog
+     *         The discovered metrics and their {@link IntroscopeMetricCatalog#getCoverage()}
+     */
+    public void update(final List<String> agentExpressions,
+                       final IntroscopeMetricCatalog catalog) {
+        Map<String, Set<String>> discovered = new ConcurrentHashMap<>();
+        for (IntroscopeMetricCatalog.Entry entry : catalog.getMetrics()) {
+            discovered.computeIfAbsent(entry.getAgent(), key -> ConcurrentHashMap.newKeySet())
+                    .add(IntroscopeUtils.generateMetricPath(entry.getResource(), entry.getMetric()));
+        }
+        Set<String> disappeared = new HashSet<>();
+        for (String expression : agentExpressions) {
+            disappeared.addAll(agents(expression));
+        }
+        disappeared.removeAll(discovered.keySet());
+        if (!disappeared.isEmpty()) {
+            LOGGER.info("Removing disappeared agents: {}", disappeared);
+            agents.keySet().removeAll(disappeared);
+        }
+        agents.putAll(discovered);
+        long now = System.currentTimeMillis();
+        for (String expression : agentExpressions) {
+            IntroscopeDiscoveryCoverage discoveredCoverage = catalog.getCoverage().get(expression);
+            //Without a coverage of the discovery nothing is proven, the expression is only marked as fresh
+            coverage.put(expression, discoveredCoverage != null
+                    ? discoveredCoverage
+                    : new IntroscopeDiscoveryCoverage(now, 0, 0, false, null));
+        }
+        dirty = true;
+    }
+
+    /**
+     * Stores the cache in the cache file.
+     *
+     * @throws IOException
+     *         if the file could not be written
+     */
+    public void save() throws IOException {
+        if (!isEnabled() || !dirty) {
+            return;
+        }
+        File file = new File(configuration.getNamespaceCacheFile());
+        File temp = new File(file.getAbsolutePath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(coverage.size());
+            for (Map.Entry<String, IntroscopeDiscoveryCoverage> entry : coverage.entrySet()) {
+                IntroscopeDiscoveryCoverage value = entry.getValue();
+                writeString(out, entry.getKey());
+                out.writeLong(value.getDiscovered());
+                out.writeLong(value.getFrom());
+                out.writeLong(value.getTo());
+                out.writeBoolean(value.isComplete());
+                out.writeInt(value.getNodes().size());
+                for (String node : value.getNodes()) {
+                    writeString(out, node);
+                }
+            }
+            out.writeInt(agents.size());
+            for (Map.Entry<String, Set<String>> agent : agents.entrySet()) {
+                List<String> paths = new ArrayList<>(agent.getValue());
+                writeString(out, agent.getKey());
+                out.writeInt(paths.size());
+                for (String path : paths) {
+                    writeString(out, path);
+                }
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        dirty = false;
+    }
+
+    //-------------------------------------------------------------
+    // Methods: Internals
+    //-------------------------------------------------------------
+
+    /**
+     * Checks if a fresh discovery of the agent expression or of all agents proves the absence of all metrics of a
+     * resource which are not cached.
+     *
+     * @param agentExpression
+     *         The agent expression
+     * @param window
+     *         The aligned window of the query
+     * @param resource
+     *         The plain resource path
+     * @return true if the cache knows all metrics of the resource of all agents matching the expression
+     * @see IntroscopeDiscoveryCoverage#proves(long, long, String)
+     */
+    private boolean proves(final String agentExpression,
+                           final TimeRange window,
+                           final String resource) {
+        long from = window.getFrom().toInstant().toEpochMilli();
+        long to = window.getTo().toInstant().toEpochMilli();
+        for (String expression : new String[]{agentExpression, ALL_AGENTS}) {
+            if (isFresh(expression) && coverage.get(expression).proves(from, to, resource)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if an agent expression was discovered within the TTL.
+     *
+     * @param agentExpression
+     *         The agent expression
+     * @return true if the discovery is not yet expired
+     */
+    private boolean isFresh(final String agentExpression) {
+        IntroscopeDiscoveryCoverage discovered = coverage.get(agentExpression);
+        return discovered != null && System.currentTimeMillis() - discovered.getDiscovered()
+                < TimeUnit.MINUTES.toMillis(configuration.getNamespaceCacheTtl());
+    }
+
+    /**
+     * Loads the cache file by mapping it into memory.
+     *
+     * @param file
+     *         The cache file
+     * @throws IOException
+     *         if the file could not be read
+     */
+    private void load(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported cache file format");
+            }
+            int coverageCount = buffer.getInt();
+            for (int i = 0; i < coverageCount; i++) {
+                String expression = readString(buffer);
+                long discovered = buffer.getLong();
+                long from = buffer.getLong();
+                long to = buffer.getLong();
+                boolean complete = buffer.get() != 0;
+                int nodeCount = buffer.getInt();
+                Set<String> nodes = new HashSet<>(nodeCount);
+                for (int j = 0; j < nodeCount; j++) {
+                    nodes.add(readString(buffer));
+                }
+                coverage.put(expression, new IntroscopeDiscoveryCoverage(discovered, from, to, complete, nodes));
+            }
+            int agentCount = buffer.getInt();
+            for (int i = 0; i < agentCount; i++) {
+                String agent = readString(buffer);
+                int pathCount = buffer.getInt();
+                Set<String> paths = ConcurrentHashMap.newKeySet(pathCount);
+                for (int j = 0; j < pathCount; j++) {
+                    paths.add(readString(buffer));
+                }
+                agents.put(agent, paths);
+            }
+        }
+    }
+
+    /**
+     * Stores the cache without failing. Used by the shutdown hook.
+     */
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to store namespace cache", e);
+        }
+    }
+
+    /**
+     * Writes a length prefixed UTF-8 string.
+     *
+     * @param out
+     *         The output stream
+     * @param value
+     *         The string
+     * @throws IOException
+     *         if writing fails
+     */
+    private static void writeString(final DataOutputStream out,
+                                    final String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length prefixed UTF-8 string.
+     *
+     * @param buffer
+     *         The mapped buffer
+     * @return The string
+     */
+    private static String readString(final MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package info.novatec.smoketest.introscope.discovery;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Describes which part of the metric namespace of one agent expression was discovered by the {@link
+ * IntroscopeMetricDiscovery}. The discovery looks only one level ahead, so a missing metric is only proven to be
+ * absent if the parent node of its resource was expanded by a complete discovery of a window containing the queried
+ * window. A metric which was not reported within the discovered window was not reported within any part of it either,
+ * so a cache saved by one run still answers later runs whose windows lie within the discovered window.
+ *
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeDiscoveryCoverage {
+
+    /**
+     * The time of the discovery in milliseconds.
+     */
+    private final long discovered;
+
+    /**
+     * The start of the discovered window in milliseconds.
+     */
+    private final long from;
+
+    /**
+     * The end of the discovered window in milliseconds.
+     */
+    private final long to;
+
+    /**
+     * Flag to indicate that no node was pruned by the depth limit or by an exclude.
+     */
+    private final boolean complete;
+
+    /**
+     * The plain resource paths of all expanded nodes, the root node is the empty path.
+     */
+    private final Set<String> nodes;
+
+    /**
+     * Creates a new IntroscopeDiscoveryCoverage.
+     *
+     * @param discovered
+     *         The time of the discovery in milliseconds
+     * @param from
+     *         The start of the discovered window in milliseconds
+     * @param to
+     *         The end of the discovered window in milliseconds
+     * @param complete
+     *         true if no node was pruned
+     * @param nodes
+     *         The plain resource paths of all expanded nodes
+     */
+    public IntroscopeDiscoveryCoverage(final long discovered,
+                                       final long from,
+                                       final long to,
+                                       final boolean complete,
+                                       final Set<String> nodes) {
+        this.discovered = discovered;
+        this.from = from;
+        this.to = to;
+        this.complete = complete;
+        this.nodes = nodes != null ? nodes : Collections.emptySet();
+    }
+
+    /**
+     * Checks if the discovery proves that a metric does not exist if it was not found.
+     *
+     * @param from
+     *         The start of the queried window in milliseconds
+     * @param to
+     *         The end of the queried window in milliseconds
+     * @param resource
+     *         The plain resource path of the metric
+     * @return true if the discovery was complete, covered the queried window and expanded the parent of the resource
+     */
+    public boolean proves(final long from,
+                          final long to,
+                          final String resource) {
+        if (!complete || from < this.from || to > this.to) {
+            return false;
+        }
+        int delimiter = resource.lastIndexOf('|');
+        return nodes.contains(delimiter < 0 ? "" : resource.substring(0, delimiter));
+    }
+
+    /**
+     * Gets {@link #discovered}.
+     *
+     * @return {@link #discovered}
+     */
+    public long getDiscovered() {
+        return discovered;
+    }
+
+    /**
+     * Gets {@link #from}.
+     *
+     * @return {@link #from}
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    /**
+     * Gets {@link #to}.
+     *
+     * @return {@link #to}
+     */
+    public long getTo() {
+        return to;
+    }
+
+    /**
+     * Gets {@link #complete}.
+     *
+     * @return {@link #complete}
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Gets {@link #nodes}.
+     *
+     * @return {@link #nodes}
+     */
+    public Set<String> getNodes() {
+        return nodes;
+    }
+}
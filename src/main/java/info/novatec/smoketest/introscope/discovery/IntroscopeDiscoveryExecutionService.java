@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope.discovery;
+
+import info.novatec.smoketest.core.service.testing.ITestExecutionService;
+import info.novatec.smoketest.core.service.testing.TestOutcome;
+import info.novatec.smoketest.core.service.testing.TestOutcomePublisher;
+import info.novatec.smoketest.introscope.IntroscopeConfiguration;
+import info.novatec.smoketest.introscope.cache.IntroscopeNamespaceCache;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IReporter;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link ITestExecutionService} which is installed by the {@link info.novatec.smoketest.introscope.IntroscopeBundle}
+ * if the smoke test is started with <code>--discover</code>. Instead of executing the tests, the metric namespace of
+ * the given agent expressions is discovered and written to {@link IntroscopeConfiguration#getDiscoveryCatalog()}.
+ *
+ * @author Claudio Waldvogel
+ * @see IntroscopeMetricDiscovery
+ */
+public class IntroscopeDiscoveryExecutionService implements ITestExecutionService {
+
+    /**
+     * The name of the command line argument enabling the discovery mode.
+     */
+    public static final String DISCOVER_ARGUMENT = "discover";
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntroscopeDiscoveryExecutionService.class);
+
+    /**
+     * The {@link IntroscopeMetricDiscovery}.
+     */
+    private IntroscopeMetricDiscovery discovery;
+
+    /**
+     * The {@link IntroscopeNamespaceCache} which is updated with the discovered namespace.
+     */
+    private IntroscopeNamespaceCache namespaceCache;
+
+    /**
+     * The {@link IntroscopeConfiguration}.
+     */
+    private IntroscopeConfiguration configuration;
+
+    /**
+     * The {@link Namespace} representing the command line arguments.
+     */
+    private Namespace namespace;
+
+    /**
+     * The {@link TestOutcomePublisher}, completed without any outcome.
+     */
+    private TestOutcomePublisher outcomes;
+
+    /**
+     * Creates a new IntroscopeDiscoveryExecutionService.
+     *
+     * @param discovery
+     *         The {@link IntroscopeMetricDiscovery}
+     * @param namespaceCache
+     *         The {@link IntroscopeNamespaceCache}
+     * @param configuration
+     *         The {@link IntroscopeConfiguration}
+     * @param namespace
+     *         The command line arguments
+     * @param outcomes
+     *         The {@link TestOutcomePublisher}
+     */
+    @Inject
+    public IntroscopeDiscoveryExecutionService(final IntroscopeMetricDiscovery discovery,
+                                               final IntroscopeNamespaceCache namespaceCache,
+                                               final IntroscopeConfiguration configuration,
+                                               final Namespace namespace,
+                                               final TestOutcomePublisher outcomes) {
+        this.discovery = discovery;
+        this.namespaceCache = namespaceCache;
+        this.configuration = configuration;
+        this.namespace = namespace;
+        this.outcomes = outcomes;
+    }
+
+    //-------------------------------------------------------------
+    // Interface Implementation: ITestExecutionService
+    //-------------------------------------------------------------
+
+    @Override
+    public void execute() {
+        List<String> agentExpressions = namespace.getList(DISCOVER_ARGUMENT);
+        IntroscopeMetricCatalog catalog = discovery.discover(agentExpressions);
+        try {
+            catalog.write(configuration.getDiscoveryCatalog());
+            LOGGER.info("Wrote {} metrics to {}", catalog.getMetrics().size(), configuration.getDiscoveryCatalog());
+            namespaceCache.update(agentExpressions, catalog);
+            namespaceCache.save();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write catalog: " + configuration.getDiscoveryCatalog(), e);
+        } finally {
+            outcomes.complete();
+        }
+    }
+
+    @Override
+    public void execute(List<Class<?>> tests) {
+        LOGGER.info("Discovery mode enabled. Tests are not executed!");
+        execute();
+    }
+
+    @Override
+    public void execute(Class<?>... tests) {
+        LOGGER.info("Discovery mode enabled. Tests are not executed!");
+        execute();
+    }
+
+    @Override
+    public void addReporter(IReporter reporter) {
+        //NOP, no tests are executed
+    }
+
+    @Override
+    public void addReporter(Class<? extends IReporter> clazz) {
+        //NOP, no tests are executed
+    }
+
+    @Override
+    public void setReportDirectory(String outputDirectory) {
+        //NOP, no tests are executed
+    }
+
+    @Override
+    public Publisher<TestOutcome<?, ?>> getOutcomes() {
+        return outcomes;
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope.discovery;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.google.common.base.Objects;
+import com.google.common.collect.Sets;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.TestLevel;
+import info.novatec.smoketest.core.model.validation.IValidationRule;
+import info.novatec.smoketest.core.model.validation.ValidationRules;
+import info.novatec.smoketest.core.util.ResourceUtils;
+import info.novatec.smoketest.introscope.IntroscopeMetric;
+import info.novatec.smoketest.introscope.IntroscopeMetricTestResult;
+import info.novatec.smoketest.introscope.IntroscopeUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A catalog of all metrics found by the {@link IntroscopeMetricDiscovery}. The catalog is stored as YAML file and can
+ * be loaded by test classes to create {@link MetricTest}s without writing each metric by hand:
+ * <pre>
+ * {@code
+ *  protected Set<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> getMetricTests() {
+ *      return IntroscopeMetricCatalog.read("metric-catalog.yml")
+ *              .toMetricTests(TestLevel.LEVEL_0, ValidationRules.notEmpty());
+ *  }
+ * }
+ * </pre>
+ * Each entry can define an additional {@link info.novatec.smoketest.core.model.validation.ValidationExpression},
+ * e.g. <code>validation: "count &gt;= 3 &amp;&amp; value &lt; 2000"</code>.
+ *
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeMetricCatalog {
+
+    /**
+     * The ObjectMapper to read and write catalogs.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper(new YAMLFactory());
+
+    /**
+     * All metrics of this catalog.
+     */
+    private List<Entry> metrics = new ArrayList<>();
+
+    /**
+     * The {@link IntroscopeDiscoveryCoverage} of each discovered agent expression. It is not stored in the catalog
+     * file.
+     */
+    @JsonIgnore
+    private Map<String, IntroscopeDiscoveryCoverage> coverage = new HashMap<>();
+
+    /**
+     * No-Args Constructor.
+     */
+    public IntroscopeMetricCatalog() {
+    }
+
+    /**
+     * Reads a catalog from a file or the classpath.
+     *
+     * @param file
+     *         The catalog file
+     * @return The catalog
+     * @throws IOException
+     *         if the file could not be read
+     */
+    public static IntroscopeMetricCatalog read(final String file) throws IOException {
+        try (InputStream inputStream = ResourceUtils.openFileStream(file)) {
+            return MAPPER.readValue(inputStream, IntroscopeMetricCatalog.class);
+        }
+    }
+
+    /**
+     * Writes this catalog to a file.
+     *
+     * @param file
+     *         The target file
+     * @throws IOException
+     *         if the file could not be written
+     */
+    public void write(final String file) throws IOException {
+        MAPPER.writeValue(new File(file), this);
+    }
+
+    /**
+     * Adds a new metric to the catalog.
+     *
+     * @param agent
+     *         The plain agent name
+     * @param resource
+     *         The plain resource path
+     * @param metric
+     *         The plain metric name
+     * @return The catalog itself for chaining
+     */
+    public IntroscopeMetricCatalog add(final String agent,
+                                       final String resource,
+                                       final String metric) {
+        metrics.add(new Entry(agent, resource, metric));
+        return this;
+    }
+
+    /**
+     * Creates one {@link MetricTest} for each metric of this catalog. Since the catalog contains plain names, all names
+     * are escaped to ensure that each test matches exactly one metric. The validation expression of an entry is added
+     * to the given validations. Each distinct expression is compiled only once.
+     *
+     * @param level
+     *         The {@link TestLevel} of all tests
+     * @param validations
+     *         The {@link IValidationRule}s of all tests
+     * @return Set of MetricTests
+     * @throws IllegalArgumentException
+     *         if a validation expression is not valid
+     */
+    public Set<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> toMetricTests(final TestLevel level,
+                                                                                      final IValidationRule<?, ?>...
+                                                                                              validations) {
+        Set<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> tests = Sets.newLinkedHashSet();
+        List<IValidationRule<IntroscopeMetric, IntroscopeMetricTestResult>> rules = new ArrayList<>();
+        for (IValidationRule<?, ?> validation : validations) {
+            rules.add(narrow(validation));
+        }
+        Map<String, IValidationRule<IntroscopeMetric, IntroscopeMetricTestResult>> expressions = new HashMap<>();
+        for (Entry entry : metrics) {
+            List<IValidationRule<IntroscopeMetric, IntroscopeMetricTestResult>> entryRules = rules;
+            if (entry.getValidation() != null) {
+                entryRules = new ArrayList<>(rules);
+                entryRules.add(expressions.computeIfAbsent(entry.getValidation(),
+                        expression -> narrow(ValidationRules.expression(expression))));
+            }
+            IntroscopeMetric definition = new IntroscopeMetric(
+                    IntroscopeUtils.escape(entry.getAgent()),
+                    IntroscopeUtils.escape(entry.getResource()),
+                    IntroscopeUtils.escape(entry.getMetric()));
+            tests.add(new MetricTest<>(definition, level, entryRules));
+        }
+        return tests;
+    }
+
+    /**
+     * Narrows a rule to the types of Introscope metric tests. Rules only consume result sets, so a rule of less
+     * specific types validates Introscope result sets as well.
+     *
+     * @param rule
+     *         The {@link IValidationRule}
+     * @return The same rule
+     */
+    @SuppressWarnings("unchecked")
+    private static IValidationRule<IntroscopeMetric, IntroscopeMetricTestResult> narrow(
+            final IValidationRule<?, ?> rule) {
+        return (IValidationRule<IntroscopeMetric, IntroscopeMetricTestResult>) rule;
+    }
+
+    /**
+     * Gets {@link #metrics}.
+     *
+     * @return {@link #metrics}
+     */
+    public List<Entry> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets {@link #metrics}.
+     *
+     * @param metrics
+     *         New value for {@link #metrics}
+     */
+    public void setMetrics(List<Entry> metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets {@link #coverage}.
+     *
+     * @return {@link #coverage}
+     */
+    @JsonIgnore
+    public Map<String, IntroscopeDiscoveryCoverage> getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * One metric of the catalog.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry {
+
+        /**
+         * The plain name of the agent.
+         */
+        private String agent;
+
+        /**
+         * The plain resource path.
+         */
+        private String resource;
+
+        /**
+         * The plain metric name.
+         */
+        private String metric;
+
+        /**
+         * The optional validation expression of the metric.
+         */
+        private String validation;
+
+        /**
+         * No-Args Constructor.
+         */
+        public Entry() {
+        }
+
+        /**
+         * Creates a new Entry.
+         *
+         * @param agent
+         *         The agent name
+         * @param resource
+         *         The resource path
+         * @param metric
+         *         The metric name
+         */
+        public Entry(String agent,
+                     String resource,
+                     String metric) {
+            this.agent = agent;
+            this.resource = resource;
+            this.metric = metric;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Entry that = (Entry) o;
+            return Objects.equal(agent, that.agent) &&
+                    Objects.equal(resource, that.resource) &&
+                    Objects.equal(metric, that.metric) &&
+                    Objects.equal(validation, that.validation);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(agent, resource, metric, validation);
+        }
+
+        /**
+         * Gets {@link #agent}.
+         *
+         * @return {@link #agent}
+         */
+        public String getAgent() {
+            return agent;
+        }
+
+        /**
+         * Sets {@link #agent}.
+         *
+         * @param agent
+         *         New value for {@link #agent}
+         */
+        public void setAgent(String agent) {
+            this.agent = agent;
+        }
+
+        /**
+         * Gets {@link #resource}.
+         *
+         * @return {@link #resource}
+         */
+        public String getResource() {
+            return resource;
+        }
+
+        /**
+         * Sets {@link #resource}.
+         *
+         * @param resource
+         *         New value for {@link #resource}
+         */
+        public void setResource(String resource) {
+            this.resource = resource;
+        }
+
+        /**
+         * Gets {@link #metric}.
+         *
+         * @return {@link #metric}
+         */
+        public String getMetric() {
+            return metric;
+        }
+
+        /**
+         * Sets {@link #metric}.
+         *
+         * @param metric
+         *         New value for {@link #metric}
+         */
+        public void setMetric(String metric) {
+            this.metric = metric;
+        }
+
+        /**
+         * Gets {@link #validation}.
+         *
+         * @return {@link #validation}
+         */
+        public String getValidation() {
+            return validation;
+        }
+
+        /**
+         * Sets {@link #validation}.
+         *
+         * @param validation
+         *         New value for {@link #validation}
+         */
+        public void setValidation(String validation) {
+            this.validation = validation;
+        }
+    }
+}
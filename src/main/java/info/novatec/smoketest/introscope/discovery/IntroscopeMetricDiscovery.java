@@ -0,0 +1,365 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope.discovery;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import info.novatec.smoketest.core.model.TimeRange;
+import info.novatec.smoketest.core.service.collector.MetricDataCollectorException;
+import info.novatec.smoketest.core.service.time.ITimeService;
+import info.novatec.smoketest.introscope.IntroscopeConfiguration;
+import info.novatec.smoketest.introscope.IntroscopeConnectionFactory;
+import info.novatec.smoketest.introscope.IntroscopeUtils;
+import info.novatec.smoketest.introscope.IntroscopeWindowAligner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.JDBC_TEMPLATE;
+import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.RS_ENTRY_AGENT_NAME;
+import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.RS_ENTRY_METRIC_NAME;
+import static info.novatec.smoketest.introscope.IntroscopeDataCollector.IntroscopeDataCollectorConstants.RS_ENTRY_RESOURCE;
+
+/**
+ * <p> Walks the Introscope metric namespace of a set of agent expressions and collects all found metrics in an {@link
+ * IntroscopeMetricCatalog}. </p>
+ * <p> The namespace is walked breadth-first. Each node of the resource tree is expanded with one query which returns
+ * the metrics one and two levels below the node. Metrics of the direct children are added to the catalog, the children
+ * themselves are expanded in the next wave. All queries of one wave are executed in parallel, bounded by {@link
+ * IntroscopeConfiguration#getDiscoveryParallelism()}. The walk is pruned by {@link
+ * IntroscopeConfiguration#getDiscoveryMaxDepth()} and by the resource patterns of {@link
+ * IntroscopeConfiguration#getDiscoveryExcludes()}. </p>
+ * <p> Due to the one level look ahead, subtrees whose first two levels do not contain any metric are not found. The
+ * {@link IntroscopeDiscoveryCoverage} of each agent expression records the expanded nodes and whether any node was
+ * pruned, so the {@link info.novatec.smoketest.introscope.cache.IntroscopeNamespaceCache} knows where the catalog is
+ * complete. The aligned global window of the run is discovered. </p>
+ *
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeMetricDiscovery {
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntroscopeMetricDiscovery.class);
+
+    /**
+     * Regular expression matching the metrics one and two levels below a node.
+     */
+    private static final String CHILDREN_EXPRESSION = "[^|:]+(\\|[^|:]+)?:.+";
+
+    /**
+     * The {@link IntroscopeConfiguration}.
+     */
+    private IntroscopeConfiguration configuration;
+
+    /**
+     * The {@link ITimeService}.
+     */
+    private ITimeService timeService;
+
+    /**
+     * The {@link IntroscopeConnectionFactory}.
+     */
+    private IntroscopeConnectionFactory connectionFactory;
+
+    /**
+     * The {@link IntroscopeWindowAligner}, the discovered window is aligned like the windows of the queries.
+     */
+    private IntroscopeWindowAligner aligner;
+
+    /**
+     * Creates a new IntroscopeMetricDiscovery.
+     *
+     * @param configuration
+     *         The {@link IntroscopeConfiguration}
+     * @param timeService
+     *         The {@link ITimeService}
+     * @param connectionFactory
+     *         The {@link IntroscopeConnectionFactory}
+     * @param aligner
+     *         The {@link IntroscopeWindowAligner}
+     */
+    @Inject
+    public IntroscopeMetricDiscovery(final IntroscopeConfiguration configuration,
+                                     final ITimeService timeService,
+                                     final IntroscopeConnectionFactory connectionFactory,
+                                     final IntroscopeWindowAligner aligner) {
+        this.configuration = checkNotNull(configuration);
+        this.timeService = checkNotNull(timeService);
+        this.connectionFactory = checkNotNull(connectionFactory);
+        this.aligner = checkNotNull(aligner);
+    }
+
+    /**
+     * Discovers all metrics of the given agent expressions.
+     *
+     * @param agentExpressions
+     *         The agent expressions to be walked
+     * @return The {@link IntroscopeMetricCatalog} containing all found metrics
+     * @throws MetricDataCollectorException
+     *         if a query fails
+     */
+    public IntroscopeMetricCatalog discover(final List<String> agentExpressions) throws MetricDataCollectorException {
+        List<Pattern> excludes = configuration.getDiscoveryExcludes().stream()
+                .map(Pattern::compile)
+                .collect(Collectors.toList());
+        Queue<Connection> connections = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Statement> statements = ThreadLocal.withInitial(() -> {
+            Connection connection = connectionFactory.open();
+            connections.add(connection);
+            try {
+                return connection.createStatement();
+            } catch (SQLException e) {
+                throw new MetricDataCollectorException(e);
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, configuration.getDiscoveryParallelism()),
+                new ThreadFactoryBuilder().setNameFormat("discovery-%d").setDaemon(true).build());
+
+        TimeRange window = aligner.align(timeService.getTimeRange());
+        int maxDepth = configuration.getDiscoveryMaxDepth();
+        Set<IntroscopeMetricCatalog.Entry> found = new LinkedHashSet<>();
+        Set<Node> visited = new LinkedHashSet<>();
+        Map<String, Set<String>> expanded = new HashMap<>();
+        Set<String> pruned = new HashSet<>();
+        List<Node> frontier = agentExpressions.stream()
+                .map(agent -> new Node(agent, "", 0))
+                .collect(Collectors.toList());
+        try {
+            while (!frontier.isEmpty()) {
+                LOGGER.info("Discovering {} nodes on depth {}...", frontier.size(), frontier.get(0).depth);
+                List<Future<List<IntroscopeMetricCatalog.Entry>>> futures = new ArrayList<>(frontier.size());
+                for (Node node : frontier) {
+                    expanded.computeIfAbsent(node.agentExpression, key -> new HashSet<>()).add(node.path);
+                    futures.add(executor.submit(() -> query(statements.get(), node, window)));
+                }
+                List<Node> next = new ArrayList<>();
+                for (int i = 0; i < frontier.size(); i++) {
+                    Node node = frontier.get(i);
+                    for (IntroscopeMetricCatalog.Entry row : futures.get(i).get()) {
+                        String relative = node.path.isEmpty()
+                                ? row.getResource()
+                                : row.getResource().substring(node.path.length() + 1);
+                        int delimiter = relative.indexOf('|');
+                        String childPath = node.path.isEmpty()
+                                ? relative.substring(0, delimiter < 0 ? relative.length() : delimiter)
+                                : node.path + "|" + relative.substring(0, delimiter < 0 ? relative.length()
+                                : delimiter);
+                        if (isExcluded(excludes, childPath)) {
+                            pruned.add(node.agentExpression);
+                            continue;
+                        }
+                        if (delimiter < 0) {
+                            found.add(row);
+                        }
+                        Node child = new Node(node.agentExpression, childPath, node.depth + 1);
+                        if (maxDepth > 0 && child.depth >= maxDepth) {
+                            pruned.add(node.agentExpression);
+                        } else if (visited.add(child)) {
+                            next.add(child);
+                        }
+                    }
+                }
+                frontier = next;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MetricDataCollectorException("Discovery interrupted!", e);
+        } catch (ExecutionException e) {
+            throw new MetricDataCollectorException("Discovery failed!", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            connections.forEach(this::closeQuietly);
+        }
+        LOGGER.info("Discovered {} metrics on {} nodes", found.size(), visited.size());
+        IntroscopeMetricCatalog catalog = new IntroscopeMetricCatalog();
+        catalog.setMetrics(new ArrayList<>(found));
+        long now = System.currentTimeMillis();
+        for (String agentExpression : agentExpressions) {
+            if (pruned.contains(agentExpression)) {
+                LOGGER.info("Discovery of {} is incomplete, the namespace cache does not skip its queries",
+                        agentExpression);
+            }
+            catalog.getCoverage().put(agentExpression, new IntroscopeDiscoveryCoverage(now,
+                    window.getFrom().toInstant().toEpochMilli(), window.getTo().toInstant().toEpochMilli(),
+                    !pruned.contains(agentExpression), expanded.get(agentExpression)));
+        }
+        return catalog;
+    }
+
+    //-------------------------------------------------------------
+    // Methods: Internals
+    //-------------------------------------------------------------
+
+    /**
+     * Queries all metrics one and two levels below a node.
+     *
+     * @param statement
+     *         The statement of the current thread
+     * @param node
+     *         The node to be expanded
+     * @param window
+     *         The discovered window
+     * @return The found metrics
+     * @throws SQLException
+     *         if the query fails
+     */
+    private List<IntroscopeMetricCatalog.Entry> query(final Statement statement,
+                                                      final Node node,
+                                                      final TimeRange window) throws SQLException {
+        String metricExpression = node.path.isEmpty()
+                ? CHILDREN_EXPRESSION
+                : IntroscopeUtils.escape(node.path) + IntroscopeUtils.ESCAPED_PATH_DELIMITER + CHILDREN_EXPRESSION;
+        String queryString = String.format(JDBC_TEMPLATE,
+                node.agentExpression,
+                metricExpression,
+                timeService.format(configuration.getJDBCDateFormat(), window.getFrom()),
+                timeService.format(configuration.getJDBCDateFormat(), window.getTo()));
+        LOGGER.debug(queryString);
+        List<IntroscopeMetricCatalog.Entry> rows = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery(queryString)) {
+            while (resultSet.next()) {
+                String resource = Strings.nullToEmpty(resultSet.getString(RS_ENTRY_RESOURCE));
+                //Skip rows which do not belong to the node, e.g. if the EM returns the node itself
+                if (node.path.isEmpty() || resource.startsWith(node.path + "|")) {
+                    rows.add(new IntroscopeMetricCatalog.Entry(
+                            resultSet.getString(RS_ENTRY_AGENT_NAME),
+                            resource,
+                            resultSet.getString(RS_ENTRY_METRIC_NAME)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Checks if a resource path is excluded from the discovery.
+     *
+     * @param excludes
+     *         The exclude patterns
+     * @param path
+     *         The resource path
+     * @return true if any exclude pattern matches the path
+     */
+    private static boolean isExcluded(final List<Pattern> excludes,
+                                      final String path) {
+        for (Pattern exclude : excludes) {
+            if (exclude.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Closes a connection without failing.
+     *
+     * @param connection
+     *         The connection to be closed
+     */
+    private void closeQuietly(final Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Failed to close connection", e);
+        }
+    }
+
+    /**
+     * One node of the resource tree of an agent expression.
+     */
+    private static final class Node {
+
+        /**
+         * The agent expression.
+         */
+        private final String agentExpression;
+
+        /**
+         * The plain resource path of this node. Empty for the root node.
+         */
+        private final String path;
+
+        /**
+         * The depth of this node. The root node has depth 0.
+         */
+        private final int depth;
+
+        /**
+         * Creates a new Node.
+         *
+         * @param agentExpression
+         *         The agent expression
+         * @param path
+         *         The resource path
+         * @param depth
+         *         The depth
+         */
+        private Node(String agentExpression,
+                     String path,
+                     int depth) {
+            this.agentExpression = agentExpression;
+            this.path = path;
+            this.depth = depth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Node that = (Node) o;
+            return Objects.equal(agentExpression, that.agentExpression) &&
+                    Objects.equal(path, that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(agentExpression, path);
+        }
+    }
+}
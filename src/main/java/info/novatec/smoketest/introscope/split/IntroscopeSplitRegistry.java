@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope.split;
+
+import com.google.common.base.Strings;
+import info.novatec.smoketest.introscope.IntroscopeConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Registry of all query fingerprints which needed splitting. The registry is stored as plain text file with one
+ * fingerprint per line, so later runs split these queries up front.
+ *
+ * @author Claudio Waldvogel
+ * @see IntroscopeSplittingInterceptor
+ */
+@Singleton
+public class IntroscopeSplitRegistry {
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntroscopeSplitRegistry.class);
+
+    /**
+     * The {@link IntroscopeConfiguration}.
+     */
+    private IntroscopeConfiguration configuration;
+
+    /**
+     * All fingerprints which need splitting.
+     */
+    private final Set<String> fingerprints = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Flag to indicate that fingerprints were added since the registry was loaded.
+     */
+    private volatile boolean dirty;
+
+    /**
+     * Creates a new IntroscopeSplitRegistry.
+     *
+     * @param configuration
+     *         The {@link IntroscopeConfiguration}
+     */
+    @Inject
+    public IntroscopeSplitRegistry(final IntroscopeConfiguration configuration) {
+        this.configuration = checkNotNull(configuration);
+    }
+
+    /**
+     * Loads the registry file and ensures that the registry is stored when the JVM shuts down.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (Strings.isNullOrEmpty(configuration.getSplitRegistryFile())) {
+            return;
+        }
+        Path file = Paths.get(configuration.getSplitRegistryFile());
+        if (Files.exists(file)) {
+            try {
+                Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+                        .filter(line -> !line.isEmpty())
+                        .forEach(fingerprints::add);
+                LOGGER.info("Loaded {} split queries from {}", fingerprints.size(), file);
+            } catch (IOException e) {
+                LOGGER.warn("Ignoring unreadable split registry: " + file, e);
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::saveQuietly, "split-registry"));
+    }
+
+    /**
+     * @param fingerprint
+     *         The fingerprint of a query
+     * @return true if the query needs splitting
+     */
+    public boolean contains(final String fingerprint) {
+        return fingerprints.contains(fingerprint);
+    }
+
+    /**
+     * Remembers that a query needs splitting.
+     *
+     * @param fingerprint
+     *         The fingerprint of the query
+     */
+    public void add(final String fingerprint) {
+        if (fingerprints.add(fingerprint)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Stores the registry in the registry file.
+     *
+     * @throws IOException
+     *         if the file could not be written
+     */
+    public void save() throws IOException {
+        if (Strings.isNullOrEmpty(configuration.getSplitRegistryFile()) || !dirty) {
+            return;
+        }
+        Path file = Paths.get(configuration.getSplitRegistryFile()).toAbsolutePath();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        List<String> lines = new ArrayList<>(fingerprints);
+        lines.sort(String::compareTo);
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    /**
+     * Stores the registry and logs failures.
+     */
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to store split registry", e);
+        }
+    }
+}
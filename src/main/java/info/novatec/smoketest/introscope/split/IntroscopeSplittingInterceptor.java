@@ -0,0 +1,350 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 NovaTec Consulting GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package info.novatec.smoketest.introscope.split;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.model.storage.IResultCodec;
+import info.novatec.smoketest.core.service.collector.CollectorInvocation;
+import info.novatec.smoketest.core.service.collector.ICollectorInterceptor;
+import info.novatec.smoketest.core.service.collector.MetricDataCollectorException;
+import info.novatec.smoketest.introscope.IntroscopeConfiguration;
+import info.novatec.smoketest.introscope.IntroscopeConnectionFactory;
+import info.novatec.smoketest.introscope.IntroscopeMetric;
+import info.novatec.smoketest.introscope.IntroscopeMetricTestResult;
+import info.novatec.smoketest.introscope.IntroscopeMetricTestResultCodec;
+import info.novatec.smoketest.introscope.IntroscopeNamePool;
+import info.novatec.smoketest.introscope.IntroscopeUtils;
+import info.novatec.smoketest.introscope.cache.IntroscopeNamespaceCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link ICollectorInterceptor} which splits over-broad Introscope queries into one query per agent. The agent queries
+ * are executed in parallel and their results are merged into one {@link MetricTestResultSet} of the original
+ * definition.
+ * <p>
+ * A query is remembered in the {@link IntroscopeSplitRegistry} if it failed, was truncated, or exceeded the configured
+ * row or latency threshold. Remembered queries are split up front. Failed and truncated queries are split immediately
+ * to still provide complete results.
+ * <p>
+ * The agents are taken from the {@link IntroscopeNamespaceCache}. If the cache does not know any agent, the agents of
+ * a truncated result are used. Since these agents might not be complete, the merged result set stays truncated.
+ *
+ * @author Claudio Waldvogel
+ */
+@Singleton
+public class IntroscopeSplittingInterceptor implements ICollectorInterceptor {
+
+    /**
+     * The order of this interceptor. Splitting should happen as close to the collector as possible.
+     */
+    public static final int ORDER = 1000;
+
+    /**
+     * The slf4j logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntroscopeSplittingInterceptor.class);
+
+    /**
+     * The {@link IntroscopeConfiguration}.
+     */
+    private IntroscopeConfiguration configuration;
+
+    /**
+     * The {@link IntroscopeSplitRegistry}.
+     */
+    private IntroscopeSplitRegistry registry;
+
+    /**
+     * The {@link IntroscopeNamespaceCache} knowing the agents.
+     */
+    private IntroscopeNamespaceCache namespaceCache;
+
+    /**
+     * The {@link IntroscopeConnectionFactory} knowing the endpoints.
+     */
+    private IntroscopeConnectionFactory connectionFactory;
+
+    /**
+     * The {@link IntroscopeMetricTestResultCodec} to move large merged results off the heap.
+     */
+    private IntroscopeMetricTestResultCodec codec;
+
+    /**
+     * The executor of all agent queries.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Creates a new IntroscopeSplittingInterceptor.
+     *
+     * @param configuration
+     *         The {@link IntroscopeConfiguration}
+     * @param registry
+     *         The {@link IntroscopeSplitRegistry}
+     * @param namespaceCache
+     *         The {@link IntroscopeNamespaceCache}
+     * @param connectionFactory
+     *         The {@link IntroscopeConnectionFactory}
+     * @param namePool
+     *         The {@link IntroscopeNamePool}
+     */
+    @Inject
+    public IntroscopeSplittingInterceptor(final IntroscopeConfiguration configuration,
+                                          final IntroscopeSplitRegistry registry,
+                                          final IntroscopeNamespaceCache namespaceCache,
+                                          final IntroscopeConnectionFactory connectionFactory,
+                                          final IntroscopeNamePool namePool) {
+        this.configuration = checkNotNull(configuration);
+        this.registry = checkNotNull(registry);
+        this.namespaceCache = checkNotNull(namespaceCache);
+        this.connectionFactory = checkNotNull(connectionFactory);
+        this.codec = new IntroscopeMetricTestResultCodec(namePool);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, configuration.getSplitParallelism()),
+                new ThreadFactoryBuilder().setNameFormat("split-%d").setDaemon(true).build());
+    }
+
+    //-------------------------------------------------------------
+    // Interface Implementation: ICollectorInterceptor
+    //-------------------------------------------------------------
+
+    @Override
+    public <IN extends IMetricDefinition, OUT extends IMetricTestResult> MetricTestResultSet<IN, OUT> intercept(
+            CollectorInvocation<IN, OUT> invocation) throws MetricDataCollectorException {
+        if (!(invocation.getDefinition() instanceof IntroscopeMetric)) {
+            return invocation.proceed();
+        }
+        IntroscopeMetric metric = (IntroscopeMetric) invocation.getDefinition();
+        String fingerprint = metric.getFullQualifiedName();
+        if (registry.contains(fingerprint)) {
+            List<String> agents = cachedAgents(metric);
+            if (agents.size() > 1) {
+                return split(invocation, metric, agents);
+            }
+        }
+
+        MetricTestResultSet<IN, OUT> resultSet;
+        try {
+            resultSet = invocation.proceed();
+        } catch (MetricDataCollectorException e) {
+            List<String> agents = cachedAgents(metric);
+            if (agents.size() <= 1) {
+                throw e;
+            }
+            LOGGER.info("Splitting failed query by {} agents: {}", agents.size(), fingerprint);
+            registry.add(fingerprint);
+            return split(invocation, metric, agents);
+        }
+
+        if (isTooBroad(resultSet, invocation.getElapsedNanos())) {
+            registry.add(fingerprint);
+            if (resultSet.isTruncated()) {
+                List<String> agents = cachedAgents(metric);
+                boolean complete = agents.size() > 1;
+                if (!complete) {
+                    agents = agentsOf(resultSet);
+                }
+                if (agents.size() > 1) {
+                    LOGGER.info("Splitting truncated query by {} agents: {}", agents.size(), fingerprint);
+                    MetricTestResultSet<IN, OUT> merged = split(invocation, metric, agents);
+                    merged.setTruncated(merged.isTruncated() || !complete);
+                    resultSet.release();
+                    return merged;
+                }
+            }
+        }
+        return resultSet;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    //-------------------------------------------------------------
+    // Methods: Internals
+    //-------------------------------------------------------------
+
+    /**
+     * Checks if a query exceeded the row or latency threshold.
+     *
+     * @param resultSet
+     *         The result set of the query
+     * @param elapsedNanos
+     *         The duration of the query
+     * @return true if the query should be split
+     */
+    private boolean isTooBroad(final MetricTestResultSet<?, ?> resultSet,
+                               final long elapsedNanos) {
+        return resultSet.isTruncated()
+                || (configuration.getSplitRowThreshold() > 0
+                && resultSet.getResults().size() >= configuration.getSplitRowThreshold())
+                || (configuration.getSplitLatencyThreshold() > 0
+                && elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(configuration.getSplitLatencyThreshold()));
+    }
+
+    /**
+     * Gets the agents of a metric known by the namespace cache. The cache only knows the agents of a single
+     * Enterprise Manager, thus no agents are returned if several endpoints are tested.
+     *
+     * @param metric
+     *         The {@link IntroscopeMetric}
+     * @return The known agents
+     */
+    private List<String> cachedAgents(final IntroscopeMetric metric) {
+        if (connectionFactory.getEndpoints().size() > 1) {
+            return Collections.emptyList();
+        }
+        return namespaceCache.agents(metric.getAgentExpression());
+    }
+
+    /**
+     * Gets all distinct agents of a result set.
+     *
+     * @param resultSet
+     *         The result set
+     * @return The agents
+     */
+    private static List<String> agentsOf(final MetricTestResultSet<?, ?> resultSet) {
+        Set<String> agents = new LinkedHashSet<>();
+        for (IMetricTestResult result : resultSet.getResults()) {
+            if (result instanceof IntroscopeMetricTestResult
+                    && ((IntroscopeMetricTestResult) result).getAgentName() != null) {
+                agents.add(((IntroscopeMetricTestResult) result).getAgentName());
+            }
+        }
+        return new ArrayList<>(agents);
+    }
+
+    /**
+     * Executes one query per agent in parallel and merges all results. The merged result set is moved off the heap and
+     * truncated like the result of a single query, so splitting never bypasses the row and byte budget.
+     *
+     * @param invocation
+     *         The {@link CollectorInvocation}
+     * @param metric
+     *         The original {@link IntroscopeMetric}
+     * @param agents
+     *         The plain agent names
+     * @param <IN>
+     *         The type of IMetricDefinition
+     * @param <OUT>
+     *         The type of IMetricTestResult
+     * @return The merged result set of the original definition
+     * @throws MetricDataCollectorException
+     *         if any agent query fails
+     */
+    @SuppressWarnings("unchecked")
+    private <IN extends IMetricDefinition, OUT extends IMetricTestResult> MetricTestResultSet<IN, OUT> split(
+            final CollectorInvocation<IN, OUT> invocation,
+            final IntroscopeMetric metric,
+            final List<String> agents) throws MetricDataCollectorException {
+        List<Future<MetricTestResultSet<IN, OUT>>> parts = new ArrayList<>(agents.size());
+        for (String agent : agents) {
+            IN agentMetric = (IN) new IntroscopeMetric(IntroscopeUtils.escape(agent), metric.getResourceExpression(),
+                    metric.getMetricExpression(), metric.getEnvironment(), metric.isProbe(), metric.getWindow(),
+                    metric.getFrequency());
+            parts.add(executor.submit(() -> invocation.proceed(agentMetric)));
+        }
+        MetricTestResultSet<IN, OUT> merged = new MetricTestResultSet<>(invocation.getDefinition());
+        List<String> queries = new ArrayList<>(agents.size());
+        int rows = 0;
+        long bytes = 0;
+        try {
+            for (Future<MetricTestResultSet<IN, OUT>> part : parts) {
+                MetricTestResultSet<IN, OUT> resultSet = part.get();
+                try {
+                    if (resultSet.getQuery() != null) {
+                        queries.add(resultSet.getQuery());
+                    }
+                    merged.setTruncated(merged.isTruncated() || resultSet.isTruncated());
+                    for (OUT result : resultSet.getResults()) {
+                        if (isBudgetExceeded(rows, bytes)) {
+                            LOGGER.warn("Truncated merged results after {} rows ({} bytes): {}", rows, bytes,
+                                    metric.getFullQualifiedName());
+                            merged.setTruncated(true);
+                            break;
+                        }
+                        merged.addResult(result);
+                        rows++;
+                        if (rows == configuration.getOffHeapThreshold()) {
+                            LOGGER.debug("Moving merged results off-heap: {}", metric.getFullQualifiedName());
+                            merged.spill((IResultCodec<OUT>) codec);
+                        }
+                        bytes += ((IntroscopeMetricTestResult) result).estimateSize();
+                    }
+                } finally {
+                    resultSet.release();
+                }
+            }
+            merged.setQuery(String.join("\n", queries));
+        } catch (InterruptedException e) {
+            merged.release();
+            Thread.currentThread().interrupt();
+            throw new MetricDataCollectorException("Interrupted while splitting: " + metric.getFullQualifiedName(), e);
+        } catch (ExecutionException e) {
+            merged.release();
+            parts.forEach(part -> part.cancel(true));
+            if (e.getCause() instanceof MetricDataCollectorException) {
+                throw (MetricDataCollectorException) e.getCause();
+            }
+            throw new MetricDataCollectorException("Failed to split: " + metric.getFullQualifiedName(), e.getCause());
+        }
+        return merged;
+    }
+
+    /**
+     * Checks if the row or byte budget of a query is used up by the merged results.
+     *
+     * @param rows
+     *         The count of merged rows
+     * @param bytes
+     *         The estimated size of all merged rows
+     * @return true if no further row must be merged
+     */
+    private boolean isBudgetExceeded(final int rows,
+                                     final long bytes) {
+        return (configuration.getMaxRowsPerQuery() > 0 && rows >= configuration.getMaxRowsPerQuery())
+                || (configuration.getMaxBytesPerQuery() > 0 && bytes >= configuration.getMaxBytesPerQuery());
+    }
+}
@@ -0,0 +1,110 @@
+package info.novatec.smoketest.core.model.validation;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class DistributionTest {
+
+    @Test
+    public void testCombineMatchesSinglePass() {
+        Random random = new Random(7);
+        double[] values = new double[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 100 + i * 0.5 + random.nextGaussian() * 20;
+        }
+
+        Distribution single = new Distribution(true);
+        Arrays.stream(values).forEach(single::add);
+        Distribution combined = new Distribution(true);
+        for (int from = 0; from < values.length; from += 1234) {
+            Distribution part = new Distribution(true);
+            Arrays.stream(values, from, Math.min(values.length, from + 1234)).forEach(part::add);
+            combined.combine(part);
+        }
+
+        double mean = Arrays.stream(values).average().getAsDouble();
+        double variance = Arrays.stream(values).map(v -> (v - mean) * (v - mean)).sum() / (values.length - 1);
+        for (Distribution distribution : new Distribution[]{single, combined}) {
+            assertEquals(distribution.getCount(), values.length);
+            assertEquals(distribution.getMean(), mean, 1e-9);
+            assertEquals(distribution.getStandardDeviation(), Math.sqrt(variance), 1e-6);
+        }
+        assertEquals(combined.getQuantile(0.95), single.getQuantile(0.95), 0);
+    }
+
+    @Test
+    public void testSlopeByTimestamp() {
+        Random random = new Random(7);
+        double[][] points = new double[10_000][];
+        for (int i = 0; i < points.length; i++) {
+            double time = 1.5e9 + i * 15;
+            points[i] = new double[]{time, 100 + i * 15 * 0.5 + random.nextGaussian() * 20};
+        }
+        //The slope must not depend on the order of the results
+        Collections.shuffle(Arrays.asList(points), random);
+
+        Distribution single = new Distribution(false);
+        Arrays.stream(points).forEach(point -> single.add(point[1], point[0]));
+        Distribution combined = new Distribution(false);
+        for (int from = 0; from < points.length; from += 1234) {
+            Distribution part = new Distribution(false);
+            Arrays.stream(points, from, Math.min(points.length, from + 1234))
+                    .forEach(point -> part.add(point[1], point[0]));
+            combined.combine(part);
+        }
+        assertEquals(single.getSlope(), 0.5, 0.01);
+        assertEquals(combined.getSlope(), single.getSlope(), 1e-9);
+
+        Distribution untimed = new Distribution(false);
+        untimed.add(1);
+        untimed.add(2);
+        assertEquals(untimed.getSlope(), 0.0);
+    }
+
+    @Test
+    public void testQuantiles() {
+        Distribution distribution = new Distribution(true);
+        for (int i = 1; i <= 1000; i++) {
+            distribution.add(i);
+        }
+        assertEquals(distribution.getQuantile(0), 1.0);
+        assertEquals(distribution.getQuantile(1), 1000.0);
+        for (double quantile : new double[]{0.5, 0.9, 0.95, 0.99}) {
+            double expected = quantile * 1000;
+            assertEquals(distribution.getQuantile(quantile), expected, expected * Distribution.PRECISION);
+        }
+        assertTrue(Double.isNaN(new Distribution(true).getQuantile(0.5)));
+        assertEquals(new Distribution(false).getStandardDeviation(), 0.0);
+    }
+
+    @Test
+    public void testNegativeQuantiles() {
+        Distribution distribution = new Distribution(true);
+        for (int i = -1000; i <= 1000; i++) {
+            distribution.add(i);
+        }
+        assertEquals(distribution.getQuantile(0), -1000.0);
+        assertEquals(distribution.getQuantile(0.5), 0.0);
+        assertEquals(distribution.getQuantile(1), 1000.0);
+        for (double quantile : new double[]{0.05, 0.25, 0.75, 0.95}) {
+            double expected = (quantile - 0.5) * 2000;
+            assertEquals(distribution.getQuantile(quantile), expected, Math.abs(expected) * Distribution.PRECISION);
+        }
+
+        distribution = new Distribution(true);
+        for (int i = 1; i <= 100; i++) {
+            distribution.add(-i * 0.5);
+        }
+        //The 90th of 100 ascending values -50, -49.5, ..., -0.5
+        assertEquals(distribution.getQuantile(0.9), -5.5, 5.5 * Distribution.PRECISION);
+    }
+}
@@ -0,0 +1,263 @@
+package info.novatec.smoketest.core.model.validation;
+
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.support.DummyMetric;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class ValidationRulesTest {
+
+    private static final int SIZE = 10 * FusedRule.SEQUENTIAL_THRESHOLD + 7;
+
+    private static final Predicate<IMetricTestResult> POSITIVE = result -> Double.parseDouble(result.getValue()) > 0;
+
+    @Test
+    public void testSerialAndParallelAgree() {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet = resultSet(SIZE, -1);
+        assertValid(ValidationRules.notEmpty(), resultSet, true);
+        assertValid(ValidationRules.notZero(), resultSet, true);
+        assertValid(ValidationRules.all("positive", POSITIVE), resultSet, true);
+        assertValid(ValidationRules.any("positive", POSITIVE), resultSet, true);
+        assertValid(ValidationRules.count("positive", POSITIVE, SIZE, SIZE), resultSet, true);
+        assertValid(ValidationRules.count("positive", POSITIVE, 0, SIZE - 1), resultSet, false);
+        assertValid(ValidationRules.minAtLeast(1), resultSet, true);
+        assertValid(ValidationRules.minAtLeast(2), resultSet, false);
+        assertValid(ValidationRules.maxAtMost(SIZE), resultSet, true);
+        assertValid(ValidationRules.maxAtMost(SIZE - 1), resultSet, false);
+        assertValid(ValidationRules.sumBetween(0, (double) SIZE * (SIZE + 1) / 2), resultSet, true);
+        assertValid(ValidationRules.sumBetween(0, (double) SIZE * (SIZE + 1) / 2 - 1), resultSet, false);
+    }
+
+    @Test
+    public void testViolationIsFound() {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet = resultSet(SIZE, SIZE - 3);
+        assertValid(ValidationRules.notZero(), resultSet, false);
+        assertValid(ValidationRules.all("not zero", result -> !"0".equals(result.getValue())), resultSet, false);
+        assertValid(ValidationRules.any("zero", result -> "0".equals(result.getValue())), resultSet, true);
+        assertValid(ValidationRules.count("zero", result -> "0".equals(result.getValue()), 1, 1), resultSet, true);
+
+        IValidationRule<IMetricDefinition, IMetricTestResult> rule = ValidationRules.all("small",
+                result -> Double.parseDouble(result.getValue()) < 10);
+        assertEquals(rule.apply(resultSet).getMessage(), "Not all results are small: 10");
+    }
+
+    @Test
+    public void testEmptyResultSet() {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet = resultSet(0, -1);
+        assertValid(ValidationRules.notEmpty(), resultSet, false);
+        assertValid(ValidationRules.all("positive", POSITIVE), resultSet, true);
+        assertValid(ValidationRules.any("positive", POSITIVE), resultSet, false);
+        assertValid(ValidationRules.maxAtMost(1), resultSet, false);
+    }
+
+    @Test
+    public void testFusedRuleReportsAllFailures() {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet = resultSet(SIZE, SIZE - 3);
+        FusedRule<IMetricDefinition, IMetricTestResult> rule = FusedRule.of(Arrays.asList(
+                ValidationRules.notEmpty(),
+                ValidationRules.any("zero", result -> "0".equals(result.getValue())),
+                ValidationRules.all("small", result -> Double.parseDouble(result.getValue()) < 10),
+                ValidationRules.maxAtMost(1),
+                set -> ValidationResult.invalid("Custom")));
+
+        String expected = "Not all results are small: 10; Maximum " + (double) SIZE + " exceeds 1.0; Custom";
+        assertEquals(rule.apply(resultSet).getMessage(), expected);
+        assertFalse(rule.applyParallel(resultSet).isValid());
+        assertEquals(rule.applyParallel(resultSet).getMessage().split("; ").length, 3);
+
+        assertTrue(FusedRule.of(Arrays.asList(ValidationRules.notEmpty(), ValidationRules.notZero()))
+                .apply(resultSet(SIZE, -1)).isValid());
+    }
+
+    @Test
+    public void testThresholds() {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet = resultSet(SIZE, -1);
+        assertValid(ValidationRules.greaterThan(0), resultSet, true);
+        assertValid(ValidationRules.greaterThan(1), resultSet, false);
+        assertValid(ValidationRules.lessThan(SIZE + 1), resultSet, true);
+        assertValid(ValidationRules.lessThan(SIZE), resultSet, false);
+        assertValid(ValidationRules.between(1, SIZE), resultSet, true);
+        assertValid(ValidationRules.between(2, SIZE), resultSet, false);
+        assertValid(ValidationRules.withinPercentOf(SIZE, 100), resultSet, true);
+        assertValid(ValidationRules.withinPercentOf(SIZE, 50), resultSet, false);
+        assertValid(ValidationRules.greaterThan(0), resultSet(0, -1), false);
+
+        assertEquals(ValidationRules.lessThan(10).apply(resultSet).getMessage(), "Value 10 is not less than 10.0");
+    }
+
+    @Test
+    public void testStatistics() {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet = resultSet(SIZE, -1);
+        double stddev = Math.sqrt((double) SIZE * (SIZE + 1) / 12);
+        assertValid(ValidationRules.percentileAtMost(95, SIZE * 0.96), resultSet, true);
+        assertValid(ValidationRules.percentileAtMost(95, SIZE * 0.94), resultSet, false);
+        assertValid(ValidationRules.percentileAtMost(100, SIZE), resultSet, true);
+        assertValid(ValidationRules.standardDeviationAtMost(stddev + 1), resultSet, true);
+        assertValid(ValidationRules.standardDeviationAtMost(stddev - 1), resultSet, false);
+        assertValid(ValidationRules.standardDeviationAtMost(0), resultSet(0, -1), false);
+    }
+
+    @Test
+    public void testExpression() {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet = resultSet(SIZE, -1);
+        assertValid(ValidationRules.expression("count >= 3 && min > 0 && value < " + (SIZE + 1)), resultSet, true);
+        assertValid(ValidationRules.expression("count == " + SIZE + " && avg * 2 == max + 1"), resultSet, true);
+        assertValid(ValidationRules.expression("!(value <= 0) || value == -1"), resultSet, true);
+        assertValid(ValidationRules.expression("value < 10"), resultSet, false);
+        assertValid(ValidationRules.expression("count < 3 || sum < 0"), resultSet, false);
+        assertValid(ValidationRules.expression("min > 0"), resultSet(0, -1), false);
+        assertValid(ValidationRules.expression("value > 0"), resultSet(0, -1), true);
+
+        assertEquals(ValidationRules.expression("count > 0 && value < 10").apply(resultSet).getMessage(),
+                "Violated 'value < 10' by value 10");
+        assertEquals(ValidationRules.expression("value > 0 && max <= 2").apply(resultSet(3, -1)).getMessage(),
+                "Violated 'max <= 2' with count=3, min=1.0, max=3.0, sum=6.0, avg=2.0");
+    }
+
+    @Test
+    public void testMonotonicByTimestamp() {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> rising = timeSeries(1);
+        assertValid(ValidationRules.monotonic(true), rising, true);
+        assertValid(ValidationRules.monotonic(false), rising, false);
+        assertValid(ValidationRules.monotonic(false), timeSeries(-1), true);
+        assertValid(ValidationRules.monotonic(true), resultSet(SIZE, -1), false);
+        assertValid(ValidationRules.monotonic(true), resultSet(0, -1), false);
+
+        add(rising, "agent0", "0", 1000L * SIZE + 1);
+        assertValid(ValidationRules.monotonic(true), rising, false);
+        assertEquals(ValidationRules.monotonic(true).apply(rising).getMessage(),
+                "Results of agent0 are not monotonically increasing at value 0.0");
+        assertEquals(ValidationRules.monotonic(true).apply(resultSet(3, -1)).getMessage(),
+                "Not time-sliced: metric");
+    }
+
+    @Test
+    public void testSlopeByTimestamp() {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> rising =
+                new MetricTestResultSet<>(new DummyMetric("metric"));
+        for (int i = SIZE; i > 0; i--) {
+            add(rising, "metric", String.valueOf(2 * i), 1000L * i);
+        }
+        assertValid(ValidationRules.slopeAtMost(2.0001), rising, true);
+        assertValid(ValidationRules.slopeAtMost(0), rising, false);
+        assertValid(ValidationRules.slopeAtMost(0), resultSet(SIZE, -1), false);
+        assertValid(ValidationRules.slopeAtMost(0), resultSet(0, -1), false);
+
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> falling =
+                new MetricTestResultSet<>(new DummyMetric("metric"));
+        add(falling, "metric", "3", 15000);
+        add(falling, "metric", "1", 45000);
+        add(falling, "metric", "2", 30000);
+        assertValid(ValidationRules.slopeAtMost(0), falling, true);
+        assertEquals(ValidationRules.slopeAtMost(-0.1).apply(falling).getMessage(),
+                "Slope -0.06666666666666667 exceeds -0.1");
+        assertEquals(ValidationRules.slopeAtMost(0).apply(resultSet(3, -1)).getMessage(),
+                "Not time-sliced: metric");
+    }
+
+    @Test
+    public void testExpressionWithNonNumericValue() {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet = resultSet("1", "n/a");
+        assertValid(ValidationRules.expression("value != 0"), resultSet, false);
+        assertValid(ValidationRules.expression("!(value <= 0)"), resultSet, false);
+        assertValid(ValidationRules.expression("!!(value > 0)"), resultSet, false);
+        assertValid(ValidationRules.expression("value >= 1 || value < 1"), resultSet, false);
+        assertValid(ValidationRules.expression("avg != 0"), resultSet("n/a"), false);
+        assertValid(ValidationRules.expression("!(avg == 0)"), resultSet("n/a"), false);
+        assertValid(ValidationRules.expression("count == 1"), resultSet("n/a"), true);
+    }
+
+    @Test
+    public void testInvalidExpression() {
+        for (String expression : new String[]{"count >", "count + 1", "value > min", "foo > 1", "(count > 1",
+                "count > 1 1", "count && value"}) {
+            try {
+                ValidationExpression.parse(expression);
+                fail("Expected failure for: " + expression);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().endsWith(expression), e.getMessage());
+            }
+        }
+    }
+
+    private static void assertValid(final IValidationRule<IMetricDefinition, IMetricTestResult> rule,
+                                    final MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet,
+                                    final boolean valid) {
+        assertTrue(rule instanceof IParallelValidationRule);
+        assertEquals(rule.apply(resultSet).isValid(), valid);
+        assertEquals(((IParallelValidationRule<IMetricDefinition, IMetricTestResult>) rule).applyParallel(resultSet)
+                .isValid(), valid);
+    }
+
+    private static MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet(final int size,
+                                                                                     final int zero) {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet =
+                new MetricTestResultSet<>(new DummyMetric("metric"));
+        for (int i = 0; i < size; i++) {
+            add(resultSet, i == zero ? "0" : String.valueOf(i + 1));
+        }
+        assertFalse(resultSet.isTruncated());
+        return resultSet;
+    }
+
+    private static MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet(final String... values) {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet =
+                new MetricTestResultSet<>(new DummyMetric("metric"));
+        for (String value : values) {
+            add(resultSet, value);
+        }
+        return resultSet;
+    }
+
+    /**
+     * Two metrics whose values follow their timestamps, but whose rows are interleaved in reverse order.
+     */
+    private static MetricTestResultSet<IMetricDefinition, IMetricTestResult> timeSeries(final int direction) {
+        MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet =
+                new MetricTestResultSet<>(new DummyMetric("metric"));
+        for (int i = SIZE; i > 0; i--) {
+            int agent = i % 2;
+            add(resultSet, "agent" + agent, String.valueOf(direction * (i + agent * 100000)), 1000L * i);
+        }
+        return resultSet;
+    }
+
+    private static void add(final MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet,
+                            final String value) {
+        add(resultSet, "metric", value, 0);
+    }
+
+    private static void add(final MetricTestResultSet<IMetricDefinition, IMetricTestResult> resultSet,
+                            final String name,
+                            final String value,
+                            final long timestamp) {
+        resultSet.addResult(new IMetricTestResult() {
+            @Override
+            public String getFullQualifiedMetricName() {
+                return name;
+            }
+
+            @Override
+            public String getValue() {
+                return value;
+            }
+
+            @Override
+            public long getTimestamp() {
+                return timestamp;
+            }
+        });
+    }
+}
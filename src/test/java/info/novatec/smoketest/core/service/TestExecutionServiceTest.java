@@ -1,18 +1,54 @@
 package info.novatec.smoketest.core.service;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
+import com.google.inject.multibindings.Multibinder;
 import info.novatec.smoketest.core.CoreBundle;
 import info.novatec.smoketest.core.SmokeTestConfiguration;
 import info.novatec.smoketest.core.application.Bundle;
 import info.novatec.smoketest.core.application.Environment;
+import info.novatec.smoketest.core.application.Setup;
+import info.novatec.smoketest.core.model.IMetricDefinition;
+import info.novatec.smoketest.core.model.IMetricTestResult;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.model.TestLevel;
+import info.novatec.smoketest.core.service.collector.CollectorInvocation;
+import info.novatec.smoketest.core.service.collector.ICollectorInterceptor;
+import info.novatec.smoketest.core.service.testing.ExecutionPlan;
+import info.novatec.smoketest.core.service.testing.ExecutionPlanner;
 import info.novatec.smoketest.core.service.testing.ITestExecutionService;
+import info.novatec.smoketest.core.service.testing.NativeTestExecutionService;
+import info.novatec.smoketest.core.service.testing.PlanExecutionService;
+import info.novatec.smoketest.core.service.testing.RunBudget;
+import info.novatec.smoketest.core.service.testing.TestOutcome;
+import info.novatec.smoketest.core.service.testing.TestPipeline;
 import info.novatec.smoketest.core.service.testing.report.StatisticsReport;
 import info.novatec.smoketest.core.service.testing.report.StatisticsReporter;
+import info.novatec.smoketest.support.DummyMetric;
+import info.novatec.smoketest.support.DummyMetricDataCollector;
+import info.novatec.smoketest.support.DummyMetricResult;
 import info.novatec.smoketest.support.DummyTechnologyBundle;
 import info.novatec.smoketest.support.Support;
 import info.novatec.smoketest.support.TestWith2MetricEachOneResultOnLevel0AndLevel1;
+import info.novatec.smoketest.support.TestWithFailingCanary;
 import info.novatec.smoketest.support.TestWithOneMetricOneResultOnLevel0;
+import info.novatec.smoketest.support.TestWithParallelValidation;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import org.testng.annotations.Test;
+import org.uncommons.reportng.HTMLReporter;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
@@ -118,8 +154,482 @@ public class TestExecutionServiceTest {
 
         environment.run();
         assertEquals(reporter.getExecutedTests(), 1);
-        assertEquals(reporter.getSkippedTests(), 1);
+        //The planner removes tests which are out of scope before execution
+        assertEquals(reporter.getPassedTests(), 1);
+        assertEquals(reporter.getSkippedTests(), 0);
+    }
+
+    @Test
+    public void testCollectorInterceptors() {
+        List<String> invocations = new ArrayList<>();
+        StatisticsReporter<SmokeTestConfiguration> reporter = new StatisticsReporter<>();
+
+        Environment<SmokeTestConfiguration> environment =
+                Support.readyEnvironment(SmokeTestConfiguration.class,
+                        new CoreBundle(),
+                        new DummyTechnologyBundle<>(),
+                        new Bundle<SmokeTestConfiguration>() {
+
+                            @Inject
+                            private ITestExecutionService executionService;
+
+                            @Override
+                            public void configure(Environment.Builder<SmokeTestConfiguration> builder) {
+                                builder.tests(TestWithOneMetricOneResultOnLevel0.class);
+                                builder.services(new AbstractModule() {
+                                    @Override
+                                    protected void configure() {
+                                        Multibinder<ICollectorInterceptor> interceptors =
+                                                Multibinder.newSetBinder(binder(), ICollectorInterceptor.class);
+                                        interceptors.addBinding().toInstance(new ICollectorInterceptor() {
+                                            @Override
+                                            public <IN extends IMetricDefinition, OUT extends IMetricTestResult>
+                                            MetricTestResultSet<IN, OUT> intercept(
+                                                    CollectorInvocation<IN, OUT> invocation) {
+                                                invocations.add("inner");
+                                                return invocation.proceed();
+                                            }
+
+                                            @Override
+                                            public int getOrder() {
+                                                return 1;
+                                            }
+                                        });
+                                        interceptors.addBinding().toInstance(new ICollectorInterceptor() {
+                                            @Override
+                                            public <IN extends IMetricDefinition, OUT extends IMetricTestResult>
+                                            MetricTestResultSet<IN, OUT> intercept(
+                                                    CollectorInvocation<IN, OUT> invocation) {
+                                                MetricTestResultSet<IN, OUT> resultSet = invocation.proceed();
+                                                invocations.add("outer " + (invocation.getElapsedNanos() >= 0));
+                                                return resultSet;
+                                            }
+                                        });
+                                    }
+                                });
+                            }
+
+                            @Override
+                            public void run(Environment<SmokeTestConfiguration> environment) {
+                                executionService.addReporter(reporter);
+                                executionService.execute(environment.getTests());
+                            }
+                        });
+
+        environment.run();
+        assertEquals(reporter.getPassedTests(), 1);
+        assertEquals(invocations, Arrays.asList("inner", "outer true"));
+    }
+
+    @Test
+    public void testNativeExecution() throws Exception {
+        StatisticsReporter<SmokeTestConfiguration> reporter = new StatisticsReporter<>();
+        File reportDirectory = Files.createTempDirectory("native-execution").toFile();
+
+        Environment<SmokeTestConfiguration> environment =
+                Support.readyEnvironment(SmokeTestConfiguration.class,
+                        new CoreBundle(),
+                        new DummyTechnologyBundle<>(),
+                        new Bundle<SmokeTestConfiguration>() {
+
+                            @Inject
+                            private ITestExecutionService executionService;
+
+                            @Override
+                            public void configure(Environment.Builder<SmokeTestConfiguration> builder) {
+                                builder.tests(TestWith2MetricEachOneResultOnLevel0AndLevel1.class);
+                                builder.services(new AbstractModule() {
+                                    @Override
+                                    protected void configure() {
+                                        bind(ITestExecutionService.class).to(NativeTestExecutionService.class);
+                                    }
+                                });
+                            }
+
+                            @Override
+                            public void run(Environment<SmokeTestConfiguration> environment) {
+                                assertTrue(executionService instanceof NativeTestExecutionService);
+                                executionService.setReportDirectory(reportDirectory.getAbsolutePath());
+                                executionService.addReporter(reporter);
+                                executionService.addReporter(new HTMLReporter());
+                                executionService.execute(environment.getTests());
+                                assertEquals(((NativeTestExecutionService) executionService).getStages().stream()
+                                        .map(TestPipeline.Stage::getName)
+                                        .collect(Collectors.toList()), Arrays.asList("collect", "validate", "report"));
+                            }
+                        });
+
+        environment.run();
+        assertEquals(reporter.getExecutedTests(), 1);
+        assertEquals(reporter.getPassedTests(), 1);
+        assertEquals(reporter.getSkippedTests(), 0);
+        assertTrue(new File(reportDirectory, "html/index.html").exists());
+    }
+
+    @Test
+    public void testCanaryBlocksTests() throws Exception {
+        File reportDirectory = Files.createTempDirectory("canary").toFile();
+        for (boolean nativeExecution : new boolean[]{false, true}) {
+            StatisticsReporter<SmokeTestConfiguration> reporter = new StatisticsReporter<>();
+
+            Environment<SmokeTestConfiguration> environment =
+                    Support.readyEnvironment(SmokeTestConfiguration.class,
+                            new CoreBundle(),
+                            new DummyTechnologyBundle<>(),
+                            new Bundle<SmokeTestConfiguration>() {
+
+                                @Inject
+                                private ITestExecutionService executionService;
+
+                                @Override
+                                public void configure(Environment.Builder<SmokeTestConfiguration> builder) {
+                                    builder.tests(TestWithFailingCanary.class, TestWithOneMetricOneResultOnLevel0.class);
+                                    if (nativeExecution) {
+                                        builder.services(new AbstractModule() {
+                                            @Override
+                                            protected void configure() {
+                                                bind(ITestExecutionService.class)
+                                                        .to(NativeTestExecutionService.class);
+                                            }
+                                        });
+                                    }
+                                }
+
+                                @Override
+                                public void run(Environment<SmokeTestConfiguration> environment) {
+                                    executionService.addReporter(reporter);
+                                    if (nativeExecution) {
+                                        //The HTML report of failed and skipped tests must not hit unmapped methods
+                                        executionService.setReportDirectory(reportDirectory.getAbsolutePath());
+                                        executionService.addReporter(new HTMLReporter());
+                                    }
+                                    executionService.execute(environment.getTests());
+                                }
+                            });
+
+            environment.run();
+            assertEquals(reporter.getFailedTests(), 1);
+            assertEquals(reporter.getPassedTests(), 0);
+            assertEquals(reporter.getSkippedTests(), 3);
+            assertEquals(reporter.getBlockedTests(), 3);
+        }
+        assertTrue(new File(reportDirectory, "html/index.html").exists());
+    }
+
+    @Test
+    public void testOutcomes() {
+        for (boolean nativeExecution : new boolean[]{false, true}) {
+            List<TestOutcome.Status> statuses = Collections.synchronizedList(new ArrayList<>());
+            AtomicBoolean completed = new AtomicBoolean();
+
+            Environment<SmokeTestConfiguration> environment =
+                    Support.readyEnvironment(SmokeTestConfiguration.class,
+                            new CoreBundle(),
+                            new DummyTechnologyBundle<>(),
+                            new Bundle<SmokeTestConfiguration>() {
+
+                                @Inject
+                                private ITestExecutionService executionService;
+
+                                @Inject
+                                private SmokeTestConfiguration configuration;
+
+                                @Override
+                                public void configure(Environment.Builder<SmokeTestConfiguration> builder) {
+                                    builder.tests(TestWithFailingCanary.class, TestWithOneMetricOneResultOnLevel0.class);
+                                    if (nativeExecution) {
+                                        builder.services(new AbstractModule() {
+                                            @Override
+                                            protected void configure() {
+                                                bind(ITestExecutionService.class)
+                                                        .to(NativeTestExecutionService.class);
+                                            }
+                                        });
+                                    }
+                                }
+
+                                @Override
+                                public void run(Environment<SmokeTestConfiguration> environment) {
+                                    //The smallest buffer forces each test to wait for the demand of the subscriber
+                                    configuration.setOutcomeBufferSize(1);
+                                    executionService.getOutcomes().subscribe(new Subscriber<TestOutcome<?, ?>>() {
+
+                                        private Subscription subscription;
+
+                                        @Override
+                                        public void onSubscribe(Subscription subscription) {
+                                            this.subscription = subscription;
+                                            subscription.request(1);
+                                        }
+
+                                        @Override
+                                        public void onNext(TestOutcome<?, ?> outcome) {
+                                            statuses.add(outcome.getStatus());
+                                            subscription.request(1);
+                                        }
+
+                                        @Override
+                                        public void onError(Throwable throwable) {
+                                            throw new AssertionError(throwable);
+                                        }
+
+                                        @Override
+                                        public void onComplete() {
+                                            completed.set(true);
+                                        }
+                                    });
+                                    executionService.execute(environment.getTests());
+                                }
+                            });
+
+            environment.run();
+            assertTrue(completed.get());
+            assertEquals(statuses.size(), 4);
+            assertEquals(Collections.frequency(statuses, TestOutcome.Status.FAILED), 1);
+            assertEquals(Collections.frequency(statuses, TestOutcome.Status.SKIPPED), 3);
+        }
     }
 
+    @Test
+    public void testTruncatedResultsFail() {
+        List<Boolean> truncated = Collections.synchronizedList(new ArrayList<>());
+        StatisticsReporter<SmokeTestConfiguration> reporter = new StatisticsReporter<>();
+
+        Environment<SmokeTestConfiguration> environment =
+                Support.readyEnvironment(SmokeTestConfiguration.class,
+                        new CoreBundle(),
+                        new DummyTechnologyBundle<>(),
+                        new Bundle<SmokeTestConfiguration>() {
+
+                            @Inject
+                            private ITestExecutionService executionService;
+
+                            @Override
+                            public void configure(Environment.Builder<SmokeTestConfiguration> builder) {
+                                builder.tests(TestWithOneMetricOneResultOnLevel0.class);
+                                builder.services(new AbstractModule() {
+                                    @Override
+                                    protected void configure() {
+                                        Multibinder.newSetBinder(binder(), ICollectorInterceptor.class)
+                                                .addBinding().toInstance(new ICollectorInterceptor() {
+                                            @Override
+                                            public <IN extends IMetricDefinition, OUT extends IMetricTestResult>
+                                            MetricTestResultSet<IN, OUT> intercept(
+                                                    CollectorInvocation<IN, OUT> invocation) {
+                                                MetricTestResultSet<IN, OUT> resultSet = invocation.proceed();
+                                                resultSet.setTruncated(true);
+                                                return resultSet;
+                                            }
+                                        });
+                                    }
+                                });
+                            }
+
+                            @Override
+                            public void run(Environment<SmokeTestConfiguration> environment) {
+                                executionService.getOutcomes().subscribe(new Subscriber<TestOutcome<?, ?>>() {
+
+                                    @Override
+                                    public void onSubscribe(Subscription subscription) {
+                                        subscription.request(Long.MAX_VALUE);
+                                    }
 
+                                    @Override
+                                    public void onNext(TestOutcome<?, ?> outcome) {
+                                        truncated.add(outcome.isTruncated());
+                                    }
+
+                                    @Override
+                                    public void onError(Throwable throwable) {
+                                        throw new AssertionError(throwable);
+                                    }
+
+                                    @Override
+                                    public void onComplete() {
+                                    }
+                                });
+                                executionService.addReporter(reporter);
+                                executionService.execute(environment.getTests());
+                            }
+                        });
+
+        environment.run();
+        assertEquals(reporter.getFailedTests(), 1);
+        assertEquals(reporter.getPassedTests(), 0);
+        assertEquals(truncated, Collections.singletonList(true));
+    }
+
+    @Test
+    public void testParallelValidationUnderDefaults() {
+        StatisticsReporter<SmokeTestConfiguration> reporter = new StatisticsReporter<>();
+        TestWithParallelValidation.CONTAINERS.set(0);
+
+        Environment<SmokeTestConfiguration> environment =
+                Support.readyEnvironment(SmokeTestConfiguration.class,
+                        new CoreBundle(),
+                        new DummyTechnologyBundle<>(),
+                        new Bundle<SmokeTestConfiguration>() {
+
+                            @Inject
+                            private ITestExecutionService executionService;
+
+                            @Override
+                            public void configure(Environment.Builder<SmokeTestConfiguration> builder) {
+                                int threshold = builder.getConfiguration().getParallelValidationThreshold();
+                                builder.tests(TestWithParallelValidation.class);
+                                builder.services(new AbstractModule() {
+                                    @Override
+                                    protected void configure() {
+                                        //Deliver as many results as the default threshold requires
+                                        Multibinder.newSetBinder(binder(), ICollectorInterceptor.class)
+                                                .addBinding().toInstance(new ICollectorInterceptor() {
+                                            @Override
+                                            @SuppressWarnings("unchecked")
+                                            public <IN extends IMetricDefinition, OUT extends IMetricTestResult>
+                                            MetricTestResultSet<IN, OUT> intercept(
+                                                    CollectorInvocation<IN, OUT> invocation) {
+                                                MetricTestResultSet<IN, OUT> resultSet = invocation.proceed();
+                                                while (resultSet.getResults().size() < threshold) {
+                                                    resultSet.addResult((OUT) new DummyMetricResult("Large"));
+                                                }
+                                                return resultSet;
+                                            }
+                                        });
+                                    }
+                                });
+                            }
+
+                            @Override
+                            public void run(Environment<SmokeTestConfiguration> environment) {
+                                executionService.addReporter(reporter);
+                                executionService.execute(environment.getTests());
+                            }
+                        });
+
+        environment.run();
+        assertEquals(reporter.getPassedTests(), 1);
+        assertTrue(TestWithParallelValidation.CONTAINERS.get() > 1);
+    }
+
+    @Test
+    public void testPlan() {
+        DummyMetric metric = new DummyMetric("Metric1");
+        List<MetricTest<DummyMetric, DummyMetricResult>> tests = Arrays.asList(
+                new MetricTest<>(new DummyMetric("Metric2"), TestLevel.LEVEL_0),
+                new MetricTest<>(metric, TestLevel.LEVEL_0),
+                new MetricTest<>(metric, TestLevel.LEVEL_0, Collections.singletonList((r) -> null)),
+                new MetricTest<>(new DummyMetric("Canary"), TestLevel.LEVEL_0, new ArrayList<>(), true),
+                new MetricTest<>(new DummyMetric("Metric3"), TestLevel.LEVEL_1));
+
+        ExecutionPlan<DummyMetric, DummyMetricResult> plan = new ExecutionPlanner(new SmokeTestConfiguration())
+                .plan(tests, new DummyMetricDataCollector());
+
+        assertEquals(plan.getOutOfScope(), 1);
+        assertEquals(plan.getDuplicates(), 1);
+        assertEquals(plan.getEstimatedQueries(), 3);
+        assertEquals(plan.getTests().stream().map(test -> test.getMetric().getFullQualifiedName())
+                .collect(Collectors.toList()), Arrays.asList("Canary", "Metric1", "Metric2"));
+        assertEquals(plan.getTests().get(1).getValidations().size(), 1);
+    }
+
+    @Test
+    public void testPlanDryRun() {
+        StatisticsReporter<SmokeTestConfiguration> reporter = new StatisticsReporter<>();
+        Setup<SmokeTestConfiguration> setup = new Setup.Builder<SmokeTestConfiguration>()
+                .configurationClazz(SmokeTestConfiguration.class)
+                .addBundle(new CoreBundle())
+                .addBundle(new DummyTechnologyBundle<>())
+                .addBundle(new Bundle<SmokeTestConfiguration>() {
+
+                    @Inject
+                    private ITestExecutionService executionService;
+
+                    @Override
+                    public void configure(Environment.Builder<SmokeTestConfiguration> builder) {
+                        builder.tests(TestWithOneMetricOneResultOnLevel0.class);
+                    }
+
+                    @Override
+                    public void run(Environment<SmokeTestConfiguration> environment) {
+                        assertTrue(executionService instanceof PlanExecutionService);
+                        executionService.addReporter(reporter);
+                        executionService.execute(environment.getTests());
+                    }
+                })
+                .build("--plan");
+        new Environment.Builder<>(setup).build().run();
+        assertEquals(reporter.getExecutedTests(), 0);
+    }
+
+    @Test
+    public void testRunDeadline() {
+        for (boolean nativeExecution : new boolean[]{false, true}) {
+            StatisticsReporter<SmokeTestConfiguration> reporter = new StatisticsReporter<>();
+
+            Environment<SmokeTestConfiguration> environment =
+                    Support.readyEnvironment(SmokeTestConfiguration.class,
+                            new CoreBundle(),
+                            new DummyTechnologyBundle<>(),
+                            new Bundle<SmokeTestConfiguration>() {
+
+                                @Inject
+                                private ITestExecutionService executionService;
+
+                                @Override
+                                public void configure(Environment.Builder<SmokeTestConfiguration> builder) {
+                                    builder.getConfiguration().setRunDeadline(1);
+                                    builder.tests(TestWithOneMetricOneResultOnLevel0.class,
+                                            TestWith2MetricEachOneResultOnLevel0AndLevel1.class);
+                                    builder.services(new AbstractModule() {
+                                        @Override
+                                        protected void configure() {
+                                            //The first test consumes the whole budget
+                                            Multibinder.newSetBinder(binder(), ICollectorInterceptor.class)
+                                                    .addBinding().toInstance(new ICollectorInterceptor() {
+                                                @Override
+                                                public <IN extends IMetricDefinition, OUT extends IMetricTestResult>
+                                                MetricTestResultSet<IN, OUT> intercept(
+                                                        CollectorInvocation<IN, OUT> invocation) {
+                                                    Uninterruptibles.sleepUninterruptibly(1100, TimeUnit.MILLISECONDS);
+                                                    return invocation.proceed();
+                                                }
+                                            });
+                                            if (nativeExecution) {
+                                                bind(ITestExecutionService.class)
+                                                        .to(NativeTestExecutionService.class);
+                                            }
+                                        }
+                                    });
+                                }
+
+                                @Override
+                                public void run(Environment<SmokeTestConfiguration> environment) {
+                                    executionService.addReporter(reporter);
+                                    executionService.execute(environment.getTests());
+                                }
+                            });
+
+            environment.run();
+            assertEquals(reporter.getPassedTests(), 1);
+            assertEquals(reporter.getSkippedTests(), 1);
+            assertEquals(reporter.getNotRunTests(), 1);
+        }
+    }
+
+    @Test
+    public void testRunBudget() {
+        SmokeTestConfiguration configuration = new SmokeTestConfiguration();
+        assertTrue(new RunBudget(configuration).admits(Integer.MAX_VALUE));
+        assertEquals(new RunBudget(configuration).capTimeout(120), 120);
+
+        configuration.setRunDeadline(60);
+        RunBudget budget = new RunBudget(configuration);
+        assertTrue(budget.admits(1));
+        assertTrue(budget.capTimeout(120) <= 60);
+        assertTrue(budget.capTimeout(0) <= 60);
+        budget.record(1, TimeUnit.SECONDS.toNanos(40));
+        assertTrue(budget.admits(1));
+        assertTrue(!budget.admits(2));
+        assertTrue(budget.admits(0));
+    }
 }
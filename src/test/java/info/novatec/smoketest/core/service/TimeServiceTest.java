@@ -8,11 +8,13 @@ import info.novatec.smoketest.core.application.configuration.ConfigurationExcept
 import info.novatec.smoketest.core.application.configuration.ConfigurationFactory;
 import info.novatec.smoketest.core.application.configuration.IConfigurationFactory;
 import info.novatec.smoketest.core.model.TimeRange;
+import info.novatec.smoketest.core.model.TimeWindow;
 import info.novatec.smoketest.core.service.time.TimeService;
 import info.novatec.smoketest.core.util.Configurations;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Locale;
@@ -20,6 +22,7 @@ import java.util.Map;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
 
 /**
  * @author Claudio Waldvogel (claudio.waldvogel@novatec-gmbh.de)
@@ -91,4 +94,31 @@ public class TimeServiceTest {
         assertEquals(timeService.format("yyyy/MM/dd", date), "2016/02/02");
         assertEquals(timeService.format("yyyy/MM/dd HH:mm:ss", date), "2016/02/02 00:00:01");
     }
+
+    @Test
+    public void testWindows() {
+        SmokeTestConfiguration configuration = new SmokeTestConfiguration();
+        TimeService timeService = new TimeService(configuration);
+        TimeRange global = timeService.getTimeRange();
+        assertSame(timeService.getTimeRange(null), global);
+
+        TimeRange relative = timeService.getTimeRange(TimeWindow.relative(Duration.ofMinutes(15)));
+        assertEquals(relative.getTo(), global.getTo());
+        assertEquals(relative.getFrom(), global.getTo().minusMinutes(15));
+        assertEquals(relative, timeService.getTimeRange(TimeWindow.relative(Duration.ofMinutes(15))));
+
+        ZonedDateTime from = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC"));
+        TimeWindow absolute = TimeWindow.absolute(from, from.plusHours(1));
+        assertEquals(timeService.getTimeRange(absolute), new TimeRange(from, from.plusHours(1)));
+        assertEquals(absolute, TimeWindow.absolute(from, from.plusHours(1)));
+    }
+
+    @Test
+    public void testFormatCache() {
+        TimeService timeService = new TimeService(new SmokeTestConfiguration());
+        ZonedDateTime date = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC"));
+        String formatted = timeService.format("yyyy-MM-dd HH:mm", date);
+        assertEquals(formatted, "2016-01-01 00:00");
+        assertSame(timeService.format("yyyy-MM-dd HH:mm", date), formatted);
+    }
 }
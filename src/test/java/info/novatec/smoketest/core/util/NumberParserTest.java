@@ -0,0 +1,40 @@
+package info.novatec.smoketest.core.util;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class NumberParserTest {
+
+    @Test
+    public void testValidNumbers() {
+        for (String value : new String[]{"0", "-0", "42", "+42", "-17", "1.5", "-0.001", ".5", "5.", " 12 ",
+                "000123", "1e3", "1.25E-2", "-3e+4", "123456789012345", "1234567890123456789", "0.1",
+                "9007199254740993", "1e-30", "4.9e-324", "1.7976931348623157e308", "1e400"}) {
+            assertEquals(NumberParser.parseDouble(value), Double.parseDouble(value), value);
+        }
+    }
+
+    @Test
+    public void testInvalidNumbers() {
+        for (String value : new String[]{null, "", " ", "-", ".", "e3", "1e", "1e+", "1.2.3", "12a", "a12", "1 2",
+                "NaN", "Infinity", "0x10", "1,5", "--1"}) {
+            assertTrue(Double.isNaN(NumberParser.parseDouble(value)), String.valueOf(value));
+        }
+    }
+
+    @Test
+    public void testRandomNumbers() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            String value = String.valueOf(random.nextInt(2_000_000) / Math.pow(10, random.nextInt(8)) - 1000);
+            assertEquals(NumberParser.parseDouble(value), Double.parseDouble(value), value);
+        }
+    }
+}
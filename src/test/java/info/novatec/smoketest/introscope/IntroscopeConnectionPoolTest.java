@@ -0,0 +1,61 @@
+package info.novatec.smoketest.introscope;
+
+import org.testng.annotations.Test;
+
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeConnectionPoolTest {
+
+    @Test
+    public void testReuseReleasedStatement() {
+        StubConnectionFactory factory = new StubConnectionFactory(new IntroscopeConfiguration(),
+                (endpoint, query) -> Collections.emptyList());
+        IntroscopeConnectionPool pool = new IntroscopeConnectionPool(new IntroscopeEndpoint("em", "localhost"),
+                factory, 1, 100, 0);
+        Statement statement = pool.borrow();
+        pool.release(statement);
+        assertSame(pool.borrow(), statement);
+        assertEquals(factory.getOpened(), 1);
+    }
+
+    @Test(timeOut = 10000)
+    public void testWakeWaitingBorrowerOnInvalidate() throws Exception {
+        StubConnectionFactory factory = new StubConnectionFactory(new IntroscopeConfiguration(),
+                (endpoint, query) -> Collections.emptyList());
+        IntroscopeConnectionPool pool = new IntroscopeConnectionPool(new IntroscopeEndpoint("em", "localhost"),
+                factory, 1, 100, 0);
+        Statement broken = pool.borrow();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Statement> waiting = executor.submit(pool::borrow);
+            try {
+                waiting.get(200, TimeUnit.MILLISECONDS);
+                fail("The pool must not hand out more statements than its size");
+            } catch (TimeoutException expected) {
+                //The only connection is borrowed
+            }
+            pool.invalidate(broken);
+            Statement statement = waiting.get(5, TimeUnit.SECONDS);
+            assertNotNull(statement);
+            assertNotSame(statement, broken);
+            assertEquals(factory.getOpened(), 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package info.novatec.smoketest.introscope;
+
+import com.google.common.collect.ImmutableMap;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.model.TimeRange;
+import info.novatec.smoketest.core.service.collector.MetricDataCollectorException;
+import info.novatec.smoketest.core.service.testing.RunBudget;
+import info.novatec.smoketest.core.service.time.TimeService;
+import info.novatec.smoketest.introscope.cache.IntroscopeNamespaceCache;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.testng.annotations.Test;
+
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeDataCollectorTest {
+
+    private static final IntroscopeMetric METRIC = new IntroscopeMetric("Host\\|Process\\|Agent", "GC Heap",
+            "Bytes In Use");
+
+    private static final IntroscopeMetric PROBE = new IntroscopeMetric("Host\\|Process\\|Agent", "GC Heap",
+            "Bytes In Use", null, true);
+
+    private static final Pattern WINDOW = Pattern.compile("timestamp between '([^']*)' and '([^']*)'");
+
+    @Test
+    public void testFailOverOnceOnTimeout() {
+        StubConnectionFactory.Responder responder = (endpoint, query) -> {
+            if (!"collector2".equals(endpoint.getJDBCHost())) {
+                throw new SQLTimeoutException("timeout");
+            }
+            return rows("42");
+        };
+        IntroscopeConfiguration configuration = configuration();
+        configuration.setJDBCFailoverHosts(Collections.singletonList("collector2"));
+        StubConnectionFactory factory = new StubConnectionFactory(configuration, responder);
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet =
+                collector(configuration, factory).collect(METRIC);
+        assertEquals(resultSet.getResults().get(0).getValue(), "42");
+        assertEquals(factory.getQueries().size(), 2);
+
+        configuration.setJDBCFailoverHosts(Arrays.asList("collector1", "collector2"));
+        factory = new StubConnectionFactory(configuration, responder);
+        try {
+            collector(configuration, factory).collect(METRIC);
+            fail("A timed out query must be retried only once");
+        } catch (MetricDataCollectorException expected) {
+            assertTrue(expected.getCause() instanceof SQLTimeoutException);
+        }
+        assertEquals(factory.getQueries().size(), 2);
+    }
+
+    @Test
+    public void testNoRetryIfTimeoutIsCappedByDeadline() {
+        IntroscopeConfiguration configuration = configuration();
+        configuration.setRunDeadline(60);
+        configuration.setJDBCFailoverHosts(Collections.singletonList("collector1"));
+        StubConnectionFactory factory = new StubConnectionFactory(configuration, (endpoint, query) -> {
+            throw new SQLTimeoutException("timeout");
+        });
+        try {
+            collector(configuration, factory).collect(METRIC);
+            fail("A query timed out by the run deadline must not be retried");
+        } catch (MetricDataCollectorException expected) {
+            assertEquals(factory.getQueries().size(), 1);
+        }
+    }
+
+    @Test(timeOut = 10000)
+    public void testReleaseStatementOnRuntimeException() {
+        IntroscopeConfiguration configuration = configuration();
+        configuration.setConnectionsPerEndpoint(1);
+        StubConnectionFactory factory = new StubConnectionFactory(configuration, (endpoint, query) -> {
+            throw new IllegalStateException("broken driver");
+        });
+        IntroscopeDataCollector collector = collector(configuration, factory);
+        for (int i = 0; i < 3; i++) {
+            try {
+                collector.collect(METRIC);
+                fail("The failure must be propagated");
+            } catch (IllegalStateException expected) {
+                //The statement must be returned to the pool of size one
+            }
+        }
+        assertEquals(factory.getQueries().size(), 3);
+    }
+
+    @Test
+    public void testCollectTimeSlices() {
+        IntroscopeConfiguration configuration = configuration();
+        StubConnectionFactory factory = new StubConnectionFactory(configuration, (endpoint, query) -> {
+            List<Map<String, String>> rows = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Map<String, String> row = new HashMap<>(row(String.valueOf(i)));
+                row.put("Actual_Start_Timestamp", String.valueOf(60000L * i));
+                rows.add(row);
+            }
+            return rows;
+        });
+        IntroscopeMetric metric = new IntroscopeMetric("Host\\|Process\\|Agent", "GC Heap", "Bytes In Use", null,
+                false, null, 60);
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet =
+                collector(configuration, factory).collect(metric);
+        assertEquals(resultSet.getResults().size(), 3);
+        assertEquals(resultSet.getResults().get(2).getTimestamp(), 120000L);
+        String query = factory.getQueries().get(0);
+        assertTrue(query.endsWith(" frequency 60"), query);
+        assertFalse(query.contains("aggregateall"), query);
+        assertTrue(metric.getFullQualifiedName().endsWith(" every 60s"));
+    }
+
+    @Test
+    public void testProbeWindowsWiden() {
+        IntroscopeConfiguration configuration = configuration();
+        StubConnectionFactory factory = new StubConnectionFactory(configuration,
+                (endpoint, query) -> Collections.emptyList());
+        IntroscopeDataCollector collector = collector(configuration, factory);
+        collector.collect(PROBE);
+        assertEquals(windows(factory), Arrays.asList(5L, 30L, 60L));
+        assertEquals(collector.estimateQueries(PROBE), factory.getQueries().size());
+    }
+
+    @Test
+    public void testProbeStopsAtFirstResult() {
+        IntroscopeConfiguration configuration = configuration();
+        String confirming = new TimeService(configuration).format(configuration.getJDBCDateFormat(),
+                configuration.getTimeRange().getTo().minusMinutes(30));
+        StubConnectionFactory factory = new StubConnectionFactory(configuration,
+                (endpoint, query) -> query.contains(confirming) ? rows("1") : Collections.emptyList());
+        IntroscopeDataCollector collector = collector(configuration, factory);
+        assertTrue(collector.collect(PROBE).hasResults());
+        assertEquals(windows(factory), Arrays.asList(5L, 30L));
+        assertTrue(collector.estimateQueries(PROBE) >= factory.getQueries().size());
+    }
+
+    @Test
+    public void testSkipProbeWindowsNotShorterThanRange() {
+        IntroscopeConfiguration configuration = configuration();
+        configuration.setProbeWindows(Arrays.asList(5, 30, 120));
+        StubConnectionFactory factory = new StubConnectionFactory(configuration,
+                (endpoint, query) -> Collections.emptyList());
+        IntroscopeDataCollector collector = collector(configuration, factory);
+        collector.collect(PROBE);
+        assertEquals(windows(factory), Arrays.asList(5L, 30L, 60L));
+        assertEquals(collector.estimateQueries(PROBE), 3);
+
+        ZonedDateTime to = configuration.getTimeRange().getTo();
+        configuration.setTimeRange(new TimeRange(to.minusMinutes(30), to));
+        factory = new StubConnectionFactory(configuration, (endpoint, query) -> Collections.emptyList());
+        collector = collector(configuration, factory);
+        collector.collect(PROBE);
+        assertEquals(windows(factory), Arrays.asList(5L, 30L));
+        assertEquals(collector.estimateQueries(PROBE), factory.getQueries().size());
+    }
+
+    /**
+     * Parses the length in minutes of the windows of all issued queries.
+     */
+    private static List<Long> windows(final StubConnectionFactory factory) {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern(new IntroscopeConfiguration().getJDBCDateFormat(),
+                Locale.getDefault());
+        List<Long> windows = new ArrayList<>();
+        for (String query : factory.getQueries()) {
+            Matcher matcher = WINDOW.matcher(query);
+            assertTrue(matcher.find(), query);
+            windows.add(Duration.between(ZonedDateTime.parse(matcher.group(1), format),
+                    ZonedDateTime.parse(matcher.group(2), format)).toMinutes());
+        }
+        return windows;
+    }
+
+    private static IntroscopeConfiguration configuration() {
+        IntroscopeConfiguration configuration = new IntroscopeConfiguration();
+        ZonedDateTime to = ZonedDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        configuration.setTimeRange(new TimeRange(to.minusHours(1), to));
+        configuration.setAlignmentTolerance(0);
+        return configuration;
+    }
+
+    private static IntroscopeDataCollector collector(final IntroscopeConfiguration configuration,
+                                                     final StubConnectionFactory factory) {
+        IntroscopeDataCollector collector = new IntroscopeDataCollector(configuration,
+                new TimeService(configuration), factory, new IntroscopeNamespaceCache(configuration, () -> null),
+                new IntroscopeNamePool(), new Namespace(new HashMap<>()), new RunBudget(configuration),
+                new IntroscopeWindowAligner(configuration));
+        collector.initialize();
+        return collector;
+    }
+
+    private static Map<String, String> row(final String value) {
+        return ImmutableMap.of("AgentName", "Host|Process|Agent", "Resource", "GC Heap", "MetricName",
+                "Bytes In Use", "Value", value);
+    }
+
+    private static List<Map<String, String>> rows(final String... values) {
+        return Arrays.stream(values).map(IntroscopeDataCollectorTest::row).collect(Collectors.toList());
+    }
+}
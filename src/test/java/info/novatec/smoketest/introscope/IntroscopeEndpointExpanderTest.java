@@ -0,0 +1,49 @@
+package info.novatec.smoketest.introscope;
+
+import com.google.common.collect.Sets;
+import info.novatec.smoketest.core.model.MetricTest;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeEndpointExpanderTest {
+
+    @Test
+    public void testExpandPerEndpoint() {
+        IntroscopeConfiguration configuration = new IntroscopeConfiguration();
+        configuration.setJDBCUser("admin");
+        configuration.setEndpoints(Arrays.asList(new IntroscopeEndpoint("test", "em-test"),
+                new IntroscopeEndpoint("prod", "em-prod")));
+        IntroscopeEndpointExpander expander =
+                new IntroscopeEndpointExpander(new IntroscopeConnectionFactory(configuration));
+
+        Set<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> tests =
+                Sets.newHashSet(new MetricTest<>(new IntroscopeMetric("Agent", "GC Heap", "Bytes In Use")));
+        Set<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> expanded = expander.expand(tests);
+
+        assertEquals(expanded.size(), 2);
+        Iterator<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> iterator = expanded.iterator();
+        IntroscopeMetric first = iterator.next().getMetric();
+        assertEquals(first.getEnvironment(), "test");
+        assertEquals(first.getFullQualifiedName(), "[test] Agent\\|GC Heap:Bytes In Use");
+        assertEquals(iterator.next().getMetric().getEnvironment(), "prod");
+        assertEquals(new IntroscopeConnectionFactory(configuration).getEndpoints().get(1).getJDBCUser(), "admin");
+    }
+
+    @Test
+    public void testSingleEndpointKeepsTests() {
+        IntroscopeEndpointExpander expander =
+                new IntroscopeEndpointExpander(new IntroscopeConnectionFactory(new IntroscopeConfiguration()));
+        Set<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> tests =
+                Sets.newHashSet(new MetricTest<>(new IntroscopeMetric("Agent", "GC Heap", "Bytes In Use")));
+        assertSame(expander.expand(tests), tests);
+    }
+}
@@ -0,0 +1,69 @@
+package info.novatec.smoketest.introscope;
+
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeEndpointGroupTest {
+
+    @Test
+    public void testSelectFastestHealthyHost() {
+        IntroscopeConfiguration configuration = new IntroscopeConfiguration();
+        IntroscopeEndpoint endpoint = new IntroscopeEndpoint("cluster", "mom");
+        endpoint.setJDBCPort("5001");
+        endpoint.setJDBCFailoverHosts(Arrays.asList("collector1", "collector2:5002"));
+        List<IntroscopeEndpoint> hosts = endpoint.hosts();
+        assertEquals(hosts.size(), 3);
+        assertEquals(hosts.get(1).getJDBCPort(), "5001");
+        assertEquals(hosts.get(2).getJDBCHost(), "collector2");
+        assertEquals(hosts.get(2).getJDBCPort(), "5002");
+
+        IntroscopeConnectionFactory factory = new IntroscopeConnectionFactory(configuration);
+        IntroscopeEndpointGroup group = new IntroscopeEndpointGroup(Arrays.asList(
+                new IntroscopeConnectionPool(hosts.get(0), factory, 1, 100, 0),
+                new IntroscopeConnectionPool(hosts.get(1), factory, 1, 100, 0),
+                new IntroscopeConnectionPool(hosts.get(2), factory, 1, 100, 0)), 0.5, 60);
+        IntroscopeEndpointGroup.Host mom = group.getHosts().get(0);
+        IntroscopeEndpointGroup.Host collector1 = group.getHosts().get(1);
+        IntroscopeEndpointGroup.Host collector2 = group.getHosts().get(2);
+        mom.success(1000);
+        collector1.success(300);
+        collector2.success(200);
+        assertSame(group.select(Collections.emptySet()), collector2);
+
+        collector2.success(600);
+        assertEquals(collector2.getLatency(), 400.0);
+        assertSame(group.select(Collections.emptySet()), collector1);
+
+        collector1.failure();
+        assertSame(group.select(Collections.emptySet()), collector2);
+        assertSame(group.select(new HashSet<>(Arrays.asList(collector2, mom))), collector1);
+        assertNull(group.select(new HashSet<>(group.getHosts())));
+    }
+
+    @Test
+    public void testFailOverOnlyOnConnectionFailures() {
+        assertTrue(IntroscopeDataCollector.isHostFailure(new SQLNonTransientConnectionException("refused")));
+        assertTrue(IntroscopeDataCollector.isHostFailure(new SQLTransientConnectionException("reset")));
+        assertTrue(IntroscopeDataCollector.isHostFailure(new SQLException("link failure", "08S01")));
+        assertTrue(IntroscopeDataCollector.isHostFailure(new SQLTimeoutException("timeout")));
+        assertFalse(IntroscopeDataCollector.isHostFailure(new SQLException("syntax error", "42000")));
+        assertFalse(IntroscopeDataCollector.isHostFailure(new SQLException("unknown")));
+    }
+}
@@ -0,0 +1,55 @@
+package info.novatec.smoketest.introscope;
+
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.TestLevel;
+import info.novatec.smoketest.core.model.validation.ValidationRules;
+import info.novatec.smoketest.introscope.discovery.IntroscopeMetricCatalog;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeMetricCatalogTest {
+
+    @Test
+    public void testEscape() {
+        assertEquals(IntroscopeUtils.escape("Host|Process|Agent (1)"), "Host\\|Process\\|Agent \\(1\\)");
+        assertEquals(IntroscopeUtils.escape("Plain Name"), "Plain Name");
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        File file = File.createTempFile("catalog", ".yml");
+        file.deleteOnExit();
+        new IntroscopeMetricCatalog()
+                .add("Host|Process|Agent", "GC Heap", "Bytes In Use")
+                .add("Host|Process|Agent", "Servlets|MyServlet", "Responses Per Interval")
+                .write(file.getAbsolutePath());
+
+        IntroscopeMetricCatalog catalog = IntroscopeMetricCatalog.read(file.getAbsolutePath());
+        assertEquals(catalog.getMetrics().size(), 2);
+
+        Set<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> tests =
+                catalog.toMetricTests(TestLevel.LEVEL_1, ValidationRules.notEmpty());
+        assertEquals(tests.size(), 2);
+        MetricTest<IntroscopeMetric, IntroscopeMetricTestResult> first = tests.iterator().next();
+        assertEquals(first.getLevel(), TestLevel.LEVEL_1);
+        assertEquals(first.getValidations().size(), 1);
+        assertEquals(first.getMetric().getAgentExpression(), "Host\\|Process\\|Agent");
+        assertEquals(first.getMetric().getMetricExpression(), "Bytes In Use");
+
+        catalog.getMetrics().get(1).setValidation("count == 1 && value >= 0");
+        catalog.write(file.getAbsolutePath());
+        tests = IntroscopeMetricCatalog.read(file.getAbsolutePath()).toMetricTests(TestLevel.LEVEL_1);
+        Iterator<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> iterator = tests.iterator();
+        assertEquals(iterator.next().getValidations().size(), 0);
+        assertEquals(iterator.next().getValidations().size(), 1);
+    }
+}
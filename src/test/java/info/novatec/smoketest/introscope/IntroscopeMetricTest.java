@@ -0,0 +1,51 @@
+package info.novatec.smoketest.introscope;
+
+import info.novatec.smoketest.core.SmokeTestConfiguration;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.TestLevel;
+import info.novatec.smoketest.core.model.TimeWindow;
+import info.novatec.smoketest.core.service.testing.ExecutionPlan;
+import info.novatec.smoketest.core.service.testing.ExecutionPlanner;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeMetricTest {
+
+    @Test
+    public void testEquality() {
+        IntroscopeMetric metric = new IntroscopeMetric("Host\\|Agent", "GC Heap", "Bytes In Use");
+        IntroscopeMetric same = new IntroscopeMetric("Host\\|Agent", "GC Heap", "Bytes In Use");
+        assertEquals(metric, same);
+        assertEquals(metric.hashCode(), same.hashCode());
+        assertNotEquals(metric, new IntroscopeMetric("Host\\|Agent", "GC Heap", "Bytes In Use", null, true, null));
+        assertNotEquals(metric, metric.withEnvironment("EM2"));
+        assertNotEquals(metric, new IntroscopeMetric("Host\\|Agent", "GC Heap", "Bytes In Use", null, false,
+                TimeWindow.relative(Duration.ofMinutes(5))));
+    }
+
+    @Test
+    public void testPlanMergesSameMetric() {
+        List<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> tests = Arrays.asList(
+                new MetricTest<>(new IntroscopeMetric("Host\\|Agent", "GC Heap", "Bytes In Use"),
+                        TestLevel.LEVEL_0, Collections.singletonList((r) -> null)),
+                new MetricTest<>(new IntroscopeMetric("Host\\|Agent", "GC Heap", "Bytes In Use"),
+                        TestLevel.LEVEL_0, Collections.singletonList((r) -> null)));
+
+        ExecutionPlan<IntroscopeMetric, IntroscopeMetricTestResult> plan =
+                new ExecutionPlanner(new SmokeTestConfiguration()).plan(tests, definition -> null);
+
+        assertEquals(plan.getDuplicates(), 1);
+        assertEquals(plan.getTests().size(), 1);
+        assertEquals(plan.getTests().get(0).getValidations().size(), 2);
+    }
+}
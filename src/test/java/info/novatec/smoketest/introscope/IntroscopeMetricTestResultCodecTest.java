@@ -0,0 +1,91 @@
+package info.novatec.smoketest.introscope;
+
+import info.novatec.smoketest.core.SmokeTestConfiguration;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.model.TestLevel;
+import info.novatec.smoketest.core.service.testing.TestOutcome;
+import info.novatec.smoketest.core.service.testing.TestOutcomePublisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeMetricTestResultCodecTest {
+
+    @Test
+    public void testSpillAndRelease() {
+        IntroscopeNamePool namePool = new IntroscopeNamePool();
+        IntroscopeMetricTestResultCodec codec = new IntroscopeMetricTestResultCodec(namePool);
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet =
+                new MetricTestResultSet<>(new IntroscopeMetric(".*", "GC Heap", "Bytes In Use"));
+        resultSet.addResult(new IntroscopeMetricTestResult("Agent", "GC Heap", "Bytes In Use", null));
+        resultSet.spill(codec);
+        assertTrue(resultSet.isOffHeap());
+        for (int i = 0; i < 200000; i++) {
+            resultSet.addResult(new IntroscopeMetricTestResult("Agent", "GC Heap", "Bytes In Use", "Wert " + i));
+        }
+
+        assertEquals(resultSet.getResults().size(), 200001);
+        assertEquals(resultSet.getResults().get(0).getValue(), null);
+        resultSet.addResult(new IntroscopeMetricTestResult("Agent", "GC Heap", "Bytes In Use", "1", 15000L));
+        assertEquals(resultSet.getResults().get(200001).getTimestamp(), 15000L);
+        assertEquals(resultSet.getResults().get(200000),
+                new IntroscopeMetricTestResult("Agent", "GC Heap", "Bytes In Use", "Wert 199999"));
+        assertSame(resultSet.getResults().get(5).getAgentName(), resultSet.getResults().get(6).getAgentName());
+
+        resultSet.release();
+        assertFalse(resultSet.isOffHeap());
+        assertEquals(resultSet.getResults().size(), MetricTestResultSet.RELEASED_SAMPLE_SIZE);
+        assertEquals(resultSet.getResults().get(1).getValue(), "Wert 0");
+    }
+
+    @Test
+    public void testReleaseAfterDelivery() {
+        IntroscopeMetric metric = new IntroscopeMetric(".*", "GC Heap", "Bytes In Use");
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet = new MetricTestResultSet<>(metric);
+        resultSet.spill(new IntroscopeMetricTestResultCodec(new IntroscopeNamePool()));
+        for (int i = 0; i < 1000; i++) {
+            resultSet.addResult(new IntroscopeMetricTestResult("Agent", "GC Heap", "Bytes In Use", "Wert " + i));
+        }
+        List<Integer> delivered = new ArrayList<>();
+        TestOutcomePublisher publisher = new TestOutcomePublisher(new SmokeTestConfiguration());
+        publisher.subscribe(new Subscriber<TestOutcome<?, ?>>() {
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(TestOutcome<?, ?> outcome) {
+                delivered.add(outcome.getResultSet().getResults().size());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        publisher.emit(new TestOutcome<>(new MetricTest<>(metric, TestLevel.LEVEL_0), resultSet, null, 0, 0));
+        //The subscriber sees all results, the result set is released afterwards
+        assertEquals(delivered, Collections.singletonList(1000));
+        assertFalse(resultSet.isOffHeap());
+        assertEquals(resultSet.getResults().size(), MetricTestResultSet.RELEASED_SAMPLE_SIZE);
+    }
+}
@@ -24,7 +24,6 @@ public class IntroscopeTestBundle extends Bundle<IntroscopeConfiguration> {
                     definition -> new MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult>(definition)
                             .addResult(
                                     new IntroscopeMetricTestResult(
-                                            definition.getAgentExpression(),
                                             definition.getAgentExpression(),
                                             definition.getResourceExpression(),
                                             definition.getMetricExpression(),
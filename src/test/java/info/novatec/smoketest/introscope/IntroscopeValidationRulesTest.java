@@ -0,0 +1,96 @@
+package info.novatec.smoketest.introscope;
+
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.model.validation.IParallelValidationRule;
+import info.novatec.smoketest.core.model.validation.IValidationRule;
+import info.novatec.smoketest.core.model.validation.ValidationResult;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeValidationRulesTest {
+
+    private static final String ERRORS = "Errors Per Interval";
+
+    private static final String RESPONSES = "Responses Per Interval";
+
+    @Test
+    public void testCompositeTestIsOneQuery() {
+        Set<MetricTest<IntroscopeMetric, IntroscopeMetricTestResult>> tests = new IntroscopeMetricTestBuilder()
+                .entry("Frontends|Apps").resource(".*")
+                .metrics(ERRORS, RESPONSES)
+                .validation(IntroscopeValidationRules.ratioAtMost(ERRORS, RESPONSES, 0.01))
+                .build("Agent");
+        assertEquals(tests.size(), 1);
+        IntroscopeMetric metric = tests.iterator().next().getMetric();
+        assertEquals(metric.getResourceExpression(), "Frontends|Apps\\|.*");
+        assertEquals(metric.getMetricExpression(), "(Errors Per Interval|Responses Per Interval)");
+    }
+
+    @Test
+    public void testRatioIsAlignedByAgentAndResource() {
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet = resultSet();
+        add(resultSet, 10_000, "AgentA", "App1", 0, 100);
+        add(resultSet, 10_000, "AgentA", "App2", 2, 100);
+        add(resultSet, 10_000, "AgentB", "App1", 1, 100);
+        add(resultSet, 1, "AgentB", "Idle", 0, 0);
+        resultSet.addResult(new IntroscopeMetricTestResult("AgentA", "App1", "Other", "1000"));
+
+        assertValid(IntroscopeValidationRules.ratioAtMost(ERRORS, RESPONSES, 0.02), resultSet, true);
+        assertValid(IntroscopeValidationRules.ratioAtMost(ERRORS, RESPONSES, 0.01), resultSet, false);
+        assertValid(IntroscopeValidationRules.ratioAtLeast(ERRORS, RESPONSES, 0), resultSet, true);
+        assertValid(IntroscopeValidationRules.ratioAtLeast(ERRORS, RESPONSES, 0.001), resultSet, false);
+
+        assertEquals(IntroscopeValidationRules.ratioAtMost(ERRORS, RESPONSES, 0.01).apply(resultSet).getMessage(),
+                "Ratio Errors Per Interval/Responses Per Interval of AgentA|App2 is 0.02 above 0.01");
+    }
+
+    @Test
+    public void testInvalidValues() {
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet = resultSet();
+        assertValid(IntroscopeValidationRules.ratioAtMost(ERRORS, RESPONSES, 1), resultSet, false);
+
+        resultSet.addResult(new IntroscopeMetricTestResult("AgentA", "App1", ERRORS, "1"));
+        ValidationResult result = IntroscopeValidationRules.ratioAtMost(ERRORS, RESPONSES, 1).apply(resultSet);
+        assertFalse(result.isValid());
+        assertTrue(result.getMessage().contains("Infinity"), result.getMessage());
+
+        resultSet.addResult(new IntroscopeMetricTestResult("AgentA", "App1", RESPONSES, "n/a"));
+        assertEquals(IntroscopeValidationRules.ratioAtMost(ERRORS, RESPONSES, 1).apply(resultSet).getMessage(),
+                "Not a number: n/a");
+    }
+
+    private static void assertValid(final IValidationRule<IntroscopeMetric, IntroscopeMetricTestResult> rule,
+                                    final MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet,
+                                    final boolean valid) {
+        assertEquals(rule.apply(resultSet).isValid(), valid);
+        assertEquals(((IParallelValidationRule<IntroscopeMetric, IntroscopeMetricTestResult>) rule)
+                .applyParallel(resultSet).isValid(), valid);
+    }
+
+    private static MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet() {
+        return new MetricTestResultSet<>(new IntroscopeMetric("Agent.*", ".*",
+                "(Errors Per Interval|Responses Per Interval)"));
+    }
+
+    private static void add(final MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet,
+                            final int intervals,
+                            final String agent,
+                            final String resource,
+                            final int errors,
+                            final int responses) {
+        for (int i = 0; i < intervals; i++) {
+            resultSet.addResult(new IntroscopeMetricTestResult(agent, resource, ERRORS, String.valueOf(errors)));
+            resultSet.addResult(new IntroscopeMetricTestResult(agent, resource, RESPONSES,
+                    String.valueOf(responses)));
+        }
+    }
+}
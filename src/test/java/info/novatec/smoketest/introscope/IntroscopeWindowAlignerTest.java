@@ -0,0 +1,56 @@
+package info.novatec.smoketest.introscope;
+
+import info.novatec.smoketest.core.model.TimeRange;
+import org.testng.annotations.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeWindowAlignerTest {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2016, 6, 1, 12, 0, 0, 0, ZoneId.of("UTC"));
+
+    private final IntroscopeWindowAligner aligner = new IntroscopeWindowAligner(new IntroscopeConfiguration());
+
+    @Test
+    public void testRecentWindowIsAlignedToCoarsestTierWithinTolerance() {
+        //10% of one hour allows one minute, but not 15 minutes
+        TimeRange aligned = aligner.align(range(NOW.minusMinutes(70).plusSeconds(30), NOW.minusMinutes(10)
+                .plusSeconds(30)), NOW);
+        assertEquals(aligned, range(NOW.minusMinutes(70), NOW.minusMinutes(10)));
+
+        //10% of one day allows 15 minutes
+        aligned = aligner.align(range(NOW.minusHours(24).plusMinutes(7), NOW.plusMinutes(7)), NOW);
+        assertEquals(aligned, range(NOW.minusHours(24), NOW));
+    }
+
+    @Test
+    public void testOldWindowIsAlignedToTierHoldingIt() {
+        //Short windows of the third tier are only available in 15 minute periods
+        ZonedDateTime from = NOW.minusDays(40).plusMinutes(20);
+        TimeRange aligned = aligner.align(range(from, from.plusHours(2)), NOW);
+        assertEquals(aligned, range(NOW.minusDays(40).plusMinutes(15), NOW.minusDays(40).plusHours(2)
+                .plusMinutes(15)));
+    }
+
+    @Test
+    public void testWindowWhichCanNotBeAlignedIsKept() {
+        TimeRange range = range(NOW.minusSeconds(10), NOW.minusSeconds(5));
+        assertSame(aligner.align(range, NOW), range);
+
+        IntroscopeConfiguration configuration = new IntroscopeConfiguration();
+        configuration.setAlignmentTolerance(0);
+        range = range(NOW.minusHours(1).plusSeconds(1), NOW.plusSeconds(1));
+        assertSame(new IntroscopeWindowAligner(configuration).align(range, NOW), range);
+    }
+
+    private static TimeRange range(ZonedDateTime from, ZonedDateTime to) {
+        return new TimeRange(from, to);
+    }
+}
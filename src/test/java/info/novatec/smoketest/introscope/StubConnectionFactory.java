@@ -0,0 +1,110 @@
+package info.novatec.smoketest.introscope;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link IntroscopeConnectionFactory} opening stub connections which answer all queries by a {@link Responder}
+ * and record the issued queries.
+ *
+ * @author Claudio Waldvogel
+ */
+class StubConnectionFactory extends IntroscopeConnectionFactory {
+
+    /**
+     * Answers a query with its rows, each row maps the column names to the values.
+     */
+    interface Responder {
+
+        List<Map<String, String>> answer(IntroscopeEndpoint endpoint, String query) throws SQLException;
+    }
+
+    private final Responder responder;
+
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    StubConnectionFactory(final IntroscopeConfiguration configuration,
+                          final Responder responder) {
+        super(configuration);
+        this.responder = responder;
+    }
+
+    @Override
+    public Connection open(final IntroscopeEndpoint endpoint) {
+        opened.incrementAndGet();
+        Connection[] connection = new Connection[1];
+        Statement statement = proxy(Statement.class, (method, args) -> {
+            switch (method) {
+                case "executeQuery":
+                    queries.add((String) args[0]);
+                    return resultSet(responder.answer(endpoint, (String) args[0]));
+                case "getConnection":
+                    return connection[0];
+                default:
+                    return null;
+            }
+        });
+        connection[0] = proxy(Connection.class, (method, args) -> "createStatement".equals(method) ? statement : null);
+        return connection[0];
+    }
+
+    List<String> getQueries() {
+        return queries;
+    }
+
+    int getOpened() {
+        return opened.get();
+    }
+
+    private static ResultSet resultSet(final List<Map<String, String>> rows) {
+        Iterator<Map<String, String>> iterator = rows.iterator();
+        Map<String, String>[] current = new Map[1];
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "next":
+                    current[0] = iterator.hasNext() ? iterator.next() : null;
+                    return current[0] != null;
+                case "getString":
+                    return current[0].get(args[0]);
+                case "getTimestamp":
+                    String timestamp = current[0].get(args[0]);
+                    return timestamp != null ? new Timestamp(Long.parseLong(timestamp)) : null;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private interface Handler {
+
+        Object invoke(String method, Object[] args) throws SQLException;
+    }
+
+    private static <T> T proxy(final Class<T> type,
+                               final Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return type.getSimpleName() + "@" + System.identityHashCode(proxy);
+                default:
+                    return handler.invoke(method.getName(), args);
+            }
+        }));
+    }
+}
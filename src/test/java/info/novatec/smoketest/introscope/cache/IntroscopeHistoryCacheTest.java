@@ -0,0 +1,134 @@
+package info.novatec.smoketest.introscope.cache;
+
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.model.TimeRange;
+import info.novatec.smoketest.introscope.IntroscopeConfiguration;
+import info.novatec.smoketest.introscope.IntroscopeMetric;
+import info.novatec.smoketest.introscope.IntroscopeMetricTestResult;
+import info.novatec.smoketest.introscope.IntroscopeMetricTestResultCodec;
+import info.novatec.smoketest.introscope.IntroscopeNamePool;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeHistoryCacheTest {
+
+    private static final IntroscopeMetric METRIC = new IntroscopeMetric(".*", "GC Heap", "Bytes In Use");
+
+    private static final TimeRange RANGE = new TimeRange(ZonedDateTime.now().minusDays(8),
+            ZonedDateTime.now().minusDays(7));
+
+    @Test
+    public void testPersistAcrossRestarts() throws IOException {
+        IntroscopeConfiguration configuration = configuration();
+        IntroscopeHistoryCache cache = create(configuration);
+        assertNull(cache.get("a", METRIC, RANGE));
+        cache.put("a", resultSet(3));
+        cache.close();
+
+        IntroscopeHistoryCache loaded = create(configuration);
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet = loaded.get("a", METRIC, RANGE);
+        assertNotNull(resultSet);
+        assertEquals(resultSet.getQuery(), "query");
+        assertEquals(resultSet.getTimeRange(), RANGE);
+        assertEquals(resultSet.getResults().size(), 3);
+        assertEquals(resultSet.getResults().get(2).getValue(), "2");
+        loaded.close();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        IntroscopeConfiguration configuration = configuration();
+        IntroscopeHistoryCache cache = create(configuration);
+        cache.put("a", resultSet(10));
+        long recordSize = new File(configuration.getHistoryCacheFile()).length() - 2 * Integer.BYTES;
+        configuration.setHistoryCacheMaxBytes(2 * recordSize);
+
+        cache.put("b", resultSet(10));
+        assertNotNull(cache.get("a", METRIC, RANGE));
+        cache.put("c", resultSet(10));
+        assertEquals(cache.size(), 2);
+        assertNull(cache.get("b", METRIC, RANGE));
+        assertNotNull(cache.get("a", METRIC, RANGE));
+        assertNotNull(cache.get("c", METRIC, RANGE));
+
+        //Overwriting and evicting leaves dead records which are eventually compacted
+        for (int i = 0; i < 10; i++) {
+            cache.put("c", resultSet(10));
+        }
+        assertTrue(new File(configuration.getHistoryCacheFile()).length() <= 5 * recordSize);
+        assertEquals(cache.get("c", METRIC, RANGE).getResults().size(), 10);
+        cache.close();
+    }
+
+    @Test
+    public void testLargeResultsMoveOffHeap() throws IOException {
+        IntroscopeConfiguration configuration = configuration();
+        //The default caps must not truncate a query before it reaches the off-heap threshold
+        int threshold = configuration.getOffHeapThreshold();
+        assertTrue(configuration.getMaxRowsPerQuery() == 0 || configuration.getMaxRowsPerQuery() > threshold);
+        IntroscopeHistoryCache cache = create(configuration);
+        cache.put("small", resultSet(threshold - 1));
+        cache.put("large", resultSet(threshold));
+
+        assertFalse(cache.get("small", METRIC, RANGE).isOffHeap());
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet = cache.get("large", METRIC, RANGE);
+        assertTrue(resultSet.isOffHeap());
+        assertEquals(resultSet.getResults().size(), threshold);
+        resultSet.release();
+
+        configuration.setOffHeapThreshold(0);
+        assertFalse(cache.get("large", METRIC, RANGE).isOffHeap());
+        cache.close();
+    }
+
+    @Test
+    public void testImmutableWindows() {
+        IntroscopeHistoryCache cache = create(configuration());
+        assertTrue(cache.isImmutable(RANGE));
+        assertFalse(cache.isImmutable(new TimeRange(ZonedDateTime.now().minusHours(1),
+                ZonedDateTime.now().minusMinutes(5))));
+    }
+
+    private static IntroscopeConfiguration configuration() {
+        try {
+            File file = File.createTempFile("history", ".cache");
+            file.delete();
+            file.deleteOnExit();
+            new File(file.getAbsolutePath() + ".idx").deleteOnExit();
+            IntroscopeConfiguration configuration = new IntroscopeConfiguration();
+            configuration.setHistoryCacheFile(file.getAbsolutePath());
+            return configuration;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static IntroscopeHistoryCache create(final IntroscopeConfiguration configuration) {
+        IntroscopeHistoryCache cache = new IntroscopeHistoryCache(configuration,
+                new IntroscopeMetricTestResultCodec(new IntroscopeNamePool()));
+        cache.initialize();
+        return cache;
+    }
+
+    private static MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet(final int count) {
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet =
+                new MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult>(METRIC, RANGE).setQuery("query");
+        for (int i = 0; i < count; i++) {
+            resultSet.addResult(new IntroscopeMetricTestResult("Host|Process|Agent", "GC Heap", "Bytes In Use",
+                    String.valueOf(i)));
+        }
+        return resultSet;
+    }
+}
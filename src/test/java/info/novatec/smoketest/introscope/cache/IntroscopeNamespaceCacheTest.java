@@ -0,0 +1,110 @@
+package info.novatec.smoketest.introscope.cache;
+
+import com.google.common.collect.Sets;
+import info.novatec.smoketest.core.model.TimeRange;
+import info.novatec.smoketest.introscope.IntroscopeConfiguration;
+import info.novatec.smoketest.introscope.discovery.IntroscopeDiscoveryCoverage;
+import info.novatec.smoketest.introscope.discovery.IntroscopeMetricCatalog;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeNamespaceCacheTest {
+
+    private static final TimeRange WINDOW = new TimeRange(ZonedDateTime.now().minusHours(1), ZonedDateTime.now());
+
+    @Test
+    public void testResolveAndPersist() throws IOException {
+        IntroscopeConfiguration configuration = configuration();
+        IntroscopeNamespaceCache cache = new IntroscopeNamespaceCache(configuration, () -> null);
+        cache.initialize();
+        assertNull(cache.resolve(".*", "GC Heap:Bytes In Use", WINDOW));
+
+        cache.update(Collections.singletonList(IntroscopeNamespaceCache.ALL_AGENTS), catalog(true));
+        cache.save();
+
+        IntroscopeNamespaceCache loaded = new IntroscopeNamespaceCache(configuration, () -> null);
+        loaded.initialize();
+        List<String> agents = loaded.resolve(".*", "GC Heap:Bytes In Use", WINDOW);
+        assertEquals(agents, Collections.singletonList("Host|Process|Agent1"));
+        assertTrue(loaded.resolve(".*Agent1", "Servlets\\|MyServlet:Responses Per Interval", WINDOW).isEmpty());
+        assertEquals(loaded.agents(".*").size(), 2);
+    }
+
+    @Test
+    public void testMissingMetricIsUnknown() throws IOException {
+        IntroscopeNamespaceCache cache = new IntroscopeNamespaceCache(configuration(), () -> null);
+        cache.initialize();
+        cache.update(Collections.singletonList(IntroscopeNamespaceCache.ALL_AGENTS), catalog(true));
+        //Expressions, other windows and resources below nodes which were not expanded can not be answered
+        assertNull(cache.resolve(".*", "Servlets\\|.*:.*", WINDOW));
+        assertNull(cache.resolve(".*", "GC Heap:Bytes In Use",
+                new TimeRange(WINDOW.getFrom().minusHours(1), WINDOW.getTo())));
+        assertNull(cache.resolve(".*", "Servlets\\|MyServlet\\|Deep:Responses Per Interval", WINDOW));
+
+        cache.update(Collections.singletonList(IntroscopeNamespaceCache.ALL_AGENTS), catalog(false));
+        assertNull(cache.resolve(".*", "GC Heap:Bytes In Use", WINDOW));
+    }
+
+    @Test
+    public void testLaterRunWithinDiscoveredWindow() throws IOException {
+        IntroscopeConfiguration configuration = configuration();
+        IntroscopeNamespaceCache cache = new IntroscopeNamespaceCache(configuration, () -> null);
+        cache.initialize();
+        cache.update(Collections.singletonList(IntroscopeNamespaceCache.ALL_AGENTS), catalog(true));
+        cache.save();
+
+        //A later run only knows the saved coverage of the first run
+        IntroscopeNamespaceCache later = new IntroscopeNamespaceCache(configuration, () -> null);
+        later.initialize();
+        TimeRange within = new TimeRange(WINDOW.getFrom().plusMinutes(15), WINDOW.getTo().minusMinutes(5));
+        assertEquals(later.resolve(".*", "GC Heap:Bytes In Use", within),
+                Collections.singletonList("Host|Process|Agent1"));
+        assertTrue(later.resolve(".*", "GC Heap:Missing", within).isEmpty());
+        assertNull(later.resolve(".*", "GC Heap:Bytes In Use",
+                new TimeRange(WINDOW.getFrom().plusMinutes(15), WINDOW.getTo().plusMinutes(15))));
+    }
+
+    @Test
+    public void testDisappearedAgentsAreRemoved() throws IOException {
+        IntroscopeNamespaceCache cache = new IntroscopeNamespaceCache(configuration(), () -> null);
+        cache.initialize();
+        cache.record("Host|Process|Agent3", "GC Heap", "Bytes In Use");
+        cache.record("Other|Process|Agent4", "GC Heap", "Bytes In Use");
+        cache.update(Collections.singletonList("Host\\|.*"), catalog(true));
+        assertEquals(Sets.newHashSet(cache.agents(".*")),
+                Sets.newHashSet("Host|Process|Agent1", "Host|Process|Agent2", "Other|Process|Agent4"));
+    }
+
+    private static IntroscopeConfiguration configuration() throws IOException {
+        File file = File.createTempFile("namespace", ".cache");
+        file.delete();
+        file.deleteOnExit();
+        IntroscopeConfiguration configuration = new IntroscopeConfiguration();
+        configuration.setNamespaceCacheFile(file.getAbsolutePath());
+        return configuration;
+    }
+
+    private static IntroscopeMetricCatalog catalog(final boolean complete) {
+        IntroscopeMetricCatalog catalog = new IntroscopeMetricCatalog()
+                .add("Host|Process|Agent1", "GC Heap", "Bytes In Use")
+                .add("Host|Process|Agent2", "Servlets|MyServlet", "Responses Per Interval");
+        IntroscopeDiscoveryCoverage coverage = new IntroscopeDiscoveryCoverage(System.currentTimeMillis(),
+                WINDOW.getFrom().toInstant().toEpochMilli(), WINDOW.getTo().toInstant().toEpochMilli(), complete,
+                Sets.newHashSet("", "GC Heap", "Servlets"));
+        catalog.getCoverage().put(IntroscopeNamespaceCache.ALL_AGENTS, coverage);
+        catalog.getCoverage().put("Host\\|.*", coverage);
+        return catalog;
+    }
+}
@@ -0,0 +1,90 @@
+package info.novatec.smoketest.introscope.split;
+
+import info.novatec.smoketest.core.model.MetricTestResultSet;
+import info.novatec.smoketest.core.service.collector.CollectorChain;
+import info.novatec.smoketest.core.service.collector.IMetricDataCollector;
+import info.novatec.smoketest.introscope.IntroscopeConfiguration;
+import info.novatec.smoketest.introscope.IntroscopeConnectionFactory;
+import info.novatec.smoketest.introscope.IntroscopeMetric;
+import info.novatec.smoketest.introscope.IntroscopeMetricTestResult;
+import info.novatec.smoketest.introscope.IntroscopeNamePool;
+import info.novatec.smoketest.introscope.cache.IntroscopeNamespaceCache;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class IntroscopeSplittingInterceptorTest {
+
+    @Test
+    public void testSplitTruncatedQuery() {
+        IntroscopeConfiguration configuration = new IntroscopeConfiguration();
+        IntroscopeSplitRegistry registry = new IntroscopeSplitRegistry(configuration);
+        List<String> queries = new CopyOnWriteArrayList<>();
+        CollectorChain<IntroscopeMetric, IntroscopeMetricTestResult> chain = chain(configuration, registry, queries);
+        IntroscopeMetric metric = new IntroscopeMetric(".*", "GC Heap", "Bytes In Use");
+
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet = chain.collect(metric);
+        assertEquals(resultSet.getResults().size(), 6);
+        assertTrue(resultSet.getDefinition() == metric);
+        //The agents were only known from a truncated result, thus further agents might be missing
+        assertTrue(resultSet.isTruncated());
+        assertTrue(registry.contains(metric.getFullQualifiedName()));
+        assertEquals(queries.size(), 3);
+        assertEquals(resultSet.getQuery(), "Host\\|Agent1\nHost\\|Agent2");
+    }
+
+    @Test
+    public void testMergedResultsWithinBudget() {
+        IntroscopeConfiguration configuration = new IntroscopeConfiguration();
+        configuration.setOffHeapThreshold(2);
+        configuration.setMaxRowsPerQuery(5);
+        IntroscopeMetric metric = new IntroscopeMetric(".*", "GC Heap", "Bytes In Use");
+
+        MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet = chain(configuration,
+                new IntroscopeSplitRegistry(configuration), new CopyOnWriteArrayList<>()).collect(metric);
+        try {
+            //Each agent query is within the budget, but the merged results are not
+            assertEquals(resultSet.getResults().size(), 5);
+            assertTrue(resultSet.isTruncated());
+            assertTrue(resultSet.isOffHeap());
+            assertEquals(resultSet.getResults().get(4).getAgentName(), "Host\\|Agent2");
+        } finally {
+            resultSet.release();
+        }
+    }
+
+    private static CollectorChain<IntroscopeMetric, IntroscopeMetricTestResult> chain(
+            final IntroscopeConfiguration configuration,
+            final IntroscopeSplitRegistry registry,
+            final List<String> queries) {
+        IntroscopeSplittingInterceptor interceptor = new IntroscopeSplittingInterceptor(configuration, registry,
+                new IntroscopeNamespaceCache(configuration, () -> null), new IntroscopeConnectionFactory(configuration),
+                new IntroscopeNamePool());
+        IMetricDataCollector<IntroscopeMetric, IntroscopeMetricTestResult> collector = definition -> {
+            queries.add(definition.getAgentExpression());
+            MetricTestResultSet<IntroscopeMetric, IntroscopeMetricTestResult> resultSet =
+                    new MetricTestResultSet<>(definition);
+            if (definition.getAgentExpression().equals(".*")) {
+                resultSet.addResult(new IntroscopeMetricTestResult("Host|Agent1", "GC Heap", "Bytes In Use", "1"));
+                resultSet.addResult(new IntroscopeMetricTestResult("Host|Agent2", "GC Heap", "Bytes In Use", "2"));
+                resultSet.setTruncated(true);
+            } else {
+                for (int i = 0; i < 3; i++) {
+                    resultSet.addResult(new IntroscopeMetricTestResult(definition.getAgentExpression(), "GC Heap",
+                            "Bytes In Use", String.valueOf(i)));
+                }
+                resultSet.setQuery(definition.getAgentExpression());
+            }
+            return resultSet;
+        };
+        return new CollectorChain<>(collector, Collections.singletonList(interceptor));
+    }
+}
@@ -0,0 +1,30 @@
+package info.novatec.smoketest.support;
+
+import com.google.common.collect.Sets;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.TestLevel;
+import info.novatec.smoketest.core.model.validation.IValidationRule;
+import info.novatec.smoketest.core.model.validation.ValidationRules;
+import info.novatec.smoketest.core.service.testing.BaseTest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Claudio Waldvogel (claudio.waldvogel@novatec-gmbh.de)
+ */
+public class TestWithFailingCanary extends BaseTest<DummyMetric, DummyMetricResult> {
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Set<MetricTest<DummyMetric, DummyMetricResult>> getMetricTests() {
+        //The dummy collector always delivers exactly one result
+        List<IValidationRule<DummyMetric, DummyMetricResult>> failing =
+                Collections.singletonList((IValidationRule) ValidationRules.expectedOccurrences(2));
+        Set<MetricTest<DummyMetric, DummyMetricResult>> set = Sets.newHashSet();
+        set.add(new MetricTest<>(new DummyMetric("Alive"), TestLevel.LEVEL_0, failing, true));
+        set.add(new MetricTest<>(new DummyMetric("Metric1"), TestLevel.LEVEL_0));
+        set.add(new MetricTest<>(new DummyMetric("Metric2"), TestLevel.LEVEL_0));
+        return set;
+    }
+}
@@ -0,0 +1,44 @@
+package info.novatec.smoketest.support;
+
+import com.google.common.collect.Sets;
+import info.novatec.smoketest.core.model.MetricTest;
+import info.novatec.smoketest.core.model.TestLevel;
+import info.novatec.smoketest.core.model.validation.AssociativeRule;
+import info.novatec.smoketest.core.model.validation.IValidationRule;
+import info.novatec.smoketest.core.model.validation.ValidationResult;
+import info.novatec.smoketest.core.service.testing.BaseTest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Claudio Waldvogel
+ */
+public class TestWithParallelValidation extends BaseTest<DummyMetric, DummyMetricResult> {
+
+    /**
+     * The count of containers created by the rule, a parallel validation creates one per split.
+     */
+    public static final AtomicInteger CONTAINERS = new AtomicInteger();
+
+    @Override
+    protected Set<MetricTest<DummyMetric, DummyMetricResult>> getMetricTests() {
+        List<IValidationRule<DummyMetric, DummyMetricResult>> counting = Collections.singletonList(
+                AssociativeRule.<DummyMetric, DummyMetricResult, AtomicLong>of(() -> {
+                            CONTAINERS.incrementAndGet();
+                            return new AtomicLong();
+                        },
+                        (count, result) -> count.incrementAndGet(),
+                        (count, other) -> count.addAndGet(other.get()),
+                        count -> false,
+                        (resultSet, count) -> count.get() == resultSet.getResults().size()
+                                ? ValidationResult.valid()
+                                : ValidationResult.invalid("Counted " + count.get())));
+        Set<MetricTest<DummyMetric, DummyMetricResult>> set = Sets.newHashSet();
+        set.add(new MetricTest<>(new DummyMetric("Large"), TestLevel.LEVEL_0, counting));
+        return set;
+    }
+}